@@ -0,0 +1,97 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.vector.Aggregator;
+import com.tkb.pandora.vector.BowAggregator;
+import com.tkb.pandora.vector.Codebook;
+import com.tkb.pandora.vector.CompactVlatAggregator;
+import com.tkb.pandora.vector.VladAggregator;
+import com.tkb.pandora.vector.VlatAggregator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark of the aggregation of the local descriptors of a single image
+ * per aggregation method, codebook size and number of descriptors.
+ *
+ * @author Akis Papadopoulos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregatorBenchmark {
+
+    @Param({"bow", "vlad", "vlat", "compact"})
+    public String method;
+
+    @Param({"64", "256"})
+    public int k;
+
+    @Param({"64"})
+    public int d;
+
+    @Param({"500", "3000"})
+    public int descriptors;
+
+    private Aggregator aggregator;
+
+    private double[][] image;
+
+    private double[] vector;
+
+    @Setup
+    public void setUp() {
+        double[][] centroids = SyntheticData.uniform(k, d, 1L);
+
+        Codebook[] codebooks = {new Codebook(centroids)};
+
+        if (method.equals("compact")) {
+            // Projecting residuals onto the first d/8 axes, the cost is the same for any basis
+            int rank = d / 8;
+
+            double[][] basis = new double[k * rank][d];
+
+            for (int w = 0; w < k; w++) {
+                for (int i = 0; i < rank; i++) {
+                    basis[w * rank + i][i] = 1;
+                }
+            }
+
+            aggregator = new CompactVlatAggregator(codebooks, new double[][][]{basis}, true, true);
+        } else if (method.equals("vlad")) {
+            aggregator = new VladAggregator(codebooks, true);
+        } else if (method.equals("vlat")) {
+            aggregator = new VlatAggregator(codebooks, true);
+        } else {
+            aggregator = new BowAggregator(codebooks, true);
+        }
+
+        image = SyntheticData.around(centroids, descriptors, 0.05, 2L);
+
+        vector = new double[aggregator.getSize()];
+    }
+
+    @Benchmark
+    public double[] aggregate() {
+        return aggregator.aggregate(image);
+    }
+
+    @Benchmark
+    public double[] aggregateInPlace() {
+        aggregator.aggregate(image, vector, 0);
+
+        return vector;
+    }
+}
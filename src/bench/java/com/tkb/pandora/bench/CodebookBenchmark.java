@@ -0,0 +1,87 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.vector.AssignmentIndex;
+import com.tkb.pandora.vector.Codebook;
+import com.tkb.pandora.vector.KdForestIndex;
+import com.tkb.pandora.vector.LinearIndex;
+import com.tkb.pandora.vector.NormIndex;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A benchmark of the nearest centroid assignment of a block of descriptors
+ * per codebook size, descriptor width and assignment index, one descriptor at
+ * a time or the whole block at once.
+ *
+ * @author Akis Papadopoulos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodebookBenchmark {
+
+    @Param({"64", "1024", "8192"})
+    public int k;
+
+    @Param({"64", "128"})
+    public int d;
+
+    @Param({"linear", "norm", "kdforest"})
+    public String index;
+
+    // Number of descriptors assigned per invocation
+    private static final int DESCRIPTORS = 1000;
+
+    private Codebook codebook;
+
+    private double[][] descriptors;
+
+    private int[] nearest = new int[DESCRIPTORS];
+
+    @Setup
+    public void setUp() {
+        double[][] centroids = SyntheticData.uniform(k, d, 1L);
+
+        AssignmentIndex assigner;
+
+        if (index.equals("norm")) {
+            assigner = new NormIndex(centroids);
+        } else if (index.equals("kdforest")) {
+            assigner = new KdForestIndex(centroids, 4, 64, 1L);
+        } else {
+            assigner = new LinearIndex(centroids);
+        }
+
+        codebook = new Codebook(centroids, assigner);
+
+        descriptors = SyntheticData.around(centroids, DESCRIPTORS, 0.05, 2L);
+    }
+
+    @Benchmark
+    public void assign(Blackhole blackhole) {
+        for (double[] descriptor : descriptors) {
+            blackhole.consume(codebook.getNearestCentroidIndex(descriptor));
+        }
+    }
+
+    @Benchmark
+    public int[] assignBatch() {
+        codebook.assign(descriptors, nearest);
+
+        return nearest;
+    }
+}
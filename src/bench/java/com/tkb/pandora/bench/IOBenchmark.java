@@ -0,0 +1,69 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.io.FileFormat;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark of writing and reading back a descriptors file per file format
+ * and descriptor width.
+ *
+ * @author Akis Papadopoulos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOBenchmark {
+
+    @Param({"csv", "float32", "float64"})
+    public String format;
+
+    @Param({"1000"})
+    public int rows;
+
+    @Param({"64", "128"})
+    public int cols;
+
+    private FileFormat fileFormat;
+
+    private double[][] matrix;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        fileFormat = FileFormat.parse(format);
+
+        matrix = SyntheticData.uniform(rows, cols, 1L);
+
+        file = File.createTempFile("pandora-bench", ".desc");
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public double[][] roundTrip() throws IOException {
+        fileFormat.write(matrix, file.getPath(), false);
+
+        return fileFormat.read(file.getPath());
+    }
+}
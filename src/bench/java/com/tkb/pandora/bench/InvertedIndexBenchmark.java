@@ -0,0 +1,77 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.math.SparseVector;
+import com.tkb.pandora.search.InvertedIndex;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A benchmark of the top k search of a batch of sparse bags of words in the
+ * inverted file index per number of indexed bags and size of the vocabulary.
+ *
+ * @author Akis Papadopoulos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvertedIndexBenchmark {
+
+    @Param({"10000", "100000"})
+    public int n;
+
+    @Param({"10000", "100000"})
+    public int words;
+
+    // Number of words drawn per bag
+    private static final int HITS = 300;
+
+    // Number of queries searched per invocation
+    private static final int QUERIES = 100;
+
+    // Number of neighbors per query
+    private static final int K = 10;
+
+    private InvertedIndex index;
+
+    private SparseVector[] queries;
+
+    @Setup
+    public void setUp() {
+        SparseVector[] bags = SyntheticData.bags(n, words, HITS, 1L);
+
+        index = new InvertedIndex(words, 1);
+
+        for (int i = 0; i < n; i++) {
+            index.add(i, bags[i]);
+        }
+
+        queries = SyntheticData.bags(QUERIES, words, HITS, 2L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        index.close();
+    }
+
+    @Benchmark
+    public void single(Blackhole blackhole) {
+        for (SparseVector query : queries) {
+            blackhole.consume(index.search(query, K));
+        }
+    }
+}
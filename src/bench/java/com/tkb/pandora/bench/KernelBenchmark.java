@@ -0,0 +1,95 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.math.Kernel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark of the inner loop kernels per kernel and vector size, along
+ * with the power function the signed square root replaces as a baseline.
+ * Vectors are normalized in place over and over, which keeps the components
+ * finite and the cost per call unchanged.
+ *
+ * @author Akis Papadopoulos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+
+    @Param({"scalar", "unrolled"})
+    public String name;
+
+    @Param({"64", "128", "32768"})
+    public int size;
+
+    private Kernel kernel;
+
+    private double[] a;
+
+    private double[] b;
+
+    private double[] vector;
+
+    @Setup
+    public void setUp() {
+        kernel = Kernel.of(name);
+
+        a = SyntheticData.uniform(1, size, 1L)[0];
+        b = SyntheticData.uniform(1, size, 2L)[0];
+
+        vector = SyntheticData.uniform(1, size, 3L)[0];
+
+        // Having negative components as residual vectors do
+        for (int i = 0; i < size; i += 2) {
+            vector[i] = -vector[i];
+        }
+    }
+
+    @Benchmark
+    public double distance() {
+        return kernel.distance(a, b, Double.POSITIVE_INFINITY);
+    }
+
+    @Benchmark
+    public double dot() {
+        return kernel.dot(a, 0, b, size);
+    }
+
+    @Benchmark
+    public double[] residual() {
+        kernel.residual(a, b, vector, 0, size);
+        kernel.residual(b, a, vector, 0, size);
+
+        return vector;
+    }
+
+    @Benchmark
+    public double[] sqrt() {
+        kernel.sqrt(vector, 0, size);
+
+        return vector;
+    }
+
+    @Benchmark
+    public double[] power() {
+        for (int i = 0; i < size; i++) {
+            vector[i] = Math.signum(vector[i]) * Math.pow(Math.abs(vector[i]), 0.5);
+        }
+
+        return vector;
+    }
+}
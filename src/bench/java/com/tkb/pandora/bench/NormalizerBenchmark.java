@@ -0,0 +1,60 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.math.Normalizer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark of the power and Euclidean normalization of aggregated vectors
+ * per vector size. Vectors are normalized in place over and over, which keeps
+ * the components finite and the cost per call unchanged.
+ *
+ * @author Akis Papadopoulos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NormalizerBenchmark {
+
+    @Param({"4096", "32768"})
+    public int size;
+
+    private double[] vector;
+
+    @Setup
+    public void setUp() {
+        vector = SyntheticData.uniform(1, size, 1L)[0];
+
+        // Having negative components as residual vectors do
+        for (int i = 0; i < size; i += 2) {
+            vector[i] = -vector[i];
+        }
+    }
+
+    @Benchmark
+    public double[] power() {
+        Normalizer.power(vector, 0.5);
+
+        return vector;
+    }
+
+    @Benchmark
+    public double[] euclidean() {
+        Normalizer.euclidean(vector);
+
+        return vector;
+    }
+}
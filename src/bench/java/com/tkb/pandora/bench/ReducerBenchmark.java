@@ -0,0 +1,65 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.math.ProjectionReducer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark of the projection of a single vector and of a batch of vectors
+ * onto the most dominant principal components per vector size and number of
+ * components.
+ *
+ * @author Akis Papadopoulos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReducerBenchmark {
+
+    @Param({"4096", "16384"})
+    public int size;
+
+    @Param({"128", "256"})
+    public int components;
+
+    private ProjectionReducer reducer;
+
+    private double[] vector;
+
+    private double[][] batch;
+
+    @Setup
+    public void setUp() {
+        double[][] subspace = SyntheticData.uniform(components, size, 1L);
+        double[] mean = SyntheticData.uniform(1, size, 2L)[0];
+
+        reducer = new ProjectionReducer(subspace, mean, false);
+
+        vector = SyntheticData.uniform(1, size, 3L)[0];
+
+        batch = SyntheticData.uniform(64, size, 4L);
+    }
+
+    @Benchmark
+    public double[] reduce() {
+        return reducer.reduce(vector);
+    }
+
+    @Benchmark
+    public double[][] reduceBatch() throws Exception {
+        return reducer.reduce(batch);
+    }
+}
@@ -0,0 +1,103 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.search.FlatIndex;
+import com.tkb.pandora.search.IvfPqIndex;
+import com.tkb.pandora.search.Metric;
+import com.tkb.pandora.search.SearchIndex;
+import com.tkb.pandora.search.VectorMatrix;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A benchmark of the top k search of a batch of queries per number of indexed
+ * vectors, number of threads and index, either the brute force or the product
+ * quantized inverted file index.
+ *
+ * @author Akis Papadopoulos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"10000", "100000"})
+    public int n;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"flat", "ivfpq"})
+    public String index;
+
+    // Width of the indexed vectors
+    private static final int D = 128;
+
+    // Number of queries searched per invocation
+    private static final int QUERIES = 100;
+
+    // Number of neighbors per query
+    private static final int K = 10;
+
+    private SearchIndex searcher;
+
+    private double[][] queries;
+
+    @Setup
+    public void setUp() throws Exception {
+        double[][] vectors = SyntheticData.uniform(n, D, 1L);
+
+        if (index.equals("ivfpq")) {
+            // Training upon the first vectors, 256 lists of 16 byte codes
+            IvfPqIndex ivfpq = IvfPqIndex.train(Arrays.copyOf(vectors, 10000), 256, 16, 256, 10, 16, threads, 1L);
+
+            for (int i = 0; i < n; i++) {
+                ivfpq.add(i, vectors[i]);
+            }
+
+            searcher = ivfpq;
+        } else {
+            VectorMatrix matrix = new VectorMatrix(n, D);
+
+            for (int i = 0; i < n; i++) {
+                matrix.set(i, vectors[i]);
+            }
+
+            searcher = new FlatIndex(matrix, Metric.L2, threads);
+        }
+
+        queries = SyntheticData.uniform(QUERIES, D, 2L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        searcher.close();
+    }
+
+    @Benchmark
+    public void batch(Blackhole blackhole) throws Exception {
+        blackhole.consume(searcher.search(queries, K, null));
+    }
+
+    @Benchmark
+    public void single(Blackhole blackhole) throws Exception {
+        for (double[] query : queries) {
+            blackhole.consume(searcher.search(query, K));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.tkb.pandora.bench;
+
+import com.tkb.pandora.math.SparseVector;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A generator of deterministic synthetic data, where descriptors are drawn
+ * around a set of centroids so assignments behave like real vocabularies.
+ *
+ * @author Akis Papadopoulos
+ */
+public final class SyntheticData {
+
+    /**
+     * A method generating a matrix of uniform random components in [0, 1).
+     *
+     * @param rows the number of rows.
+     * @param cols the number of columns.
+     * @param seed the seed number.
+     * @return the random matrix.
+     */
+    public static double[][] uniform(int rows, int cols, long seed) {
+        Random rand = new Random(seed);
+
+        double[][] matrix = new double[rows][cols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = rand.nextDouble();
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * A method generating descriptors scattered with gaussian noise around
+     * randomly chosen centroids.
+     *
+     * @param centroids the centroids to scatter around.
+     * @param rows the number of descriptors.
+     * @param sigma the standard deviation of the noise.
+     * @param seed the seed number.
+     * @return the descriptors.
+     */
+    public static double[][] around(double[][] centroids, int rows, double sigma, long seed) {
+        Random rand = new Random(seed);
+
+        int cols = centroids[0].length;
+
+        double[][] matrix = new double[rows][cols];
+
+        for (int i = 0; i < rows; i++) {
+            double[] centroid = centroids[rand.nextInt(centroids.length)];
+
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = centroid[j] + sigma * rand.nextGaussian();
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * A method generating sparse bags of words, each one counting the given
+     * number of words drawn out of the vocabulary, where words of low id are
+     * drawn more often as the frequent words of a real vocabulary.
+     *
+     * @param rows the number of bags.
+     * @param words the size of the vocabulary.
+     * @param hits the number of words drawn per bag.
+     * @param seed the seed number.
+     * @return the bags of words.
+     */
+    public static SparseVector[] bags(int rows, int words, int hits, long seed) {
+        Random rand = new Random(seed);
+
+        SparseVector[] bags = new SparseVector[rows];
+
+        double[] bag = new double[words];
+
+        for (int i = 0; i < rows; i++) {
+            Arrays.fill(bag, 0);
+
+            for (int n = 0; n < hits; n++) {
+                bag[(int) (words * Math.pow(rand.nextDouble(), 2))]++;
+            }
+
+            bags[i] = SparseVector.of(bag);
+        }
+
+        return bags;
+    }
+}
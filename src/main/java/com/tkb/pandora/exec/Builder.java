@@ -2,17 +2,39 @@ package com.tkb.pandora.exec;
 
 import java.io.*;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.tkb.pandora.vector.Aggregator;
+import com.tkb.pandora.vector.AssignmentIndex;
 import com.tkb.pandora.vector.BowAggregator;
 import com.tkb.pandora.vector.Codebook;
+import com.tkb.pandora.vector.CompactVlatAggregator;
+import com.tkb.pandora.vector.FloatAggregator;
+import com.tkb.pandora.vector.FloatBowAggregator;
+import com.tkb.pandora.vector.FloatCodebook;
+import com.tkb.pandora.vector.FloatVladAggregator;
+import com.tkb.pandora.vector.FloatVlatAggregator;
+import com.tkb.pandora.vector.KdForestIndex;
+import com.tkb.pandora.vector.LinearIndex;
+import com.tkb.pandora.vector.NormIndex;
+import com.tkb.pandora.vector.ParallelAggregator;
 import com.tkb.pandora.vector.VladAggregator;
 import com.tkb.pandora.vector.VlatAggregator;
-import com.tkb.pandora.io.Writer;
+import com.tkb.pandora.io.DescriptorSource;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
 import com.tkb.pandora.io.Reader;
-import com.tkb.pandora.io.MultipleFileNameFilter;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.io.VectorWriter;
+import com.tkb.pandora.io.Writer;
+import com.tkb.pandora.math.SparseVector;
 import com.tkb.pandora.util.SmartProperties;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
 import org.apache.log4j.Logger;
 
 /**
@@ -25,9 +47,9 @@ import org.apache.log4j.Logger;
  */
 public class Builder {
 
-    // Statistics
-    private static DescriptiveStatistics descStats = new DescriptiveStatistics();
-    private static DescriptiveStatistics aggStats = new DescriptiveStatistics();
+    // Statistics, shared across the building workers
+    private static SynchronizedDescriptiveStatistics descStats = new SynchronizedDescriptiveStatistics();
+    private static SynchronizedDescriptiveStatistics aggStats = new SynchronizedDescriptiveStatistics();
 
     // Formater
     private static DecimalFormat formater = new DecimalFormat("#.###");
@@ -35,6 +57,8 @@ public class Builder {
     public static void main(String[] args) {
         Logger logger = null;
 
+        Aggregator aggregator = null;
+
         try {
             // Loading configuration properties
             SmartProperties props = new SmartProperties();
@@ -42,10 +66,30 @@ public class Builder {
 
             String inpath = props.getProperty("local.descriptors.input.file.path");
             String extension = props.getProperty("local.descriptors.file.extension");
+            FileFormat informat = FileFormat.parse(props.getProperty("local.descriptors.file.format", "csv"));
+            StorageLayout inlayout = StorageLayout.parse(props.getProperty("local.descriptors.layout", "files"));
+            boolean verify = Boolean.parseBoolean(props.getProperty("local.descriptors.store.verify", "false"));
             String method = props.getProperty("building.aggregation.method");
             boolean normalize = Boolean.parseBoolean(props.getProperty("building.vector.normalization", "true"));
+            String precision = props.getProperty("building.precision", "double");
+
             List<String> vocabs = props.matchProperties("building.vocab.\\d+");
+            String assignment = props.getProperty("building.assignment.index", "linear");
+            int trees = Integer.parseInt(props.getProperty("building.assignment.trees", "4"));
+            int checks = Integer.parseInt(props.getProperty("building.assignment.checks", "64"));
+            long seed = Long.parseLong(props.getProperty("building.assignment.seed", "1"));
+            int validation = Integer.parseInt(props.getProperty("building.assignment.validation", "0"));
+            int neighbors = Integer.parseInt(props.getProperty("building.assignment.neighbors", "1"));
+            double sigma = Double.parseDouble(props.getProperty("building.assignment.sigma", "0.2"));
+            int rank = Integer.parseInt(props.getProperty("building.vlat.rank", "0"));
+            boolean triangle = Boolean.parseBoolean(props.getProperty("building.vlat.triangle", "true"));
+            List<String> basisFiles = props.matchProperties("building.vlat.basis.\\d+");
+            int trainingSize = Integer.parseInt(props.getProperty("building.vlat.training.size", "100000"));
             String outpath = props.getProperty("descriptors.output.file.path");
+            int workers = Integer.parseInt(props.getProperty("building.workers", "1"));
+            int vocabWorkers = Integer.parseInt(props.getProperty("building.vocab.workers", "1"));
+            FileFormat outformat = FileFormat.parse(props.getProperty("descriptors.output.file.format", "csv"));
+            StorageLayout outlayout = StorageLayout.parse(props.getProperty("descriptors.output.layout", "files"));
             String logfile = outpath + "/build.log";
 
             // Setting up the logger
@@ -58,66 +102,180 @@ public class Builder {
             logger.info("File: " + args[0]);
             logger.info("Descriptors: " + inpath);
             logger.info("Type: " + extension);
+            logger.info("Format: " + informat);
+            logger.info("Layout: " + inlayout);
             logger.info("Method: " + method);
+
+            boolean compact = method.equalsIgnoreCase("vlat") && rank > 0;
+
+            if (compact) {
+                logger.info(" Rank: " + rank);
+                logger.info(" Triangle: " + triangle);
+            }
+
             logger.info("Normalization: " + normalize);
+            logger.info("Precision: " + precision);
+
+            boolean single = precision.equalsIgnoreCase("single");
 
-            // Loading local descriptor files
-            File dirin = new File(inpath);
-            String[] filenames = dirin.list(new MultipleFileNameFilter(extension));
+            if (!single && !precision.equalsIgnoreCase("double")) {
+                throw new Exception("Unknown precision: " + precision);
+            }
+
+            if (single && compact) {
+                throw new Exception("Compact vlat is supported in double precision only");
+            }
+
+            logger.info("Assignment: " + (single ? "linear" : assignment));
+
+            if (!single && assignment.equalsIgnoreCase("kdforest")) {
+                logger.info(" Trees: " + trees);
+                logger.info(" Checks: " + checks);
+                logger.info(" Seed: " + seed);
+            }
+
+            if (neighbors > 1) {
+                logger.info(" Neighbors: " + neighbors);
+                logger.info(" Sigma: " + sigma);
+
+                if (single || !(method.equalsIgnoreCase("bow") || method.equalsIgnoreCase("vlad"))) {
+                    throw new Exception("Soft assignment is supported by bow and vlad in double precision only");
+                }
+
+                if (!(sigma > 0)) {
+                    throw new Exception("Soft assignment sigma must be positive: " + sigma);
+                }
+            }
+
+            logger.info("Output Format: " + outformat);
+            logger.info("Output Layout: " + outlayout);
+
+            // Opening the checkpoint journal, keeping only the vectors in place after a crash
+            Journal journal = new Journal(outpath + "/build.journal", Journal.hash(props, "local.descriptors.input.file.path", "local.descriptors.file.format",
+                    "local.descriptors.layout", "building.aggregation.method", "building.vector.normalization", "building.precision", "building.vocab.\\d+",
+                    "building.assignment.index", "building.assignment.trees", "building.assignment.checks", "building.assignment.seed",
+                    "building.assignment.neighbors", "building.assignment.sigma",
+                    "building.vlat.rank", "building.vlat.triangle", "building.vlat.basis.\\d+", "descriptors.output.file.format", "descriptors.output.layout"));
+
+            Set<String> recovered = outlayout.recoverVectors(outpath);
+
+            if (recovered != null) {
+                journal.retain(recovered);
+            }
+
+            logger.info("Journal: " + journal.size() + " images already built");
+
+            // Opening the local descriptors
+            DescriptorSource source = inlayout.descriptorSource(inpath, extension, informat, verify);
 
             // Loading up vocabularies given each file path in restricted order
             Codebook[] codebooks = new Codebook[vocabs.size()];
+            FloatCodebook[] floatCodebooks = new FloatCodebook[vocabs.size()];
 
             // Be aware order matters
             for (int i = 0; i < vocabs.size(); i++) {
                 String vocab = vocabs.get(i);
 
-                double[][] centroids = Reader.read(vocab);
+                logger.info("Vocab " + (i + 1) + ": " + vocab);
+
+                // Single precision codebooks assign by a linear scan
+                if (single) {
+                    floatCodebooks[i] = new FloatCodebook(Reader.readFloat(vocab));
 
-                Codebook codebook = new Codebook(centroids);
+                    continue;
+                }
 
-                codebooks[i] = codebook;
+                double[][] centroids = Reader.read(vocab);
 
-                logger.info("Vocab " + (i + 1) + ": " + vocab);
+                // Setting up the index assigning descriptors to centroids
+                codebooks[i] = new Codebook(centroids, index(centroids, assignment, trees, checks, seed));
             }
 
-            // Setting up the aggregator
-            Aggregator aggregator = null;
+            // Validating the assignment index against the brute force baseline
+            if (!single && validation > 0 && !assignment.equalsIgnoreCase("linear")) {
+                double[][] sample = sample(source, validation);
 
-            if (method.equalsIgnoreCase("bow")) {
-                aggregator = new BowAggregator(codebooks, normalize);
-            } else if (method.equalsIgnoreCase("vlad")) {
-                aggregator = new VladAggregator(codebooks, normalize);
-            } else if (method.equalsIgnoreCase("vlat")) {
-                aggregator = new VlatAggregator(codebooks, normalize);
+                for (int i = 0; i < codebooks.length; i++) {
+                    validate(codebooks[i], sample, i + 1, logger);
+                }
             }
 
-            logger.info("Process started");
+            // Setting up the compact vlat bases per vocabulary, loaded if existing otherwise trained upon a sample
+            double[][][] bases = null;
+
+            if (compact) {
+                if (basisFiles.size() != codebooks.length) {
+                    throw new Exception("Number of vlat bases must match the number of vocabs: " + basisFiles.size() + " <> " + codebooks.length);
+                }
+
+                bases = new double[codebooks.length][][];
+
+                double[][] sample = null;
 
-            // Aggregating local descriptors per image
-            for (int i = 0; i < filenames.length; i++) {
-                // Loading local descriptor
-                double[][] descriptors = Reader.read(dirin.getPath() + "/" + filenames[i]);
+                for (int i = 0; i < codebooks.length; i++) {
+                    String basisFile = basisFiles.get(i);
 
-                descStats.addValue(descriptors.length);
+                    if (new File(basisFile).exists()) {
+                        bases[i] = Reader.read(basisFile);
 
-                // Vectorizing descriptors
-                double[] vector = aggregator.aggregate(descriptors);
+                        logger.info("Vlat Basis " + (i + 1) + ": " + basisFile);
+                    } else {
+                        if (sample == null) {
+                            sample = sample(source, trainingSize);
+                        }
 
-                aggStats.addValue(vector.length);
+                        bases[i] = CompactVlatAggregator.train(codebooks[i], sample, rank);
+
+                        Writer.write(bases[i], basisFile, false);
+
+                        logger.info("Vlat Basis " + (i + 1) + ": " + basisFile + " (trained upon " + sample.length + " descriptors)");
+                    }
+                }
+            }
 
-                // Saving vector with an identical filename
-                int pos = filenames[i].lastIndexOf(".");
-                String filepath = outpath + "/" + filenames[i].substring(0, pos) + "." + method;
+            // Setting up the aggregator regarding the precision
+            FloatAggregator floatAggregator = null;
 
-                Writer.write(vector, filepath, false);
+            if (single) {
+                if (method.equalsIgnoreCase("bow")) {
+                    floatAggregator = new FloatBowAggregator(floatCodebooks, normalize);
+                } else if (method.equalsIgnoreCase("vlad")) {
+                    floatAggregator = new FloatVladAggregator(floatCodebooks, normalize);
+                } else if (method.equalsIgnoreCase("vlat")) {
+                    floatAggregator = new FloatVlatAggregator(floatCodebooks, normalize);
+                }
+            } else if (compact && vocabWorkers > 1 && codebooks.length > 1) {
+                Aggregator[] parts = new Aggregator[codebooks.length];
 
-                if (i % 100 == 0) {
-                    int progress = (i * 100) / filenames.length;
-                    logger.info(progress + "%...");
+                for (int i = 0; i < codebooks.length; i++) {
+                    parts[i] = new CompactVlatAggregator(new Codebook[]{codebooks[i]}, new double[][][]{bases[i]}, triangle, normalize);
                 }
+
+                aggregator = new ParallelAggregator(parts, normalize, vocabWorkers);
+            } else if (compact) {
+                aggregator = new CompactVlatAggregator(codebooks, bases, triangle, normalize);
+            } else {
+                aggregator = aggregator(method, codebooks, neighbors, sigma, normalize, vocabWorkers);
+            }
+
+            if (aggregator == null && floatAggregator == null) {
+                throw new Exception("Unknown aggregation method: " + method);
             }
 
+            logger.info("Workers: " + workers);
+
+            if (aggregator instanceof ParallelAggregator) {
+                logger.info("Vocab Workers: " + vocabWorkers);
+            }
+
+            logger.info("Process started");
+
+            build(aggregator, floatAggregator, method, source, outpath, outformat, outlayout, workers, journal, logger);
+
+            source.close();
+
+            journal.close();
+
             logger.info("100%");
             logger.info("Process completed successfuly");
             logger.info("Images: " + descStats.getN());
@@ -133,6 +291,338 @@ public class Builder {
             } else {
                 exc.printStackTrace();
             }
+        } finally {
+            // Releasing the threads computing the vocabularies in parallel
+            if (aggregator instanceof ParallelAggregator) {
+                ((ParallelAggregator) aggregator).close();
+            }
+        }
+    }
+
+    /**
+     * A method aggregating the local descriptors of every image of the given
+     * source by the given number of workers sharing the aggregator, each
+     * writing to an output of its own, either per file or per segment, and
+     * skipping the images in the journal.
+     *
+     * @param aggregator the aggregator, null in single precision.
+     * @param floatAggregator the single precision aggregator, null in double
+     * precision.
+     * @param method the aggregation method used as output extension.
+     * @param source the local descriptors.
+     * @param outpath the aggregated vectors output path.
+     * @param outformat the aggregated vectors file format.
+     * @param outlayout the aggregated vectors storage layout.
+     * @param workers the number of workers.
+     * @param journal the checkpoint journal.
+     * @param logger the logger.
+     * @throws InterruptedException an exception thrown if interrupted while
+     * waiting for the workers.
+     */
+    public static void build(Aggregator aggregator, FloatAggregator floatAggregator, String method, DescriptorSource source, String outpath, FileFormat outformat, StorageLayout outlayout, int workers, Journal journal, Logger logger) throws InterruptedException {
+        // Sharing a cursor so each worker picks the next unprocessed file
+        AtomicInteger cursor = new AtomicInteger(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+
+        // Aggregating local descriptors per image, codebooks are only read so the aggregator is shared
+        for (int w = 0; w < workers; w++) {
+            executor.execute(new Worker(aggregator, floatAggregator, method, source, outpath, outformat, outlayout, journal, cursor, logger));
+        }
+
+        executor.shutdown();
+
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            // Waiting for all workers to complete
+        }
+    }
+
+    /**
+     * A method creating the index assigning descriptors to the given centroids.
+     *
+     * @param centroids the centroids.
+     * @param assignment the index type, e.g. linear, norm or kdforest.
+     * @param trees the number of randomized trees of the kdforest index.
+     * @param checks the maximum centroids checked per descriptor of the
+     * kdforest index.
+     * @param seed the seed of the kdforest randomized splits.
+     * @return the assignment index.
+     * @throws Exception an exception thrown if the index type is unknown.
+     */
+    static AssignmentIndex index(double[][] centroids, String assignment, int trees, int checks, long seed) throws Exception {
+        if (assignment.equalsIgnoreCase("linear")) {
+            return new LinearIndex(centroids);
+        } else if (assignment.equalsIgnoreCase("norm")) {
+            return new NormIndex(centroids);
+        } else if (assignment.equalsIgnoreCase("kdforest")) {
+            return new KdForestIndex(centroids, trees, checks, seed);
+        } else {
+            throw new Exception("Unknown assignment index: " + assignment);
+        }
+    }
+
+    /**
+     * A method creating the aggregator of the given method upon the given
+     * codebooks, where bow and vlad assign each descriptor softly to the given
+     * number of nearest words.
+     *
+     * @param method the aggregation method, e.g. bow, vlad or vlat.
+     * @param codebooks the codebooks.
+     * @param neighbors the number of nearest words, 1 for hard assignment.
+     * @param sigma the bandwidth of the kernel weighting the nearest words.
+     * @param normalize true to normalize the aggregated vectors.
+     * @return the aggregator, or null if the method is unknown.
+     */
+    static Aggregator aggregator(String method, Codebook[] codebooks, int neighbors, double sigma, boolean normalize) {
+        if (method.equalsIgnoreCase("bow")) {
+            return new BowAggregator(codebooks, neighbors, sigma, normalize);
+        } else if (method.equalsIgnoreCase("vlad")) {
+            return new VladAggregator(codebooks, neighbors, sigma, normalize);
+        } else if (method.equalsIgnoreCase("vlat")) {
+            return new VlatAggregator(codebooks, normalize);
+        }
+
+        return null;
+    }
+
+    /**
+     * A method creating the aggregator of the given method upon the given
+     * codebooks, computing the sub-vectors of multiple codebooks of an image
+     * concurrently if more than one thread is given.
+     *
+     * @param method the aggregation method, e.g. bow, vlad or vlat.
+     * @param codebooks the codebooks.
+     * @param neighbors the number of nearest words, 1 for hard assignment.
+     * @param sigma the bandwidth of the kernel weighting the nearest words.
+     * @param normalize true to normalize the aggregated vectors.
+     * @param threads the number of parallel threads per image.
+     * @return the aggregator, or null if the method is unknown.
+     */
+    static Aggregator aggregator(String method, Codebook[] codebooks, int neighbors, double sigma, boolean normalize, int threads) {
+        if (threads <= 1 || codebooks.length <= 1) {
+            return aggregator(method, codebooks, neighbors, sigma, normalize);
+        }
+
+        Aggregator[] parts = new Aggregator[codebooks.length];
+
+        for (int i = 0; i < codebooks.length; i++) {
+            parts[i] = aggregator(method, new Codebook[]{codebooks[i]}, neighbors, sigma, normalize);
+
+            if (parts[i] == null) {
+                return null;
+            }
+        }
+
+        return new ParallelAggregator(parts, normalize, threads);
+    }
+
+    /**
+     * A method collecting the given number of local descriptors from the first
+     * images in order.
+     *
+     * @param source the local descriptors.
+     * @param size the number of descriptors to collect.
+     * @return the collected descriptors.
+     * @throws IOException an unknown exception.
+     */
+    private static double[][] sample(DescriptorSource source, int size) throws IOException {
+        List<double[]> sample = new ArrayList<double[]>();
+
+        for (int i = 0; i < source.size() && sample.size() < size; i++) {
+            double[][] descriptors = source.read(i);
+
+            for (int j = 0; j < descriptors.length && sample.size() < size; j++) {
+                sample.add(descriptors[j]);
+            }
+        }
+
+        return sample.toArray(new double[sample.size()][]);
+    }
+
+    /**
+     * A method reporting the accuracy and the speed up of the assignment index
+     * of the given codebook against a brute force linear scan.
+     *
+     * @param codebook the codebook.
+     * @param sample the descriptors to assign.
+     * @param number the serial number of the codebook.
+     * @param logger the logger.
+     */
+    private static void validate(Codebook codebook, double[][] sample, int number, Logger logger) {
+        LinearIndex baseline = new LinearIndex(codebook.getCentroids());
+
+        int[] expected = new int[sample.length];
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < sample.length; i++) {
+            expected[i] = baseline.assign(sample[i]);
+        }
+
+        long linearTime = System.nanoTime() - start;
+
+        int matches = 0;
+
+        start = System.nanoTime();
+
+        for (int i = 0; i < sample.length; i++) {
+            if (codebook.getNearestCentroidIndex(sample[i]) == expected[i]) {
+                matches++;
+            }
+        }
+
+        long indexTime = System.nanoTime() - start;
+
+        logger.info("Vocab " + number + " Validation: " + sample.length + " descriptors");
+        logger.info(" Accuracy: " + formater.format(matches * 100.0 / Math.max(1, sample.length)) + "%");
+        logger.info(" Speedup: " + formater.format(linearTime / (double) Math.max(1, indexTime)) + "x");
+    }
+
+    /**
+     * A worker reading, aggregating and writing the descriptor files not yet
+     * picked up by any other worker, so reads, aggregations and writes of
+     * different files overlap across workers.
+     */
+    private static class Worker implements Runnable {
+
+        // Shared aggregator, either of double or single precision
+        private Aggregator aggregator;
+        private FloatAggregator floatAggregator;
+
+        // Aggregation method used as output extension
+        private String method;
+
+        // Local descriptors shared across the workers
+        private DescriptorSource source;
+
+        // Aggregated vectors output path, file format and storage layout
+        private String outpath;
+        private FileFormat outformat;
+        private StorageLayout outlayout;
+
+        // Shared checkpoint journal
+        private Journal journal;
+
+        // Shared index of the next file to process
+        private AtomicInteger cursor;
+
+        // Logger
+        private Logger logger;
+
+        /**
+         * A constructor initiating the worker given the shared aggregator and
+         * the building state.
+         *
+         * @param aggregator the shared aggregator, null in single precision.
+         * @param floatAggregator the shared single precision aggregator, null
+         * in double precision.
+         * @param method the aggregation method.
+         * @param source the shared local descriptors.
+         * @param outpath the aggregated vectors output path.
+         * @param outformat the aggregated vectors file format.
+         * @param outlayout the aggregated vectors storage layout, where each
+         * worker appends to a segment of its own in the store layout.
+         * @param journal the shared checkpoint journal.
+         * @param cursor the shared index of the next file to process.
+         * @param logger the logger.
+         */
+        public Worker(Aggregator aggregator, FloatAggregator floatAggregator, String method, DescriptorSource source, String outpath, FileFormat outformat, StorageLayout outlayout, Journal journal, AtomicInteger cursor, Logger logger) {
+            this.aggregator = aggregator;
+            this.floatAggregator = floatAggregator;
+            this.method = method;
+            this.source = source;
+            this.outpath = outpath;
+            this.outformat = outformat;
+            this.outlayout = outlayout;
+            this.journal = journal;
+            this.cursor = cursor;
+            this.logger = logger;
+        }
+
+        @Override
+        public void run() {
+            VectorWriter writer = null;
+
+            try {
+                // Opening a writer of its own, either per file or per segment
+                writer = outlayout.writer(outpath, method, outformat);
+
+                // Aggregating bags of words straight into the sparse form when written sparse
+                BowAggregator sparse = outformat == FileFormat.SPARSE && aggregator instanceof BowAggregator ? (BowAggregator) aggregator : null;
+
+                // Reusing a single vector per worker, aggregated in place per image
+                double[] vector = aggregator != null ? new double[aggregator.getSize()] : null;
+                float[] floatVector = floatAggregator != null ? new float[floatAggregator.getSize()] : null;
+
+                int i;
+
+                while ((i = cursor.getAndIncrement()) < source.size()) {
+                    try {
+                        // Saving vector under an identical id
+                        String id = source.getId(i);
+
+                        // Skipping images built by a previous run
+                        if (journal.contains(id)) {
+                            continue;
+                        }
+
+                        if (floatAggregator != null) {
+                            // Loading, vectorizing and saving in single precision
+                            float[][] descriptors = source.readFloat(i);
+
+                            descStats.addValue(descriptors.length);
+
+                            floatAggregator.aggregate(descriptors, floatVector, 0);
+
+                            aggStats.addValue(floatVector.length);
+
+                            writer.write(id, floatVector);
+                        } else if (sparse != null) {
+                            // Loading, vectorizing and saving only the words hit
+                            double[][] descriptors = source.read(i);
+
+                            descStats.addValue(descriptors.length);
+
+                            SparseVector bow = sparse.aggregateSparse(descriptors);
+
+                            aggStats.addValue(bow.getDimension());
+
+                            writer.write(id, bow);
+                        } else {
+                            // Loading local descriptor
+                            double[][] descriptors = source.read(i);
+
+                            descStats.addValue(descriptors.length);
+
+                            // Vectorizing descriptors
+                            aggregator.aggregate(descriptors, vector, 0);
+
+                            aggStats.addValue(vector.length);
+
+                            writer.write(id, vector);
+                        }
+
+                        journal.commit(id);
+
+                        if (i % 100 == 0) {
+                            int progress = (i * 100) / source.size();
+                            logger.info(progress + "%...");
+                        }
+                    } catch (Exception exc) {
+                        logger.error("An unknown error occurred building fixed size descriptor for image " + source.getId(i), exc);
+                    }
+                }
+            } catch (IOException exc) {
+                logger.error("An unknown error occurred opening the fixed size descriptors output", exc);
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException exc) {
+                        logger.error("An unknown error occurred closing the fixed size descriptors output", exc);
+                    }
+                }
+            }
         }
     }
 }
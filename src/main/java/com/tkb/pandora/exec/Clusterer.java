@@ -1,8 +1,14 @@
 package com.tkb.pandora.exec;
 
 import java.io.*;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Properties;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.RowIterator;
 import com.tkb.pandora.io.Writer;
+import com.tkb.pandora.math.KMeans;
+import com.tkb.pandora.math.ReservoirSampler;
 import org.apache.log4j.Logger;
 import weka.clusterers.SimpleKMeans;
 import weka.core.Instances;
@@ -10,7 +16,10 @@ import weka.core.SelectedTag;
 import weka.core.converters.CSVLoader;
 
 /**
- * A k-means clusterer building centroids given data vector instances.
+ * A k-means clusterer building centroids given data vector instances, either
+ * by parallel Lloyd iterations upon the instances loaded in memory, by
+ * mini-batch iterations streaming the instances from the file or by the weka
+ * simple k-means clusterer.
  *
  * Run as: mvn exec:java -Dexec.mainClass="com.tkb.pandora.exec.Clusterer" -Dexec.args="path/to/config.properties"
  *
@@ -27,9 +36,17 @@ public class Clusterer {
             props.load(new FileInputStream(args[0]));
 
             String inpath = props.getProperty("instances.input.file.path");
+            FileFormat informat = FileFormat.parse(props.getProperty("instances.file.format", "csv"));
+            String algorithm = props.getProperty("clustering.algorithm", "lloyd");
             int k = Integer.parseInt(props.getProperty("clustering.clusters.number", "64"));
             int iterations = Integer.parseInt(props.getProperty("clustering.max.iterations", "100"));
+            double tolerance = Double.parseDouble(props.getProperty("clustering.tolerance", "0.0001"));
             int seed = Integer.parseInt(props.getProperty("clustering.seed.number", "1"));
+            String seeding = props.getProperty("clustering.seeding", "kmeans++");
+            int sampleSize = Integer.parseInt(props.getProperty("clustering.seeding.sample", "100000"));
+            int rounds = Integer.parseInt(props.getProperty("clustering.seeding.rounds", "5"));
+            double oversampling = Double.parseDouble(props.getProperty("clustering.seeding.oversampling", "2.0"));
+            int batchSize = Integer.parseInt(props.getProperty("clustering.batch.size", "1024"));
             boolean initialize = Boolean.parseBoolean(props.getProperty("clustering.centroids.initialization", "false"));
             boolean fast = Boolean.parseBoolean(props.getProperty("clustering.fast.distance", "false"));
             int slots = Integer.parseInt(props.getProperty("clustering.parallel.slots", "1"));
@@ -45,53 +62,141 @@ public class Clusterer {
             logger.info("Configuration loaded");
             logger.info("File: " + args[0]);
             logger.info("Instances: " + inpath);
-            logger.info("Initialization: " + initialize);
+            logger.info("Format: " + informat);
+            logger.info("Algorithm: " + algorithm);
             logger.info("Clusters: " + k);
             logger.info("Iterations: " + iterations);
-            logger.info("Fast Distance: " + fast);
             logger.info("Seed: " + seed);
             logger.info("Slots: " + slots);
 
+            if (algorithm.equals("weka")) {
+                logger.info("Initialization: " + initialize);
+                logger.info("Fast Distance: " + fast);
+            } else {
+                logger.info("Seeding: " + seeding);
+
+                if (seeding.equals("kmeans||")) {
+                    logger.info(" Rounds: " + rounds);
+                    logger.info(" Oversampling: " + oversampling);
+                }
+
+                logger.info("Seeding Sample: " + sampleSize);
+                logger.info("Tolerance: " + tolerance);
+                logger.info("Batch Size: " + batchSize);
+            }
+
             logger.info("Process started...");
 
-            // Loading sample data
-            CSVLoader loader = new CSVLoader();
+            if (algorithm.equals("weka")) {
+                // Loading sample data
+                CSVLoader loader = new CSVLoader();
 
-            loader.setNoHeaderRowPresent(true);
-            loader.setSource(new File(inpath));
+                loader.setNoHeaderRowPresent(true);
+                loader.setSource(new File(inpath));
 
-            Instances data = loader.getDataSet();
+                Instances data = loader.getDataSet();
 
-            // Setting up k-means clusterer
-            SimpleKMeans clusterer = new SimpleKMeans();
+                // Setting up k-means clusterer
+                SimpleKMeans clusterer = new SimpleKMeans();
 
-            if (initialize) {
-                SelectedTag tag = new SelectedTag(SimpleKMeans.KMEANS_PLUS_PLUS, SimpleKMeans.TAGS_SELECTION);
+                if (initialize) {
+                    SelectedTag tag = new SelectedTag(SimpleKMeans.KMEANS_PLUS_PLUS, SimpleKMeans.TAGS_SELECTION);
 
-                clusterer.setInitializationMethod(tag);
-            }
+                    clusterer.setInitializationMethod(tag);
+                }
+
+                clusterer.setDebug(true);
+                clusterer.setSeed(seed);
+                clusterer.setNumClusters(k);
+                clusterer.setMaxIterations(iterations);
+                clusterer.setNumExecutionSlots(slots);
+                clusterer.setFastDistanceCalc(fast);
+
+                // Building clusters
+                clusterer.buildClusterer(data);
+
+                // Writing clusters in output file
+                Instances centroids = clusterer.getClusterCentroids();
+
+                Writer.write(centroids, outpath, false);
+
+                logger.info("Process completed successfuly");
+                logger.info("Instances: " + data.numInstances());
+                logger.info(" Centroids: " + centroids.numInstances());
+                logger.info(" Centroid Size: " + data.numAttributes());
+                logger.info(" Square Error: " + clusterer.getSquaredError());
+                logger.info("Outpath: " + outpath);
+            } else if (algorithm.equals("lloyd") || algorithm.equals("minibatch")) {
+                // Setting up k-means clusterer
+                KMeans clusterer = new KMeans(k, iterations, tolerance, slots, seed);
+
+                final Logger log = logger;
+
+                clusterer.setListener(new KMeans.Listener() {
+                    @Override
+                    public void iterated(int iteration, double inertia) {
+                        log.info("Iteration " + iteration + " inertia: " + inertia);
+                    }
+                });
+
+                double[][] centroids = null;
+
+                long instances = 0;
+                long processed = 0;
+
+                if (algorithm.equals("lloyd")) {
+                    // Loading the instances in memory
+                    double[][] data = informat.read(inpath);
+
+                    instances = data.length;
+
+                    logger.info("Instances loaded: " + instances);
 
-            clusterer.setDebug(true);
-            clusterer.setSeed(seed);
-            clusterer.setNumClusters(k);
-            clusterer.setMaxIterations(iterations);
-            clusterer.setNumExecutionSlots(slots);
-            clusterer.setFastDistanceCalc(fast);
+                    double[][] seeds = seed(clusterer, seeding, rounds, oversampling, data);
 
-            // Building clusters
-            clusterer.buildClusterer(data);
+                    logger.info("Centroids seeded");
 
-            // Writing clusters in output file
-            Instances centroids = clusterer.getClusterCentroids();
+                    centroids = clusterer.lloyd(data, seeds);
+                } else {
+                    // Sampling instances to seed from in a single pass
+                    double[][] sample = sample(informat, inpath, sampleSize, seed);
 
-            Writer.write(centroids, outpath, false);
+                    logger.info("Seeding sample loaded: " + sample.length);
 
-            logger.info("Process completed successfuly");
-            logger.info("Instances: " + data.numInstances());
-            logger.info(" Centroids: " + centroids.numInstances());
-            logger.info(" Centroid Size: " + data.numAttributes());
-            logger.info(" Square Error: " + clusterer.getSquaredError());
-            logger.info("Outpath: " + outpath);
+                    double[][] seeds = seed(clusterer, seeding, rounds, oversampling, sample);
+
+                    logger.info("Centroids seeded");
+
+                    // Streaming the instances in epochs
+                    Epochs stream = new Epochs(informat, inpath);
+
+                    try {
+                        centroids = clusterer.miniBatch(stream, batchSize, seeds);
+                    } finally {
+                        stream.close();
+                    }
+
+                    instances = count(informat, inpath);
+                    processed = stream.getCount();
+                }
+
+                // Writing clusters in output file
+                Writer.write(centroids, outpath, false);
+
+                logger.info("Process completed successfuly");
+                logger.info("Instances: " + instances);
+
+                if (processed > 0) {
+                    logger.info(" Rows Processed: " + processed);
+                }
+
+                logger.info(" Centroids: " + centroids.length);
+                logger.info(" Centroid Size: " + centroids[0].length);
+                logger.info(" Inertia: " + clusterer.getInertia());
+                logger.info("Outpath: " + outpath);
+            } else {
+                throw new IllegalArgumentException("Unknown clustering algorithm: " + algorithm);
+            }
         } catch (Exception exc) {
             if (logger != null) {
                 logger.error("An unknown error occurred building clusters", exc);
@@ -100,4 +205,144 @@ public class Clusterer {
             }
         }
     }
+
+    /**
+     * A method seeding the centroids upon the given data by the given method.
+     *
+     * @param clusterer the k-means clusterer.
+     * @param seeding the seeding method, either random, kmeans++ or kmeans||.
+     * @param rounds the number of oversampling rounds in kmeans||.
+     * @param oversampling the expected number of candidates per round as a
+     * factor of k in kmeans||.
+     * @param data the data to seed from.
+     * @return the initial centroids.
+     * @throws Exception an unknown exception.
+     */
+    private static double[][] seed(KMeans clusterer, String seeding, int rounds, double oversampling, double[][] data) throws Exception {
+        if (seeding.equals("random")) {
+            return clusterer.seedRandom(data);
+        } else if (seeding.equals("kmeans++")) {
+            return clusterer.seedPlusPlus(data);
+        } else if (seeding.equals("kmeans||")) {
+            return clusterer.seedParallel(data, rounds, oversampling);
+        } else {
+            throw new IllegalArgumentException("Unknown seeding method: " + seeding);
+        }
+    }
+
+    /**
+     * A method sampling uniformly at random up to the given number of rows
+     * out of the given file in a single pass by reservoir sampling.
+     *
+     * @param format the format of the file.
+     * @param filepath the absolute path to the file.
+     * @param size the number of rows to sample.
+     * @param seed the seed number.
+     * @return the sampled rows.
+     * @throws IOException an unknown exception.
+     */
+    private static double[][] sample(FileFormat format, String filepath, int size, long seed) throws IOException {
+        ReservoirSampler reservoir = new ReservoirSampler(size, seed);
+
+        RowIterator rows = format.iterate(filepath);
+
+        try {
+            while (true) {
+                long skip = reservoir.skip();
+                long skipped = rows.skip(skip);
+
+                reservoir.skipped(skipped);
+
+                if (skipped < skip || !rows.hasNext()) {
+                    break;
+                }
+
+                reservoir.add(rows.next());
+            }
+        } finally {
+            rows.close();
+        }
+
+        return reservoir.getSample();
+    }
+
+    /**
+     * A method counting the rows of the given file, skipping them without
+     * parsing.
+     *
+     * @param format the format of the file.
+     * @param filepath the path to the file.
+     * @return the number of rows.
+     * @throws IOException an unknown exception.
+     */
+    private static long count(FileFormat format, String filepath) throws IOException {
+        RowIterator rows = format.iterate(filepath);
+
+        try {
+            return rows.skip(Long.MAX_VALUE);
+        } finally {
+            rows.close();
+        }
+    }
+
+    /**
+     * An endless stream over the rows of a file, reopening the file once the
+     * end is reached, unless the file has no rows at all.
+     */
+    private static class Epochs implements Iterator<double[]>, Closeable {
+
+        private FileFormat format;
+        private String filepath;
+        private RowIterator rows;
+        private long count;
+
+        Epochs(FileFormat format, String filepath) throws IOException {
+            this.format = format;
+            this.filepath = filepath;
+
+            rows = format.iterate(filepath);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (rows.hasNext()) {
+                return true;
+            }
+
+            try {
+                rows.close();
+
+                rows = format.iterate(filepath);
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+
+            return rows.hasNext();
+        }
+
+        @Override
+        public double[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            count++;
+
+            return rows.next();
+        }
+
+        /**
+         * A method returning the number of rows streamed so far.
+         *
+         * @return the number of rows.
+         */
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
 }
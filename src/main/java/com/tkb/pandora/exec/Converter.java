@@ -0,0 +1,85 @@
+package com.tkb.pandora.exec;
+
+import java.io.*;
+import java.util.Properties;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.MultipleFileNameFilter;
+import org.apache.log4j.Logger;
+
+/**
+ * An executable converting vector files from one file format to another, e.g.
+ * existing comma separated descriptor files into the binary form.
+ *
+ * Run as: mvn exec:java -Dexec.mainClass="com.tkb.pandora.exec.Converter" -Dexec.args="path/to/config.properties"
+ *
+ * @author Akis Papadopoulos
+ */
+public class Converter {
+
+    public static void main(String[] args) {
+        Logger logger = null;
+
+        try {
+            // Loading configuration properties
+            Properties props = new Properties();
+            props.load(new FileInputStream(args[0]));
+
+            String inpath = props.getProperty("vectors.input.file.path");
+            String extension = props.getProperty("vectors.file.extension");
+            FileFormat informat = FileFormat.parse(props.getProperty("vectors.input.file.format", "csv"));
+            FileFormat outformat = FileFormat.parse(props.getProperty("vectors.output.file.format", "float32"));
+            String outpath = props.getProperty("converted.vectors.output.path");
+            String logfile = outpath + "/convert.log";
+
+            // Setting up the logger
+            System.setProperty("log.file", logfile);
+            logger = Logger.getLogger(Converter.class);
+
+            System.out.println("See the logs by running: tail -f -n 100 " + logfile);
+
+            logger.info("Configuration loaded");
+            logger.info("File: " + args[0]);
+            logger.info("Vectors: " + inpath);
+            logger.info("Type: " + extension);
+            logger.info("Input Format: " + informat);
+            logger.info("Output Format: " + outformat);
+
+            // Loading vectors files
+            File dirin = new File(inpath);
+            String[] filenames = dirin.list(new MultipleFileNameFilter(extension));
+
+            logger.info("Process started");
+
+            int converted = 0;
+
+            for (int i = 0; i < filenames.length; i++) {
+                try {
+                    double[][] vectors = informat.read(dirin.getPath() + "/" + filenames[i]);
+
+                    // Saving converted vectors with an identical filename
+                    outformat.write(vectors, outpath + "/" + filenames[i], false);
+
+                    converted++;
+                } catch (Exception exc) {
+                    logger.error("An unknown error occurred converting vectors file " + filenames[i], exc);
+                }
+
+                if (i % 100 == 0) {
+                    int progress = (i * 100) / filenames.length;
+                    logger.info(progress + "%...");
+                }
+            }
+
+            logger.info("100%");
+            logger.info("Process completed successfuly");
+            logger.info("Converted: " + converted + "/" + filenames.length);
+            logger.info("Outpath: " + outpath);
+        } catch (Exception exc) {
+            if (logger != null) {
+                logger.error("An unknown error occurred converting vectors", exc);
+            } else {
+                exc.printStackTrace();
+            }
+        }
+    }
+}
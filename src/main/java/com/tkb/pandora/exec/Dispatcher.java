@@ -32,6 +32,9 @@ public class Dispatcher {
         entries.put("project", Projector.class);
         entries.put("reduce", Reducer.class);
         entries.put("index", Indexer.class);
+        entries.put("convert", Converter.class);
+        entries.put("search", Searcher.class);
+        entries.put("pipeline", Pipeline.class);
     }
 
     public static void main(String[] args) throws Exception {
@@ -9,10 +9,20 @@ import java.io.*;
 import java.text.DecimalFormat;
 import java.util.Iterator;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.tkb.pandora.image.FeatureDetector;
-import com.tkb.pandora.io.Writer;
+import com.tkb.pandora.image.FloatFeatureDetector;
+import com.tkb.pandora.io.DescriptorWriter;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
 import com.tkb.pandora.io.MultipleFileNameFilter;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.util.ArrayOps;
+import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
 import org.apache.log4j.Logger;
 
 /**
@@ -25,10 +35,10 @@ import org.apache.log4j.Logger;
  */
 public class Extractor {
 
-    // Statistics
-    private static DescriptiveStatistics imagStats = new DescriptiveStatistics();
-    private static DescriptiveStatistics descStats = new DescriptiveStatistics();
-    private static DescriptiveStatistics extrStats = new DescriptiveStatistics();
+    // Statistics, shared across the extraction workers
+    private static SynchronizedDescriptiveStatistics imagStats = new SynchronizedDescriptiveStatistics();
+    private static SynchronizedDescriptiveStatistics descStats = new SynchronizedDescriptiveStatistics();
+    private static SynchronizedDescriptiveStatistics extrStats = new SynchronizedDescriptiveStatistics();
 
     // Formater
     private static DecimalFormat formater = new DecimalFormat("#.####");
@@ -45,6 +55,12 @@ public class Extractor {
             String detectorClassPath = props.getProperty("detector.class.path");
             String detectorSettings = props.getProperty(detectorClassPath);
             String outputPath = props.getProperty("descriptions.output.file.path");
+            FileFormat format = FileFormat.parse(props.getProperty("descriptions.output.file.format", "csv"));
+            StorageLayout layout = StorageLayout.parse(props.getProperty("descriptions.output.layout", "files"));
+            long shardSize = Long.parseLong(props.getProperty("descriptions.store.shard.size", "1024")) << 20;
+            int workers = Integer.parseInt(props.getProperty("extractor.workers", "1"));
+            boolean single = props.getProperty("descriptions.precision", "double").equalsIgnoreCase("single");
+
             String logfile = outputPath + "/extract.log";
 
             // Setting up the logger
@@ -82,41 +98,46 @@ public class Extractor {
                 logger.info(" " + field + ": '" + value.asText() + "'");
             }
 
-            logger.info("Process started");
+            logger.info("Format: " + format);
+            logger.info("Layout: " + layout);
 
-            // Extracting descriptors per image
-            for (int i = 0; i < filenames.length; i++) {
-                try {
-                    BufferedImage image = UtilImageIO.loadImage(dirin.getPath() + "/" + filenames[i]);
+            if (layout == StorageLayout.STORE) {
+                logger.info(" Shard: " + (shardSize >> 20) + " MB");
+            }
 
-                    long start = System.currentTimeMillis();
+            logger.info("Precision: " + (single ? "single" : "double"));
 
-                    double[][] descriptors = detector.extract(image).getDescriptors();
+            if (single && !(detector instanceof FloatFeatureDetector)) {
+                logger.info(" Detector computes doubles, descriptions will be down cast");
+            }
 
-                    long end = System.currentTimeMillis();
+            logger.info("Workers: " + workers);
 
-                    double extractionTime = (end - start) / 1000.0;
+            // Opening the checkpoint journal, keeping only the descriptions in place after a crash
+            Journal journal = new Journal(outputPath + "/extract.journal", Journal.hash(props, "dataset.images.file.path", "detector.class.path",
+                    detectorClassPath, "descriptions.output.file.format", "descriptions.output.layout", "descriptions.precision"));
 
-                    // Collecting various statistics
-                    imagStats.addValue(descriptors.length);
-                    descStats.addValue(descriptors[0].length);
-                    extrStats.addValue(extractionTime);
+            Set<String> recovered = layout.recoverDescriptors(outputPath);
 
-                    // Saving descriptor with an identical name
-                    int pos = filenames[i].lastIndexOf(".");
-                    String filepath = outputPath + "/" + filenames[i].substring(0, pos) + ".desc";
+            if (recovered != null) {
+                journal.retain(recovered);
+            }
 
-                    Writer.write(descriptors, filepath, false);
+            logger.info("Journal: " + journal.size() + " images already extracted");
 
-                    if (i % 100 == 0) {
-                        int progress = (i * 100) / filenames.length;
-                        logger.info(progress + "%...");
-                    }
-                } catch (Exception exc) {
-                    logger.error("An unknown error occurred extracting visual description for image " + filenames[i], exc);
-                }
+            logger.info("Process started");
+
+            // Setting up one detector per worker
+            FeatureDetector[] detectors = new FeatureDetector[workers];
+
+            for (int w = 0; w < workers; w++) {
+                detectors[w] = mapper.readValue(detectorSettings, detectorClass);
             }
 
+            extract(detectors, single, dirin, filenames, layout, outputPath, format, shardSize, journal, logger);
+
+            journal.close();
+
             logger.info("100%");
             logger.info("Process completed successfuly");
             logger.info("Images: " + imagStats.getN());
@@ -138,4 +159,162 @@ public class Extractor {
             }
         }
     }
+
+    /**
+     * A method extracting the descriptions of the given images, using as many
+     * workers as the given detectors, each writing to an output of its own,
+     * either per file or per shard, and skipping the images in the journal.
+     *
+     * @param detectors the detectors, one per worker.
+     * @param single true to extract descriptions in single precision.
+     * @param dirin the images directory.
+     * @param filenames the image file names.
+     * @param layout the descriptions storage layout.
+     * @param outputPath the descriptions output path.
+     * @param format the descriptions file format.
+     * @param shardSize the size in bytes a shard of the store is closed at.
+     * @param journal the checkpoint journal.
+     * @param logger the logger.
+     * @throws InterruptedException an exception thrown if interrupted while
+     * waiting for the workers.
+     */
+    public static void extract(FeatureDetector[] detectors, boolean single, File dirin, String[] filenames, StorageLayout layout, String outputPath, FileFormat format, long shardSize, Journal journal, Logger logger) throws InterruptedException {
+        // Sharing a cursor so each worker picks the next unprocessed image
+        AtomicInteger cursor = new AtomicInteger(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(detectors.length);
+
+        // Extracting descriptors per image using one detector per worker
+        for (FeatureDetector detector : detectors) {
+            executor.execute(new Worker(detector, single, dirin, filenames, layout.descriptorWriter(outputPath, "desc", format, shardSize), journal, cursor, logger));
+        }
+
+        executor.shutdown();
+
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            // Waiting for all workers to complete
+        }
+    }
+
+    /**
+     * A worker extracting descriptors from the images not yet picked up by any
+     * other worker, using its own detector instance since detectors are not
+     * guaranteed to be thread-safe.
+     */
+    private static class Worker implements Runnable {
+
+        // Detector owned by this worker
+        private FeatureDetector detector;
+
+        // Single precision extraction
+        private boolean single;
+
+        // Images directory and file names
+        private File dirin;
+        private String[] filenames;
+
+        // Descriptions writer owned by this worker
+        private DescriptorWriter writer;
+
+        // Shared checkpoint journal
+        private Journal journal;
+
+        // Shared index of the next image to process
+        private AtomicInteger cursor;
+
+        // Logger
+        private Logger logger;
+
+        /**
+         * A constructor initiating the worker given its own detector and the
+         * shared extraction state.
+         *
+         * @param detector the detector owned by the worker.
+         * @param single true to extract descriptions in single precision.
+         * @param dirin the images directory.
+         * @param filenames the image file names.
+         * @param writer the descriptions writer owned by the worker, either
+         * per file or per shard of its own.
+         * @param journal the shared checkpoint journal.
+         * @param cursor the shared index of the next image to process.
+         * @param logger the logger.
+         */
+        public Worker(FeatureDetector detector, boolean single, File dirin, String[] filenames, DescriptorWriter writer, Journal journal, AtomicInteger cursor, Logger logger) {
+            this.detector = detector;
+            this.single = single;
+            this.dirin = dirin;
+            this.filenames = filenames;
+            this.writer = writer;
+            this.journal = journal;
+            this.cursor = cursor;
+            this.logger = logger;
+        }
+
+        @Override
+        public void run() {
+            int i;
+
+            try {
+                while ((i = cursor.getAndIncrement()) < filenames.length) {
+                    try {
+                        // Saving descriptor with an identical name
+                        int pos = filenames[i].lastIndexOf(".");
+                        String id = filenames[i].substring(0, pos);
+
+                        // Skipping images extracted by a previous run
+                        if (journal.contains(id)) {
+                            continue;
+                        }
+
+                        BufferedImage image = UtilImageIO.loadImage(dirin.getPath() + "/" + filenames[i]);
+
+                        long start = System.currentTimeMillis();
+
+                        if (single) {
+                            float[][] descriptors;
+
+                            // Keeping native float descriptors, down casting any others
+                            if (detector instanceof FloatFeatureDetector) {
+                                descriptors = ((FloatFeatureDetector) detector).extractFloat(image).getDescriptors();
+                            } else {
+                                descriptors = ArrayOps.toFloat(detector.extract(image).getDescriptors());
+                            }
+
+                            extrStats.addValue((System.currentTimeMillis() - start) / 1000.0);
+
+                            imagStats.addValue(descriptors.length);
+                            descStats.addValue(descriptors[0].length);
+
+                            writer.write(id, descriptors);
+                        } else {
+                            double[][] descriptors = detector.extract(image).getDescriptors();
+
+                            extrStats.addValue((System.currentTimeMillis() - start) / 1000.0);
+
+                            // Collecting various statistics
+                            imagStats.addValue(descriptors.length);
+                            descStats.addValue(descriptors[0].length);
+
+                            writer.write(id, descriptors);
+                        }
+
+                        journal.commit(id);
+
+                        if (i % 100 == 0) {
+                            int progress = (i * 100) / filenames.length;
+                            logger.info(progress + "%...");
+                        }
+                    } catch (Exception exc) {
+                        logger.error("An unknown error occurred extracting visual description for image " + filenames[i], exc);
+                    }
+                }
+            } finally {
+                try {
+                    writer.close();
+                } catch (IOException exc) {
+                    logger.error("An unknown error occurred closing the visual descriptions output", exc);
+                }
+            }
+        }
+    }
 }
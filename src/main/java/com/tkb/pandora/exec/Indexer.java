@@ -1,15 +1,23 @@
 package com.tkb.pandora.exec;
 
-import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.text.DecimalFormat;
 import java.sql.Array;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
-import com.tkb.pandora.io.MultipleFileNameFilter;
+import com.tkb.pandora.io.BatchLoader;
+import com.tkb.pandora.io.BulkLoader;
+import com.tkb.pandora.io.CopyLoader;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
 import com.tkb.pandora.io.Reader;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.io.VectorReader;
 import com.tkb.pandora.util.ArrayOps;
 import com.tkb.pandora.util.SmartProperties;
 import org.apache.log4j.Logger;
@@ -23,11 +31,15 @@ import org.apache.log4j.Logger;
  */
 public class Indexer {
 
+    // Formater
+    private static DecimalFormat formater = new DecimalFormat("#.##");
+
     public static void main(String[] args) {
         Logger logger = null;
 
         Connection connection = null;
         Statement statement = null;
+        VectorReader descriptors = null;
 
         try {
             // Loading configuration properties
@@ -41,9 +53,15 @@ public class Indexer {
             String password = props.getProperty("index.db.password");
             String inpath = props.getProperty("index.descriptors.input.file.path");
             String extension = props.getProperty("index.descriptors.file.extension");
+            FileFormat format = FileFormat.parse(props.getProperty("index.descriptors.file.format", "csv"));
+            StorageLayout layout = StorageLayout.parse(props.getProperty("index.descriptors.layout", "files"));
+            boolean verify = Boolean.parseBoolean(props.getProperty("index.descriptors.store.verify", "false"));
             List<String> vocabs = props.matchProperties("index.vocab.\\d+");
             String projection = props.getProperty("index.projection.file.path");
             boolean whitening = Boolean.parseBoolean(props.getProperty("index.projection.whitening"));
+            String mode = props.getProperty("index.load.mode", "batch");
+            int batchSize = Integer.parseInt(props.getProperty("index.batch.size", "1000"));
+            int transactionSize = Integer.parseInt(props.getProperty("index.transaction.size", "10000"));
 
             String logfile = inpath + "/index.log";
 
@@ -59,6 +77,11 @@ public class Indexer {
             logger.info("Database: " + dbname);
             logger.info("Descriptors: " + inpath);
             logger.info("Type: " + extension);
+            logger.info("Format: " + format);
+            logger.info("Layout: " + layout);
+            logger.info("Mode: " + mode);
+            logger.info("Batch: " + batchSize);
+            logger.info("Transaction: " + transactionSize);
 
             if (!vocabs.isEmpty()) {
                 for (int i = 0; i < vocabs.size(); i++) {
@@ -77,9 +100,13 @@ public class Indexer {
             connection = DriverManager.getConnection(host + "/" + dbname, username, password);
 
             // Indexing descriptors into the database
-            File dirin = new File(inpath);
-            MultipleFileNameFilter filter = new MultipleFileNameFilter(extension);
-            String[] filenames = dirin.list(filter);
+            descriptors = layout.reader(inpath, extension, format, verify);
+
+            long total = descriptors.size();
+
+            // Opening the checkpoint journal of the descriptors committed so far
+            Journal journal = new Journal(inpath + "/index.journal", Journal.hash(props, "index.db.host", "index.db.name",
+                    "index.descriptors.input.file.path", "index.descriptors.file.format", "index.descriptors.layout"));
 
             logger.info("Process started");
             logger.info("Descriptors");
@@ -92,7 +119,10 @@ public class Indexer {
 
                 query.append("TRUNCATE TABLE ONLY images");
 
-                statement.executeUpdate(query.toString());
+                // Truncating only on a fresh run, resuming or extending the images indexed by a previous run otherwise
+                if (journal.size() == 0) {
+                    statement.executeUpdate(query.toString());
+                }
             } catch (SQLException exc) {
                 logger.error("An error occurred truncating image descriptors", exc);
             } finally {
@@ -101,54 +131,93 @@ public class Indexer {
                 }
             }
 
-            logger.info(" Truncated");
+            logger.info(journal.size() == 0 ? " Truncated" : " Journal: " + journal.size() + " already indexed");
             logger.info(" Indexing started");
 
+            // Setting up the bulk loader
+            BulkLoader loader;
+
+            if (mode.equalsIgnoreCase("copy")) {
+                loader = new CopyLoader(connection, transactionSize);
+            } else {
+                loader = new BatchLoader(connection, batchSize, transactionSize);
+            }
+
+            long start = System.currentTimeMillis();
+
+            // Ids of the rows queued but not committed yet, along with the number of rows queued so far
+            List<String> pending = new ArrayList<String>();
+            long queued = 0;
+
             // Indexing decriptors
-            int descriptorsIndexed = 0;
+            try {
+                for (int i = 0; descriptors.next(); i++) {
+                    // Reading the descriptor
+                    double[] vector = descriptors.getVector();
 
-            for (int i = 0; i < filenames.length; i++) {
-                // Reading the descriptor
-                double[] vector = Reader.read(dirin.getPath() + "/" + filenames[i], 1);
+                    // Extracting the file name used as identifier
+                    String id = descriptors.getId();
 
-                Array descriptor = connection.createArrayOf("numeric", ArrayOps.toObject(vector));
+                    // Skipping descriptors indexed by a previous run
+                    if (journal.contains(id)) {
+                        continue;
+                    }
 
-                // Extracting the file name used as identifier
-                int pos = filenames[i].lastIndexOf(".");
-                String id = filenames[i].substring(0, pos);
+                    // Skipping empty descriptors before queuing them, so the rest of the chunk still commits
+                    if (vector == null) {
+                        logger.warn(" Skipped empty descriptor " + id);
 
-                // Extracting the bucket id the image indexed to
-                String[] tokens = id.split("-");
-                int bucketId = Integer.parseInt(tokens[0]);
+                        continue;
+                    }
 
-                try {
-                    // Indexing the image descriptor
-                    statement = connection.createStatement();
+                    // Extracting the bucket id the image indexed to
+                    String[] tokens = id.split("-");
+                    int bucketId = Integer.parseInt(tokens[0]);
 
-                    StringBuilder query = new StringBuilder();
+                    long loaded = loader.getLoaded();
 
-                    query.append("INSERT INTO images (id, descriptor, bucket) ")
-                            .append("VALUES ('").append(id).append("', ")
-                            .append("'").append(descriptor).append("', ")
-                            .append(bucketId).append(")");
+                    pending.add(id);
+                    queued++;
 
-                    descriptorsIndexed += statement.executeUpdate(query.toString());
-                } catch (SQLException exc) {
-                    logger.error("An error occurred indexing image descriptor '" + filenames[i] + "'", exc);
-                } finally {
-                    if (statement != null) {
-                        statement.close();
+                    try {
+                        loader.load(id, vector, bucketId);
+                    } catch (SQLException exc) {
+                        logger.error("An error occurred indexing the chunk of image descriptors up to '" + id + "'", exc);
+                    }
+
+                    checkpoint(loader, loaded, queued, pending, journal);
+
+                    if (i % 100 == 0) {
+                        long progress = (i * 100) / total;
+                        double rate = loader.getLoaded() / Math.max((System.currentTimeMillis() - start) / 1000.0, 0.001);
+
+                        logger.info(" " + progress + "%... (" + formater.format(rate) + " rows/sec)");
                     }
                 }
 
-                if (i % 100 == 0) {
-                    int progress = (i * 100) / filenames.length;
-                    logger.info(" " + progress + "%...");
+                long loaded = loader.getLoaded();
+
+                try {
+                    loader.flush();
+                } catch (SQLException exc) {
+                    logger.error("An error occurred indexing the last chunk of image descriptors", exc);
                 }
+
+                checkpoint(loader, loaded, queued, pending, journal);
+            } finally {
+                loader.close();
+
+                journal.close();
             }
 
+            long descriptorsIndexed = loader.getLoaded();
+
+            double secs = Math.max((System.currentTimeMillis() - start) / 1000.0, 0.001);
+
             logger.info(" 100%");
             logger.info(" Indexing completed");
+            logger.info(" Failed: " + loader.getFailed());
+            logger.info(" Rate: " + formater.format(descriptorsIndexed / secs) + " rows/sec");
 
             int vocabsIndexed = 0;
 
@@ -262,7 +331,7 @@ public class Indexer {
             }
 
             logger.info("Process completed successfuly");
-            logger.info("Descriptors: " + descriptorsIndexed + "/" + filenames.length);
+            logger.info("Descriptors: " + descriptorsIndexed + "/" + (total - journal.size() + descriptorsIndexed));
             logger.info("Vocabs: " + vocabsIndexed + "/" + vocabs.size());
             logger.info("Projections: " + (projection.isEmpty() ? "0/1" : "1/1"));
         } catch (Exception exc) {
@@ -287,6 +356,35 @@ public class Indexer {
                     exc.printStackTrace();
                 }
             }
+
+            if (descriptors != null) {
+                try {
+                    descriptors.close();
+                } catch (IOException exc) {
+                    exc.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * A method journaling the ids of the queued rows once all of them are
+     * resolved, where rows are committed or discarded as a whole chunk.
+     *
+     * @param loader the bulk loader.
+     * @param loaded the number of rows committed before the last call.
+     * @param queued the number of rows queued so far.
+     * @param pending the ids of the rows not resolved yet.
+     * @param journal the checkpoint journal.
+     * @throws IOException an unknown exception.
+     */
+    private static void checkpoint(BulkLoader loader, long loaded, long queued, List<String> pending, Journal journal) throws IOException {
+        if (loader.getLoaded() + loader.getFailed() == queued) {
+            if (loader.getLoaded() > loaded) {
+                journal.commit(pending);
+            }
+
+            pending.clear();
         }
     }
 }
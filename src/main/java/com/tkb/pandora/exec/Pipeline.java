@@ -0,0 +1,622 @@
+package com.tkb.pandora.exec;
+
+import boofcv.io.image.UtilImageIO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import com.tkb.pandora.image.FeatureDetector;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
+import com.tkb.pandora.io.MultipleFileNameFilter;
+import com.tkb.pandora.io.Reader;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.io.VectorWriter;
+import com.tkb.pandora.math.ComponentReducer;
+import com.tkb.pandora.math.ProjectionReducer;
+import com.tkb.pandora.math.ProjectionSpace;
+import com.tkb.pandora.util.ArrayOps;
+import com.tkb.pandora.util.SmartProperties;
+import com.tkb.pandora.vector.Aggregator;
+import com.tkb.pandora.vector.ParallelAggregator;
+import com.tkb.pandora.vector.Codebook;
+import org.apache.log4j.Logger;
+
+/**
+ * A pipeline extracting, aggregating and reducing the images of a dataset in
+ * memory, so only the final vectors are written on disk. Stages are connected
+ * by bounded queues, where a stage running ahead blocks until the next one
+ * catches up, keeping at most a few items in flight per stage.
+ *
+ * Run as: mvn exec:java -Dexec.mainClass="com.tkb.pandora.exec.Pipeline" -Dexec.args="path/to/config.properties"
+ *
+ * @author Akis Papadopoulos
+ */
+public class Pipeline {
+
+    // Item marking the end of the items passed through a queue
+    private static final Item END = new Item(null, null, null);
+
+    // Formater
+    private static DecimalFormat formater = new DecimalFormat("#.###");
+
+    public static void main(String[] args) {
+        Logger logger = null;
+
+        Aggregator aggregator = null;
+
+        try {
+            // Loading configuration properties
+            SmartProperties props = new SmartProperties();
+            props.load(new FileInputStream(args[0]));
+
+            String imagesPath = props.getProperty("dataset.images.file.path");
+            String detectorClassPath = props.getProperty("detector.class.path");
+            String detectorSettings = props.getProperty(detectorClassPath);
+            String method = props.getProperty("building.aggregation.method");
+            boolean normalize = Boolean.parseBoolean(props.getProperty("building.vector.normalization", "true"));
+            List<String> vocabs = props.matchProperties("building.vocab.\\d+");
+            String assignment = props.getProperty("building.assignment.index", "linear");
+            int trees = Integer.parseInt(props.getProperty("building.assignment.trees", "4"));
+            int checks = Integer.parseInt(props.getProperty("building.assignment.checks", "64"));
+            long seed = Long.parseLong(props.getProperty("building.assignment.seed", "1"));
+            int neighbors = Integer.parseInt(props.getProperty("building.assignment.neighbors", "1"));
+            double sigma = Double.parseDouble(props.getProperty("building.assignment.sigma", "0.2"));
+            String projectionFile = props.getProperty("projection.space.file.path", "");
+            boolean whiten = Boolean.parseBoolean(props.getProperty("projection.space.whitening", "false"));
+            int size = Integer.parseInt(props.getProperty("most.dominant.components", "1"));
+            String outpath = props.getProperty("vectors.output.path");
+            FileFormat outformat = FileFormat.parse(props.getProperty("vectors.file.format", "csv"));
+            StorageLayout outlayout = StorageLayout.parse(props.getProperty("vectors.layout", "files"));
+            int extractors = Integer.parseInt(props.getProperty("pipeline.extract.workers", "1"));
+            int aggregators = Integer.parseInt(props.getProperty("pipeline.aggregate.workers", "1"));
+            int vocabWorkers = Integer.parseInt(props.getProperty("building.vocab.workers", "1"));
+            int capacity = Integer.parseInt(props.getProperty("pipeline.queue.size", "64"));
+            String logfile = outpath + "/pipeline.log";
+
+            // Setting up the logger
+            System.setProperty("log.file", logfile);
+            logger = Logger.getLogger(Pipeline.class);
+
+            System.out.println("See the logs by running: tail -f -n 100 " + logfile);
+
+            logger.info("Configuration loaded");
+            logger.info("File: " + args[0]);
+            logger.info("Images: " + imagesPath);
+            logger.info("Detector: " + detectorClassPath);
+            logger.info("Method: " + method);
+            logger.info("Normalization: " + normalize);
+            logger.info("Assignment: " + assignment);
+
+            if (neighbors > 1) {
+                logger.info(" Neighbors: " + neighbors);
+                logger.info(" Sigma: " + sigma);
+
+                if (!(method.equalsIgnoreCase("bow") || method.equalsIgnoreCase("vlad"))) {
+                    throw new Exception("Soft assignment is supported by bow and vlad only");
+                }
+
+                if (!(sigma > 0)) {
+                    throw new Exception("Soft assignment sigma must be positive: " + sigma);
+                }
+            }
+
+            logger.info("Projection: " + (projectionFile.isEmpty() ? "none" : projectionFile));
+
+            if (!projectionFile.isEmpty()) {
+                logger.info(" Whitening: " + whiten);
+                logger.info(" Components: " + size);
+            }
+
+            logger.info("Output Format: " + outformat);
+            logger.info("Output Layout: " + outlayout);
+            logger.info("Workers: " + extractors + " extract, " + aggregators + " aggregate, " + vocabWorkers + " per image across vocabs");
+            logger.info("Queue: " + capacity);
+
+            // Loading image files
+            File dirin = new File(imagesPath);
+            String[] filenames = dirin.list(new MultipleFileNameFilter("jpg", "jpeg", "png"));
+
+            // Loading up vocabularies given each file path in restricted order
+            Codebook[] codebooks = new Codebook[vocabs.size()];
+
+            for (int i = 0; i < vocabs.size(); i++) {
+                logger.info("Vocab " + (i + 1) + ": " + vocabs.get(i));
+
+                double[][] centroids = Reader.read(vocabs.get(i));
+
+                codebooks[i] = new Codebook(centroids, Builder.index(centroids, assignment, trees, checks, seed));
+            }
+
+            // Setting up the aggregator, codebooks are only read so it is shared
+            aggregator = Builder.aggregator(method, codebooks, neighbors, sigma, normalize, vocabWorkers);
+
+            if (aggregator == null) {
+                throw new Exception("Unknown aggregation method: " + method);
+            }
+
+            // Setting up the component reducer if a projection space is given
+            ComponentReducer reducer = null;
+
+            if (!projectionFile.isEmpty()) {
+                double[][] lines = Reader.read(projectionFile);
+
+                ProjectionSpace ps = new ProjectionSpace(ArrayOps.copy(lines, 1), lines[0]);
+
+                reducer = new ProjectionReducer(ps.getBasis(size), lines[0], whiten);
+            }
+
+            // Opening the checkpoint journal, keeping only the vectors in place after a crash
+            Journal journal = new Journal(outpath + "/pipeline.journal", Journal.hash(props, "dataset.images.file.path", "detector.class.path",
+                    detectorClassPath, "building.aggregation.method", "building.vector.normalization", "building.vocab.\\d+", "building.assignment.index",
+                    "building.assignment.trees", "building.assignment.checks", "building.assignment.seed", "building.assignment.neighbors", "building.assignment.sigma",
+                    "projection.space.file.path", "projection.space.whitening", "most.dominant.components", "vectors.file.format", "vectors.layout"));
+
+            Set<String> recovered = outlayout.recoverVectors(outpath);
+
+            if (recovered != null) {
+                journal.retain(recovered);
+            }
+
+            logger.info("Journal: " + journal.size() + " images already processed");
+
+            // Setting up one detector per extract worker
+            FeatureDetector[] detectors = new FeatureDetector[extractors];
+
+            ObjectMapper mapper = new ObjectMapper();
+
+            Class<? extends FeatureDetector> detectorClass = FeatureDetector.class.getClassLoader().loadClass(detectorClassPath).asSubclass(FeatureDetector.class);
+
+            for (int w = 0; w < extractors; w++) {
+                detectors[w] = mapper.readValue(detectorSettings, detectorClass);
+            }
+
+            VectorWriter writer = outlayout.writer(outpath, method, outformat);
+
+            try {
+                run(detectors, dirin, filenames, aggregator, aggregators, reducer, writer, journal, capacity, logger);
+            } finally {
+                writer.close();
+
+                journal.close();
+            }
+
+            logger.info("Outpath: " + outpath);
+        } catch (Exception exc) {
+            if (logger != null) {
+                logger.error("An unknown error occurred running the pipeline", exc);
+            } else {
+                exc.printStackTrace();
+            }
+        } finally {
+            // Releasing the threads computing the vocabularies in parallel
+            if (aggregator instanceof ParallelAggregator) {
+                ((ParallelAggregator) aggregator).close();
+            }
+        }
+    }
+
+    /**
+     * A method running the images through the pipeline, using as many extract
+     * workers as the given detectors and the given number of aggregate workers
+     * sharing the aggregator, while the calling thread reduces and writes the
+     * vectors in order of arrival, skipping the images in the journal.
+     *
+     * @param detectors the detectors, one per extract worker.
+     * @param dirin the images directory.
+     * @param filenames the image file names.
+     * @param aggregator the shared aggregator.
+     * @param aggregators the number of aggregate workers.
+     * @param reducer the component reducer, null to write the aggregated
+     * vectors as they are.
+     * @param writer the vectors writer.
+     * @param journal the checkpoint journal.
+     * @param capacity the capacity of the queues connecting the stages.
+     * @param logger the logger.
+     * @throws InterruptedException an exception thrown if interrupted.
+     */
+    public static void run(FeatureDetector[] detectors, File dirin, String[] filenames, Aggregator aggregator, int aggregators, ComponentReducer reducer,
+            VectorWriter writer, Journal journal, int capacity, Logger logger) throws InterruptedException {
+        // Bounded queues connecting the stages
+        BlockingQueue<Item> described = new ArrayBlockingQueue<Item>(capacity);
+        BlockingQueue<Item> aggregated = new ArrayBlockingQueue<Item>(capacity);
+
+        Stage extractStage = new Stage("extract");
+        Stage aggregateStage = new Stage("aggregate");
+        Stage reduceStage = new Stage("reduce");
+        Stage writeStage = new Stage("write");
+
+        logger.info("Process started");
+
+        long start = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool(detectors.length + aggregators);
+
+        try {
+            // Extracting descriptors per image using one detector per worker
+            AtomicInteger cursor = new AtomicInteger(0);
+            AtomicInteger remaining = new AtomicInteger(detectors.length);
+
+            for (FeatureDetector detector : detectors) {
+                executor.execute(new ExtractWorker(detector, dirin, filenames, journal, cursor, described, extractStage, remaining, logger));
+            }
+
+            // Aggregating descriptors as they get extracted
+            remaining = new AtomicInteger(aggregators);
+
+            for (int w = 0; w < aggregators; w++) {
+                executor.execute(new AggregateWorker(aggregator, described, aggregated, aggregateStage, remaining, logger));
+            }
+
+            // Reducing and writing the vectors in order of arrival
+            while (true) {
+                Item item = take(aggregated, reduceStage);
+
+                if (item == END) {
+                    break;
+                }
+
+                try {
+                    long time = System.nanoTime();
+
+                    double[] vector = reducer != null ? reducer.reduce(item.vector) : item.vector;
+
+                    reduceStage.done(System.nanoTime() - time);
+
+                    time = System.nanoTime();
+
+                    writer.write(item.id, vector);
+
+                    journal.commit(item.id);
+
+                    writeStage.done(System.nanoTime() - time);
+
+                    if (writeStage.items.get() % 100 == 0) {
+                        int progress = (journal.size() * 100) / filenames.length;
+                        logger.info(progress + "%... queues: " + described.size() + "/" + capacity + " described, " + aggregated.size() + "/" + capacity + " aggregated");
+                    }
+                } catch (Exception exc) {
+                    logger.error("An unknown error occurred reducing the vector of image " + item.id, exc);
+                }
+            }
+        } finally {
+            // Releasing any worker blocked on a queue if the pipeline broke
+            executor.shutdownNow();
+        }
+
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        double elapsed = (System.currentTimeMillis() - start) / 1000.0;
+
+        logger.info("100%");
+        logger.info("Process completed successfuly");
+        logger.info("Images: " + writeStage.items.get() + "/" + filenames.length);
+        logger.info("Time: " + formater.format(elapsed) + " secs (" + formater.format(elapsed / 60.0) + " mins)");
+
+        for (Stage stage : new Stage[]{extractStage, aggregateStage, reduceStage, writeStage}) {
+            stage.report(elapsed, logger);
+        }
+    }
+
+    /**
+     * A method taking the next item of the given queue, accounting the time
+     * waited for it to the given stage.
+     *
+     * @param queue the queue.
+     * @param stage the stage consuming the queue.
+     * @return the item.
+     * @throws InterruptedException an exception thrown if interrupted.
+     */
+    private static Item take(BlockingQueue<Item> queue, Stage stage) throws InterruptedException {
+        long start = System.nanoTime();
+
+        Item item = queue.take();
+
+        stage.starved.addAndGet(System.nanoTime() - start);
+
+        return item;
+    }
+
+    /**
+     * A method putting the given item in the given queue, accounting the time
+     * waited for room in it to the given stage.
+     *
+     * @param queue the queue.
+     * @param item the item.
+     * @param stage the stage producing the queue.
+     * @throws InterruptedException an exception thrown if interrupted.
+     */
+    private static void put(BlockingQueue<Item> queue, Item item, Stage stage) throws InterruptedException {
+        long start = System.nanoTime();
+
+        queue.put(item);
+
+        stage.blocked.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * An item passed between the stages, holding either the descriptors or the
+     * vector of an image.
+     */
+    private static class Item {
+
+        // Image id
+        private String id;
+
+        // Local descriptors of the image
+        private double[][] descriptors;
+
+        // Aggregated vector of the image
+        private double[] vector;
+
+        /**
+         * A constructor initiating an item.
+         *
+         * @param id the image id.
+         * @param descriptors the local descriptors.
+         * @param vector the aggregated vector.
+         */
+        public Item(String id, double[][] descriptors, double[] vector) {
+            this.id = id;
+            this.descriptors = descriptors;
+            this.vector = vector;
+        }
+    }
+
+    /**
+     * The metrics of a stage, shared across its workers, where the time a
+     * stage is starved of input or blocked on a full output queue points out
+     * the bottleneck of the pipeline.
+     */
+    private static class Stage {
+
+        // Name of the stage
+        private String name;
+
+        // Number of items processed
+        private AtomicLong items = new AtomicLong();
+
+        // Nanos spent processing, waiting for input and waiting for room in the output
+        private AtomicLong busy = new AtomicLong();
+        private AtomicLong starved = new AtomicLong();
+        private AtomicLong blocked = new AtomicLong();
+
+        /**
+         * A constructor initiating the metrics of the given stage.
+         *
+         * @param name the name of the stage.
+         */
+        public Stage(String name) {
+            this.name = name;
+        }
+
+        /**
+         * A method accounting a processed item.
+         *
+         * @param nanos the time spent processing the item.
+         */
+        public void done(long nanos) {
+            items.incrementAndGet();
+            busy.addAndGet(nanos);
+        }
+
+        /**
+         * A method logging the metrics of the stage.
+         *
+         * @param elapsed the wall clock time of the pipeline in secs.
+         * @param logger the logger.
+         */
+        public void report(double elapsed, Logger logger) {
+            logger.info("Stage: " + name);
+            logger.info(" Items: " + items.get());
+            logger.info(" Throughput: " + formater.format(items.get() / Math.max(elapsed, 0.001)) + " items/sec");
+            logger.info(" Busy: " + formater.format(busy.get() / 1e9) + " secs");
+            logger.info(" Starved: " + formater.format(starved.get() / 1e9) + " secs");
+            logger.info(" Blocked: " + formater.format(blocked.get() / 1e9) + " secs");
+        }
+    }
+
+    /**
+     * A worker of a stage, passing the end of the items on to the next stage
+     * once the last worker of the stage is done.
+     */
+    private static abstract class Worker implements Runnable {
+
+        // Output queue
+        protected BlockingQueue<Item> out;
+
+        // Stage metrics
+        protected Stage stage;
+
+        // Number of workers of the stage still running
+        private AtomicInteger remaining;
+
+        // Logger
+        protected Logger logger;
+
+        /**
+         * A constructor initiating the worker.
+         *
+         * @param out the output queue.
+         * @param stage the stage metrics.
+         * @param remaining the number of workers of the stage still running.
+         * @param logger the logger.
+         */
+        public Worker(BlockingQueue<Item> out, Stage stage, AtomicInteger remaining, Logger logger) {
+            this.out = out;
+            this.stage = stage;
+            this.remaining = remaining;
+            this.logger = logger;
+        }
+
+        /**
+         * A method processing items until the input is exhausted.
+         *
+         * @throws InterruptedException an exception thrown if interrupted.
+         */
+        protected abstract void work() throws InterruptedException;
+
+        @Override
+        public void run() {
+            try {
+                work();
+            } catch (InterruptedException exc) {
+                // Stopping as the pipeline is shut down
+                Thread.currentThread().interrupt();
+            } finally {
+                if (remaining.decrementAndGet() == 0) {
+                    try {
+                        out.put(END);
+                    } catch (InterruptedException exc) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A worker extracting the descriptors of the images not yet picked up by
+     * any other worker, using its own detector instance since detectors are
+     * not guaranteed to be thread-safe.
+     */
+    private static class ExtractWorker extends Worker {
+
+        // Detector owned by this worker
+        private FeatureDetector detector;
+
+        // Images directory and file names
+        private File dirin;
+        private String[] filenames;
+
+        // Shared checkpoint journal
+        private Journal journal;
+
+        // Shared index of the next image to process
+        private AtomicInteger cursor;
+
+        /**
+         * A constructor initiating the worker given its own detector.
+         *
+         * @param detector the detector owned by the worker.
+         * @param dirin the images directory.
+         * @param filenames the image file names.
+         * @param journal the shared checkpoint journal.
+         * @param cursor the shared index of the next image to process.
+         * @param out the queue of the extracted descriptors.
+         * @param stage the stage metrics.
+         * @param remaining the number of workers of the stage still running.
+         * @param logger the logger.
+         */
+        public ExtractWorker(FeatureDetector detector, File dirin, String[] filenames, Journal journal, AtomicInteger cursor, BlockingQueue<Item> out, Stage stage, AtomicInteger remaining, Logger logger) {
+            super(out, stage, remaining, logger);
+
+            this.detector = detector;
+            this.dirin = dirin;
+            this.filenames = filenames;
+            this.journal = journal;
+            this.cursor = cursor;
+        }
+
+        @Override
+        protected void work() throws InterruptedException {
+            int i;
+
+            while ((i = cursor.getAndIncrement()) < filenames.length) {
+                String id = filenames[i].substring(0, filenames[i].lastIndexOf("."));
+
+                // Skipping images processed by a previous run
+                if (journal.contains(id)) {
+                    continue;
+                }
+
+                double[][] descriptors;
+
+                try {
+                    long start = System.nanoTime();
+
+                    BufferedImage image = UtilImageIO.loadImage(dirin.getPath() + "/" + filenames[i]);
+
+                    descriptors = detector.extract(image).getDescriptors();
+
+                    stage.done(System.nanoTime() - start);
+                } catch (Exception exc) {
+                    logger.error("An unknown error occurred extracting visual description for image " + filenames[i], exc);
+
+                    continue;
+                }
+
+                put(out, new Item(id, descriptors, null), stage);
+            }
+        }
+    }
+
+    /**
+     * A worker aggregating the descriptors of the images as they get
+     * extracted.
+     */
+    private static class AggregateWorker extends Worker {
+
+        // Shared aggregator
+        private Aggregator aggregator;
+
+        // Input queue
+        private BlockingQueue<Item> in;
+
+        /**
+         * A constructor initiating the worker given the shared aggregator.
+         *
+         * @param aggregator the shared aggregator.
+         * @param in the queue of the extracted descriptors.
+         * @param out the queue of the aggregated vectors.
+         * @param stage the stage metrics.
+         * @param remaining the number of workers of the stage still running.
+         * @param logger the logger.
+         */
+        public AggregateWorker(Aggregator aggregator, BlockingQueue<Item> in, BlockingQueue<Item> out, Stage stage, AtomicInteger remaining, Logger logger) {
+            super(out, stage, remaining, logger);
+
+            this.aggregator = aggregator;
+            this.in = in;
+        }
+
+        @Override
+        protected void work() throws InterruptedException {
+            while (true) {
+                Item item = take(in, stage);
+
+                // Passing the end back to the sibling workers
+                if (item == END) {
+                    in.put(END);
+
+                    return;
+                }
+
+                double[] vector;
+
+                try {
+                    long start = System.nanoTime();
+
+                    vector = aggregator.aggregate(item.descriptors);
+
+                    stage.done(System.nanoTime() - start);
+                } catch (Exception exc) {
+                    logger.error("An unknown error occurred building fixed size descriptor for image " + item.id, exc);
+
+                    continue;
+                }
+
+                put(out, new Item(item.id, null, vector), stage);
+            }
+        }
+    }
+}
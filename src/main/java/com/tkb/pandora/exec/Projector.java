@@ -1,17 +1,24 @@
 package com.tkb.pandora.exec;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import com.tkb.pandora.io.Writer;
-import com.tkb.pandora.io.Reader;
-import com.tkb.pandora.io.MultipleFileNameFilter;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.io.VectorReader;
+import com.tkb.pandora.math.Covariance;
 import com.tkb.pandora.math.ProjectionSpace;
 import com.tkb.pandora.math.RandomPermutation;
 import org.apache.log4j.Logger;
 
 /**
  * An executable creating the projection principal component space given a list
- * of vectors using singular value decomposition.
+ * of vectors using singular value decomposition, either full or randomized and
+ * truncated to the most dominant components, or the eigen decomposition of the
+ * scatter matrix of the sampled vectors, or in streaming mode the eigen
+ * decomposition of the scatter matrix accumulated over all the vectors.
  *
  * Run as: mvn exec:java -Dexec.mainClass="com.tkb.pandora.exec.Projector" -Dexec.args="path/to/config.properties"
  *
@@ -29,10 +36,19 @@ public class Projector {
 
             String inpath = props.getProperty("vectors.input.file.path");
             String extension = props.getProperty("vectors.file.extension");
+            FileFormat format = FileFormat.parse(props.getProperty("vectors.file.format", "csv"));
+            StorageLayout layout = StorageLayout.parse(props.getProperty("vectors.layout", "files"));
+            boolean verify = Boolean.parseBoolean(props.getProperty("vectors.store.verify", "false"));
             double ratio = Double.parseDouble(props.getProperty("vectors.sample.ratio", "1.0"));
             long seed = Long.parseLong(props.getProperty("vectors.sample.seed.number", "1"));
             boolean whiten = Boolean.parseBoolean(props.getProperty("projection.space.whitening", "false"));
             boolean compact = Boolean.parseBoolean(props.getProperty("projection.space.compact.form", "false"));
+            String mode = props.getProperty("projection.space.mode", "memory");
+            String method = props.getProperty("projection.space.method", "svd");
+            int rank = Integer.parseInt(props.getProperty("projection.space.rank", "256"));
+            int oversampling = Integer.parseInt(props.getProperty("projection.space.oversampling", "10"));
+            int iterations = Integer.parseInt(props.getProperty("projection.space.power.iterations", "2"));
+            int workers = Integer.parseInt(props.getProperty("projection.space.workers", "1"));
             String outpath = props.getProperty("projection.space.output.file.path");
             String logfile = outpath + ".log";
 
@@ -46,30 +62,160 @@ public class Projector {
             logger.info("File: " + args[0]);
             logger.info("Vectors: " + inpath);
             logger.info("Type: " + extension);
+            logger.info("Format: " + format);
+            logger.info("Layout: " + layout);
             logger.info("Ratio: " + ratio);
             logger.info("Seed: " + seed);
             logger.info("Whitening: " + whiten);
             logger.info("Compact: " + compact);
+            logger.info("Mode: " + mode);
+
+            if (mode.equalsIgnoreCase("streaming")) {
+                logger.info(" Workers: " + workers);
+                logger.info(" Ratio ignored, all vectors are streamed");
+            } else if (!mode.equalsIgnoreCase("memory")) {
+                throw new Exception("Unknown projection mode: " + mode);
+            }
+
+            logger.info("Method: " + method);
+
+            if (method.equalsIgnoreCase("randomized")) {
+                if (mode.equalsIgnoreCase("streaming")) {
+                    throw new Exception("Randomized method is not applicable in streaming mode");
+                }
+
+                logger.info(" Rank: " + rank);
+                logger.info(" Oversampling: " + oversampling);
+                logger.info(" Iterations: " + iterations);
+            } else if (method.equalsIgnoreCase("covariance")) {
+                if (mode.equalsIgnoreCase("memory")) {
+                    logger.info(" Workers: " + workers);
+                }
+            } else if (!method.equalsIgnoreCase("svd")) {
+                throw new Exception("Unknown projection method: " + method);
+            }
 
             logger.info("Process started...");
 
-            // Loading vectors
-            File dirin = new File(inpath);
-            String[] filenames = dirin.list(new MultipleFileNameFilter(extension));
+            ProjectionSpace projection;
 
-            double[][] vectors = new double[filenames.length][];
+            long total;
+            int size;
 
-            for (int i = 0; i < filenames.length; i++) {
-                vectors[i] = Reader.read(dirin.getPath() + "/" + filenames[i], 1);
-            }
+            if (mode.equalsIgnoreCase("streaming")) {
+                // Computing the mean vector in a first pass over the vectors
+                double[] mean = null;
+
+                total = 0;
+
+                VectorReader reader = layout.reader(inpath, extension, format, verify);
+
+                try {
+                    while (reader.next()) {
+                        double[] vector = reader.getVector();
+
+                        if (mean == null) {
+                            mean = new double[vector.length];
+                        }
+
+                        for (int j = 0; j < mean.length; j++) {
+                            mean[j] += vector[j];
+                        }
 
-            // Sampling vectors using random permutation indices
-            RandomPermutation permutation = new RandomPermutation(ratio, seed);
+                        total++;
+                    }
+                } finally {
+                    reader.close();
+                }
 
-            double[][] sample = permutation.sample(vectors);
+                if (mean == null) {
+                    throw new Exception("No vectors found: " + inpath);
+                }
 
-            // Creating the projection space upon the sampled vectors
-            ProjectionSpace projection = new ProjectionSpace(sample, whiten, compact);
+                for (int j = 0; j < mean.length; j++) {
+                    mean[j] /= total;
+                }
+
+                size = mean.length;
+
+                logger.info("Mean: " + total + " vectors");
+
+                // Accumulating the scatter matrix in a second pass over the vectors
+                Covariance covariance = new Covariance(mean, workers);
+
+                try {
+                    reader = layout.reader(inpath, extension, format, verify);
+
+                    try {
+                        while (reader.next()) {
+                            covariance.add(reader.getVector());
+                        }
+                    } finally {
+                        reader.close();
+                    }
+
+                    logger.info("Scatter: " + covariance.getCount() + " vectors");
+
+                    // Creating the projection space upon the scatter matrix of all the vectors
+                    projection = new ProjectionSpace(covariance, whiten, compact);
+                } finally {
+                    covariance.close();
+                }
+            } else {
+                // Loading vectors
+                List<double[]> list = new ArrayList<double[]>();
+
+                VectorReader reader = layout.reader(inpath, extension, format, verify);
+
+                try {
+                    while (reader.next()) {
+                        list.add(reader.getVector());
+                    }
+                } finally {
+                    reader.close();
+                }
+
+                double[][] vectors = list.toArray(new double[list.size()][]);
+
+                total = vectors.length;
+                size = vectors[0].length;
+
+                // Sampling vectors using random permutation indices
+                RandomPermutation permutation = new RandomPermutation(ratio, seed);
+
+                double[][] sample = permutation.sample(vectors);
+
+                // Creating the projection space upon the sampled vectors
+                if (method.equalsIgnoreCase("randomized")) {
+                    projection = new ProjectionSpace(sample, rank, oversampling, iterations, seed, whiten);
+                } else if (method.equalsIgnoreCase("covariance")) {
+                    double[] mean = new double[size];
+
+                    for (double[] vector : sample) {
+                        for (int j = 0; j < size; j++) {
+                            mean[j] += vector[j];
+                        }
+                    }
+
+                    for (int j = 0; j < size; j++) {
+                        mean[j] /= sample.length;
+                    }
+
+                    Covariance covariance = new Covariance(mean, workers);
+
+                    try {
+                        for (double[] vector : sample) {
+                            covariance.add(vector);
+                        }
+
+                        projection = new ProjectionSpace(covariance, whiten, compact);
+                    } finally {
+                        covariance.close();
+                    }
+                } else {
+                    projection = new ProjectionSpace(sample, whiten, compact);
+                }
+            }
 
             // Saving the projection space into a file
             double[] mean = projection.getMean();
@@ -80,8 +226,8 @@ public class Projector {
             Writer.write(space, outpath, true);
 
             logger.info("Process completed successfuly");
-            logger.info("Vectors: " + vectors.length);
-            logger.info(" Size: " + vectors[0].length);
+            logger.info("Vectors: " + total);
+            logger.info(" Size: " + size);
             logger.info("Eigenvectors: " + space.length);
             logger.info(" Eigenvalues: " + space.length);
             logger.info(" Order: desc");
@@ -1,10 +1,17 @@
 package com.tkb.pandora.exec;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
 import com.tkb.pandora.io.Reader;
 import com.tkb.pandora.io.Writer;
-import com.tkb.pandora.io.MultipleFileNameFilter;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.io.VectorReader;
+import com.tkb.pandora.io.VectorWriter;
 import com.tkb.pandora.math.ComponentReducer;
 import com.tkb.pandora.math.ProjectionReducer;
 import com.tkb.pandora.math.ProjectionSpace;
@@ -31,10 +38,17 @@ public class Reducer {
 
             String inpath = props.getProperty("vectors.input.file.path");
             String extension = props.getProperty("vectors.file.extension");
+            FileFormat informat = FileFormat.parse(props.getProperty("vectors.file.format", "csv"));
+            StorageLayout inlayout = StorageLayout.parse(props.getProperty("vectors.layout", "files"));
+            boolean verify = Boolean.parseBoolean(props.getProperty("vectors.store.verify", "false"));
             String projectionFile = props.getProperty("projection.space.file.path");
             boolean whiten = Boolean.parseBoolean(props.getProperty("projection.space.whitening", "false"));
             int size = Integer.parseInt(props.getProperty("most.dominant.components", "1"));
+            int batchSize = Math.max(1, Integer.parseInt(props.getProperty("reduction.batch.size", "256")));
+            int workers = Integer.parseInt(props.getProperty("reduction.workers", "1"));
             String outpath = props.getProperty("reduced.vectors.output.path");
+            FileFormat outformat = FileFormat.parse(props.getProperty("reduced.vectors.file.format", "csv"));
+            StorageLayout outlayout = StorageLayout.parse(props.getProperty("reduced.vectors.layout", "files"));
             String subspaceFile = props.getProperty("vectors.subspace.output.file.path");
             String logfile = outpath + "/reduce.log";
 
@@ -48,13 +62,15 @@ public class Reducer {
             logger.info("File: " + args[0]);
             logger.info("Vectors: " + inpath);
             logger.info("Type: " + extension);
+            logger.info("Format: " + informat);
+            logger.info("Layout: " + inlayout);
             logger.info("Projection: " + projectionFile);
             logger.info("Whitening: " + whiten);
             logger.info("Components: " + size);
-
-            // Loading the vectors
-            File dirin = new File(inpath);
-            String[] filenames = dirin.list(new MultipleFileNameFilter(extension));
+            logger.info("Batch Size: " + batchSize);
+            logger.info("Workers: " + workers);
+            logger.info("Output Format: " + outformat);
+            logger.info("Output Layout: " + outlayout);
 
             // Setting up the component reducer regarding the projection space
             double[][] lines = Reader.read(projectionFile);
@@ -74,30 +90,72 @@ public class Reducer {
             Writer.write(mean, subspaceFile, false);
             Writer.write(subspace, subspaceFile, true);
 
-            ComponentReducer reducer = new ProjectionReducer(subspace, mean, whiten);
+            ProjectionReducer reducer = new ProjectionReducer(subspace, mean, whiten, workers);
+
+            // Opening the checkpoint journal, keeping only the vectors in place after a crash
+            Journal journal = new Journal(outpath + "/reduce.journal", Journal.hash(props, "vectors.input.file.path", "vectors.file.format", "vectors.layout",
+                    "projection.space.file.path", "projection.space.whitening", "most.dominant.components", "reduced.vectors.file.format", "reduced.vectors.layout"));
+
+            Set<String> recovered = outlayout.recoverVectors(outpath);
+
+            if (recovered != null) {
+                journal.retain(recovered);
+            }
+
+            logger.info("Journal: " + journal.size() + " vectors already reduced");
 
             logger.info("Process started...");
 
-            for (int i = 0; i < filenames.length; i++) {
-                // Reducing vector to the most dominant components
-                double[] vector = Reader.read(dirin.getPath() + "/" + filenames[i], 1);
+            // Opening the vectors and the reduced vectors output
+            VectorReader vectors = inlayout.reader(inpath, extension, informat, verify);
+            VectorWriter writer = null;
 
-                double[] reduced = reducer.reduce(vector);
+            long total = vectors.size();
+            int i = 0;
 
-                // Saving reduced vector with an identical filename
-                String filepath = outpath + "/" + filenames[i];
+            // Ids and vectors of the batch being filled
+            List<String> ids = new ArrayList<String>(batchSize);
+            List<double[]> batch = new ArrayList<double[]>(batchSize);
 
-                Writer.write(reduced, filepath, false);
+            try {
+                writer = outlayout.writer(outpath, extension, outformat);
 
-                if (i % 100 == 0) {
-                    int progress = (i * 100) / filenames.length;
-                    logger.info(progress + "%...");
+                while (vectors.next()) {
+                    i++;
+
+                    // Skipping vectors reduced by a previous run
+                    if (journal.contains(vectors.getId())) {
+                        continue;
+                    }
+
+                    ids.add(vectors.getId());
+                    batch.add(vectors.getVector());
+
+                    if (batch.size() == batchSize) {
+                        reduce(reducer, ids, batch, writer, journal);
+
+                        long progress = (i * 100L) / total;
+                        logger.info(progress + "%...");
+                    }
                 }
+
+                // Reducing the last partial batch
+                reduce(reducer, ids, batch, writer, journal);
+            } finally {
+                vectors.close();
+
+                if (writer != null) {
+                    writer.close();
+                }
+
+                journal.close();
+
+                reducer.close();
             }
 
             logger.info("100%");
             logger.info("Process completed successfuly");
-            logger.info("Reduced Vectors: " + filenames.length);
+            logger.info("Reduced Vectors: " + i);
             logger.info(" Outpath: " + outpath);
             logger.info(" Projection: " + subspaceFile);
         } catch (Exception exc) {
@@ -108,4 +166,33 @@ public class Reducer {
             }
         }
     }
+
+    /**
+     * A method reducing the given batch of vectors at once to the most
+     * dominant components, saving each reduced vector under an identical id
+     * and clearing the batch.
+     *
+     * @param reducer the component reducer.
+     * @param ids the ids of the vectors.
+     * @param batch the vectors.
+     * @param writer the reduced vectors output.
+     * @param journal the checkpoint journal.
+     * @throws Exception an unknown exception.
+     */
+    private static void reduce(ComponentReducer reducer, List<String> ids, List<double[]> batch, VectorWriter writer, Journal journal) throws Exception {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        double[][] reduced = reducer.reduce(batch.toArray(new double[batch.size()][]));
+
+        for (int n = 0; n < reduced.length; n++) {
+            writer.write(ids.get(n), reduced[n]);
+
+            journal.commit(ids.get(n));
+        }
+
+        ids.clear();
+        batch.clear();
+    }
 }
@@ -3,15 +3,24 @@ package com.tkb.pandora.exec;
 import java.io.*;
 import java.text.DecimalFormat;
 import java.util.Properties;
-import com.tkb.pandora.io.Writer;
-import com.tkb.pandora.io.Reader;
-import com.tkb.pandora.io.MultipleFileNameFilter;
+import com.tkb.pandora.io.DescriptorSource;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
+import com.tkb.pandora.io.RowIterator;
+import com.tkb.pandora.io.RowWriter;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.math.BernoulliSampler;
 import com.tkb.pandora.math.RandomPermutation;
+import com.tkb.pandora.math.ReservoirSampler;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.log4j.Logger;
 
 /**
- * A sampler collecting randomly vectors using random permutations indices.
+ * A sampler collecting randomly vectors either using random permutations
+ * indices per file, or streaming the rows of the files lazily sampling each row
+ * independently with a given ratio (bernoulli) or sampling a given total number
+ * of rows across the whole dataset (reservoir). The sample is written through
+ * a single buffered output stream kept open for the whole run.
  *
  * Run as: mvn exec:java -Dexec.mainClass="com.tkb.pandora.exec.Sampler" -Dexec.args="path/to/config.properties"
  *
@@ -36,9 +45,15 @@ public class Sampler {
 
             String inpath = props.getProperty("vectors.input.file.path");
             String extension = props.getProperty("vectors.file.extension");
+            FileFormat informat = FileFormat.parse(props.getProperty("vectors.file.format", "csv"));
+            StorageLayout inlayout = StorageLayout.parse(props.getProperty("vectors.layout", "files"));
+            boolean verify = Boolean.parseBoolean(props.getProperty("vectors.store.verify", "false"));
+            String mode = props.getProperty("sampler.mode", "permutation");
             double ratio = Double.parseDouble(props.getProperty("sampler.permutations.ratio", "0.1"));
+            int size = Integer.parseInt(props.getProperty("sampler.sample.size", "100000"));
             long seed = Long.parseLong(props.getProperty("sampler.permutations.seed", "1"));
             String outpath = props.getProperty("sample.output.file.path");
+            FileFormat outformat = FileFormat.parse(props.getProperty("sample.output.file.format", "csv"));
             String logfile = outpath + ".log";
 
             // Setting up the logger
@@ -51,48 +66,138 @@ public class Sampler {
             logger.info("File: " + args[0]);
             logger.info("Vectors: " + inpath);
             logger.info("Type: " + extension);
-            logger.info("Ratio: " + ratio);
+            logger.info("Format: " + informat);
+            logger.info("Layout: " + inlayout);
+            logger.info("Mode: " + mode);
+
+            if (mode.equals("reservoir")) {
+                logger.info("Size: " + size);
+            } else {
+                logger.info("Ratio: " + ratio);
+            }
+
             logger.info("Seed: " + seed);
+            logger.info("Output Format: " + outformat);
 
-            // Loading vectors files
-            File dirin = new File(inpath);
-            String[] filenames = dirin.list(new MultipleFileNameFilter(extension));
+            if (!mode.equals("permutation") && !mode.equals("bernoulli") && !mode.equals("reservoir")) {
+                throw new IllegalArgumentException("Unknown sampling mode: " + mode);
+            }
+
+            // Opening the vectors of each image
+            DescriptorSource source = inlayout.descriptorSource(inpath, extension, informat, verify);
 
             logger.info("Process started");
 
+            // Setting up the sampling engines
+            RandomPermutation permutation = new RandomPermutation(ratio, seed);
+            BernoulliSampler bernoulli = new BernoulliSampler(ratio, seed);
+            ReservoirSampler reservoir = null;
+
+            // Rows left to skip before the next pick, carried across files
+            long[] gap = {0};
+
+            if (mode.equals("bernoulli")) {
+                gap[0] = bernoulli.skip();
+            } else if (mode.equals("reservoir")) {
+                reservoir = new ReservoirSampler(size, seed);
+            }
+
+            // Opening the checkpoint journal, the reservoir spans the whole dataset so it is never resumed
+            Journal journal = null;
+
             boolean append = false;
 
-            // Sampling vectors
-            RandomPermutation permutation = new RandomPermutation(ratio, seed);
+            if (!mode.equals("reservoir")) {
+                journal = new Journal(outpath + ".journal", Journal.hash(props, "vectors.input.file.path", "vectors.file.format", "vectors.layout",
+                        "sampler.mode", "sampler.permutations.ratio", "sampler.permutations.seed", "sample.output.file.format"));
+
+                // Discarding any rows sampled after the last checkpoint
+                if (journal.getOffset() > 0) {
+                    outformat.truncate(outpath, journal.getOffset());
 
-            for (int i = 0; i < filenames.length; i++) {
-                try {
-                    // Loading next vectors file
-                    double[][] vectors = Reader.read(dirin.getPath() + "/" + filenames[i]);
+                    append = true;
+                }
+
+                logger.info("Journal: " + journal.size() + " images already sampled");
+            }
+
+            // Opening the single output stream of the sample
+            RowWriter writer = outformat.open(outpath, append);
+
+            try {
+                for (int i = 0; i < source.size(); i++) {
+                    try {
+                        // Skipping images sampled by a previous run
+                        if (journal != null && journal.contains(source.getId(i))) {
+                            continue;
+                        }
+
+                        long before = writer.getCount();
+
+                        long count = 0;
+
+                        if (mode.equals("permutation")) {
+                            // Loading next vectors
+                            double[][] vectors = source.read(i);
+
+                            count = vectors.length;
+
+                            // Writing down the sampled vectors indexed by permutations
+                            for (double[] vector : permutation.sample(vectors)) {
+                                writer.write(vector);
+                            }
+                        } else {
+                            // Streaming the rows of the next vectors
+                            RowIterator rows = source.iterate(i);
+
+                            try {
+                                if (mode.equals("bernoulli")) {
+                                    count = sample(rows, bernoulli, gap, writer);
+                                } else {
+                                    count = sample(rows, reservoir);
+                                }
+                            } finally {
+                                rows.close();
+                            }
+                        }
 
-                    vectStats.addValue(vectors.length);
+                        vectStats.addValue(count);
 
-                    // Sampling vectors
-                    double[][] sampled = permutation.sample(vectors);
+                        // Checkpointing the image along with the size of the sample so far
+                        if (journal != null) {
+                            writer.flush();
 
-                    // Writing down the sampled vectors indexed by permutations
-                    if (sampled.length > 0) {
-                        Writer.write(sampled, outpath, append);
+                            journal.commit(source.getId(i), new File(outpath).length());
+                        }
 
-                        sampleStats.addValue(sampled.length);
+                        if (writer.getCount() > before) {
+                            sampleStats.addValue(writer.getCount() - before);
+                        }
 
-                        // Starting to append next vectors
-                        if (!append) {
-                            append = true;
+                        if (i % 100 == 0) {
+                            int progress = (i * 100) / source.size();
+                            logger.info(progress + "%...");
                         }
+                    } catch (Exception exc) {
+                        logger.error("An unknown error occurred sampling vectors", exc);
                     }
+                }
 
-                    if (i % 100 == 0) {
-                        int progress = (i * 100) / filenames.length;
-                        logger.info(progress + "%...");
+                // Writing down the reservoir once the whole dataset is seen
+                if (mode.equals("reservoir")) {
+                    for (double[] vector : reservoir.getSample()) {
+                        writer.write(vector);
                     }
-                } catch (Exception exc) {
-                    logger.error("An unknown error occurred sampling vectors", exc);
+
+                    sampleStats.addValue(writer.getCount());
+                }
+            } finally {
+                writer.close();
+
+                source.close();
+
+                if (journal != null) {
+                    journal.close();
                 }
             }
 
@@ -112,4 +217,68 @@ public class Sampler {
             }
         }
     }
+
+    /**
+     * A method streaming the given rows, skipping rows without parsing them
+     * and writing each picked row in the given writer.
+     *
+     * @param rows the rows of the file.
+     * @param sampler the bernoulli sampling engine.
+     * @param gap the rows left to skip before the next pick, updated in place.
+     * @param writer the writer of the sample.
+     * @return the number of rows in the file.
+     * @throws IOException an unknown exception.
+     */
+    private static long sample(RowIterator rows, BernoulliSampler sampler, long[] gap, RowWriter writer) throws IOException {
+        long count = 0;
+
+        while (true) {
+            long skipped = rows.skip(gap[0]);
+
+            count += skipped;
+            gap[0] -= skipped;
+
+            // Carrying the rows left to skip in the next file
+            if (gap[0] > 0 || !rows.hasNext()) {
+                return count;
+            }
+
+            writer.write(rows.next());
+
+            count++;
+
+            gap[0] = sampler.skip();
+        }
+    }
+
+    /**
+     * A method streaming the given rows, skipping rows without parsing them
+     * and adding each picked row in the given reservoir.
+     *
+     * @param rows the rows of the file.
+     * @param sampler the reservoir sampling engine.
+     * @return the number of rows in the file.
+     * @throws IOException an unknown exception.
+     */
+    private static long sample(RowIterator rows, ReservoirSampler sampler) throws IOException {
+        long count = 0;
+
+        while (true) {
+            long skip = sampler.skip();
+            long skipped = rows.skip(skip);
+
+            sampler.skipped(skipped);
+
+            count += skipped;
+
+            // Carrying the rows left to skip in the next file
+            if (skipped < skip || !rows.hasNext()) {
+                return count;
+            }
+
+            sampler.add(rows.next());
+
+            count++;
+        }
+    }
 }
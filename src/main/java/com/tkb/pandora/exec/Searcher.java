@@ -0,0 +1,470 @@
+package com.tkb.pandora.exec;
+
+import java.io.*;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.MultipleFileNameFilter;
+import com.tkb.pandora.io.Writer;
+import com.tkb.pandora.math.SparseVector;
+import com.tkb.pandora.search.FlatIndex;
+import com.tkb.pandora.search.InvertedIndex;
+import com.tkb.pandora.search.IvfPqIndex;
+import com.tkb.pandora.search.Metric;
+import com.tkb.pandora.search.Neighbor;
+import com.tkb.pandora.search.SearchIndex;
+import com.tkb.pandora.search.VectorMatrix;
+import com.tkb.pandora.util.SmartProperties;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.log4j.Logger;
+
+/**
+ * An in-process k nearest neighbors searcher, either loading the image
+ * descriptors into an off-heap matrix scanned by brute force, encoding them
+ * into a compressed inverted file index of product quantized codes, or posting
+ * the words of sparse bags of words into an inverted file index scored by
+ * tf-idf, reporting the throughput and the latency percentiles of the queries.
+ *
+ * Run as: mvn exec:java -Dexec.mainClass="com.tkb.pandora.exec.Searcher" -Dexec.args="path/to/config.properties"
+ *
+ * @author Akis Papadopoulos
+ */
+public class Searcher {
+
+    // Formater
+    private static DecimalFormat formater = new DecimalFormat("#.###");
+
+    public static void main(String[] args) {
+        Logger logger = null;
+
+        SearchIndex index = null;
+
+        try {
+            // Loading configuration properties
+            SmartProperties props = new SmartProperties();
+            props.load(new FileInputStream(args[0]));
+
+            String inpath = props.getProperty("search.descriptors.input.file.path");
+            String extension = props.getProperty("search.descriptors.file.extension");
+            FileFormat format = FileFormat.parse(props.getProperty("search.descriptors.file.format", "csv"));
+            String querypath = props.getProperty("search.queries.file.path", "");
+            FileFormat queryformat = FileFormat.parse(props.getProperty("search.queries.file.format", "csv"));
+            int queriesNumber = Integer.parseInt(props.getProperty("search.queries.number", "1000"));
+            Metric metric = Metric.parse(props.getProperty("search.metric", "l2"));
+            String type = props.getProperty("search.index.type", "flat");
+            String indexpath = props.getProperty("search.index.file.path", "");
+            int lists = Integer.parseInt(props.getProperty("search.ivf.lists.number", "1024"));
+            int probes = Integer.parseInt(props.getProperty("search.ivf.probes.number", "16"));
+            int subquantizers = Integer.parseInt(props.getProperty("search.pq.subquantizers.number", "16"));
+            int centroids = Integer.parseInt(props.getProperty("search.pq.centroids.number", "256"));
+            int trainSize = Integer.parseInt(props.getProperty("search.train.sample.size", "100000"));
+            int iterations = Integer.parseInt(props.getProperty("search.train.max.iterations", "25"));
+            int k = Integer.parseInt(props.getProperty("search.neighbors.number", "10"));
+            String mode = props.getProperty("search.mode", "batch");
+            int threads = Integer.parseInt(props.getProperty("search.parallel.threads", "1"));
+            String outpath = props.getProperty("search.results.output.file.path");
+            String logfile = outpath + ".log";
+
+            // Setting up the logger
+            System.setProperty("log.file", logfile);
+            logger = Logger.getLogger(Searcher.class);
+
+            System.out.println("See the logs by running: tail -f -n 100 " + logfile);
+
+            logger.info("Configuration loaded");
+            logger.info("File: " + args[0]);
+            logger.info("Descriptors: " + inpath);
+            logger.info("Type: " + extension);
+            logger.info("Format: " + format);
+            logger.info("Queries: " + (querypath.isEmpty() ? queriesNumber + " sampled descriptors" : querypath));
+            logger.info("Metric: " + metric);
+            logger.info("Index: " + type);
+
+            if (type.equals("inverted")) {
+                logger.info("Index File: " + indexpath);
+                logger.info("Scoring: tf-idf cosine");
+            }
+
+            if (type.equals("ivfpq")) {
+                logger.info("Index File: " + indexpath);
+                logger.info("Lists: " + lists);
+                logger.info("Probes: " + probes);
+                logger.info("Subquantizers: " + subquantizers);
+                logger.info("Centroids: " + centroids);
+                logger.info("Train Sample: " + trainSize);
+                logger.info("Train Iterations: " + iterations);
+            }
+
+            logger.info("Neighbors: " + k);
+            logger.info("Mode: " + mode);
+            logger.info("Threads: " + threads);
+
+            if (!mode.equals("batch") && !mode.equals("single")) {
+                throw new IllegalArgumentException("Unknown search mode: " + mode);
+            }
+
+            // Loading descriptors files
+            File dirin = new File(inpath);
+            String[] filenames = dirin.list(new MultipleFileNameFilter(extension));
+
+            Arrays.sort(filenames);
+
+            logger.info("Process started");
+
+            if (filenames.length == 0) {
+                throw new IllegalArgumentException("No descriptors found in " + inpath);
+            }
+
+            String[] ids = new String[filenames.length];
+
+            for (int i = 0; i < filenames.length; i++) {
+                // Extracting the file name used as identifier
+                ids[i] = filenames[i].substring(0, filenames[i].lastIndexOf("."));
+            }
+
+            long start = System.currentTimeMillis();
+
+            if (type.equals("flat")) {
+                List<double[]> vectors = new ArrayList<double[]>();
+                List<String> kept = new ArrayList<String>();
+
+                for (int i = 0; i < filenames.length; i++) {
+                    double[] vector = format.read(dirin.getPath() + "/" + filenames[i], 1);
+
+                    // Skipping empty files, the rows of the matrix keep the ids of the rest
+                    if (vector == null) {
+                        logger.warn(" Skipped empty descriptor file " + filenames[i]);
+                    } else {
+                        vectors.add(vector);
+                        kept.add(ids[i]);
+                    }
+
+                    if (i % 1000 == 0) {
+                        int progress = (i * 100) / filenames.length;
+                        logger.info(" Loading " + progress + "%...");
+                    }
+                }
+
+                if (vectors.isEmpty()) {
+                    throw new IllegalArgumentException("No non empty descriptors found in " + inpath);
+                }
+
+                VectorMatrix matrix = new VectorMatrix(vectors.size(), vectors.get(0).length);
+
+                for (int i = 0; i < vectors.size(); i++) {
+                    matrix.set(i, vectors.get(i));
+                }
+
+                ids = kept.toArray(new String[kept.size()]);
+
+                logger.info(" Loaded " + matrix.getRows() + "x" + matrix.getCols() + " in " + (System.currentTimeMillis() - start) + " msecs");
+
+                index = new FlatIndex(matrix, metric, threads);
+            } else if (type.equals("ivfpq")) {
+                if (metric != Metric.L2) {
+                    throw new IllegalArgumentException("Only the l2 metric is supported by the ivfpq index");
+                }
+
+                IvfPqIndex ivfpq;
+
+                if (!indexpath.isEmpty() && new File(indexpath).exists()) {
+                    ivfpq = IvfPqIndex.load(indexpath, probes, threads);
+
+                    ids = loadIds(indexpath);
+
+                    logger.info(" Loaded " + ivfpq.size() + " codes from " + indexpath + " in " + (System.currentTimeMillis() - start) + " msecs");
+                } else {
+                    // Training the quantizers upon a sample of the descriptors
+                    int[] sampled = sample(filenames.length, trainSize, 2L);
+
+                    double[][] sample = read(format, dirin, filenames, sampled);
+
+                    if (sample.length == 0) {
+                        throw new IllegalArgumentException("No non empty descriptors found in " + inpath);
+                    }
+
+                    ivfpq = IvfPqIndex.train(sample, lists, subquantizers, centroids, iterations, probes, threads, 1L);
+
+                    logger.info(" Trained upon " + sample.length + " descriptors in " + (System.currentTimeMillis() - start) + " msecs");
+
+                    // Encoding the descriptors one file at a time
+                    for (int i = 0; i < filenames.length; i++) {
+                        double[] vector = format.read(dirin.getPath() + "/" + filenames[i], 1);
+
+                        // Skipping empty files, the rest keep their index as identifier
+                        if (vector == null) {
+                            logger.warn(" Skipped empty descriptor file " + filenames[i]);
+
+                            continue;
+                        }
+
+                        ivfpq.add(i, vector);
+
+                        if (i % 1000 == 0) {
+                            int progress = (i * 100) / filenames.length;
+                            logger.info(" Encoding " + progress + "%...");
+                        }
+                    }
+
+                    logger.info(" Encoded " + ivfpq.size() + " descriptors in " + subquantizers + " bytes each");
+
+                    if (!indexpath.isEmpty()) {
+                        ivfpq.save(indexpath);
+
+                        saveIds(ids, indexpath);
+
+                        logger.info(" Saved: " + indexpath);
+                    }
+                }
+
+                index = ivfpq;
+            } else if (type.equals("inverted")) {
+                InvertedIndex inverted = null;
+
+                if (!indexpath.isEmpty() && new File(indexpath).exists()) {
+                    inverted = InvertedIndex.load(indexpath, threads);
+
+                    ids = loadIds(indexpath);
+
+                    logger.info(" Loaded " + inverted.size() + " vectors from " + indexpath + " in " + (System.currentTimeMillis() - start) + " msecs");
+                } else {
+                    // Posting the non zero components of the descriptors one file at a time
+                    for (int i = 0; i < filenames.length; i++) {
+                        SparseVector vector = format.readSparse(dirin.getPath() + "/" + filenames[i], 1);
+
+                        // Skipping empty files, the rest keep their index as identifier
+                        if (vector == null) {
+                            logger.warn(" Skipped empty descriptor file " + filenames[i]);
+
+                            continue;
+                        }
+
+                        if (inverted == null) {
+                            inverted = new InvertedIndex(vector.getDimension(), threads);
+                        }
+
+                        inverted.add(i, vector);
+
+                        if (i % 1000 == 0) {
+                            int progress = (i * 100) / filenames.length;
+                            logger.info(" Posting " + progress + "%...");
+                        }
+                    }
+
+                    if (inverted == null) {
+                        throw new IllegalArgumentException("No non empty descriptors found in " + inpath);
+                    }
+
+                    logger.info(" Posted " + inverted.getPostings() + " words of " + inverted.size() + " descriptors in " + (System.currentTimeMillis() - start) + " msecs");
+
+                    if (!indexpath.isEmpty()) {
+                        inverted.save(indexpath);
+
+                        saveIds(ids, indexpath);
+
+                        logger.info(" Saved: " + indexpath);
+                    }
+                }
+
+                index = inverted;
+            } else {
+                throw new IllegalArgumentException("Unknown search index: " + type);
+            }
+
+            // Loading queries, or sampling them among the descriptors
+            double[][] queries;
+
+            if (!querypath.isEmpty()) {
+                queries = queryformat.read(querypath);
+            } else {
+                queries = read(format, dirin, filenames, sample(filenames.length, queriesNumber, 1L));
+            }
+
+            logger.info(" Queries: " + queries.length);
+
+            // Searching the queries
+            Neighbor[][] results;
+
+            long[] latencies = new long[queries.length];
+
+            start = System.nanoTime();
+
+            if (mode.equals("batch")) {
+                results = index.search(queries, k, latencies);
+            } else {
+                results = new Neighbor[queries.length][];
+
+                for (int i = 0; i < queries.length; i++) {
+                    long time = System.nanoTime();
+
+                    results[i] = index.search(queries[i], k);
+
+                    latencies[i] = System.nanoTime() - time;
+                }
+            }
+
+            double secs = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+
+            // Writing the results, one line of id:score pairs per query
+            StringBuilder content = new StringBuilder();
+
+            for (int i = 0; i < results.length; i++) {
+                for (int j = 0; j < results[i].length; j++) {
+                    content.append(ids[results[i][j].getIndex()]).append(":").append(results[i][j].getScore());
+
+                    if (j < results[i].length - 1) {
+                        content.append(",");
+                    }
+                }
+
+                if (i < results.length - 1) {
+                    content.append("\n");
+                }
+            }
+
+            Writer.write(content.toString(), outpath, false);
+
+            DescriptiveStatistics stats = new DescriptiveStatistics();
+
+            for (long latency : latencies) {
+                stats.addValue(latency / 1e6);
+            }
+
+            logger.info("Process completed successfuly");
+            logger.info("Queries: " + queries.length);
+            logger.info(" QPS: " + formater.format(queries.length / secs));
+            logger.info(" Latency (msecs)");
+            logger.info("  Mean: " + formater.format(stats.getMean()));
+            logger.info("  P50: " + formater.format(stats.getPercentile(50)));
+            logger.info("  P90: " + formater.format(stats.getPercentile(90)));
+            logger.info("  P99: " + formater.format(stats.getPercentile(99)));
+            logger.info("  Max: " + formater.format(stats.getMax()));
+            logger.info("Outpath: " + outpath);
+        } catch (Exception exc) {
+            if (logger != null) {
+                logger.error("An unknown error occurred searching descriptors", exc);
+            } else {
+                exc.printStackTrace();
+            }
+        } finally {
+            if (index != null) {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * A method reading the first row of each of the given files, skipping the
+     * empty ones.
+     *
+     * @param format the format of the files.
+     * @param dirin the directory of the files.
+     * @param filenames the names of the files.
+     * @param picked the indices of the files to read.
+     * @return the rows of the non empty files.
+     * @throws IOException an unknown exception.
+     */
+    private static double[][] read(FileFormat format, File dirin, String[] filenames, int[] picked) throws IOException {
+        List<double[]> vectors = new ArrayList<double[]>();
+
+        for (int i : picked) {
+            double[] vector = format.read(dirin.getPath() + "/" + filenames[i], 1);
+
+            if (vector != null) {
+                vectors.add(vector);
+            }
+        }
+
+        return vectors.toArray(new double[vectors.size()][]);
+    }
+
+    /**
+     * A method saving the ids of the indexed descriptors next to the index,
+     * one per line in the order of their index.
+     *
+     * @param ids the ids of the descriptors.
+     * @param indexpath the path to the index file.
+     * @throws IOException an unknown exception.
+     */
+    private static void saveIds(String[] ids, String indexpath) throws IOException {
+        StringBuilder content = new StringBuilder();
+
+        for (int i = 0; i < ids.length; i++) {
+            content.append(ids[i]);
+
+            if (i < ids.length - 1) {
+                content.append("\n");
+            }
+        }
+
+        Writer.write(content.toString(), indexpath + ".ids", false);
+    }
+
+    /**
+     * A method loading the ids of the descriptors saved next to the index, so
+     * the results keep the ids the index was built upon even if the files
+     * changed since then.
+     *
+     * @param indexpath the path to the index file.
+     * @return the ids of the descriptors.
+     * @throws IOException an exception thrown if the ids are missing.
+     */
+    private static String[] loadIds(String indexpath) throws IOException {
+        File file = new File(indexpath + ".ids");
+
+        if (!file.exists()) {
+            throw new FileNotFoundException("Missing ids of the saved index, rebuild it: " + file.getPath());
+        }
+
+        List<String> ids = new ArrayList<String>();
+
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+
+        try {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                ids.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+
+        return ids.toArray(new String[ids.size()]);
+    }
+
+    /**
+     * A method picking uniformly at random up to the given number of distinct
+     * indices out of the given range.
+     *
+     * @param n the size of the range.
+     * @param size the number of indices to pick.
+     * @param seed the seed number.
+     * @return the picked indices.
+     */
+    private static int[] sample(int n, int size, long seed) {
+        Random rand = new Random(seed);
+
+        int[] indices = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+
+        size = Math.min(size, n);
+
+        // Partially shuffling the indices, the first ones are picked
+        for (int i = 0; i < size; i++) {
+            int j = i + rand.nextInt(n - i);
+
+            int swap = indices[i];
+            indices[i] = indices[j];
+            indices[j] = swap;
+        }
+
+        return Arrays.copyOf(indices, size);
+    }
+}
@@ -0,0 +1,45 @@
+package com.tkb.pandora.image;
+
+/**
+ * A computer vision purposed feature description holding the descriptors in
+ * single precision, taking half the memory of a double precision description.
+ *
+ * @author Akis Papadopoulos
+ */
+public class FloatDescription {
+
+    // Descriptors
+    private float[][] descriptors;
+
+    /**
+     * A constructor creating a description given a list of local descriptors.
+     *
+     * @param descriptors the list of local descriptors.
+     */
+    public FloatDescription(float[][] descriptors) {
+        this.descriptors = descriptors;
+    }
+
+    /**
+     * A constructor creating a description given a global descriptor.
+     *
+     * @param descriptor the global descriptor.
+     */
+    public FloatDescription(float[] descriptor) {
+        descriptors = new float[1][];
+
+        descriptors[0] = descriptor;
+    }
+
+    public float[][] getDescriptors() {
+        return descriptors;
+    }
+
+    public float[] getDescriptor(int index) {
+        if (index >= 0 && index < descriptors.length) {
+            return descriptors[index];
+        } else {
+            return null;
+        }
+    }
+}
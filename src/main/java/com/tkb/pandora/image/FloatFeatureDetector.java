@@ -0,0 +1,23 @@
+package com.tkb.pandora.image;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * An interface to implement a detector extracting a visual description in
+ * single precision from a given image, for detectors computing their
+ * descriptors natively as floats.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface FloatFeatureDetector extends FeatureDetector {
+
+    /**
+     * A method detecting a single precision visual description given an image
+     * item.
+     *
+     * @param image the given image.
+     * @return the visual description detected.
+     * @throws Exception throws unknown error exceptions.
+     */
+    public FloatDescription extractFloat(BufferedImage image) throws Exception;
+}
@@ -2,7 +2,8 @@ package com.tkb.pandora.image.openimaj;
 
 import java.awt.image.BufferedImage;
 import com.tkb.pandora.image.Description;
-import com.tkb.pandora.image.FeatureDetector;
+import com.tkb.pandora.image.FloatDescription;
+import com.tkb.pandora.image.FloatFeatureDetector;
 import com.tkb.pandora.math.Normalizer;
 import org.openimaj.feature.local.list.LocalFeatureList;
 import org.openimaj.image.ImageUtilities;
@@ -19,7 +20,7 @@ import org.openimaj.image.feature.dense.gradient.dsift.FloatDSIFTKeypoint;
  *
  * @author Akis Papadopoulos
  */
-public class DenseSift implements FeatureDetector {
+public class DenseSift implements FloatFeatureDetector {
 
     // Step size of sampling window in x-direction in pixels
     private int stepX;
@@ -111,6 +112,60 @@ public class DenseSift implements FeatureDetector {
      */
     @Override
     public Description extract(BufferedImage image) throws Exception {
+        LocalFeatureList<FloatDSIFTKeypoint> keypoints = detect(image);
+
+        double[][] descriptors = new double[keypoints.size()][];
+
+        for (int i = 0; i < keypoints.size(); i++) {
+            double[] descriptor = keypoints.get(i).getFeatureVector().asDoubleVector();
+
+            // Normalizing the local descriptor
+            if (normalize) {
+                Normalizer.euclidean(descriptor);
+            }
+
+            descriptors[i] = descriptor;
+        }
+
+        return new Description(descriptors);
+    }
+
+    /**
+     * A method detecting a single precision visual description given an image
+     * item, keeping the float descriptors of the keypoints as they are.
+     *
+     * @param image the image item.
+     * @return the visual description detected.
+     * @throws Exception throws unknown error exceptions.
+     */
+    @Override
+    public FloatDescription extractFloat(BufferedImage image) throws Exception {
+        LocalFeatureList<FloatDSIFTKeypoint> keypoints = detect(image);
+
+        float[][] descriptors = new float[keypoints.size()][];
+
+        for (int i = 0; i < keypoints.size(); i++) {
+            float[] descriptor = keypoints.get(i).getFeatureVector().values;
+
+            // Normalizing the local descriptor
+            if (normalize) {
+                Normalizer.euclidean(descriptor);
+            }
+
+            descriptors[i] = descriptor;
+        }
+
+        return new FloatDescription(descriptors);
+    }
+
+    /**
+     * A method detecting the dense SIFT keypoints of the given image.
+     *
+     * @param image the image item.
+     * @return the keypoints detected.
+     * @throws Exception throws unknown error exceptions.
+     */
+    private LocalFeatureList<FloatDSIFTKeypoint> detect(BufferedImage image) throws Exception {
         MBFImage img = ImageUtilities.createMBFImage(image, false);
 
         AbstractDenseSIFT detector = null;
@@ -136,20 +191,7 @@ public class DenseSift implements FeatureDetector {
             throw new Exception("No local SIFT descriptors detected for the given image");
         }
 
-        double[][] descriptors = new double[keypoints.size()][];
-
-        for (int i = 0; i < keypoints.size(); i++) {
-            double[] descriptor = keypoints.get(i).getFeatureVector().asDoubleVector();
-
-            // Normalizing the local descriptor
-            if (normalize) {
-                Normalizer.euclidean(descriptor);
-            }
-
-            descriptors[i] = descriptor;
-        }
-
-        return new Description(descriptors);
+        return keypoints;
     }
 
     public int getStepX() {
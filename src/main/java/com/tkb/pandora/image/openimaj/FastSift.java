@@ -2,7 +2,8 @@ package com.tkb.pandora.image.openimaj;
 
 import java.awt.image.BufferedImage;
 import com.tkb.pandora.image.Description;
-import com.tkb.pandora.image.FeatureDetector;
+import com.tkb.pandora.image.FloatDescription;
+import com.tkb.pandora.image.FloatFeatureDetector;
 import com.tkb.pandora.math.Normalizer;
 import org.openimaj.feature.local.list.LocalFeatureList;
 import org.openimaj.image.FImage;
@@ -16,7 +17,7 @@ import org.openimaj.image.feature.dense.gradient.dsift.FloatDSIFTKeypoint;
  *
  * @author Akis Papadopoulos
  */
-public class FastSift implements FeatureDetector {
+public class FastSift implements FloatFeatureDetector {
 
     // Step size of sampling window in x-direction in pixels
     private int stepX;
@@ -101,24 +102,40 @@ public class FastSift implements FeatureDetector {
      */
     @Override
     public Description extract(BufferedImage image) throws Exception {
-        FImage img = ImageUtilities.createFImage(image);
+        LocalFeatureList<FloatDSIFTKeypoint> keypoints = detect(image);
 
-        ApproximateDenseSIFT detector = new ApproximateDenseSIFT(stepX, stepY, binWidth, binHeight, numBinsX,
-                numBinsY, numOriBins, gaussianWindowSize, valueThreshold);
+        double[][] descriptors = new double[keypoints.size()][];
 
-        detector.analyseImage(img);
+        for (int i = 0; i < keypoints.size(); i++) {
+            double[] descriptor = keypoints.get(i).getFeatureVector().asDoubleVector();
 
-        LocalFeatureList<FloatDSIFTKeypoint> keypoints = detector.getFloatKeypoints();
+            // Normalizing the local descriptor
+            if (normalize) {
+                Normalizer.euclidean(descriptor);
+            }
 
-        // Checking if no interest points detected within image
-        if (keypoints.size() <= 0) {
-            throw new Exception("No local SIFT descriptors detected for the given image");
+            descriptors[i] = descriptor;
         }
 
-        double[][] descriptors = new double[keypoints.size()][];
+        return new Description(descriptors);
+    }
+
+    /**
+     * A method detecting a single precision visual description given an image
+     * item, keeping the float descriptors of the keypoints as they are.
+     *
+     * @param image the image item.
+     * @return the visual description detected.
+     * @throws Exception throws unknown error exceptions.
+     */
+    @Override
+    public FloatDescription extractFloat(BufferedImage image) throws Exception {
+        LocalFeatureList<FloatDSIFTKeypoint> keypoints = detect(image);
+
+        float[][] descriptors = new float[keypoints.size()][];
 
         for (int i = 0; i < keypoints.size(); i++) {
-            double[] descriptor = keypoints.get(i).getFeatureVector().asDoubleVector();
+            float[] descriptor = keypoints.get(i).getFeatureVector().values;
 
             // Normalizing the local descriptor
             if (normalize) {
@@ -128,7 +145,33 @@ public class FastSift implements FeatureDetector {
             descriptors[i] = descriptor;
         }
 
-        return new Description(descriptors);
+        return new FloatDescription(descriptors);
+    }
+
+    /**
+     * A method detecting the approximate dense SIFT keypoints of the given
+     * image.
+     *
+     * @param image the image item.
+     * @return the keypoints detected.
+     * @throws Exception throws unknown error exceptions.
+     */
+    private LocalFeatureList<FloatDSIFTKeypoint> detect(BufferedImage image) throws Exception {
+        FImage img = ImageUtilities.createFImage(image);
+
+        ApproximateDenseSIFT detector = new ApproximateDenseSIFT(stepX, stepY, binWidth, binHeight, numBinsX,
+                numBinsY, numOriBins, gaussianWindowSize, valueThreshold);
+
+        detector.analyseImage(img);
+
+        LocalFeatureList<FloatDSIFTKeypoint> keypoints = detector.getFloatKeypoints();
+
+        // Checking if no interest points detected within image
+        if (keypoints.size() <= 0) {
+            throw new Exception("No local SIFT descriptors detected for the given image");
+        }
+
+        return keypoints;
     }
 
     public int getStepX() {
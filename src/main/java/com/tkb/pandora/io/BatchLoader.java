@@ -0,0 +1,158 @@
+package com.tkb.pandora.io;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import com.tkb.pandora.util.ArrayOps;
+
+/**
+ * A bulk loader inserting image descriptors with a single prepared statement
+ * sent in batches, where batches are committed in explicit transaction chunks.
+ *
+ * @author Akis Papadopoulos
+ */
+public class BatchLoader implements BulkLoader {
+
+    // Database connection
+    private Connection connection;
+
+    // Prepared insert statement
+    private PreparedStatement statement;
+
+    // Rows per batch round trip
+    private int batchSize;
+
+    // Rows per committed transaction
+    private int transactionSize;
+
+    // Rows added in the current batch
+    private int batched;
+
+    // Rows sent but not committed yet
+    private int pending;
+
+    // Committed and discarded rows
+    private long loaded;
+    private long failed;
+
+    /**
+     * A constructor initiating the loader given the connection, the number of
+     * rows per batch and the number of rows per transaction.
+     *
+     * @param connection the database connection.
+     * @param batchSize the number of rows per batch.
+     * @param transactionSize the number of rows per transaction.
+     * @throws SQLException an unknown exception.
+     */
+    public BatchLoader(Connection connection, int batchSize, int transactionSize) throws SQLException {
+        this.connection = connection;
+        this.batchSize = Math.max(1, batchSize);
+        this.transactionSize = Math.max(this.batchSize, transactionSize);
+
+        connection.setAutoCommit(false);
+
+        statement = connection.prepareStatement("INSERT INTO images (id, descriptor, bucket) VALUES (?, ?, ?)");
+    }
+
+    @Override
+    public void load(String id, double[] descriptor, int bucket) throws SQLException {
+        Array array = connection.createArrayOf("numeric", ArrayOps.toObject(descriptor));
+
+        statement.setString(1, id);
+        statement.setArray(2, array);
+        statement.setInt(3, bucket);
+
+        statement.addBatch();
+        batched++;
+
+        if (batched >= batchSize) {
+            execute();
+
+            if (pending >= transactionSize) {
+                commit();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        if (batched > 0) {
+            execute();
+        }
+
+        if (pending > 0) {
+            commit();
+        }
+    }
+
+    @Override
+    public long getLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public long getFailed() {
+        return failed;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            statement.close();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * A method sending the current batch in a single round trip.
+     *
+     * @throws SQLException an unknown exception.
+     */
+    private void execute() throws SQLException {
+        try {
+            statement.executeBatch();
+
+            pending += batched;
+            batched = 0;
+        } catch (SQLException exc) {
+            rollback();
+
+            throw exc;
+        }
+    }
+
+    /**
+     * A method committing the rows sent so far.
+     *
+     * @throws SQLException an unknown exception.
+     */
+    private void commit() throws SQLException {
+        try {
+            connection.commit();
+
+            loaded += pending;
+            pending = 0;
+        } catch (SQLException exc) {
+            rollback();
+
+            throw exc;
+        }
+    }
+
+    /**
+     * A method discarding the current batch and the uncommitted rows.
+     *
+     * @throws SQLException an unknown exception.
+     */
+    private void rollback() throws SQLException {
+        failed += batched + pending;
+
+        batched = 0;
+        pending = 0;
+
+        statement.clearBatch();
+        connection.rollback();
+    }
+}
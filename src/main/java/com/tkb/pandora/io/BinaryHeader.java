@@ -0,0 +1,123 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A header of a binary matrix file, describing the number of rows, the number
+ * of columns and the element type of the little-endian payload following it.
+ *
+ * @author Akis Papadopoulos
+ */
+final class BinaryHeader {
+
+    // Magic number identifying a binary matrix file, 'PNDR' in little-endian
+    static final int MAGIC = 0x52444E50;
+
+    // Format version
+    static final short VERSION = 1;
+
+    // Element types given as the size of an element in bytes
+    static final short FLOAT32 = 4;
+    static final short FLOAT64 = 8;
+
+    // Size of the header in bytes, keeping the payload 8-byte aligned
+    static final int SIZE = 24;
+
+    // Element type
+    short type;
+
+    // Number of rows
+    long rows;
+
+    // Number of columns
+    int cols;
+
+    /**
+     * A constructor initiating a header given the element type and the shape
+     * of the matrix.
+     *
+     * @param type the element type.
+     * @param rows the number of rows.
+     * @param cols the number of columns.
+     */
+    BinaryHeader(short type, long rows, int cols) {
+        this.type = type;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * A method returning the size of a single row in bytes.
+     *
+     * @return the size of a row in bytes.
+     */
+    long getRowSize() {
+        return (long) cols * type;
+    }
+
+    /**
+     * A method reading the header from the beginning of the given channel.
+     *
+     * @param channel the file channel.
+     * @return the header.
+     * @throws IOException an exception thrown if the header is not valid.
+     */
+    static BinaryHeader read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("Truncated binary matrix header");
+            }
+        }
+
+        buffer.flip();
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary matrix file, magic number mismatch");
+        }
+
+        short version = buffer.getShort();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary matrix version: " + version);
+        }
+
+        short type = buffer.getShort();
+
+        if (type != FLOAT32 && type != FLOAT64) {
+            throw new IOException("Unsupported binary matrix element type: " + type);
+        }
+
+        long rows = buffer.getLong();
+        int cols = buffer.getInt();
+
+        return new BinaryHeader(type, rows, cols);
+    }
+
+    /**
+     * A method writing the header at the beginning of the given channel.
+     *
+     * @param channel the file channel.
+     * @throws IOException an unknown exception.
+     */
+    void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort(type);
+        buffer.putLong(rows);
+        buffer.putInt(cols);
+        buffer.putInt(0);
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+}
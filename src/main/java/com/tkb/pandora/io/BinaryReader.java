@@ -0,0 +1,244 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A singleton system file manager implementing memory mapped read methods for
+ * binary matrix files, where a header describing the shape and the element
+ * type is followed by the rows in little-endian float32 or float64 form.
+ *
+ * @author Akis Papadopoulos
+ */
+public final class BinaryReader {
+
+    // Maximum size in bytes of a single memory mapped region
+    private static final long MAX_REGION_SIZE = 1L << 30;
+
+    /**
+     * A method returning the vector indexed to the row identified by the given
+     * row number in the given file, mapping only the region of that row.
+     *
+     * @param filepath the absolute path to the file.
+     * @param rowNumber the number of the row to read starting from 1.
+     * @return the vector or null if no such row exists.
+     * @throws IOException an unknown exception.
+     */
+    public static double[] read(String filepath, int rowNumber) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            BinaryHeader header = BinaryHeader.read(channel);
+
+            if (rowNumber < 1 || rowNumber > header.rows) {
+                return null;
+            }
+
+            checkSize(channel, header, filepath);
+
+            long rowSize = header.getRowSize();
+
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, BinaryHeader.SIZE + (rowNumber - 1) * rowSize, rowSize);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+
+            double[][] matrix = new double[1][header.cols];
+
+            copy(region, header, matrix, 0, 1);
+
+            return matrix[0];
+        }
+    }
+
+    /**
+     * A method returning the matrix stored in the given file, mapping the
+     * payload in regions of whole rows.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the matrix.
+     * @throws IOException an unknown exception.
+     */
+    public static double[][] read(String filepath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            BinaryHeader header = BinaryHeader.read(channel);
+
+            if (header.rows > Integer.MAX_VALUE) {
+                throw new IOException("Binary matrix too large to be loaded in memory: " + header.rows + " rows");
+            }
+
+            checkSize(channel, header, filepath);
+
+            int rows = (int) header.rows;
+
+            double[][] matrix = new double[rows][header.cols];
+
+            long rowSize = header.getRowSize();
+
+            // Mapping as many whole rows as fit in a single region
+            int regionRows = (int) Math.max(1, Math.min(rows, MAX_REGION_SIZE / Math.max(1, rowSize)));
+
+            for (int start = 0; start < rows; start += regionRows) {
+                int count = Math.min(regionRows, rows - start);
+
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, BinaryHeader.SIZE + start * rowSize, count * rowSize);
+                region.order(ByteOrder.LITTLE_ENDIAN);
+
+                copy(region, header, matrix, start, count);
+            }
+
+            return matrix;
+        }
+    }
+
+    /**
+     * A method returning the single precision vector indexed to the row
+     * identified by the given row number in the given file, mapping only the
+     * region of that row.
+     *
+     * @param filepath the absolute path to the file.
+     * @param rowNumber the number of the row to read starting from 1.
+     * @return the vector or null if no such row exists.
+     * @throws IOException an unknown exception.
+     */
+    public static float[] readFloat(String filepath, int rowNumber) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            BinaryHeader header = BinaryHeader.read(channel);
+
+            if (rowNumber < 1 || rowNumber > header.rows) {
+                return null;
+            }
+
+            checkSize(channel, header, filepath);
+
+            long rowSize = header.getRowSize();
+
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, BinaryHeader.SIZE + (rowNumber - 1) * rowSize, rowSize);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+
+            float[][] matrix = new float[1][header.cols];
+
+            copy(region, header, matrix, 0, 1);
+
+            return matrix[0];
+        }
+    }
+
+    /**
+     * A method returning the single precision matrix stored in the given file,
+     * mapping the payload in regions of whole rows. Float32 payloads are
+     * copied without any conversion, float64 payloads are down cast.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the matrix.
+     * @throws IOException an unknown exception.
+     */
+    public static float[][] readFloat(String filepath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ)) {
+            BinaryHeader header = BinaryHeader.read(channel);
+
+            if (header.rows > Integer.MAX_VALUE) {
+                throw new IOException("Binary matrix too large to be loaded in memory: " + header.rows + " rows");
+            }
+
+            checkSize(channel, header, filepath);
+
+            int rows = (int) header.rows;
+
+            float[][] matrix = new float[rows][header.cols];
+
+            long rowSize = header.getRowSize();
+
+            // Mapping as many whole rows as fit in a single region
+            int regionRows = (int) Math.max(1, Math.min(rows, MAX_REGION_SIZE / Math.max(1, rowSize)));
+
+            for (int start = 0; start < rows; start += regionRows) {
+                int count = Math.min(regionRows, rows - start);
+
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, BinaryHeader.SIZE + start * rowSize, count * rowSize);
+                region.order(ByteOrder.LITTLE_ENDIAN);
+
+                copy(region, header, matrix, start, count);
+            }
+
+            return matrix;
+        }
+    }
+
+    /**
+     * A method checking the file is large enough to hold the payload declared
+     * in the header.
+     *
+     * @param channel the file channel.
+     * @param header the header of the file.
+     * @param filepath the absolute path to the file.
+     * @throws IOException an exception thrown if the file is truncated.
+     */
+    private static void checkSize(FileChannel channel, BinaryHeader header, String filepath) throws IOException {
+        if (channel.size() < BinaryHeader.SIZE + header.rows * header.getRowSize()) {
+            throw new IOException("Truncated binary matrix file: " + filepath);
+        }
+    }
+
+    /**
+     * A method copying the given number of rows from a mapped region into the
+     * matrix starting at the given row index.
+     *
+     * @param region the mapped region.
+     * @param header the header of the file.
+     * @param matrix the target matrix.
+     * @param start the index of the first row to fill.
+     * @param count the number of rows to copy.
+     */
+    private static void copy(MappedByteBuffer region, BinaryHeader header, double[][] matrix, int start, int count) {
+        if (header.type == BinaryHeader.FLOAT64) {
+            DoubleBuffer buffer = region.asDoubleBuffer();
+
+            for (int i = start; i < start + count; i++) {
+                buffer.get(matrix[i]);
+            }
+        } else {
+            FloatBuffer buffer = region.asFloatBuffer();
+
+            float[] row = new float[header.cols];
+
+            for (int i = start; i < start + count; i++) {
+                buffer.get(row);
+
+                for (int j = 0; j < row.length; j++) {
+                    matrix[i][j] = row[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * A method copying the given number of rows from a mapped region into the
+     * single precision matrix starting at the given row index.
+     *
+     * @param region the mapped region.
+     * @param header the header of the file.
+     * @param matrix the target matrix.
+     * @param start the index of the first row to fill.
+     * @param count the number of rows to copy.
+     */
+    private static void copy(MappedByteBuffer region, BinaryHeader header, float[][] matrix, int start, int count) {
+        if (header.type == BinaryHeader.FLOAT32) {
+            FloatBuffer buffer = region.asFloatBuffer();
+
+            for (int i = start; i < start + count; i++) {
+                buffer.get(matrix[i]);
+            }
+        } else {
+            DoubleBuffer buffer = region.asDoubleBuffer();
+
+            for (int i = start; i < start + count; i++) {
+                for (int j = 0; j < header.cols; j++) {
+                    matrix[i][j] = (float) buffer.get();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * A row iterator reading lazily the rows of a binary matrix file, mapping the
+ * payload one region of whole rows at a time.
+ *
+ * @author Akis Papadopoulos
+ */
+class BinaryRowIterator implements RowIterator {
+
+    // Maximum size in bytes of a single memory mapped region
+    private static final long MAX_REGION_SIZE = 1L << 26;
+
+    // File channel
+    private FileChannel channel;
+
+    // Header of the file
+    private BinaryHeader header;
+
+    // Position of the first row in the file
+    private long offset;
+
+    // Index of the next row to read
+    private long row;
+
+    // Index of the first row after the mapped region
+    private long end;
+
+    // Views upon the mapped region
+    private DoubleBuffer doubles;
+    private FloatBuffer floats;
+
+    /**
+     * A constructor opening the given binary matrix file.
+     *
+     * @param filepath the absolute path to the file.
+     * @throws IOException an unknown exception.
+     */
+    BinaryRowIterator(String filepath) throws IOException {
+        channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ);
+
+        offset = BinaryHeader.SIZE;
+
+        try {
+            header = BinaryHeader.read(channel);
+
+            if (channel.size() < BinaryHeader.SIZE + header.rows * header.getRowSize()) {
+                throw new IOException("Truncated binary matrix file: " + filepath);
+            }
+        } catch (IOException exc) {
+            channel.close();
+
+            throw exc;
+        }
+    }
+
+    /**
+     * A constructor reading the rows of the given shape laid out at the given
+     * position of an already open channel, which is closed along with the
+     * iterator.
+     *
+     * @param channel the file channel.
+     * @param header the element type and the shape of the rows.
+     * @param offset the position of the first row in the file.
+     */
+    BinaryRowIterator(FileChannel channel, BinaryHeader header, long offset) {
+        this.channel = channel;
+        this.header = header;
+        this.offset = offset;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return row < header.rows;
+    }
+
+    @Override
+    public double[] next() {
+        if (row >= header.rows) {
+            throw new NoSuchElementException();
+        }
+
+        if (row >= end) {
+            try {
+                map();
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+        }
+
+        double[] vector = new double[header.cols];
+
+        if (header.type == BinaryHeader.FLOAT64) {
+            doubles.get(vector);
+        } else {
+            for (int j = 0; j < vector.length; j++) {
+                vector[j] = floats.get();
+            }
+        }
+
+        row++;
+
+        return vector;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, header.rows - row));
+
+        if (row + skipped < end) {
+            // Moving within the mapped region
+            int step = (int) (skipped * header.cols);
+
+            if (header.type == BinaryHeader.FLOAT64) {
+                doubles.position(doubles.position() + step);
+            } else {
+                floats.position(floats.position() + step);
+            }
+        } else {
+            // Mapping a new region on the next read
+            end = 0;
+        }
+
+        row += skipped;
+
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * A method mapping the region of whole rows starting at the next row.
+     *
+     * @throws IOException an unknown exception.
+     */
+    private void map() throws IOException {
+        long rowSize = header.getRowSize();
+
+        long count = Math.max(1, Math.min(header.rows - row, MAX_REGION_SIZE / Math.max(1, rowSize)));
+
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, offset + row * rowSize, count * rowSize);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (header.type == BinaryHeader.FLOAT64) {
+            doubles = region.asDoubleBuffer();
+        } else {
+            floats = region.asFloatBuffer();
+        }
+
+        end = row + count;
+    }
+}
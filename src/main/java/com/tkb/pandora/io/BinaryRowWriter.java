@@ -0,0 +1,134 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A row writer writing rows in a binary matrix file, where the header is
+ * updated once the writer is flushed or closed.
+ *
+ * @author Akis Papadopoulos
+ */
+class BinaryRowWriter implements RowWriter {
+
+    // Size in bytes of the write buffer
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // Absolute path to the file
+    private String filepath;
+
+    // Whether the rows are appended in the file
+    private boolean append;
+
+    // Element type of the rows
+    private short type;
+
+    // File channel
+    private FileChannel channel;
+
+    // Header of the file, read or created on the first row
+    private BinaryHeader header;
+
+    // Write buffer
+    private ByteBuffer buffer;
+
+    // Position in the file to write the buffer at
+    private long position;
+
+    // Number of rows written
+    private long count;
+
+    /**
+     * A constructor opening the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param append if true the rows will be appended in the file.
+     * @param single true to store components in single precision (float32),
+     * otherwise in double precision (float64).
+     * @throws IOException an unknown exception.
+     */
+    BinaryRowWriter(String filepath, boolean append, boolean single) throws IOException {
+        this.filepath = filepath;
+        this.append = append;
+
+        type = single ? BinaryHeader.FLOAT32 : BinaryHeader.FLOAT64;
+
+        channel = BinaryWriter.open(filepath, append);
+    }
+
+    @Override
+    public void write(double[] vector) throws IOException {
+        if (header == null) {
+            begin(vector.length);
+        }
+
+        if (vector.length != header.cols) {
+            throw new IOException("Rows of different size found writing binary matrix file: " + filepath);
+        }
+
+        if (buffer.remaining() < header.getRowSize()) {
+            position = BinaryWriter.flush(channel, buffer, position);
+        }
+
+        if (type == BinaryHeader.FLOAT64) {
+            for (int j = 0; j < vector.length; j++) {
+                buffer.putDouble(vector[j]);
+            }
+        } else {
+            for (int j = 0; j < vector.length; j++) {
+                buffer.putFloat((float) vector[j]);
+            }
+        }
+
+        count++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (header == null) {
+            return;
+        }
+
+        position = BinaryWriter.flush(channel, buffer, position);
+
+        // Updating a copy of the header, the rows are added once closed
+        new BinaryHeader(type, header.rows + count, header.cols).write(channel);
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (header == null) {
+                begin(0);
+            }
+
+            BinaryWriter.close(channel, header, buffer, position, count);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * A method reading or creating the header given the width of the rows.
+     *
+     * @param cols the number of columns of the rows.
+     * @throws IOException an exception thrown if the rows do not match the
+     * file.
+     */
+    private void begin(int cols) throws IOException {
+        header = BinaryWriter.header(channel, filepath, append, type, cols, cols > 0 ? 1 : 0);
+
+        long rowSize = header.getRowSize();
+
+        position = BinaryHeader.SIZE + header.rows * rowSize;
+
+        buffer = ByteBuffer.allocate((int) Math.max(BUFFER_SIZE, rowSize)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
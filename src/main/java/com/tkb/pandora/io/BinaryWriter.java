@@ -0,0 +1,285 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A singleton system file manager implementing write methods for binary matrix
+ * files, where a header describing the shape and the element type is followed
+ * by the rows in little-endian float32 or float64 form.
+ *
+ * @author Akis Papadopoulos
+ */
+public final class BinaryWriter {
+
+    // Size in bytes of the write buffer
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * A method writing a given vector as a single row in a binary file.
+     *
+     * @param vector the vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @param single true to store components in single precision (float32),
+     * otherwise in double precision (float64).
+     * @throws IOException an unknown exception.
+     */
+    public static void write(double[] vector, String filepath, boolean append, boolean single) throws IOException {
+        write(new double[][]{vector}, filepath, append, single);
+    }
+
+    /**
+     * A method writing a given matrix in a binary file, where appending is
+     * allowed only on files of the same element type and number of columns.
+     *
+     * @param matrix the matrix.
+     * @param filepath the absolute path to the file.
+     * @param append if true the matrix will be appended in the file.
+     * @param single true to store components in single precision (float32),
+     * otherwise in double precision (float64).
+     * @throws IOException an unknown exception.
+     */
+    public static void write(double[][] matrix, String filepath, boolean append, boolean single) throws IOException {
+        short type = single ? BinaryHeader.FLOAT32 : BinaryHeader.FLOAT64;
+        int cols = matrix.length > 0 ? matrix[0].length : 0;
+
+        FileChannel channel = null;
+
+        try {
+            channel = open(filepath, append);
+
+            BinaryHeader header = header(channel, filepath, append, type, cols, matrix.length);
+
+            long rowSize = header.getRowSize();
+            long position = BinaryHeader.SIZE + header.rows * rowSize;
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(BUFFER_SIZE, rowSize)).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Writing row-by-row in little-endian form
+            for (double[] row : matrix) {
+                if (row.length != header.cols) {
+                    throw new IOException("Rows of different size found writing binary matrix file: " + filepath);
+                }
+
+                if (buffer.remaining() < rowSize) {
+                    position = flush(channel, buffer, position);
+                }
+
+                if (type == BinaryHeader.FLOAT64) {
+                    for (int j = 0; j < row.length; j++) {
+                        buffer.putDouble(row[j]);
+                    }
+                } else {
+                    for (int j = 0; j < row.length; j++) {
+                        buffer.putFloat((float) row[j]);
+                    }
+                }
+            }
+
+            close(channel, header, buffer, position, matrix.length);
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * A method writing a given single precision vector as a single row in a
+     * binary file.
+     *
+     * @param vector the vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @param single true to store components in single precision (float32),
+     * otherwise in double precision (float64).
+     * @throws IOException an unknown exception.
+     */
+    public static void write(float[] vector, String filepath, boolean append, boolean single) throws IOException {
+        write(new float[][]{vector}, filepath, append, single);
+    }
+
+    /**
+     * A method writing a given single precision matrix in a binary file, where
+     * appending is allowed only on files of the same element type and number
+     * of columns. Rows are copied as they are in the float32 form.
+     *
+     * @param matrix the matrix.
+     * @param filepath the absolute path to the file.
+     * @param append if true the matrix will be appended in the file.
+     * @param single true to store components in single precision (float32),
+     * otherwise in double precision (float64).
+     * @throws IOException an unknown exception.
+     */
+    public static void write(float[][] matrix, String filepath, boolean append, boolean single) throws IOException {
+        short type = single ? BinaryHeader.FLOAT32 : BinaryHeader.FLOAT64;
+        int cols = matrix.length > 0 ? matrix[0].length : 0;
+
+        FileChannel channel = null;
+
+        try {
+            channel = open(filepath, append);
+
+            BinaryHeader header = header(channel, filepath, append, type, cols, matrix.length);
+
+            long rowSize = header.getRowSize();
+            long position = BinaryHeader.SIZE + header.rows * rowSize;
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(BUFFER_SIZE, rowSize)).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Writing row-by-row in little-endian form
+            for (float[] row : matrix) {
+                if (row.length != header.cols) {
+                    throw new IOException("Rows of different size found writing binary matrix file: " + filepath);
+                }
+
+                if (buffer.remaining() < rowSize) {
+                    position = flush(channel, buffer, position);
+                }
+
+                if (type == BinaryHeader.FLOAT32) {
+                    buffer.asFloatBuffer().put(row);
+                    buffer.position(buffer.position() + row.length * BinaryHeader.FLOAT32);
+                } else {
+                    for (int j = 0; j < row.length; j++) {
+                        buffer.putDouble(row[j]);
+                    }
+                }
+            }
+
+            close(channel, header, buffer, position, matrix.length);
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * A method truncating the given file to the given size, updating the
+     * number of rows in the header to the whole rows left.
+     *
+     * @param filepath the absolute path to the file.
+     * @param size the size in bytes.
+     * @throws IOException an unknown exception.
+     */
+    static void truncate(String filepath, long size) throws IOException {
+        FileChannel channel = open(filepath, true);
+
+        try {
+            if (size < BinaryHeader.SIZE) {
+                channel.truncate(0);
+            } else {
+                BinaryHeader header = BinaryHeader.read(channel);
+
+                header.rows = header.cols > 0 ? (size - BinaryHeader.SIZE) / header.getRowSize() : 0;
+
+                channel.truncate(BinaryHeader.SIZE + header.rows * header.getRowSize());
+
+                header.write(channel);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * A method opening a channel to the given file, truncating the file unless
+     * appending.
+     *
+     * @param filepath the absolute path to the file.
+     * @param append if true the file will be appended.
+     * @return the file channel.
+     * @throws IOException an unknown exception.
+     */
+    static FileChannel open(String filepath, boolean append) throws IOException {
+        if (append) {
+            return FileChannel.open(Paths.get(filepath), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } else {
+            return FileChannel.open(Paths.get(filepath), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * A method returning the header rows are appended to, either the one
+     * already in the file or a new empty one.
+     *
+     * @param channel the file channel.
+     * @param filepath the absolute path to the file.
+     * @param append if true the rows will be appended in the file.
+     * @param type the element type of the rows.
+     * @param cols the number of columns of the rows.
+     * @param count the number of rows to write.
+     * @return the header.
+     * @throws IOException an exception thrown if the rows do not match the
+     * file.
+     */
+    static BinaryHeader header(FileChannel channel, String filepath, boolean append, short type, int cols, int count) throws IOException {
+        if (append && channel.size() > 0) {
+            BinaryHeader header = BinaryHeader.read(channel);
+
+            if (header.type != type) {
+                throw new IOException("Element type mismatch appending to binary matrix file: " + filepath);
+            }
+
+            // Adopting the width of the first rows written in an empty file
+            if (header.rows == 0) {
+                header.cols = cols;
+            } else if (count > 0 && header.cols != cols) {
+                throw new IOException("Columns mismatch appending to binary matrix file: " + header.cols + " <> " + cols);
+            }
+
+            return header;
+        } else {
+            return new BinaryHeader(type, 0, cols);
+        }
+    }
+
+    /**
+     * A method flushing the last buffered bytes and updating the header once
+     * the payload is in place.
+     *
+     * @param channel the file channel.
+     * @param header the header of the file.
+     * @param buffer the buffer to flush.
+     * @param position the position in the file to write at.
+     * @param count the number of rows written.
+     * @throws IOException an unknown exception.
+     */
+    static void close(FileChannel channel, BinaryHeader header, ByteBuffer buffer, long position, long count) throws IOException {
+        position = flush(channel, buffer, position);
+
+        // Discarding any partial payload left behind by an interrupted write
+        channel.truncate(position);
+
+        header.rows += count;
+        header.write(channel);
+    }
+
+    /**
+     * A method flushing the buffered bytes in the channel at the given
+     * position.
+     *
+     * @param channel the file channel.
+     * @param buffer the buffer to flush.
+     * @param position the position in the file to write at.
+     * @return the position in the file after the written bytes.
+     * @throws IOException an unknown exception.
+     */
+    static long flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        buffer.clear();
+
+        return position;
+    }
+}
@@ -0,0 +1,84 @@
+package com.tkb.pandora.io;
+
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * A row iterator reading lazily the rows of a little-endian matrix region
+ * already in memory or memory mapped.
+ *
+ * @author Akis Papadopoulos
+ */
+class BufferRowIterator implements RowIterator {
+
+    // Region of the rows
+    private ByteBuffer region;
+
+    // Element type of the rows
+    private short type;
+
+    // Number of rows and columns
+    private long rows;
+    private int cols;
+
+    // Index of the next row to read
+    private long row;
+
+    /**
+     * A constructor given the region and the shape of the rows.
+     *
+     * @param region the little-endian region of the rows.
+     * @param type the element type of the rows.
+     * @param rows the number of rows.
+     * @param cols the number of columns.
+     */
+    BufferRowIterator(ByteBuffer region, short type, long rows, int cols) {
+        this.region = region;
+        this.type = type;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return row < rows;
+    }
+
+    @Override
+    public double[] next() {
+        if (row >= rows) {
+            throw new NoSuchElementException();
+        }
+
+        double[] vector = new double[cols];
+
+        if (type == BinaryHeader.FLOAT64) {
+            for (int j = 0; j < cols; j++) {
+                vector[j] = region.getDouble();
+            }
+        } else {
+            for (int j = 0; j < cols; j++) {
+                vector[j] = region.getFloat();
+            }
+        }
+
+        row++;
+
+        return vector;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, rows - row));
+
+        region.position((int) (region.position() + skipped * cols * type));
+
+        row += skipped;
+
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+    }
+}
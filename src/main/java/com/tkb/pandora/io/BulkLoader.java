@@ -0,0 +1,54 @@
+package com.tkb.pandora.io;
+
+import java.sql.SQLException;
+
+/**
+ * An interface to bulk load image descriptors into the images table of the
+ * index database, committing rows in transaction chunks.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface BulkLoader {
+
+    /**
+     * A method queuing the given image descriptor to be loaded. Queued rows
+     * may be sent and committed before the method returns, in which case a
+     * failure discards the whole uncommitted chunk.
+     *
+     * @param id the image identifier.
+     * @param descriptor the image descriptor.
+     * @param bucket the bucket the image is indexed to.
+     * @throws SQLException an exception thrown if a chunk failed to load.
+     */
+    public void load(String id, double[] descriptor, int bucket) throws SQLException;
+
+    /**
+     * A method sending and committing any queued rows.
+     *
+     * @throws SQLException an exception thrown if the last chunk failed to
+     * load.
+     */
+    public void flush() throws SQLException;
+
+    /**
+     * A method returning the number of rows committed so far.
+     *
+     * @return the number of committed rows.
+     */
+    public long getLoaded();
+
+    /**
+     * A method returning the number of rows discarded by failed chunks.
+     *
+     * @return the number of discarded rows.
+     */
+    public long getFailed();
+
+    /**
+     * A method releasing the resources of the loader, restoring the auto
+     * commit mode of the connection. Rows not flushed are discarded.
+     *
+     * @throws SQLException an unknown exception.
+     */
+    public void close() throws SQLException;
+}
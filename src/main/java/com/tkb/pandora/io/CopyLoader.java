@@ -0,0 +1,121 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * A bulk loader streaming image descriptors into a PostgreSQL database using
+ * the COPY protocol in CSV form, where each chunk of rows is copied and
+ * committed in a single transaction.
+ *
+ * @author Akis Papadopoulos
+ */
+public class CopyLoader implements BulkLoader {
+
+    // Copy statement of the images table
+    private static final String COPY_SQL = "COPY images (id, descriptor, bucket) FROM STDIN WITH CSV";
+
+    // Database connection
+    private Connection connection;
+
+    // PostgreSQL copy manager
+    private CopyManager copier;
+
+    // Rows per copied transaction
+    private int transactionSize;
+
+    // Rows buffered in CSV form
+    private StringBuilder buffer;
+    private int buffered;
+
+    // Committed and discarded rows
+    private long loaded;
+    private long failed;
+
+    /**
+     * A constructor initiating the loader given a PostgreSQL connection and
+     * the number of rows per transaction.
+     *
+     * @param connection the PostgreSQL database connection.
+     * @param transactionSize the number of rows per transaction.
+     * @throws SQLException an exception thrown if the connection does not
+     * support the COPY protocol.
+     */
+    public CopyLoader(Connection connection, int transactionSize) throws SQLException {
+        this.connection = connection;
+        this.transactionSize = Math.max(1, transactionSize);
+
+        copier = connection.unwrap(PGConnection.class).getCopyAPI();
+
+        connection.setAutoCommit(false);
+
+        buffer = new StringBuilder();
+    }
+
+    @Override
+    public void load(String id, double[] descriptor, int bucket) throws SQLException {
+        // Quoting the identifier and the array literal holding commas
+        buffer.append('"').append(id.replace("\"", "\"\"")).append("\",\"{");
+
+        for (int j = 0; j < descriptor.length; j++) {
+            buffer.append(descriptor[j]);
+
+            if (j < descriptor.length - 1) {
+                buffer.append(',');
+            }
+        }
+
+        buffer.append("}\",").append(bucket).append('\n');
+        buffered++;
+
+        if (buffered >= transactionSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        if (buffered == 0) {
+            return;
+        }
+
+        try {
+            copier.copyIn(COPY_SQL, new StringReader(buffer.toString()));
+            connection.commit();
+
+            loaded += buffered;
+        } catch (SQLException | IOException exc) {
+            failed += buffered;
+
+            connection.rollback();
+
+            if (exc instanceof SQLException) {
+                throw (SQLException) exc;
+            } else {
+                throw new SQLException("An error occurred streaming rows to the database", exc);
+            }
+        } finally {
+            buffer.setLength(0);
+            buffered = 0;
+        }
+    }
+
+    @Override
+    public long getLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public long getFailed() {
+        return failed;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        connection.setAutoCommit(true);
+    }
+}
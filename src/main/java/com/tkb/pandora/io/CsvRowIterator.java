@@ -0,0 +1,90 @@
+package com.tkb.pandora.io;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+/**
+ * A row iterator parsing lazily the lines of a file in comma separated form.
+ *
+ * @author Akis Papadopoulos
+ */
+class CsvRowIterator implements RowIterator {
+
+    // Input stream
+    private BufferedReader reader;
+
+    // Line read ahead, null at the end of the file
+    private String line;
+
+    /**
+     * A constructor opening the given file and reading ahead its first line.
+     *
+     * @param filepath the absolute path to the file.
+     * @throws IOException an unknown exception.
+     */
+    CsvRowIterator(String filepath) throws IOException {
+        reader = new BufferedReader(new FileReader(filepath), 1 << 16);
+
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return line != null;
+    }
+
+    @Override
+    public double[] next() {
+        if (line == null) {
+            throw new NoSuchElementException();
+        }
+
+        String[] tokens = line.split(",");
+
+        double[] vector = new double[tokens.length];
+
+        for (int j = 0; j < tokens.length; j++) {
+            vector[j] = Double.parseDouble(tokens[j]);
+        }
+
+        try {
+            advance();
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+
+        return vector;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+
+        while (skipped < n && line != null) {
+            advance();
+
+            skipped++;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * A method reading ahead the next non empty line.
+     *
+     * @throws IOException an unknown exception.
+     */
+    private void advance() throws IOException {
+        do {
+            line = reader.readLine();
+        } while (line != null && line.isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+package com.tkb.pandora.io;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * A row writer writing lines in comma separated form.
+ *
+ * @author Akis Papadopoulos
+ */
+class CsvRowWriter implements RowWriter {
+
+    // Output stream
+    private BufferedWriter writer;
+
+    // Whether the next row goes after an existing line
+    private boolean append;
+
+    // Number of rows written
+    private long count;
+
+    /**
+     * A constructor opening the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param append if true the rows will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    CsvRowWriter(String filepath, boolean append) throws IOException {
+        this.append = append;
+
+        writer = new BufferedWriter(new FileWriter(filepath, append), 1 << 16);
+    }
+
+    @Override
+    public void write(double[] vector) throws IOException {
+        if (append || count > 0) {
+            writer.newLine();
+        }
+
+        // Writing components in comma separated form
+        for (int j = 0; j < vector.length; j++) {
+            writer.write(String.valueOf(vector[j]));
+
+            if (j < vector.length - 1) {
+                writer.write(",");
+            }
+        }
+
+        count++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
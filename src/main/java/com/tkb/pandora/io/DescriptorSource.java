@@ -0,0 +1,59 @@
+package com.tkb.pandora.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of the variable size sets of local descriptors of a dataset of
+ * images, identified each by the id of its image and read at random by the
+ * serial number of the image regardless of how the sets are laid out in
+ * storage. Reads are safe to share across threads.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface DescriptorSource extends Closeable {
+
+    /**
+     * A method returning the number of images.
+     *
+     * @return the number of images.
+     */
+    public int size();
+
+    /**
+     * A method returning the id of the given image.
+     *
+     * @param image the serial number of the image starting from 0.
+     * @return the id.
+     */
+    public String getId(int image);
+
+    /**
+     * A method reading the local descriptors of the given image.
+     *
+     * @param image the serial number of the image starting from 0.
+     * @return the local descriptors.
+     * @throws IOException an unknown exception.
+     */
+    public double[][] read(int image) throws IOException;
+
+    /**
+     * A method reading the local descriptors of the given image in single
+     * precision.
+     *
+     * @param image the serial number of the image starting from 0.
+     * @return the local descriptors.
+     * @throws IOException an unknown exception.
+     */
+    public float[][] readFloat(int image) throws IOException;
+
+    /**
+     * A method opening an iterator reading lazily the local descriptors of the
+     * given image one at a time.
+     *
+     * @param image the serial number of the image starting from 0.
+     * @return the row iterator, to be closed by the caller.
+     * @throws IOException an unknown exception.
+     */
+    public RowIterator iterate(int image) throws IOException;
+}
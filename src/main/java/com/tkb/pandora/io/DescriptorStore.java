@@ -0,0 +1,222 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sharded store of the variable size sets of local descriptors of a dataset
+ * of images, kept in a few large shard files instead of one file per image.
+ * Each shard holds a header, the contiguous little-endian float32 or float64
+ * descriptors of many images and an offset index mapping the id of each image
+ * to its range of rows, along with a CRC32 checksum of both.
+ *
+ * Images are numbered across the shards in the order of their names and their
+ * descriptors are read through memory mapped views, sequentially or at random
+ * by serial number or id, without any further system call per image.
+ *
+ * @author Akis Papadopoulos
+ */
+public class DescriptorStore implements DescriptorSource {
+
+    // Extension of the shard files
+    static final String EXTENSION = "shard";
+
+    // Complete shards in order
+    private List<Segment> shards;
+
+    // Shards left incomplete by an interrupted writer
+    private List<String> incomplete = new ArrayList<String>();
+
+    // Id, shard, first row and number of rows of each image
+    private String[] ids;
+    private int[] shardOf;
+    private long[] rowOf;
+    private int[] counts;
+
+    // Total number of descriptors
+    private long rows;
+
+    // Width of the descriptors
+    private int cols;
+
+    // Serial number of each id, built on the first lookup by id
+    private Map<String, Integer> imagesById;
+
+    /**
+     * A constructor opening the shards of the given store directory and
+     * loading their offset indexes.
+     *
+     * @param dirpath the absolute path to the store directory.
+     * @param verify true to verify the checksum of each shard.
+     * @throws IOException an exception thrown if a shard is corrupted or of
+     * different width.
+     */
+    public DescriptorStore(String dirpath, boolean verify) throws IOException {
+        shards = Segment.open(dirpath, EXTENSION, SegmentHeader.DESCRIPTORS, verify, incomplete);
+
+        List<String> idList = new ArrayList<String>();
+        List<Integer> shardList = new ArrayList<Integer>();
+        List<Long> rowList = new ArrayList<Long>();
+        List<Integer> countList = new ArrayList<Integer>();
+
+        try {
+            for (int s = 0; s < shards.size(); s++) {
+                Segment shard = shards.get(s);
+
+                ByteBuffer table = shard.table();
+
+                long row = 0;
+
+                // Reading the offset index, rows of each image follow the previous ones
+                while (table.hasRemaining()) {
+                    byte[] bytes = new byte[table.getInt()];
+
+                    table.get(bytes);
+
+                    int count = table.getInt();
+
+                    idList.add(new String(bytes, StandardCharsets.UTF_8));
+                    shardList.add(s);
+                    rowList.add(row);
+                    countList.add(count);
+
+                    row += count;
+                }
+
+                if (row != shard.header.shape.rows) {
+                    throw new IOException("Offset index mismatch in local descriptor shard " + shard.file + ": " + row + " <> " + shard.header.shape.rows);
+                }
+
+                rows += row;
+                cols = shard.header.shape.cols;
+            }
+        } catch (IOException exc) {
+            close();
+
+            throw exc;
+        }
+
+        int size = idList.size();
+
+        ids = idList.toArray(new String[size]);
+        shardOf = new int[size];
+        rowOf = new long[size];
+        counts = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            shardOf[i] = shardList.get(i);
+            rowOf[i] = rowList.get(i);
+            counts[i] = countList.get(i);
+        }
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * A method returning the total number of descriptors.
+     *
+     * @return the number of descriptors.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * A method returning the width of the descriptors.
+     *
+     * @return the number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * A method returning the paths of the shards left incomplete by an
+     * interrupted writer, which are ignored.
+     *
+     * @return the paths of the incomplete shards.
+     */
+    public List<String> getIncomplete() {
+        return incomplete;
+    }
+
+    @Override
+    public String getId(int image) {
+        return ids[image];
+    }
+
+    /**
+     * A method returning the number of descriptors of the given image.
+     *
+     * @param image the serial number of the image starting from 0.
+     * @return the number of descriptors.
+     */
+    public int getCount(int image) {
+        return counts[image];
+    }
+
+    /**
+     * A method returning the serial number of the given id.
+     *
+     * @param id the id of the image.
+     * @return the serial number starting from 0, or -1 if the id is not found.
+     */
+    public synchronized int getImage(String id) {
+        if (imagesById == null) {
+            imagesById = new HashMap<String, Integer>();
+
+            for (int i = 0; i < ids.length; i++) {
+                imagesById.put(ids[i], i);
+            }
+        }
+
+        Integer image = imagesById.get(id);
+
+        return image != null ? image : -1;
+    }
+
+    @Override
+    public double[][] read(int image) throws IOException {
+        return shards.get(shardOf[image]).read(rowOf[image], counts[image]);
+    }
+
+    @Override
+    public float[][] readFloat(int image) throws IOException {
+        return shards.get(shardOf[image]).readFloat(rowOf[image], counts[image]);
+    }
+
+    /**
+     * A method reading the local descriptors of the given id.
+     *
+     * @param id the id of the image.
+     * @return the local descriptors, or null if the id is not found.
+     * @throws IOException an unknown exception.
+     */
+    public double[][] read(String id) throws IOException {
+        int image = getImage(id);
+
+        return image >= 0 ? read(image) : null;
+    }
+
+    @Override
+    public RowIterator iterate(int image) throws IOException {
+        Segment shard = shards.get(shardOf[image]);
+
+        return new BufferRowIterator(shard.region(rowOf[image], counts[image]), shard.header.shape.type, counts[image], cols);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment shard : shards) {
+            shard.close();
+        }
+    }
+}
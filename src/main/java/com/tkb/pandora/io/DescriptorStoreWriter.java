@@ -0,0 +1,107 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+
+/**
+ * A descriptor writer streaming the local descriptors of many images into the
+ * shards of a descriptor store, moving on to a new shard once the current one
+ * reaches the given size. Each writer owns its shards, so concurrent writers
+ * never share a file, and a shard left open by an interrupted run is ignored by
+ * the readers of the store.
+ *
+ * @author Akis Papadopoulos
+ */
+public class DescriptorStoreWriter implements DescriptorWriter {
+
+    // Store directory
+    private String dirpath;
+
+    // Element type of the descriptors
+    private short type;
+
+    // Size in bytes a shard is closed at
+    private long shardSize;
+
+    // Shard written, null until the next image
+    private SegmentWriter shard;
+
+    /**
+     * A constructor given the store directory, the directory created if
+     * missing.
+     *
+     * @param dirpath the absolute path to the store directory.
+     * @param single true to store components in single precision (float32),
+     * otherwise in double precision (float64).
+     * @param shardSize the size in bytes a shard is closed at.
+     */
+    public DescriptorStoreWriter(String dirpath, boolean single, long shardSize) {
+        this.dirpath = dirpath;
+        this.shardSize = shardSize;
+
+        type = single ? BinaryHeader.FLOAT32 : BinaryHeader.FLOAT64;
+    }
+
+    @Override
+    public void write(String id, double[][] descriptors) throws IOException {
+        // Checking the width upfront, so an image is never left half written
+        for (double[] descriptor : descriptors) {
+            if (descriptor.length != descriptors[0].length) {
+                throw new IOException("Descriptors of different size found for image: " + id);
+            }
+        }
+
+        SegmentWriter writer = next();
+
+        for (double[] descriptor : descriptors) {
+            writer.put(descriptor);
+        }
+
+        writer.entry(id, descriptors.length);
+    }
+
+    @Override
+    public void write(String id, float[][] descriptors) throws IOException {
+        // Checking the width upfront, so an image is never left half written
+        for (float[] descriptor : descriptors) {
+            if (descriptor.length != descriptors[0].length) {
+                throw new IOException("Descriptors of different size found for image: " + id);
+            }
+        }
+
+        SegmentWriter writer = next();
+
+        for (float[] descriptor : descriptors) {
+            writer.put(descriptor);
+        }
+
+        writer.entry(id, descriptors.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (shard != null) {
+            shard.close();
+
+            shard = null;
+        }
+    }
+
+    /**
+     * A method returning the shard the next image is written in, closing the
+     * current shard once full.
+     *
+     * @return the shard writer.
+     * @throws IOException an unknown exception.
+     */
+    private SegmentWriter next() throws IOException {
+        if (shard != null && shard.size() >= shardSize) {
+            close();
+        }
+
+        if (shard == null) {
+            shard = new SegmentWriter(dirpath, DescriptorStore.EXTENSION, SegmentHeader.DESCRIPTORS, type);
+        }
+
+        return shard;
+    }
+}
@@ -0,0 +1,34 @@
+package com.tkb.pandora.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A writer of the variable size sets of local descriptors of a dataset of
+ * images, identified each by the id of its image regardless of how the sets
+ * are laid out in storage. The writer must be closed once all sets are
+ * written.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface DescriptorWriter extends Closeable {
+
+    /**
+     * A method writing the given local descriptors under the given id.
+     *
+     * @param id the id of the image.
+     * @param descriptors the local descriptors.
+     * @throws IOException an unknown exception.
+     */
+    public void write(String id, double[][] descriptors) throws IOException;
+
+    /**
+     * A method writing the given single precision local descriptors under the
+     * given id.
+     *
+     * @param id the id of the image.
+     * @param descriptors the local descriptors.
+     * @throws IOException an unknown exception.
+     */
+    public void write(String id, float[][] descriptors) throws IOException;
+}
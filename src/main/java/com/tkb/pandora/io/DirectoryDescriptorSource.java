@@ -0,0 +1,76 @@
+package com.tkb.pandora.io;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A descriptor source reading the local descriptors of each image out of a
+ * file of its own in a directory, where the id of each image is the name of
+ * its file without the extension.
+ *
+ * @author Akis Papadopoulos
+ */
+class DirectoryDescriptorSource implements DescriptorSource {
+
+    // Descriptors directory
+    private File dirin;
+
+    // Descriptor file names
+    private String[] filenames;
+
+    // Descriptors file format
+    private FileFormat format;
+
+    /**
+     * A constructor listing the descriptor files of the given extension in the
+     * given directory.
+     *
+     * @param dirpath the absolute path to the directory.
+     * @param extension the descriptor file extension.
+     * @param format the descriptors file format.
+     * @throws IOException an exception thrown if the directory is missing.
+     */
+    DirectoryDescriptorSource(String dirpath, String extension, FileFormat format) throws IOException {
+        this.format = format;
+
+        dirin = new File(dirpath);
+        filenames = dirin.list(new MultipleFileNameFilter(extension));
+
+        if (filenames == null) {
+            throw new IOException("Descriptors directory not found: " + dirpath);
+        }
+    }
+
+    @Override
+    public int size() {
+        return filenames.length;
+    }
+
+    @Override
+    public String getId(int image) {
+        String filename = filenames[image];
+
+        int pos = filename.lastIndexOf(".");
+
+        return pos > 0 ? filename.substring(0, pos) : filename;
+    }
+
+    @Override
+    public double[][] read(int image) throws IOException {
+        return format.read(dirin.getPath() + "/" + filenames[image]);
+    }
+
+    @Override
+    public float[][] readFloat(int image) throws IOException {
+        return format.readFloat(dirin.getPath() + "/" + filenames[image]);
+    }
+
+    @Override
+    public RowIterator iterate(int image) throws IOException {
+        return format.iterate(dirin.getPath() + "/" + filenames[image]);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,50 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+
+/**
+ * A descriptor writer writing the local descriptors of each image in a file of
+ * its own in a directory, named after the id of the image and the given
+ * extension.
+ *
+ * @author Akis Papadopoulos
+ */
+class DirectoryDescriptorWriter implements DescriptorWriter {
+
+    // Descriptors directory
+    private String dirpath;
+
+    // Descriptor file extension
+    private String extension;
+
+    // Descriptors file format
+    private FileFormat format;
+
+    /**
+     * A constructor given the directory, the extension and the format of the
+     * descriptor files.
+     *
+     * @param dirpath the absolute path to the directory.
+     * @param extension the descriptor file extension.
+     * @param format the descriptors file format.
+     */
+    DirectoryDescriptorWriter(String dirpath, String extension, FileFormat format) {
+        this.dirpath = dirpath;
+        this.extension = extension;
+        this.format = format;
+    }
+
+    @Override
+    public void write(String id, double[][] descriptors) throws IOException {
+        format.write(descriptors, dirpath + "/" + id + "." + extension, false);
+    }
+
+    @Override
+    public void write(String id, float[][] descriptors) throws IOException {
+        format.write(descriptors, dirpath + "/" + id + "." + extension, false);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,84 @@
+package com.tkb.pandora.io;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A vector reader reading one vector per file out of a directory, where the id
+ * of each vector is the name of its file without the extension.
+ *
+ * @author Akis Papadopoulos
+ */
+class DirectoryVectorReader implements VectorReader {
+
+    // Vectors directory
+    private File dirin;
+
+    // Vector file names
+    private String[] filenames;
+
+    // Vectors file format
+    private FileFormat format;
+
+    // Index of the current file
+    private int index = -1;
+
+    // Current vector
+    private double[] vector;
+
+    /**
+     * A constructor listing the vector files of the given extension in the
+     * given directory.
+     *
+     * @param dirpath the absolute path to the directory.
+     * @param extension the vector file extension.
+     * @param format the vectors file format.
+     * @throws IOException an exception thrown if the directory is missing.
+     */
+    DirectoryVectorReader(String dirpath, String extension, FileFormat format) throws IOException {
+        this.format = format;
+
+        dirin = new File(dirpath);
+        filenames = dirin.list(new MultipleFileNameFilter(extension));
+
+        if (filenames == null) {
+            throw new IOException("Vectors directory not found: " + dirpath);
+        }
+    }
+
+    @Override
+    public long size() {
+        return filenames.length;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (index + 1 >= filenames.length) {
+            return false;
+        }
+
+        index++;
+
+        vector = format.read(dirin.getPath() + "/" + filenames[index], 1);
+
+        return true;
+    }
+
+    @Override
+    public String getId() {
+        String filename = filenames[index];
+
+        int pos = filename.lastIndexOf(".");
+
+        return pos > 0 ? filename.substring(0, pos) : filename;
+    }
+
+    @Override
+    public double[] getVector() {
+        return vector;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,55 @@
+package com.tkb.pandora.io;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.IOException;
+
+/**
+ * A vector writer writing one vector per file in a directory, named after the
+ * id of the vector and the given extension.
+ *
+ * @author Akis Papadopoulos
+ */
+class DirectoryVectorWriter implements VectorWriter {
+
+    // Vectors directory
+    private String dirpath;
+
+    // Vector file extension
+    private String extension;
+
+    // Vectors file format
+    private FileFormat format;
+
+    /**
+     * A constructor given the directory, the extension and the format of the
+     * vector files.
+     *
+     * @param dirpath the absolute path to the directory.
+     * @param extension the vector file extension.
+     * @param format the vectors file format.
+     */
+    DirectoryVectorWriter(String dirpath, String extension, FileFormat format) {
+        this.dirpath = dirpath;
+        this.extension = extension;
+        this.format = format;
+    }
+
+    @Override
+    public void write(String id, double[] vector) throws IOException {
+        format.write(vector, dirpath + "/" + id + "." + extension, false);
+    }
+
+    @Override
+    public void write(String id, float[] vector) throws IOException {
+        format.write(vector, dirpath + "/" + id + "." + extension, false);
+    }
+
+    @Override
+    public void write(String id, SparseVector vector) throws IOException {
+        format.write(vector, dirpath + "/" + id + "." + extension, false);
+    }
+
+    @Override
+    public void close() {
+    }
+}
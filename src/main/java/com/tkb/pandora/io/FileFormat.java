@@ -0,0 +1,281 @@
+package com.tkb.pandora.io;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * The file formats vectors and matrices can be stored in, either in the comma
+ * separated text form, in the binary form of single or double precision, or
+ * in the sparse binary form keeping only the non zero components.
+ *
+ * @author Akis Papadopoulos
+ */
+public enum FileFormat {
+
+    // Comma separated text form, one vector per line
+    CSV,
+
+    // Binary form of single precision components
+    FLOAT32,
+
+    // Binary form of double precision components
+    FLOAT64,
+
+    // Binary form of the non zero components in single precision along with their indices
+    SPARSE;
+
+    /**
+     * A method returning the file format given its case insensitive name, e.g.
+     * csv, float32, float64 or sparse.
+     *
+     * @param name the name of the format.
+     * @return the file format.
+     */
+    public static FileFormat parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * A method returning the vector indexed to the given line number in the
+     * given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param lineNumber the number of the line to read starting from 1.
+     * @return the vector.
+     * @throws IOException an unknown exception.
+     */
+    public double[] read(String filepath, int lineNumber) throws IOException {
+        if (this == CSV) {
+            return Reader.read(filepath, lineNumber);
+        } else if (this == SPARSE) {
+            return SparseReader.read(filepath, lineNumber);
+        } else {
+            return BinaryReader.read(filepath, lineNumber);
+        }
+    }
+
+    /**
+     * A method returning the matrix stored in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the matrix.
+     * @throws IOException an unknown exception.
+     */
+    public double[][] read(String filepath) throws IOException {
+        if (this == CSV) {
+            return Reader.read(filepath);
+        } else if (this == SPARSE) {
+            return SparseReader.read(filepath);
+        } else {
+            return BinaryReader.read(filepath);
+        }
+    }
+
+    /**
+     * A method opening an iterator reading lazily the rows of the given file
+     * one at a time.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the row iterator, to be closed by the caller.
+     * @throws IOException an unknown exception.
+     */
+    public RowIterator iterate(String filepath) throws IOException {
+        if (this == CSV) {
+            return new CsvRowIterator(filepath);
+        } else if (this == SPARSE) {
+            return new SparseRowIterator(filepath);
+        } else {
+            return new BinaryRowIterator(filepath);
+        }
+    }
+
+    /**
+     * A method opening a writer writing rows one at a time in the given file
+     * through a single buffered output stream.
+     *
+     * @param filepath the absolute path to the file.
+     * @param append if true the rows will be appended in the file.
+     * @return the row writer, to be closed by the caller.
+     * @throws IOException an unknown exception.
+     */
+    public RowWriter open(String filepath, boolean append) throws IOException {
+        if (this == CSV) {
+            return new CsvRowWriter(filepath, append);
+        } else if (this == SPARSE) {
+            return new SparseRowWriter(filepath, append);
+        } else {
+            return new BinaryRowWriter(filepath, append, this == FLOAT32);
+        }
+    }
+
+    /**
+     * A method truncating the given file to the given size, such as the size
+     * recorded at the last checkpoint of a run, discarding any rows written
+     * after it.
+     *
+     * @param filepath the absolute path to the file.
+     * @param size the size in bytes.
+     * @throws IOException an unknown exception.
+     */
+    public void truncate(String filepath, long size) throws IOException {
+        if (this == CSV) {
+            RandomAccessFile raf = new RandomAccessFile(filepath, "rw");
+
+            try {
+                raf.setLength(size);
+            } finally {
+                raf.close();
+            }
+        } else if (this == SPARSE) {
+            SparseWriter.truncate(filepath, size);
+        } else {
+            BinaryWriter.truncate(filepath, size);
+        }
+    }
+
+    /**
+     * A method writing the given vector in the given file.
+     *
+     * @param vector the vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public void write(double[] vector, String filepath, boolean append) throws IOException {
+        if (this == CSV) {
+            Writer.write(vector, filepath, append);
+        } else if (this == SPARSE) {
+            SparseWriter.write(vector, filepath, append);
+        } else {
+            BinaryWriter.write(vector, filepath, append, this == FLOAT32);
+        }
+    }
+
+    /**
+     * A method writing the given matrix in the given file.
+     *
+     * @param matrix the matrix.
+     * @param filepath the absolute path to the file.
+     * @param append if true the matrix will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public void write(double[][] matrix, String filepath, boolean append) throws IOException {
+        if (this == CSV) {
+            Writer.write(matrix, filepath, append);
+        } else if (this == SPARSE) {
+            SparseWriter.write(matrix, filepath, append);
+        } else {
+            BinaryWriter.write(matrix, filepath, append, this == FLOAT32);
+        }
+    }
+
+    /**
+     * A method returning the single precision vector indexed to the given line
+     * number in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param lineNumber the number of the line to read starting from 1.
+     * @return the vector.
+     * @throws IOException an unknown exception.
+     */
+    public float[] readFloat(String filepath, int lineNumber) throws IOException {
+        if (this == CSV) {
+            return Reader.readFloat(filepath, lineNumber);
+        } else if (this == SPARSE) {
+            return SparseReader.readFloat(filepath, lineNumber);
+        } else {
+            return BinaryReader.readFloat(filepath, lineNumber);
+        }
+    }
+
+    /**
+     * A method returning the single precision matrix stored in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the matrix.
+     * @throws IOException an unknown exception.
+     */
+    public float[][] readFloat(String filepath) throws IOException {
+        if (this == CSV) {
+            return Reader.readFloat(filepath);
+        } else if (this == SPARSE) {
+            return SparseReader.readFloat(filepath);
+        } else {
+            return BinaryReader.readFloat(filepath);
+        }
+    }
+
+    /**
+     * A method returning the sparse vector indexed to the given line number in
+     * the given file, where the dense formats drop the zero components of the
+     * vector.
+     *
+     * @param filepath the absolute path to the file.
+     * @param lineNumber the number of the line to read starting from 1.
+     * @return the sparse vector.
+     * @throws IOException an unknown exception.
+     */
+    public SparseVector readSparse(String filepath, int lineNumber) throws IOException {
+        if (this == SPARSE) {
+            return SparseReader.readSparse(filepath, lineNumber);
+        }
+
+        double[] vector = read(filepath, lineNumber);
+
+        return vector != null ? SparseVector.of(vector) : null;
+    }
+
+    /**
+     * A method writing the given sparse vector in the given file, where the
+     * dense formats write the zero components of the vector as well.
+     *
+     * @param vector the sparse vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public void write(SparseVector vector, String filepath, boolean append) throws IOException {
+        if (this == SPARSE) {
+            SparseWriter.write(vector, filepath, append);
+        } else {
+            write(vector.toDense(), filepath, append);
+        }
+    }
+
+    /**
+     * A method writing the given single precision vector in the given file.
+     *
+     * @param vector the vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public void write(float[] vector, String filepath, boolean append) throws IOException {
+        if (this == CSV) {
+            Writer.write(vector, filepath, append);
+        } else if (this == SPARSE) {
+            SparseWriter.write(vector, filepath, append);
+        } else {
+            BinaryWriter.write(vector, filepath, append, this == FLOAT32);
+        }
+    }
+
+    /**
+     * A method writing the given single precision matrix in the given file.
+     *
+     * @param matrix the matrix.
+     * @param filepath the absolute path to the file.
+     * @param append if true the matrix will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public void write(float[][] matrix, String filepath, boolean append) throws IOException {
+        if (this == CSV) {
+            Writer.write(matrix, filepath, append);
+        } else if (this == SPARSE) {
+            SparseWriter.write(matrix, filepath, append);
+        } else {
+            BinaryWriter.write(matrix, filepath, append, this == FLOAT32);
+        }
+    }
+}
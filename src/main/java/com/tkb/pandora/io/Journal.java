@@ -0,0 +1,279 @@
+package com.tkb.pandora.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A checkpoint journal of a batch run, recording the ids processed so far so a
+ * run can resume after a crash or process incrementally only the ids added
+ * since the last run. The journal is a text file starting with the hash of the
+ * configuration the run depends on, followed by one line per processed id
+ * along with the size of the output once the id was written if the output is a
+ * single file. Each id is flushed as it is committed, so a journal survives a
+ * crash of the process, where a partially written last line is discarded.
+ *
+ * @author Akis Papadopoulos
+ */
+public class Journal implements Closeable {
+
+    // Journal file
+    private File file;
+
+    // Hash of the configuration
+    private String hash;
+
+    // Ids processed so far
+    private Set<String> ids = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    // Size of the output after the last id, -1 if not recorded
+    private long offset = -1;
+
+    // Output stream
+    private BufferedWriter writer;
+
+    /**
+     * A constructor opening the given journal, loading the ids of the last run
+     * if the journal exists, otherwise creating a new one.
+     *
+     * @param filepath the absolute path to the journal file.
+     * @param hash the hash of the configuration of the run.
+     * @throws IOException an exception thrown if the journal was written under
+     * a different configuration.
+     */
+    public Journal(String filepath, String hash) throws IOException {
+        file = new File(filepath);
+
+        this.hash = hash;
+
+        byte[] bytes = file.exists() ? Files.readAllBytes(file.toPath()) : new byte[0];
+
+        // Discarding any partially written last line
+        int end = bytes.length;
+
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+
+        String[] lines = new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n");
+
+        if (end == 0) {
+            write(Collections.<String>emptyList());
+        } else {
+            if (!lines[0].equals(hash)) {
+                throw new IOException("Configuration changed since the last run of " + filepath + ", remove the journal along with the output to start over");
+            }
+
+            for (int i = 1; i < lines.length; i++) {
+                int pos = lines[i].indexOf('\t');
+
+                if (pos < 0) {
+                    ids.add(lines[i]);
+                } else {
+                    ids.add(lines[i].substring(0, pos));
+
+                    offset = Long.parseLong(lines[i].substring(pos + 1));
+                }
+            }
+
+            if (end < bytes.length) {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+                try {
+                    raf.setLength(end);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A method returning the hash of the values of the given properties, where
+     * each key is a regex pattern matching any number of properties.
+     *
+     * @param props the configuration properties.
+     * @param keys the keys of the properties the run depends on.
+     * @return the hash in hex form.
+     */
+    public static String hash(Properties props, String... keys) {
+        List<String> matched = new ArrayList<String>();
+
+        for (String name : props.stringPropertyNames()) {
+            for (String key : keys) {
+                if (name.matches(key)) {
+                    matched.add(name);
+
+                    break;
+                }
+            }
+        }
+
+        Collections.sort(matched);
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+            for (String name : matched) {
+                digest.update((name + "=" + props.getProperty(name).trim() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            StringBuilder hex = new StringBuilder();
+
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    /**
+     * A method returning the number of ids processed so far.
+     *
+     * @return the number of ids.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * A method returning whether the given id is already processed.
+     *
+     * @param id the id.
+     * @return true if the id is processed, otherwise false.
+     */
+    public boolean contains(String id) {
+        return ids.contains(id);
+    }
+
+    /**
+     * A method returning the size of the output after the last processed id.
+     *
+     * @return the size in bytes, or -1 if not recorded.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * A method recording the given id as processed.
+     *
+     * @param id the id.
+     * @throws IOException an unknown exception.
+     */
+    public synchronized void commit(String id) throws IOException {
+        writer.write(id);
+        writer.write('\n');
+        writer.flush();
+
+        ids.add(id);
+    }
+
+    /**
+     * A method recording the given id as processed along with the size of the
+     * output once the id was written.
+     *
+     * @param id the id.
+     * @param offset the size of the output in bytes.
+     * @throws IOException an unknown exception.
+     */
+    public synchronized void commit(String id, long offset) throws IOException {
+        writer.write(id + "\t" + offset);
+        writer.write('\n');
+        writer.flush();
+
+        ids.add(id);
+
+        this.offset = offset;
+    }
+
+    /**
+     * A method recording the given ids as processed at once.
+     *
+     * @param batch the ids.
+     * @throws IOException an unknown exception.
+     */
+    public synchronized void commit(Collection<String> batch) throws IOException {
+        for (String id : batch) {
+            writer.write(id);
+            writer.write('\n');
+        }
+
+        writer.flush();
+
+        ids.addAll(batch);
+    }
+
+    /**
+     * A method keeping only the processed ids found in the given set, such as
+     * the ids actually in place in the output after a crash, rewriting the
+     * journal.
+     *
+     * @param kept the ids to keep.
+     * @throws IOException an unknown exception.
+     */
+    public synchronized void retain(Set<String> kept) throws IOException {
+        ids.retainAll(kept);
+
+        writer.close();
+
+        write(ids);
+
+        offset = -1;
+
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * A method writing a new journal with the given ids through a temporary
+     * file moved in place of the journal.
+     *
+     * @param lines the ids.
+     * @throws IOException an unknown exception.
+     */
+    private void write(Collection<String> lines) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8));
+
+        try {
+            out.write(hash);
+            out.write('\n');
+
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
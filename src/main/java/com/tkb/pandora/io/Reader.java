@@ -115,4 +115,97 @@ public final class Reader {
             }
         }
     }
+
+    /**
+     * A method returning a single precision vector which is indexed to a line
+     * identified by the line number in the given file. Each line corresponds
+     * to a comma separated vector.
+     *
+     * @param filepath the absolute path to the file.
+     * @param lineNumber the number of the line to read.
+     * @return the vector.
+     * @throws IOException an unknown exception.
+     */
+    public static float[] readFloat(String filepath, int lineNumber) throws IOException {
+        BufferedReader reader = null;
+
+        try {
+            // Opening an input stream to read
+            reader = new BufferedReader(new FileReader(filepath));
+
+            // Reading line by line
+            String line;
+            int index = 1;
+
+            // Iterating file line-by-line
+            while ((line = reader.readLine()) != null) {
+                // Extracting line indexed by the given line number
+                if (index == lineNumber) {
+                    return parseFloat(line);
+                } else if (index < lineNumber) {
+                    index++;
+                } else {
+                    return null;
+                }
+            }
+
+            return null;
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * A method returning a single precision matrix each row indexed to a line
+     * in comma separated form in the given file where each line corresponds to
+     * a vector.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the matrix.
+     * @throws IOException an unknown exception.
+     */
+    public static float[][] readFloat(String filepath) throws IOException {
+        BufferedReader reader = null;
+
+        try {
+            // Opening an input stream to read
+            reader = new BufferedReader(new FileReader(filepath));
+
+            List<float[]> list = new ArrayList<float[]>();
+
+            // Reading line by line
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                list.add(parseFloat(line));
+            }
+
+            return list.toArray(new float[list.size()][]);
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * A method parsing the comma separated tokens of the given line into a
+     * single precision vector.
+     *
+     * @param line the comma separated line.
+     * @return the vector.
+     */
+    private static float[] parseFloat(String line) {
+        String[] tokens = line.split(",");
+
+        float[] vector = new float[tokens.length];
+
+        for (int j = 0; j < tokens.length; j++) {
+            vector[j] = Float.parseFloat(tokens[j]);
+        }
+
+        return vector;
+    }
 }
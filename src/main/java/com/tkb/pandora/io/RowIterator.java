@@ -0,0 +1,25 @@
+package com.tkb.pandora.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * An iterator reading lazily the rows of a vectors file one at a time, so
+ * files of any size can be scanned sequentially in constant memory. The
+ * iterator must be closed once no more rows are needed.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface RowIterator extends Iterator<double[]>, Closeable {
+
+    /**
+     * A method skipping up to the given number of rows without parsing them.
+     *
+     * @param n the number of rows to skip.
+     * @return the number of rows actually skipped, less than the given number
+     * only if the end of the file was reached.
+     * @throws IOException an unknown exception.
+     */
+    public long skip(long n) throws IOException;
+}
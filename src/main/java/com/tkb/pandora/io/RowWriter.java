@@ -0,0 +1,37 @@
+package com.tkb.pandora.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A writer keeping a single buffered output stream open to a vectors file,
+ * writing rows one at a time. The writer must be closed once all rows are
+ * written, so the last buffered rows are flushed.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface RowWriter extends Closeable {
+
+    /**
+     * A method writing the given vector as the next row.
+     *
+     * @param vector the vector.
+     * @throws IOException an unknown exception.
+     */
+    public void write(double[] vector) throws IOException;
+
+    /**
+     * A method flushing the rows written so far, so the file is complete up to
+     * the last row even if the writer is never closed.
+     *
+     * @throws IOException an unknown exception.
+     */
+    public void flush() throws IOException;
+
+    /**
+     * A method returning the number of rows written so far.
+     *
+     * @return the number of rows.
+     */
+    public long getCount();
+}
@@ -0,0 +1,261 @@
+package com.tkb.pandora.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A complete segment of a store opened for reading, where the matrix is memory
+ * mapped once as a whole if it fits in a single region, otherwise one region
+ * per read.
+ *
+ * @author Akis Papadopoulos
+ */
+final class Segment implements Closeable {
+
+    // Size in bytes of a memory mapped region while verifying checksums
+    private static final long REGION_SIZE = 1L << 26;
+
+    // Segment file
+    File file;
+
+    // File channel
+    FileChannel channel;
+
+    // Header of the segment
+    SegmentHeader header;
+
+    // Matrix mapped as a whole, null if too large for a single region
+    private MappedByteBuffer matrix;
+
+    /**
+     * A constructor given an open segment and its header.
+     *
+     * @param file the segment file.
+     * @param channel the file channel.
+     * @param header the header of the segment.
+     * @throws IOException an unknown exception.
+     */
+    private Segment(File file, FileChannel channel, SegmentHeader header) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.header = header;
+
+        long size = header.shape.rows * header.shape.getRowSize();
+
+        if (size <= Integer.MAX_VALUE) {
+            matrix = channel.map(FileChannel.MapMode.READ_ONLY, SegmentHeader.SIZE, size);
+        }
+    }
+
+    /**
+     * A method opening in the order of their names the complete, non empty
+     * segments of the given kind in the given directory.
+     *
+     * @param dirpath the absolute path to the store directory.
+     * @param extension the extension of the segment files.
+     * @param magic the magic number of the segment kind.
+     * @param verify true to verify the checksum of each segment.
+     * @param incomplete the list collecting the paths of the segments left
+     * incomplete by an interrupted writer, which are ignored.
+     * @return the open segments.
+     * @throws IOException an exception thrown if a segment is corrupted or of
+     * different width.
+     */
+    static List<Segment> open(String dirpath, String extension, int magic, boolean verify, List<String> incomplete) throws IOException {
+        File[] files = new File(dirpath).listFiles(new MultipleFileFilter(extension));
+
+        if (files == null) {
+            throw new IOException("Store directory not found: " + dirpath);
+        }
+
+        Arrays.sort(files);
+
+        List<Segment> segments = new ArrayList<Segment>();
+
+        try {
+            for (File file : files) {
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+                SegmentHeader header;
+
+                try {
+                    header = SegmentHeader.read(channel, magic);
+                } catch (IOException exc) {
+                    channel.close();
+
+                    throw new IOException("Invalid segment: " + file, exc);
+                }
+
+                if (!header.isComplete() || header.shape.rows == 0) {
+                    if (!header.isComplete()) {
+                        incomplete.add(file.getPath());
+                    }
+
+                    channel.close();
+
+                    continue;
+                }
+
+                Segment segment;
+
+                try {
+                    segment = new Segment(file, channel, header);
+                } catch (IOException exc) {
+                    channel.close();
+
+                    throw exc;
+                }
+
+                segments.add(segment);
+
+                if (header.shape.cols != segments.get(0).header.shape.cols) {
+                    throw new IOException("Columns mismatch in segment " + file + ": " + header.shape.cols + " <> " + segments.get(0).header.shape.cols);
+                }
+
+                if (verify) {
+                    segment.verify();
+                }
+            }
+        } catch (IOException exc) {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+
+            throw exc;
+        }
+
+        return segments;
+    }
+
+    /**
+     * A method mapping the table of ids following the matrix.
+     *
+     * @return the little-endian table of ids.
+     * @throws IOException an unknown exception.
+     */
+    ByteBuffer table() throws IOException {
+        MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, header.idsOffset, channel.size() - header.idsOffset);
+        table.order(ByteOrder.LITTLE_ENDIAN);
+
+        return table;
+    }
+
+    /**
+     * A method returning the region of the matrix holding the given rows.
+     *
+     * @param row the first row starting from 0.
+     * @param count the number of rows.
+     * @return the little-endian region of the rows.
+     * @throws IOException an unknown exception.
+     */
+    ByteBuffer region(long row, int count) throws IOException {
+        long rowSize = header.shape.getRowSize();
+
+        ByteBuffer region;
+
+        if (matrix != null) {
+            // Slicing a view upon the mapping shared across threads
+            ByteBuffer view = matrix.duplicate();
+            view.position((int) (row * rowSize));
+            view.limit((int) ((row + count) * rowSize));
+
+            region = view.slice();
+        } else {
+            region = channel.map(FileChannel.MapMode.READ_ONLY, SegmentHeader.SIZE + row * rowSize, count * rowSize);
+        }
+
+        return region.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * A method reading the given rows.
+     *
+     * @param row the first row starting from 0.
+     * @param count the number of rows.
+     * @return the rows.
+     * @throws IOException an unknown exception.
+     */
+    double[][] read(long row, int count) throws IOException {
+        ByteBuffer region = region(row, count);
+
+        double[][] rows = new double[count][header.shape.cols];
+
+        if (header.shape.type == BinaryHeader.FLOAT64) {
+            for (int i = 0; i < count; i++) {
+                region.asDoubleBuffer().get(rows[i]);
+                region.position(region.position() + header.shape.cols * BinaryHeader.FLOAT64);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < rows[i].length; j++) {
+                    rows[i][j] = region.getFloat();
+                }
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * A method reading the given rows in single precision.
+     *
+     * @param row the first row starting from 0.
+     * @param count the number of rows.
+     * @return the rows.
+     * @throws IOException an unknown exception.
+     */
+    float[][] readFloat(long row, int count) throws IOException {
+        ByteBuffer region = region(row, count);
+
+        float[][] rows = new float[count][header.shape.cols];
+
+        if (header.shape.type == BinaryHeader.FLOAT32) {
+            for (int i = 0; i < count; i++) {
+                region.asFloatBuffer().get(rows[i]);
+                region.position(region.position() + header.shape.cols * BinaryHeader.FLOAT32);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < rows[i].length; j++) {
+                    rows[i][j] = (float) region.getDouble();
+                }
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * A method checking the matrix and the table of ids against the checksum.
+     *
+     * @throws IOException an exception thrown if the checksum does not match.
+     */
+    void verify() throws IOException {
+        CRC32 crc = new CRC32();
+
+        long end = channel.size();
+
+        for (long position = SegmentHeader.SIZE; position < end; position += REGION_SIZE) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, end - position)));
+        }
+
+        if (crc.getValue() != header.checksum) {
+            throw new IOException("Checksum mismatch in segment: " + file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,139 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A header of a store segment, describing the element type and the shape of
+ * the little-endian matrix following it, the position of the table of ids
+ * after the matrix and the checksum of both. Segments of aggregated vectors
+ * and shards of local descriptors share the layout under different magic
+ * numbers.
+ *
+ * @author Akis Papadopoulos
+ */
+final class SegmentHeader {
+
+    // Magic number identifying a vector store segment, 'PSEG' in little-endian
+    static final int VECTORS = 0x47455350;
+
+    // Magic number identifying a local descriptor shard, 'PDSH' in little-endian
+    static final int DESCRIPTORS = 0x48534450;
+
+    // Format version
+    static final short VERSION = 1;
+
+    // Size of the header in bytes, keeping the matrix 8-byte aligned
+    static final int SIZE = 48;
+
+    // Magic number of the segment kind
+    int magic;
+
+    // Element type and shape of the matrix
+    BinaryHeader shape;
+
+    // Position of the table of ids, zero until the segment is complete
+    long idsOffset;
+
+    // CRC32 checksum of the matrix and the table of ids
+    long checksum;
+
+    /**
+     * A constructor initiating a header given the segment kind, the element
+     * type and the shape of the matrix.
+     *
+     * @param magic the magic number of the segment kind.
+     * @param shape the element type and the shape of the matrix.
+     */
+    SegmentHeader(int magic, BinaryHeader shape) {
+        this.magic = magic;
+        this.shape = shape;
+    }
+
+    /**
+     * A method returning whether the segment was closed properly, so its table
+     * of ids is in place.
+     *
+     * @return true if the segment is complete, otherwise false.
+     */
+    boolean isComplete() {
+        return idsOffset > 0;
+    }
+
+    /**
+     * A method reading the header from the beginning of the given channel.
+     *
+     * @param channel the file channel.
+     * @param magic the magic number of the expected segment kind.
+     * @return the header.
+     * @throws IOException an exception thrown if the header is not valid.
+     */
+    static SegmentHeader read(FileChannel channel, int magic) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("Truncated segment header");
+            }
+        }
+
+        buffer.flip();
+
+        if (buffer.getInt() != magic) {
+            throw new IOException("Not a " + (magic == VECTORS ? "vector store segment" : "local descriptor shard") + ", magic number mismatch");
+        }
+
+        short version = buffer.getShort();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported segment version: " + version);
+        }
+
+        short type = buffer.getShort();
+
+        if (type != BinaryHeader.FLOAT32 && type != BinaryHeader.FLOAT64) {
+            throw new IOException("Unsupported segment element type: " + type);
+        }
+
+        int cols = buffer.getInt();
+
+        buffer.getInt();
+
+        long rows = buffer.getLong();
+
+        SegmentHeader header = new SegmentHeader(magic, new BinaryHeader(type, rows, cols));
+
+        header.idsOffset = buffer.getLong();
+        header.checksum = buffer.getLong();
+
+        return header;
+    }
+
+    /**
+     * A method writing the header at the beginning of the given channel.
+     *
+     * @param channel the file channel.
+     * @throws IOException an unknown exception.
+     */
+    void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(magic);
+        buffer.putShort(VERSION);
+        buffer.putShort(shape.type);
+        buffer.putInt(shape.cols);
+        buffer.putInt(0);
+        buffer.putLong(shape.rows);
+        buffer.putLong(idsOffset);
+        buffer.putLong(checksum);
+        buffer.putLong(0);
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+}
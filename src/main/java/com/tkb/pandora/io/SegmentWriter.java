@@ -0,0 +1,264 @@
+package com.tkb.pandora.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A writer appending rows in a new segment of a store, so concurrent writers
+ * never share a file. The matrix is written as it grows, while the table of
+ * ids, the checksum and the final header are written once the writer is
+ * closed.
+ *
+ * @author Akis Papadopoulos
+ */
+final class SegmentWriter implements Closeable {
+
+    // Size in bytes of the write buffer
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // Segment file
+    private File file;
+
+    // File channel
+    private FileChannel channel;
+
+    // Magic number of the segment kind
+    private int magic;
+
+    // Header of the segment, created on the first row
+    private SegmentHeader header;
+
+    // Element type of the rows
+    private short type;
+
+    // Write buffers of the matrix and the table of ids
+    private ByteBuffer buffer;
+    private ByteBuffer table;
+
+    // Position in the file to write the buffer at
+    private long position = SegmentHeader.SIZE;
+
+    // Checksum of the matrix and the table of ids
+    private CRC32 crc = new CRC32();
+
+    /**
+     * A constructor creating a new segment in the given store directory, the
+     * directory created if missing.
+     *
+     * @param dirpath the absolute path to the store directory.
+     * @param extension the extension of the segment files.
+     * @param magic the magic number of the segment kind.
+     * @param type the element type of the rows.
+     * @throws IOException an unknown exception.
+     */
+    SegmentWriter(String dirpath, String extension, int magic, short type) throws IOException {
+        this.magic = magic;
+        this.type = type;
+
+        File dir = new File(dirpath);
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create store directory: " + dirpath);
+        }
+
+        // Claiming the next free segment number
+        int number = 0;
+
+        do {
+            file = new File(dir, String.format("%06d.%s", number++, extension));
+        } while (!file.createNewFile());
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        table = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * A method appending the given row in the matrix.
+     *
+     * @param row the row.
+     * @throws IOException an unknown exception.
+     */
+    void put(double[] row) throws IOException {
+        begin(row.length);
+
+        if (type == BinaryHeader.FLOAT64) {
+            for (int j = 0; j < row.length; j++) {
+                buffer.putDouble(row[j]);
+            }
+        } else {
+            for (int j = 0; j < row.length; j++) {
+                buffer.putFloat((float) row[j]);
+            }
+        }
+    }
+
+    /**
+     * A method appending the given single precision row in the matrix.
+     *
+     * @param row the row.
+     * @throws IOException an unknown exception.
+     */
+    void put(float[] row) throws IOException {
+        begin(row.length);
+
+        if (type == BinaryHeader.FLOAT32) {
+            buffer.asFloatBuffer().put(row);
+            buffer.position(buffer.position() + row.length * BinaryHeader.FLOAT32);
+        } else {
+            for (int j = 0; j < row.length; j++) {
+                buffer.putDouble(row[j]);
+            }
+        }
+    }
+
+    /**
+     * A method appending the given id in the table of ids.
+     *
+     * @param id the id.
+     */
+    void entry(String id) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+
+        reserve(4 + bytes.length);
+
+        table.putInt(bytes.length);
+        table.put(bytes);
+    }
+
+    /**
+     * A method appending the given id along with the number of rows it holds
+     * in the table of ids.
+     *
+     * @param id the id.
+     * @param count the number of rows.
+     */
+    void entry(String id, int count) {
+        entry(id);
+
+        reserve(4);
+
+        table.putInt(count);
+    }
+
+    /**
+     * A method returning the size in bytes of the segment written so far.
+     *
+     * @return the size of the segment.
+     */
+    long size() {
+        return position + (buffer != null ? buffer.position() : 0) + table.position();
+    }
+
+    /**
+     * A method returning the segment file.
+     *
+     * @return the segment file.
+     */
+    File getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (header == null) {
+                header = new SegmentHeader(magic, new BinaryHeader(type, 0, 0));
+            }
+
+            if (buffer != null) {
+                flush();
+            }
+
+            // Appending the table of ids after the matrix
+            table.flip();
+
+            crc.update(table.duplicate());
+
+            header.idsOffset = position;
+
+            while (table.hasRemaining()) {
+                position += channel.write(table, position);
+            }
+
+            channel.truncate(position);
+
+            header.checksum = crc.getValue();
+            header.write(channel);
+
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * A method checking the width of the next row and making room for its
+     * components in the buffer.
+     *
+     * @param cols the width of the row.
+     * @throws IOException an unknown exception.
+     */
+    private void begin(int cols) throws IOException {
+        if (header == null) {
+            header = new SegmentHeader(magic, new BinaryHeader(type, 0, cols));
+
+            // Writing an incomplete header until the segment is closed
+            header.write(channel);
+
+            buffer = ByteBuffer.allocate((int) Math.max(BUFFER_SIZE, header.shape.getRowSize())).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (cols != header.shape.cols) {
+            throw new IOException("Rows of different size found writing segment: " + cols + " <> " + header.shape.cols);
+        }
+
+        if (buffer.remaining() < header.shape.getRowSize()) {
+            flush();
+        }
+
+        header.shape.rows++;
+    }
+
+    /**
+     * A method growing the table of ids by doubling its capacity until the
+     * given number of bytes fits.
+     *
+     * @param bytes the number of bytes to fit.
+     */
+    private void reserve(int bytes) {
+        if (table.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(table.capacity() * 2, table.position() + bytes)).order(ByteOrder.LITTLE_ENDIAN);
+
+            table.flip();
+            grown.put(table);
+
+            table = grown;
+        }
+    }
+
+    /**
+     * A method flushing the buffered components in the channel, updating the
+     * checksum.
+     *
+     * @throws IOException an unknown exception.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+
+        crc.update(buffer.duplicate());
+
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        buffer.clear();
+    }
+}
@@ -0,0 +1,76 @@
+package com.tkb.pandora.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A header of a sparse vectors file, followed by a little-endian sequence of
+ * self delimited rows, each one given as the dimension of the vector, the
+ * number of non zero components, their indices in ascending order and their
+ * float32 values. Rows need no count in the header, so a file is appended to
+ * or truncated at any row boundary without rewriting it.
+ *
+ * @author Akis Papadopoulos
+ */
+final class SparseHeader {
+
+    // Magic number identifying a sparse vectors file, 'PNDS' in little-endian
+    static final int MAGIC = 0x53444E50;
+
+    // Format version
+    static final short VERSION = 1;
+
+    // Size of the header in bytes, keeping the payload 8-byte aligned
+    static final int SIZE = 8;
+
+    /**
+     * A method reading and validating the header from the beginning of the
+     * given channel.
+     *
+     * @param channel the file channel.
+     * @throws IOException an exception thrown if the header is not valid.
+     */
+    static void read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("Truncated sparse vectors header");
+            }
+        }
+
+        buffer.flip();
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a sparse vectors file, magic number mismatch");
+        }
+
+        short version = buffer.getShort();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported sparse vectors version: " + version);
+        }
+    }
+
+    /**
+     * A method writing the header at the beginning of the given channel.
+     *
+     * @param channel the file channel.
+     * @throws IOException an unknown exception.
+     */
+    static void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.tkb.pandora.io;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A singleton system file manager implementing read methods for sparse vectors
+ * files, where a header is followed by the rows holding only their non zero
+ * components, read either in sparse form or expanded into dense vectors.
+ *
+ * @author Akis Papadopoulos
+ */
+public final class SparseReader {
+
+    /**
+     * A method returning the sparse vector indexed to the row identified by
+     * the given row number in the given file, skipping the rows before it.
+     *
+     * @param filepath the absolute path to the file.
+     * @param rowNumber the number of the row to read starting from 1.
+     * @return the sparse vector or null if no such row exists.
+     * @throws IOException an unknown exception.
+     */
+    public static SparseVector readSparse(String filepath, int rowNumber) throws IOException {
+        SparseRowIterator rows = new SparseRowIterator(filepath);
+
+        try {
+            if (rowNumber < 1 || rows.skip(rowNumber - 1) < rowNumber - 1 || !rows.hasNext()) {
+                return null;
+            }
+
+            return rows.nextSparse();
+        } finally {
+            rows.close();
+        }
+    }
+
+    /**
+     * A method returning all the sparse vectors stored in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the sparse vectors.
+     * @throws IOException an unknown exception.
+     */
+    public static SparseVector[] readSparse(String filepath) throws IOException {
+        SparseRowIterator rows = new SparseRowIterator(filepath);
+
+        try {
+            List<SparseVector> vectors = new ArrayList<SparseVector>();
+
+            while (rows.hasNext()) {
+                vectors.add(rows.nextSparse());
+            }
+
+            return vectors.toArray(new SparseVector[vectors.size()]);
+        } finally {
+            rows.close();
+        }
+    }
+
+    /**
+     * A method returning the dense vector indexed to the row identified by the
+     * given row number in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param rowNumber the number of the row to read starting from 1.
+     * @return the vector or null if no such row exists.
+     * @throws IOException an unknown exception.
+     */
+    public static double[] read(String filepath, int rowNumber) throws IOException {
+        SparseVector vector = readSparse(filepath, rowNumber);
+
+        return vector != null ? vector.toDense() : null;
+    }
+
+    /**
+     * A method returning the dense matrix stored in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the matrix.
+     * @throws IOException an unknown exception.
+     */
+    public static double[][] read(String filepath) throws IOException {
+        SparseVector[] vectors = readSparse(filepath);
+
+        double[][] matrix = new double[vectors.length][];
+
+        for (int i = 0; i < vectors.length; i++) {
+            matrix[i] = vectors[i].toDense();
+        }
+
+        return matrix;
+    }
+
+    /**
+     * A method returning the single precision dense vector indexed to the row
+     * identified by the given row number in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param rowNumber the number of the row to read starting from 1.
+     * @return the vector or null if no such row exists.
+     * @throws IOException an unknown exception.
+     */
+    public static float[] readFloat(String filepath, int rowNumber) throws IOException {
+        SparseVector vector = readSparse(filepath, rowNumber);
+
+        return vector != null ? vector.toDenseFloat() : null;
+    }
+
+    /**
+     * A method returning the single precision dense matrix stored in the given
+     * file.
+     *
+     * @param filepath the absolute path to the file.
+     * @return the matrix.
+     * @throws IOException an unknown exception.
+     */
+    public static float[][] readFloat(String filepath) throws IOException {
+        SparseVector[] vectors = readSparse(filepath);
+
+        float[][] matrix = new float[vectors.length][];
+
+        for (int i = 0; i < vectors.length; i++) {
+            matrix[i] = vectors[i].toDenseFloat();
+        }
+
+        return matrix;
+    }
+}
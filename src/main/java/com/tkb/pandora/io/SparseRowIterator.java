@@ -0,0 +1,178 @@
+package com.tkb.pandora.io;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * A row iterator reading lazily the rows of a sparse vectors file through a
+ * single read buffer, either in sparse or in dense form.
+ *
+ * @author Akis Papadopoulos
+ */
+class SparseRowIterator implements RowIterator {
+
+    // Size in bytes of the read buffer
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // File channel
+    private FileChannel channel;
+
+    // Read buffer, holding the bytes read but not consumed yet
+    private ByteBuffer buffer;
+
+    // Absolute path to the file
+    private String filepath;
+
+    // Position in the file of the next row
+    private long offset;
+
+    // Size of the file
+    private long size;
+
+    /**
+     * A constructor opening the given sparse vectors file.
+     *
+     * @param filepath the absolute path to the file.
+     * @throws IOException an unknown exception.
+     */
+    SparseRowIterator(String filepath) throws IOException {
+        this.filepath = filepath;
+
+        channel = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ);
+
+        try {
+            SparseHeader.read(channel);
+
+            channel.position(SparseHeader.SIZE);
+
+            size = channel.size();
+        } catch (IOException exc) {
+            channel.close();
+
+            throw exc;
+        }
+
+        offset = SparseHeader.SIZE;
+
+        buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return offset < size;
+    }
+
+    @Override
+    public double[] next() {
+        return nextSparse().toDense();
+    }
+
+    /**
+     * A method reading the next row in sparse form.
+     *
+     * @return the sparse vector.
+     */
+    public SparseVector nextSparse() {
+        if (offset >= size) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            fill(8);
+
+            int dimension = buffer.getInt();
+            int count = buffer.getInt();
+
+            fill(8 * count);
+
+            int[] indices = new int[count];
+            float[] values = new float[count];
+
+            for (int n = 0; n < count; n++) {
+                indices[n] = buffer.getInt();
+            }
+
+            for (int n = 0; n < count; n++) {
+                values[n] = buffer.getFloat();
+            }
+
+            offset += 8 + 8L * count;
+
+            return new SparseVector(dimension, indices, values);
+        } catch (IOException exc) {
+            throw new UncheckedIOException(exc);
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+
+        while (skipped < n && offset < size) {
+            fill(8);
+
+            buffer.getInt();
+
+            long rowSize = 8L * buffer.getInt();
+
+            // Dropping the components of the row, read or not yet
+            long buffered = Math.min(rowSize, buffer.remaining());
+
+            buffer.position(buffer.position() + (int) buffered);
+
+            if (buffered < rowSize) {
+                channel.position(channel.position() + rowSize - buffered);
+            }
+
+            offset += 8 + rowSize;
+
+            skipped++;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * A method reading ahead until the given number of bytes are buffered,
+     * growing the buffer for rows larger than it.
+     *
+     * @param bytes the number of bytes.
+     * @throws IOException an exception thrown if the file is truncated.
+     */
+    private void fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+            larger.put(buffer);
+
+            buffer = larger;
+        } else {
+            buffer.compact();
+        }
+
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated sparse vectors file: " + filepath);
+            }
+        }
+
+        buffer.flip();
+    }
+}
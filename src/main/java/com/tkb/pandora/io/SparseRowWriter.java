@@ -0,0 +1,118 @@
+package com.tkb.pandora.io;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A row writer writing rows in a sparse vectors file, keeping only the non
+ * zero components of each row.
+ *
+ * @author Akis Papadopoulos
+ */
+class SparseRowWriter implements RowWriter {
+
+    // Size in bytes of the write buffer
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // File channel
+    private FileChannel channel;
+
+    // Write buffer
+    private ByteBuffer buffer;
+
+    // Position in the file to write the buffer at
+    private long position;
+
+    // Number of rows written
+    private long count;
+
+    /**
+     * A constructor opening the given file, writing the header if the file is
+     * empty, otherwise checking the header already in the file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param append if true the rows will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    SparseRowWriter(String filepath, boolean append) throws IOException {
+        channel = BinaryWriter.open(filepath, append);
+
+        try {
+            if (channel.size() == 0) {
+                SparseHeader.write(channel);
+            } else {
+                SparseHeader.read(channel);
+            }
+
+            position = channel.size();
+        } catch (IOException exc) {
+            channel.close();
+
+            throw exc;
+        }
+
+        buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public void write(double[] vector) throws IOException {
+        write(SparseVector.of(vector));
+    }
+
+    /**
+     * A method writing the given sparse vector as the next row.
+     *
+     * @param vector the sparse vector.
+     * @throws IOException an unknown exception.
+     */
+    public void write(SparseVector vector) throws IOException {
+        int[] indices = vector.getIndices();
+        float[] values = vector.getValues();
+
+        int rowSize = 8 + 8 * indices.length;
+
+        if (buffer.remaining() < rowSize) {
+            position = BinaryWriter.flush(channel, buffer, position);
+
+            // Growing the buffer to hold a row larger than the buffer
+            if (buffer.capacity() < rowSize) {
+                buffer = ByteBuffer.allocate(rowSize).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        buffer.putInt(vector.getDimension());
+        buffer.putInt(indices.length);
+
+        for (int index : indices) {
+            buffer.putInt(index);
+        }
+
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+
+        count++;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        position = BinaryWriter.flush(channel, buffer, position);
+    }
+
+    @Override
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.tkb.pandora.io;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A singleton system file manager implementing write methods for sparse
+ * vectors files, where a header is followed by the rows holding only their
+ * non zero components in float32 form along with their indices.
+ *
+ * @author Akis Papadopoulos
+ */
+public final class SparseWriter {
+
+    /**
+     * A method writing a given sparse vector as a single row in a sparse
+     * vectors file.
+     *
+     * @param vector the sparse vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public static void write(SparseVector vector, String filepath, boolean append) throws IOException {
+        SparseRowWriter writer = new SparseRowWriter(filepath, append);
+
+        try {
+            writer.write(vector);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * A method writing a given dense vector as a single row in a sparse
+     * vectors file, dropping its zero components.
+     *
+     * @param vector the vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public static void write(double[] vector, String filepath, boolean append) throws IOException {
+        write(SparseVector.of(vector), filepath, append);
+    }
+
+    /**
+     * A method writing a given dense matrix in a sparse vectors file, one row
+     * per vector.
+     *
+     * @param matrix the matrix.
+     * @param filepath the absolute path to the file.
+     * @param append if true the matrix will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public static void write(double[][] matrix, String filepath, boolean append) throws IOException {
+        SparseRowWriter writer = new SparseRowWriter(filepath, append);
+
+        try {
+            for (double[] vector : matrix) {
+                writer.write(vector);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * A method writing a given single precision dense vector as a single row
+     * in a sparse vectors file, dropping its zero components.
+     *
+     * @param vector the vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public static void write(float[] vector, String filepath, boolean append) throws IOException {
+        write(SparseVector.of(vector), filepath, append);
+    }
+
+    /**
+     * A method writing a given single precision dense matrix in a sparse
+     * vectors file, one row per vector.
+     *
+     * @param matrix the matrix.
+     * @param filepath the absolute path to the file.
+     * @param append if true the matrix will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public static void write(float[][] matrix, String filepath, boolean append) throws IOException {
+        SparseRowWriter writer = new SparseRowWriter(filepath, append);
+
+        try {
+            for (float[] vector : matrix) {
+                writer.write(SparseVector.of(vector));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * A method truncating the given file to the given size, which has to be
+     * a row boundary such as the size recorded at a checkpoint, keeping the
+     * header in place.
+     *
+     * @param filepath the absolute path to the file.
+     * @param size the size in bytes.
+     * @throws IOException an unknown exception.
+     */
+    static void truncate(String filepath, long size) throws IOException {
+        FileChannel channel = BinaryWriter.open(filepath, true);
+
+        try {
+            channel.truncate(size < SparseHeader.SIZE ? 0 : size);
+        } finally {
+            channel.close();
+        }
+    }
+}
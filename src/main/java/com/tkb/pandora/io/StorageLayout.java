@@ -0,0 +1,242 @@
+package com.tkb.pandora.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The layouts a set of vectors or sets of local descriptors identified by id
+ * can be stored in, either one file per id in a directory or a packed store of
+ * segments.
+ *
+ * @author Akis Papadopoulos
+ */
+public enum StorageLayout {
+
+    // One file per id named after it
+    FILES,
+
+    // Packed store of append-only segments
+    STORE;
+
+    /**
+     * A method returning the storage layout given its case insensitive name,
+     * e.g. files or store.
+     *
+     * @param name the name of the layout.
+     * @return the storage layout.
+     */
+    public static StorageLayout parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    /**
+     * A method opening a sequential reader of the vectors stored at the given
+     * path.
+     *
+     * @param path the absolute path to the vectors directory or the store.
+     * @param extension the vector file extension, used by the files layout.
+     * @param format the vectors file format, used by the files layout.
+     * @param verify true to verify the checksums of the store segments.
+     * @return the vector reader, to be closed by the caller.
+     * @throws IOException an unknown exception.
+     */
+    public VectorReader reader(String path, String extension, FileFormat format, boolean verify) throws IOException {
+        if (this == FILES) {
+            return new DirectoryVectorReader(path, extension, format);
+        } else {
+            VectorStore store = new VectorStore(path, verify);
+
+            try {
+                return new StoreVectorReader(store);
+            } catch (IOException exc) {
+                store.close();
+
+                throw exc;
+            }
+        }
+    }
+
+    /**
+     * A method opening a writer of vectors at the given path, where the store
+     * layout keeps single precision components only for the float32 format
+     * and keeps the vectors dense regardless of the sparse format.
+     *
+     * @param path the absolute path to the vectors directory or the store.
+     * @param extension the vector file extension, used by the files layout.
+     * @param format the vectors file format.
+     * @return the vector writer, to be closed by the caller.
+     * @throws IOException an unknown exception.
+     */
+    public VectorWriter writer(String path, String extension, FileFormat format) throws IOException {
+        if (this == FILES) {
+            return new DirectoryVectorWriter(path, extension, format);
+        } else {
+            return new VectorStoreWriter(path, format == FileFormat.FLOAT32);
+        }
+    }
+
+    /**
+     * A method opening a source of the local descriptors stored at the given
+     * path.
+     *
+     * @param path the absolute path to the descriptors directory or the store.
+     * @param extension the descriptor file extension, used by the files layout.
+     * @param format the descriptors file format, used by the files layout.
+     * @param verify true to verify the checksums of the store shards.
+     * @return the descriptor source, to be closed by the caller.
+     * @throws IOException an unknown exception.
+     */
+    public DescriptorSource descriptorSource(String path, String extension, FileFormat format, boolean verify) throws IOException {
+        if (this == FILES) {
+            return new DirectoryDescriptorSource(path, extension, format);
+        } else {
+            return new DescriptorStore(path, verify);
+        }
+    }
+
+    /**
+     * A method opening a writer of local descriptors at the given path, where
+     * the store layout keeps single precision components only for the float32
+     * format.
+     *
+     * @param path the absolute path to the descriptors directory or the store.
+     * @param extension the descriptor file extension, used by the files layout.
+     * @param format the descriptors file format.
+     * @param shardSize the size in bytes a shard of the store is closed at.
+     * @return the descriptor writer, to be closed by the caller.
+     */
+    public DescriptorWriter descriptorWriter(String path, String extension, FileFormat format, long shardSize) {
+        if (this == FILES) {
+            return new DirectoryDescriptorWriter(path, extension, format);
+        } else {
+            return new DescriptorStoreWriter(path, format == FileFormat.FLOAT32, shardSize);
+        }
+    }
+
+    /**
+     * A method recovering the vectors written at the given path by a run that
+     * may have crashed, removing the segments it left incomplete.
+     *
+     * @param path the absolute path to the vectors directory or the store.
+     * @return the ids of the vectors in place in the store, or null in the
+     * files layout where each file is complete once written.
+     * @throws IOException an unknown exception.
+     */
+    public Set<String> recoverVectors(String path) throws IOException {
+        if (this == FILES) {
+            return null;
+        } else if (!new File(path).isDirectory()) {
+            return new HashSet<String>();
+        }
+
+        VectorStore store = new VectorStore(path, false);
+
+        try {
+            Set<String> ids = new HashSet<String>();
+
+            for (long i = 0; i < store.size(); i++) {
+                ids.add(store.getId(i));
+            }
+
+            delete(store.getIncomplete());
+
+            return ids;
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * A method recovering the local descriptors written at the given path by a
+     * run that may have crashed, removing the shards it left incomplete.
+     *
+     * @param path the absolute path to the descriptors directory or the store.
+     * @return the ids of the images in place in the store, or null in the files
+     * layout where each file is complete once written.
+     * @throws IOException an unknown exception.
+     */
+    public Set<String> recoverDescriptors(String path) throws IOException {
+        if (this == FILES) {
+            return null;
+        } else if (!new File(path).isDirectory()) {
+            return new HashSet<String>();
+        }
+
+        DescriptorStore store = new DescriptorStore(path, false);
+
+        try {
+            Set<String> ids = new HashSet<String>();
+
+            for (int i = 0; i < store.size(); i++) {
+                ids.add(store.getId(i));
+            }
+
+            delete(store.getIncomplete());
+
+            return ids;
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * A method deleting the given segment files.
+     *
+     * @param filepaths the absolute paths to the files.
+     * @throws IOException an exception thrown if a file cannot be deleted.
+     */
+    private static void delete(List<String> filepaths) throws IOException {
+        for (String filepath : filepaths) {
+            if (!new File(filepath).delete()) {
+                throw new IOException("Unable to delete incomplete segment: " + filepath);
+            }
+        }
+    }
+
+    /**
+     * A sequential reader of a store, closing the store along with it.
+     */
+    private static class StoreVectorReader implements VectorReader {
+
+        private VectorStore store;
+        private VectorReader reader;
+
+        StoreVectorReader(VectorStore store) throws IOException {
+            this.store = store;
+
+            reader = store.reader();
+        }
+
+        @Override
+        public long size() {
+            return reader.size();
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            return reader.next();
+        }
+
+        @Override
+        public String getId() {
+            return reader.getId();
+        }
+
+        @Override
+        public double[] getVector() {
+            return reader.getVector();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } finally {
+                store.close();
+            }
+        }
+    }
+}
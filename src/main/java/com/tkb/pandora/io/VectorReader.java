@@ -0,0 +1,43 @@
+package com.tkb.pandora.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A reader of a set of fixed size vectors identified each by an id, such as the
+ * aggregated vectors of a dataset of images, read sequentially one vector at a
+ * time regardless of how the vectors are laid out in storage.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface VectorReader extends Closeable {
+
+    /**
+     * A method returning the number of vectors.
+     *
+     * @return the number of vectors.
+     */
+    public long size();
+
+    /**
+     * A method moving to the next vector.
+     *
+     * @return true if there is a next vector, otherwise false.
+     * @throws IOException an unknown exception.
+     */
+    public boolean next() throws IOException;
+
+    /**
+     * A method returning the id of the current vector.
+     *
+     * @return the id.
+     */
+    public String getId();
+
+    /**
+     * A method returning the current vector.
+     *
+     * @return the vector.
+     */
+    public double[] getVector();
+}
@@ -0,0 +1,348 @@
+package com.tkb.pandora.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A packed store of fixed size vectors, such as the aggregated vectors of a
+ * dataset of images, kept in a single directory of append-only segments
+ * instead of one file per vector. Each segment holds a header, a contiguous
+ * little-endian matrix of float32 or float64 rows and a table of the ids of the
+ * rows, along with a CRC32 checksum of both.
+ *
+ * Rows are numbered across the segments in the order of their names and can be
+ * read at random by row or id, or scanned sequentially through memory mapped
+ * regions of each segment.
+ *
+ * @author Akis Papadopoulos
+ */
+public class VectorStore implements Closeable {
+
+    // Extension of the segment files
+    static final String EXTENSION = "seg";
+
+    // Complete segments in order
+    private List<Segment> segments;
+
+    // First row and ids of each segment
+    private long[] starts;
+    private String[][] ids;
+
+    // Segments left incomplete by an interrupted writer
+    private List<String> incomplete = new ArrayList<String>();
+
+    // Total number of rows
+    private long size;
+
+    // Width of the rows
+    private int cols;
+
+    // Row of each id, built on the first lookup by id
+    private Map<String, Long> rowsById;
+
+    /**
+     * A constructor opening the segments of the given store directory.
+     *
+     * @param dirpath the absolute path to the store directory.
+     * @param verify true to verify the checksum of each segment.
+     * @throws IOException an exception thrown if a segment is corrupted or of
+     * different width.
+     */
+    public VectorStore(String dirpath, boolean verify) throws IOException {
+        segments = Segment.open(dirpath, EXTENSION, SegmentHeader.VECTORS, verify, incomplete);
+
+        starts = new long[segments.size()];
+        ids = new String[segments.size()][];
+
+        try {
+            for (int s = 0; s < segments.size(); s++) {
+                Segment segment = segments.get(s);
+
+                ids[s] = readIds(segment);
+
+                if (s > 0) {
+                    starts[s] = starts[s - 1] + segments.get(s - 1).header.shape.rows;
+                }
+
+                size += segment.header.shape.rows;
+                cols = segment.header.shape.cols;
+            }
+        } catch (IOException exc) {
+            close();
+
+            throw exc;
+        }
+    }
+
+    /**
+     * A method returning the number of rows.
+     *
+     * @return the number of rows.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * A method returning the width of the rows.
+     *
+     * @return the number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * A method returning the paths of the segments left incomplete by an
+     * interrupted writer, which are ignored.
+     *
+     * @return the paths of the incomplete segments.
+     */
+    public List<String> getIncomplete() {
+        return incomplete;
+    }
+
+    /**
+     * A method returning the id of the given row.
+     *
+     * @param row the row starting from 0.
+     * @return the id.
+     */
+    public String getId(long row) {
+        int s = segment(row);
+
+        return ids[s][(int) (row - starts[s])];
+    }
+
+    /**
+     * A method returning the row of the given id.
+     *
+     * @param id the id.
+     * @return the row starting from 0, or -1 if the id is not found.
+     */
+    public synchronized long getRow(String id) {
+        if (rowsById == null) {
+            rowsById = new HashMap<String, Long>();
+
+            for (int s = 0; s < segments.size(); s++) {
+                for (int i = 0; i < ids[s].length; i++) {
+                    rowsById.put(ids[s][i], starts[s] + i);
+                }
+            }
+        }
+
+        Long row = rowsById.get(id);
+
+        return row != null ? row : -1;
+    }
+
+    /**
+     * A method reading the vector of the given row.
+     *
+     * @param row the row starting from 0.
+     * @return the vector.
+     * @throws IOException an unknown exception.
+     */
+    public double[] read(long row) throws IOException {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row out of the vector store: " + row);
+        }
+
+        int s = segment(row);
+
+        return segments.get(s).read(row - starts[s], 1)[0];
+    }
+
+    /**
+     * A method opening an iterator scanning the rows of all segments in order
+     * through memory mapped regions.
+     *
+     * @return the row iterator, to be closed by the caller.
+     * @throws IOException an unknown exception.
+     */
+    public RowIterator iterate() throws IOException {
+        return new StoreRowIterator();
+    }
+
+    /**
+     * A method opening a sequential reader of the rows along with their ids.
+     *
+     * @return the vector reader, to be closed by the caller.
+     * @throws IOException an unknown exception.
+     */
+    public VectorReader reader() throws IOException {
+        final RowIterator rows = iterate();
+
+        return new VectorReader() {
+
+            private long row = -1;
+
+            private double[] vector;
+
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public boolean next() {
+                if (!rows.hasNext()) {
+                    return false;
+                }
+
+                vector = rows.next();
+
+                row++;
+
+                return true;
+            }
+
+            @Override
+            public String getId() {
+                return VectorStore.this.getId(row);
+            }
+
+            @Override
+            public double[] getVector() {
+                return vector;
+            }
+
+            @Override
+            public void close() throws IOException {
+                rows.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    /**
+     * A method returning the segment holding the given row.
+     *
+     * @param row the row.
+     * @return the index of the segment.
+     */
+    private int segment(long row) {
+        int s = Arrays.binarySearch(starts, row);
+
+        // Picking the last segment starting before the row
+        return s >= 0 ? s : -s - 2;
+    }
+
+    /**
+     * A method reading the ids table of the given segment.
+     *
+     * @param segment the segment.
+     * @return the ids of the rows.
+     * @throws IOException an unknown exception.
+     */
+    private static String[] readIds(Segment segment) throws IOException {
+        ByteBuffer table = segment.table();
+
+        String[] ids = new String[(int) segment.header.shape.rows];
+
+        for (int i = 0; i < ids.length; i++) {
+            byte[] bytes = new byte[table.getInt()];
+
+            table.get(bytes);
+
+            ids[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        return ids;
+    }
+
+    /**
+     * A row iterator chaining the memory mapped scans of the segments.
+     */
+    private class StoreRowIterator implements RowIterator {
+
+        // Index of the segment scanned
+        private int s = -1;
+
+        // Scan of the current segment
+        private RowIterator rows;
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (rows == null || !rows.hasNext()) {
+                    if (!advance()) {
+                        return false;
+                    }
+                }
+            } catch (IOException exc) {
+                throw new UncheckedIOException(exc);
+            }
+
+            return true;
+        }
+
+        @Override
+        public double[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return rows.next();
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+
+            while (skipped < n && hasNext()) {
+                skipped += rows.skip(n - skipped);
+            }
+
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rows != null) {
+                rows.close();
+            }
+        }
+
+        /**
+         * A method moving to the scan of the next segment.
+         */
+        private boolean advance() throws IOException {
+            if (rows != null) {
+                rows.close();
+
+                rows = null;
+            }
+
+            if (s + 1 >= segments.size()) {
+                return false;
+            }
+
+            Segment segment = segments.get(++s);
+
+            // Opening a channel of its own, closed along with the scan
+            FileChannel channel = FileChannel.open(segment.file.toPath(), StandardOpenOption.READ);
+
+            rows = new BinaryRowIterator(channel, segment.header.shape, SegmentHeader.SIZE);
+
+            return true;
+        }
+    }
+}
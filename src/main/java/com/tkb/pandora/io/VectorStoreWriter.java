@@ -0,0 +1,100 @@
+package com.tkb.pandora.io;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A vector writer appending vectors in a new segment of a vector store, so
+ * concurrent writers never share a file, where the segment is created on the
+ * first vector. The matrix is written as it grows,
+ * while the ids table, the checksum and the final header are written once the
+ * writer is closed. A segment left open by an interrupted run is ignored by
+ * the readers of the store.
+ *
+ * @author Akis Papadopoulos
+ */
+public class VectorStoreWriter implements VectorWriter {
+
+    // Store directory
+    private String dirpath;
+
+    // Element type of the vectors
+    private short type;
+
+    // Segment written, null until the first vector
+    private SegmentWriter segment;
+
+    /**
+     * A constructor given the store directory, the directory created if
+     * missing.
+     *
+     * @param dirpath the absolute path to the store directory.
+     * @param single true to store components in single precision (float32),
+     * otherwise in double precision (float64).
+     */
+    public VectorStoreWriter(String dirpath, boolean single) {
+        this.dirpath = dirpath;
+
+        type = single ? BinaryHeader.FLOAT32 : BinaryHeader.FLOAT64;
+    }
+
+    @Override
+    public void write(String id, double[] vector) throws IOException {
+        SegmentWriter writer = segment();
+
+        writer.put(vector);
+        writer.entry(id);
+    }
+
+    @Override
+    public void write(String id, float[] vector) throws IOException {
+        SegmentWriter writer = segment();
+
+        writer.put(vector);
+        writer.entry(id);
+    }
+
+    /**
+     * A method writing the given sparse vector under the given id, expanded
+     * into a dense vector as the segments hold dense matrices.
+     *
+     * @param id the id of the vector.
+     * @param vector the sparse vector.
+     * @throws IOException an unknown exception.
+     */
+    @Override
+    public void write(String id, SparseVector vector) throws IOException {
+        write(id, vector.toDense());
+    }
+
+    /**
+     * A method returning the segment file.
+     *
+     * @return the segment file, or null if no vector is written.
+     */
+    public File getFile() {
+        return segment != null ? segment.getFile() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    /**
+     * A method returning the segment, created on the first vector.
+     *
+     * @return the segment writer.
+     * @throws IOException an unknown exception.
+     */
+    private SegmentWriter segment() throws IOException {
+        if (segment == null) {
+            segment = new SegmentWriter(dirpath, VectorStore.EXTENSION, SegmentHeader.VECTORS, type);
+        }
+
+        return segment;
+    }
+}
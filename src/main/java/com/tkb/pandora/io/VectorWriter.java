@@ -0,0 +1,42 @@
+package com.tkb.pandora.io;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A writer of fixed size vectors identified each by an id, such as the
+ * aggregated vectors of a dataset of images, regardless of how the vectors are
+ * laid out in storage. The writer must be closed once all vectors are written.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface VectorWriter extends Closeable {
+
+    /**
+     * A method writing the given vector under the given id.
+     *
+     * @param id the id of the vector.
+     * @param vector the vector.
+     * @throws IOException an unknown exception.
+     */
+    public void write(String id, double[] vector) throws IOException;
+
+    /**
+     * A method writing the given single precision vector under the given id.
+     *
+     * @param id the id of the vector.
+     * @param vector the vector.
+     * @throws IOException an unknown exception.
+     */
+    public void write(String id, float[] vector) throws IOException;
+
+    /**
+     * A method writing the given sparse vector under the given id.
+     *
+     * @param id the id of the vector.
+     * @param vector the sparse vector.
+     * @throws IOException an unknown exception.
+     */
+    public void write(String id, SparseVector vector) throws IOException;
+}
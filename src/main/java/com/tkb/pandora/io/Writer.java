@@ -100,6 +100,68 @@ public final class Writer {
         }
     }
 
+    /**
+     * A method writing a given single precision vector to a file in comma
+     * separated form.
+     *
+     * @param vector the vector.
+     * @param filepath the absolute path to the file.
+     * @param append if true the vector will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public static void write(float[] vector, String filepath, boolean append) throws IOException {
+        write(new float[][]{vector}, filepath, append);
+    }
+
+    /**
+     * A method writing a given single precision matrix in a file in
+     * line-by-line form.
+     *
+     * @param matrix the matrix.
+     * @param filename the absolute path to the file.
+     * @param append if true the matrix will be appended in the file.
+     * @throws IOException an unknown exception.
+     */
+    public static void write(float[][] matrix, String filename, boolean append) throws IOException {
+        BufferedWriter writer = null;
+
+        try {
+            // Opening a file output stream
+            writer = new BufferedWriter(new FileWriter(filename, append));
+
+            if (append) {
+                writer.newLine();
+            }
+
+            // Writing line-byline each row
+            for (int i = 0; i < matrix.length; i++) {
+                float[] row = matrix[i];
+
+                // Building each row in a comma separated line
+                StringBuilder line = new StringBuilder();
+
+                for (int j = 0; j < row.length; j++) {
+                    line.append(row[j]);
+
+                    if (j < row.length - 1) {
+                        line.append(",");
+                    }
+                }
+
+                writer.write(line.toString());
+
+                if (i < matrix.length - 1) {
+                    writer.newLine();
+                }
+            }
+        } finally {
+            if (writer != null) {
+                writer.flush();
+                writer.close();
+            }
+        }
+    }
+
     /**
      * A method writing a given content in a binary file.
      *
@@ -0,0 +1,53 @@
+package com.tkb.pandora.math;
+
+import java.util.Random;
+
+/**
+ * A streaming sampling engine picking each item independently with the given
+ * ratio. Instead of drawing a random number per item, the number of items to
+ * skip before the next pick is drawn from the geometric distribution, so the
+ * skipped items need not even be parsed.
+ *
+ * @author Akis Papadopoulos
+ */
+public class BernoulliSampler {
+
+    // Sampling ratio
+    private double ratio;
+
+    // Random generator
+    private Random rand;
+
+    /**
+     * A constructor creating a sampling engine given the sampling ratio and the
+     * seed number.
+     *
+     * @param ratio the sample ratio.
+     * @param seed the seed number.
+     */
+    public BernoulliSampler(double ratio, long seed) {
+        this.ratio = ratio;
+        rand = new Random(seed);
+    }
+
+    /**
+     * A method returning the number of items to skip before the next item to
+     * be picked.
+     *
+     * @return the number of items to skip.
+     */
+    public long skip() {
+        if (ratio >= 1.0) {
+            return 0;
+        } else if (ratio <= 0.0) {
+            return Long.MAX_VALUE;
+        }
+
+        // Drawing a uniform number in (0, 1]
+        double u = 1.0 - rand.nextDouble();
+
+        double gap = Math.floor(Math.log(u) / Math.log(1.0 - ratio));
+
+        return gap < Long.MAX_VALUE ? (long) gap : Long.MAX_VALUE;
+    }
+}
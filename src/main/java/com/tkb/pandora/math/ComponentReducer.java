@@ -14,4 +14,13 @@ public interface ComponentReducer {
      * @return the components of the reduced vector.
      */
     public double[] reduce(double[] vector);
+
+    /**
+     * A method reducing the components of a given batch of vectors at once.
+     *
+     * @param vectors the vectors to be reduced.
+     * @return the components of the reduced vectors.
+     * @throws Exception an unknown exception.
+     */
+    public double[][] reduce(double[][] vectors) throws Exception;
 }
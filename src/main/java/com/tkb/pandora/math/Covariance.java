@@ -0,0 +1,252 @@
+package com.tkb.pandora.math;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.ejml.data.DenseMatrix64F;
+
+/**
+ * A streaming accumulator of the scatter matrix of vectors centered on a given
+ * mean, so a projection space can be built upon any number of vectors within
+ * memory bound to the size of the matrix. Vectors are buffered in blocks, where
+ * each block is accumulated in parallel stripes of the upper triangle of the
+ * matrix while the next block is being filled.
+ *
+ * @author Akis Papadopoulos
+ */
+public class Covariance implements Closeable {
+
+    // Number of vectors per block
+    private static final int BLOCK_SIZE = 64;
+
+    // Size of the vectors
+    private int size;
+
+    // Mean vector the vectors are centered on
+    private double[] mean;
+
+    // Scatter matrix in row-major order, upper triangle only until returned
+    private double[] scatter;
+
+    // Number of vectors added
+    private long count;
+
+    // Block being filled and block being accumulated, in column-major order
+    private double[] block;
+    private double[] next;
+
+    // Number of vectors in the block being filled
+    private int rows;
+
+    // First row of each stripe of the upper triangle, plus the size at the end
+    private int[] stripes;
+
+    // Executor of the parallel stripes
+    private ExecutorService executor;
+
+    // Stripes of the block being accumulated
+    private List<Future<?>> pending = new ArrayList<Future<?>>();
+
+    /**
+     * A constructor initiating an empty scatter matrix given the mean vector
+     * and the number of parallel threads.
+     *
+     * @param mean the mean vector.
+     * @param threads the number of parallel threads.
+     */
+    public Covariance(double[] mean, int threads) {
+        this.mean = mean;
+
+        size = mean.length;
+
+        scatter = new double[size * size];
+
+        block = new double[size * BLOCK_SIZE];
+        next = new double[size * BLOCK_SIZE];
+
+        // Splitting the rows of the upper triangle into stripes of equal area
+        threads = Math.max(1, Math.min(threads, size));
+
+        stripes = new int[threads + 1];
+
+        long area = (long) size * (size + 1) / 2;
+        long sum = 0;
+
+        for (int i = 0, t = 1; i < size && t < threads; i++) {
+            sum += size - i;
+
+            while (t < threads && sum >= area * t / threads) {
+                stripes[t++] = i + 1;
+            }
+        }
+
+        stripes[threads] = size;
+
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * A method adding the given vector to the scatter matrix.
+     *
+     * @param vector the vector.
+     * @throws Exception an unknown exception.
+     */
+    public void add(double[] vector) throws Exception {
+        if (vector.length != size) {
+            throw new IllegalArgumentException("Vectors of different size found: " + vector.length + " <> " + size);
+        }
+
+        for (int j = 0; j < size; j++) {
+            block[j * BLOCK_SIZE + rows] = vector[j] - mean[j];
+        }
+
+        rows++;
+        count++;
+
+        if (rows == BLOCK_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * A method returning the number of vectors added.
+     *
+     * @return the number of vectors.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * A method returning the mean vector.
+     *
+     * @return the mean vector.
+     */
+    public double[] getMean() {
+        return mean;
+    }
+
+    /**
+     * A method returning the scatter matrix of the vectors added so far.
+     *
+     * @return the symmetric scatter matrix.
+     * @throws Exception an unknown exception.
+     */
+    public double[][] getScatter() throws Exception {
+        DenseMatrix64F matrix = toMatrix();
+
+        double[][] copy = new double[size][size];
+
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(matrix.data, i * size, copy[i], 0, size);
+        }
+
+        return copy;
+    }
+
+    /**
+     * A method returning the scatter matrix of the vectors added so far,
+     * wrapping the accumulated components without copying them.
+     *
+     * @return the symmetric scatter matrix.
+     * @throws Exception an unknown exception.
+     */
+    DenseMatrix64F toMatrix() throws Exception {
+        if (rows > 0) {
+            flush();
+        }
+
+        await();
+
+        // Mirroring the upper triangle
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                scatter[j * size + i] = scatter[i * size + j];
+            }
+        }
+
+        return DenseMatrix64F.wrap(size, size, scatter);
+    }
+
+    /**
+     * A method shutting down the threads of the accumulator.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * A method accumulating the filled block in parallel stripes, once the
+     * previous block is accumulated, swapping the blocks so the next vectors
+     * are buffered meanwhile.
+     *
+     * @throws Exception an unknown exception.
+     */
+    private void flush() throws Exception {
+        await();
+
+        final double[] x = block;
+        final int n = rows;
+
+        for (int t = 0; t < stripes.length - 1; t++) {
+            final int from = stripes[t];
+            final int to = stripes[t + 1];
+
+            pending.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    accumulate(x, n, from, to);
+                }
+            }));
+        }
+
+        block = next;
+        next = x;
+
+        rows = 0;
+    }
+
+    /**
+     * A method waiting the stripes of the block being accumulated.
+     *
+     * @throws Exception an unknown exception.
+     */
+    private void await() throws Exception {
+        for (Future<?> future : pending) {
+            future.get();
+        }
+
+        pending.clear();
+    }
+
+    /**
+     * A method accumulating the given rows of the upper triangle upon the
+     * given block, as the dot products of the columns of the block.
+     *
+     * @param x the block in column-major order.
+     * @param n the number of vectors in the block.
+     * @param from the first row of the stripe.
+     * @param to the row after the last of the stripe.
+     */
+    private void accumulate(double[] x, int n, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int xi = i * BLOCK_SIZE;
+
+            for (int j = i; j < size; j++) {
+                int xj = j * BLOCK_SIZE;
+
+                double sum = 0;
+
+                for (int r = 0; r < n; r++) {
+                    sum += x[xi + r] * x[xj + r];
+                }
+
+                scatter[i * size + j] += sum;
+            }
+        }
+    }
+}
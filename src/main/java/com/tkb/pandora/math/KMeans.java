@@ -0,0 +1,733 @@
+package com.tkb.pandora.math;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A k-means clusterer over primitive arrays, offering parallel Lloyd
+ * iterations upon an in-memory data set and mini-batch iterations upon a
+ * stream of vectors, seeded randomly, by k-means++ or by k-means||. Distances
+ * are computed as ||x||² + ||c||² - 2c·x upon a contiguous block of centroids
+ * and the data is split in equal chunks across the threads.
+ *
+ * See more about k-means++ and k-means||:<br/>
+ * <em>D. Arthur and S. Vassilvitskii, k-means++: The advantages of careful
+ * seeding, SODA 2007.</em><br/>
+ * <em>B. Bahmani, B. Moseley, A. Vattani, R. Kumar and S. Vassilvitskii,
+ * Scalable k-means++, VLDB 2012.</em>
+ *
+ * See more about mini-batch k-means:<br/>
+ * <em>D. Sculley, Web-scale k-means clustering, WWW 2010.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+public class KMeans {
+
+    /**
+     * A listener notified with the inertia at the end of each iteration.
+     */
+    public interface Listener {
+
+        /**
+         * A method called at the end of each iteration.
+         *
+         * @param iteration the number of the iteration starting from 1.
+         * @param inertia the sum of squared distances of the data to their
+         * nearest centroid, or its mean over the batch in mini-batch mode.
+         */
+        public void iterated(int iteration, double inertia);
+    }
+
+    // Number of clusters
+    private int k;
+
+    // Maximum number of iterations
+    private int iterations;
+
+    // Relative inertia improvement under which Lloyd iterations stop
+    private double tolerance;
+
+    // Number of parallel threads
+    private int threads;
+
+    // Random generator
+    private Random rand;
+
+    // Iterations listener
+    private Listener listener;
+
+    // Inertia of the last iteration
+    private double inertia;
+
+    // Number of parallel passes over the vectors of the last seeding
+    private long passes;
+
+    /**
+     * A constructor initiating the clusterer given the number of clusters, the
+     * maximum number of iterations, the relative inertia improvement under
+     * which iterations stop, the number of parallel threads and the seed
+     * number.
+     *
+     * @param k the number of clusters.
+     * @param iterations the maximum number of iterations.
+     * @param tolerance the relative inertia improvement to stop at.
+     * @param threads the number of parallel threads.
+     * @param seed the seed number.
+     */
+    public KMeans(int k, int iterations, double tolerance, int threads, long seed) {
+        this.k = k;
+        this.iterations = iterations;
+        this.tolerance = tolerance;
+        this.threads = Math.max(1, threads);
+
+        rand = new Random(seed);
+    }
+
+    /**
+     * A method setting the listener notified at the end of each iteration.
+     *
+     * @param listener the listener.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * A method returning the inertia of the last iteration.
+     *
+     * @return the inertia.
+     */
+    public double getInertia() {
+        return inertia;
+    }
+
+    /**
+     * A method returning the number of parallel passes over the vectors made
+     * by the last seeding, counting in k-means|| the passes over the data as
+     * well as the passes over the candidates.
+     *
+     * @return the number of passes.
+     */
+    public long getPasses() {
+        return passes;
+    }
+
+    /**
+     * A method seeding the centroids with distinct data vectors picked
+     * uniformly at random.
+     *
+     * @param data the data vectors.
+     * @return the initial centroids.
+     * @throws Exception an exception thrown if the data are less than k.
+     */
+    public double[][] seedRandom(double[][] data) throws Exception {
+        checkSize(data);
+
+        passes = 0;
+
+        // Partially shuffling the indices, the first k are picked
+        int[] indices = new int[data.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+
+        double[][] centroids = new double[k][];
+
+        for (int i = 0; i < k; i++) {
+            int j = i + rand.nextInt(indices.length - i);
+
+            int swap = indices[i];
+            indices[i] = indices[j];
+            indices[j] = swap;
+
+            centroids[i] = data[indices[i]].clone();
+        }
+
+        return centroids;
+    }
+
+    /**
+     * A method seeding the centroids by k-means++, picking each next centroid
+     * with probability proportional to its squared distance from the nearest
+     * centroid picked so far.
+     *
+     * @param data the data vectors.
+     * @return the initial centroids.
+     * @throws Exception an exception thrown if the data are less than k.
+     */
+    public double[][] seedPlusPlus(double[][] data) throws Exception {
+        checkSize(data);
+
+        passes = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            return plusPlus(executor, data, null);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A method seeding the centroids by k-means||, oversampling a few rounds of
+     * candidates in parallel and reducing them to k centroids by a weighted
+     * k-means++ upon the candidates, each weighted by the number of data
+     * vectors nearest to it.
+     *
+     * @param data the data vectors.
+     * @param rounds the number of oversampling rounds.
+     * @param oversampling the expected number of candidates per round as a
+     * factor of k.
+     * @return the initial centroids.
+     * @throws Exception an exception thrown if the data are less than k.
+     */
+    public double[][] seedParallel(final double[][] data, int rounds, double oversampling) throws Exception {
+        checkSize(data);
+
+        passes = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            final List<double[]> candidates = new ArrayList<double[]>();
+
+            // Starting from a single candidate picked uniformly at random
+            candidates.add(data[rand.nextInt(data.length)]);
+
+            final double[] distances = new double[data.length];
+
+            Arrays.fill(distances, Double.MAX_VALUE);
+
+            update(executor, data, new double[][]{candidates.get(0)}, distances);
+
+            double l = oversampling * k;
+
+            for (int r = 0; r < rounds; r++) {
+                double phi = 0;
+
+                for (double distance : distances) {
+                    phi += distance;
+                }
+
+                if (phi <= 0) {
+                    break;
+                }
+
+                // Sampling each vector independently by its share of the cost
+                List<double[]> sampled = new ArrayList<double[]>();
+
+                for (int i = 0; i < data.length; i++) {
+                    if (rand.nextDouble() < l * distances[i] / phi) {
+                        sampled.add(data[i]);
+                    }
+                }
+
+                if (sampled.isEmpty()) {
+                    continue;
+                }
+
+                // Lowering the distances by all the candidates of the round in a single pass
+                update(executor, data, sampled.toArray(new double[sampled.size()][]), distances);
+
+                candidates.addAll(sampled);
+            }
+
+            // Falling back to random candidates when too few were sampled
+            while (candidates.size() < k) {
+                candidates.add(data[rand.nextInt(data.length)]);
+            }
+
+            final double[][] matrix = candidates.toArray(new double[candidates.size()][]);
+
+            // Weighting candidates by the number of vectors nearest to them
+            final Centroids block = new Centroids(matrix);
+
+            List<double[]> partials = split(executor, data.length, new Chunk<double[]>() {
+                @Override
+                public double[] run(int from, int to) {
+                    double[] counts = new double[matrix.length];
+
+                    for (int i = from; i < to; i++) {
+                        counts[block.nearest(data[i], null, 0)]++;
+                    }
+
+                    return counts;
+                }
+            });
+
+            passes++;
+
+            double[] weights = new double[matrix.length];
+
+            for (double[] counts : partials) {
+                for (int c = 0; c < counts.length; c++) {
+                    weights[c] += counts[c];
+                }
+            }
+
+            return plusPlus(executor, matrix, weights);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A method running Lloyd iterations upon the given data, assigning and
+     * accumulating the data in parallel chunks, until the maximum number of
+     * iterations or until the relative inertia improvement falls under the
+     * tolerance. Centroids left empty keep their previous position.
+     *
+     * @param data the data vectors.
+     * @param seeds the initial centroids.
+     * @return the final centroids.
+     * @throws Exception an unknown exception.
+     */
+    public double[][] lloyd(final double[][] data, double[][] seeds) throws Exception {
+        final int d = seeds[0].length;
+
+        double[][] centroids = copy(seeds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            double previous = Double.MAX_VALUE;
+
+            for (int it = 1; it <= iterations; it++) {
+                final Centroids block = new Centroids(centroids);
+
+                // Accumulating the sums, counts and inertia per chunk
+                List<Partial> partials = split(executor, data.length, new Chunk<Partial>() {
+                    @Override
+                    public Partial run(int from, int to) {
+                        Partial partial = new Partial(k, d);
+
+                        double[] distance = new double[1];
+
+                        for (int i = from; i < to; i++) {
+                            double[] x = data[i];
+
+                            int c = block.nearest(x, distance, 0);
+
+                            partial.inertia += distance[0];
+                            partial.counts[c]++;
+
+                            int offset = c * d;
+
+                            for (int j = 0; j < d; j++) {
+                                partial.sums[offset + j] += x[j];
+                            }
+                        }
+
+                        return partial;
+                    }
+                });
+
+                Partial total = new Partial(k, d);
+
+                for (Partial partial : partials) {
+                    total.add(partial);
+                }
+
+                // Moving each centroid to the mean of its vectors
+                for (int c = 0; c < k; c++) {
+                    if (total.counts[c] > 0) {
+                        for (int j = 0; j < d; j++) {
+                            centroids[c][j] = total.sums[c * d + j] / total.counts[c];
+                        }
+                    }
+                }
+
+                inertia = total.inertia;
+
+                if (listener != null) {
+                    listener.iterated(it, inertia);
+                }
+
+                if (previous - inertia <= tolerance * previous) {
+                    break;
+                }
+
+                previous = inertia;
+            }
+
+            return centroids;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A method running mini-batch iterations upon the given stream of vectors,
+     * where each iteration assigns the next batch in parallel and moves each
+     * nearest centroid towards its vectors with a per centroid learning rate
+     * of one over the number of vectors assigned to it so far. Iterations stop
+     * after the maximum number of iterations or once the stream is exhausted,
+     * so an endless stream restarting at its end runs over the data in epochs.
+     *
+     * @param stream the stream of vectors.
+     * @param batchSize the number of vectors per batch.
+     * @param seeds the initial centroids.
+     * @return the final centroids.
+     * @throws Exception an unknown exception.
+     */
+    public double[][] miniBatch(Iterator<double[]> stream, int batchSize, double[][] seeds) throws Exception {
+        int d = seeds[0].length;
+
+        double[][] centroids = copy(seeds);
+
+        long[] counts = new long[k];
+
+        final double[][] batch = new double[batchSize][];
+        final int[] labels = new int[batchSize];
+        final double[] distances = new double[batchSize];
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            for (int it = 1; it <= iterations; it++) {
+                int n = 0;
+
+                while (n < batchSize && stream.hasNext()) {
+                    batch[n++] = stream.next();
+                }
+
+                if (n == 0) {
+                    break;
+                }
+
+                // Assigning the batch in parallel upon fixed centroids
+                final Centroids block = new Centroids(centroids);
+
+                split(executor, n, new Chunk<Void>() {
+                    @Override
+                    public Void run(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            labels[i] = block.nearest(batch[i], distances, i);
+                        }
+
+                        return null;
+                    }
+                });
+
+                // Moving centroids by a decreasing per centroid learning rate
+                double sum = 0;
+
+                for (int i = 0; i < n; i++) {
+                    int c = labels[i];
+
+                    counts[c]++;
+
+                    double eta = 1.0 / counts[c];
+
+                    double[] centroid = centroids[c];
+                    double[] x = batch[i];
+
+                    for (int j = 0; j < d; j++) {
+                        centroid[j] += eta * (x[j] - centroid[j]);
+                    }
+
+                    sum += distances[i];
+                }
+
+                inertia = sum / n;
+
+                if (listener != null) {
+                    listener.iterated(it, inertia);
+                }
+            }
+
+            return centroids;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A method picking k centroids out of the given vectors by weighted
+     * k-means++, where a vector is picked with probability proportional to its
+     * weight times its squared distance from the nearest centroid so far.
+     *
+     * @param executor the executor of the parallel chunks.
+     * @param data the vectors to pick from.
+     * @param weights the weights of the vectors, null for unit weights.
+     * @return the picked centroids.
+     * @throws Exception an unknown exception.
+     */
+    private double[][] plusPlus(ExecutorService executor, double[][] data, double[] weights) throws Exception {
+        double[][] centroids = new double[k][];
+
+        double[] distances = new double[data.length];
+
+        Arrays.fill(distances, Double.MAX_VALUE);
+
+        centroids[0] = data[pick(data.length, null, weights)].clone();
+
+        update(executor, data, new double[][]{centroids[0]}, distances);
+
+        for (int c = 1; c < k; c++) {
+            centroids[c] = data[pick(data.length, distances, weights)].clone();
+
+            update(executor, data, new double[][]{centroids[c]}, distances);
+        }
+
+        return centroids;
+    }
+
+    /**
+     * A method picking an index with probability proportional to its distance
+     * times its weight, falling back to uniform picks when all are zero.
+     *
+     * @param n the number of indices.
+     * @param distances the distances, null for unit distances.
+     * @param weights the weights, null for unit weights.
+     * @return the picked index.
+     */
+    private int pick(int n, double[] distances, double[] weights) {
+        if (distances == null && weights == null) {
+            return rand.nextInt(n);
+        }
+
+        double total = 0;
+
+        for (int i = 0; i < n; i++) {
+            total += (distances != null ? distances[i] : 1) * (weights != null ? weights[i] : 1);
+        }
+
+        if (total <= 0) {
+            return rand.nextInt(n);
+        }
+
+        double target = rand.nextDouble() * total;
+
+        for (int i = 0; i < n; i++) {
+            target -= (distances != null ? distances[i] : 1) * (weights != null ? weights[i] : 1);
+
+            if (target < 0) {
+                return i;
+            }
+        }
+
+        return n - 1;
+    }
+
+    /**
+     * A method lowering in parallel the squared distance of each vector to its
+     * nearest centroid so far given a set of new centroids, in a single pass
+     * over the vectors.
+     *
+     * @param executor the executor of the parallel chunks.
+     * @param data the vectors.
+     * @param centroids the new centroids.
+     * @param distances the squared distances to be updated.
+     * @throws Exception an unknown exception.
+     */
+    private void update(ExecutorService executor, final double[][] data, final double[][] centroids, final double[] distances) throws Exception {
+        split(executor, data.length, new Chunk<Void>() {
+            @Override
+            public Void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    double[] x = data[i];
+
+                    double min = distances[i];
+
+                    for (double[] centroid : centroids) {
+                        double distance = 0;
+
+                        for (int j = 0; j < x.length; j++) {
+                            double diff = x[j] - centroid[j];
+
+                            distance += diff * diff;
+                        }
+
+                        if (distance < min) {
+                            min = distance;
+                        }
+                    }
+
+                    distances[i] = min;
+                }
+
+                return null;
+            }
+        });
+
+        passes++;
+    }
+
+    /**
+     * A method splitting the given number of items in equal chunks, one per
+     * thread, running the given task upon each chunk in parallel.
+     *
+     * @param executor the executor of the parallel chunks.
+     * @param n the number of items.
+     * @param chunk the task to run per chunk.
+     * @return the results of the chunks in order.
+     * @throws Exception an exception thrown by any of the chunks.
+     */
+    private <T> List<T> split(ExecutorService executor, int n, final Chunk<T> chunk) throws Exception {
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+
+        int size = Math.max(1, (n + threads - 1) / threads);
+
+        for (int from = 0; from < n; from += size) {
+            final int start = from;
+            final int end = Math.min(n, from + size);
+
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return chunk.run(start, end);
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<T>();
+
+        for (Future<T> future : futures) {
+            results.add(future.get());
+        }
+
+        return results;
+    }
+
+    /**
+     * A method checking there are at least k data vectors to seed from.
+     *
+     * @param data the data vectors.
+     * @throws Exception an exception thrown if the data are less than k.
+     */
+    private void checkSize(double[][] data) throws Exception {
+        if (data.length < k) {
+            throw new Exception("Data size must be greater or equal to the number of clusters: " + data.length + " <> " + k);
+        }
+    }
+
+    /**
+     * A method deep copying the given centroids.
+     *
+     * @param centroids the centroids.
+     * @return the copy of the centroids.
+     */
+    private static double[][] copy(double[][] centroids) {
+        double[][] copy = new double[centroids.length][];
+
+        for (int i = 0; i < centroids.length; i++) {
+            copy[i] = centroids[i].clone();
+        }
+
+        return copy;
+    }
+
+    /**
+     * A task run upon a chunk of items.
+     */
+    private interface Chunk<T> {
+
+        public T run(int from, int to) throws Exception;
+    }
+
+    /**
+     * The sums, the counts and the inertia accumulated upon a chunk of data.
+     */
+    private static class Partial {
+
+        double[] sums;
+        long[] counts;
+        double inertia;
+
+        Partial(int k, int d) {
+            sums = new double[k * d];
+            counts = new long[k];
+        }
+
+        void add(Partial partial) {
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += partial.sums[i];
+            }
+
+            for (int c = 0; c < counts.length; c++) {
+                counts[c] += partial.counts[c];
+            }
+
+            inertia += partial.inertia;
+        }
+    }
+
+    /**
+     * A contiguous row-major block of centroids with their squared norms,
+     * searched for the nearest centroid of a vector.
+     */
+    private static class Centroids {
+
+        private double[] matrix;
+        private double[] norms;
+        private int size;
+        private int width;
+
+        Centroids(double[][] centroids) {
+            size = centroids.length;
+            width = centroids[0].length;
+
+            matrix = new double[size * width];
+            norms = new double[size];
+
+            for (int i = 0; i < size; i++) {
+                double norm = 0;
+
+                for (int j = 0; j < width; j++) {
+                    double component = centroids[i][j];
+
+                    matrix[i * width + j] = component;
+                    norm += component * component;
+                }
+
+                norms[i] = norm;
+            }
+        }
+
+        /**
+         * A method returning the nearest centroid of the given vector, storing
+         * its squared distance at the given position if any.
+         */
+        int nearest(double[] x, double[] distances, int position) {
+            int best = 0;
+            double min = Double.MAX_VALUE;
+
+            for (int i = 0, offset = 0; i < size; i++, offset += width) {
+                double dot = 0;
+
+                for (int j = 0; j < width; j++) {
+                    dot += matrix[offset + j] * x[j];
+                }
+
+                double partial = norms[i] - 2 * dot;
+
+                if (partial < min) {
+                    min = partial;
+                    best = i;
+                }
+            }
+
+            if (distances != null) {
+                double norm = 0;
+
+                for (int j = 0; j < width; j++) {
+                    norm += x[j] * x[j];
+                }
+
+                distances[position] = Math.max(0, norm + min);
+            }
+
+            return best;
+        }
+    }
+}
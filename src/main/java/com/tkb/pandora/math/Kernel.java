@@ -0,0 +1,208 @@
+package com.tkb.pandora.math;
+
+/**
+ * An abstract implementation of the innermost vector loops shared by the
+ * codebooks, the assignment indices, the aggregators and the normalizer, such
+ * as the squared Euclidean distance, the dot product, the accumulation of the
+ * residuals and the signed square root. The implementation is selected once
+ * at startup by the pandora.kernel system property, either unrolled (default)
+ * or scalar, the plain loops kept as the reference implementation.
+ *
+ * @author Akis Papadopoulos
+ */
+public abstract class Kernel {
+
+    // Kernel selected at startup
+    private static final Kernel INSTANCE = of(System.getProperty("pandora.kernel", "unrolled"));
+
+    /**
+     * A method returning the kernel selected at startup.
+     *
+     * @return the kernel.
+     */
+    public static Kernel get() {
+        return INSTANCE;
+    }
+
+    /**
+     * A method returning the kernel given its case insensitive name, e.g.
+     * unrolled or scalar.
+     *
+     * @param name the name of the kernel.
+     * @return the kernel.
+     */
+    public static Kernel of(String name) {
+        if (name.trim().equalsIgnoreCase("scalar")) {
+            return new ScalarKernel();
+        } else if (name.trim().equalsIgnoreCase("unrolled")) {
+            return new UnrolledKernel();
+        } else {
+            throw new IllegalArgumentException("Unknown kernel: " + name);
+        }
+    }
+
+    /**
+     * A method returning the name of the kernel.
+     *
+     * @return the name of the kernel.
+     */
+    public abstract String getName();
+
+    /**
+     * A method returning the squared Euclidean distance between the given
+     * vectors, stopping as soon as the distance exceeds the given bound.
+     *
+     * @param a the first vector.
+     * @param b the second vector.
+     * @param bound the bound of the distance.
+     * @return the distance, or a partial distance greater or equal to the
+     * bound.
+     */
+    public abstract double distance(double[] a, double[] b, double bound);
+
+    /**
+     * A method returning the dot product of the given range of the first
+     * vector with the second vector.
+     *
+     * @param a the first vector.
+     * @param offset the first component of the range.
+     * @param b the second vector.
+     * @param length the length of the range.
+     * @return the dot product.
+     */
+    public abstract double dot(double[] a, int offset, double[] b, int length);
+
+    /**
+     * A method accumulating the residual of the given vector from the given
+     * centroid into the given range of the output.
+     *
+     * @param x the vector.
+     * @param c the centroid.
+     * @param y the output.
+     * @param offset the first component of the range.
+     * @param length the length of the range.
+     */
+    public abstract void residual(double[] x, double[] c, double[] y, int offset, int length);
+
+    /**
+     * A method accumulating the weighted residual of the given vector from the
+     * given centroid into the given range of the output.
+     *
+     * @param x the vector.
+     * @param c the centroid.
+     * @param y the output.
+     * @param offset the first component of the range.
+     * @param length the length of the range.
+     * @param weight the weight of the residual.
+     */
+    public abstract void residual(double[] x, double[] c, double[] y, int offset, int length, double weight);
+
+    /**
+     * A method accumulating the self tensor product of the given vector into
+     * the given range of the output, one row after the other.
+     *
+     * @param r the vector.
+     * @param y the output.
+     * @param offset the first component of the range.
+     * @param length the length of the vector.
+     */
+    public abstract void outer(double[] r, double[] y, int offset, int length);
+
+    /**
+     * A method returning the sum of squares of the given range of a vector.
+     *
+     * @param v the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     * @return the sum of squares.
+     */
+    public abstract double squares(double[] v, int from, int to);
+
+    /**
+     * A method scaling the given range of a vector.
+     *
+     * @param v the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     * @param scale the scale.
+     */
+    public abstract void scale(double[] v, int from, int to, double scale);
+
+    /**
+     * A method replacing the given range of a vector by the signed square
+     * roots of its components.
+     *
+     * @param v the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     */
+    public abstract void sqrt(double[] v, int from, int to);
+
+    /**
+     * A method returning the squared Euclidean distance between the given
+     * single precision vectors, stopping as soon as the distance exceeds the
+     * given bound.
+     *
+     * @param a the first vector.
+     * @param b the second vector.
+     * @param bound the bound of the distance.
+     * @return the distance, or a partial distance greater or equal to the
+     * bound.
+     */
+    public abstract float distance(float[] a, float[] b, float bound);
+
+    /**
+     * A method accumulating the residual of the given single precision vector
+     * from the given centroid into the given range of the output.
+     *
+     * @param x the vector.
+     * @param c the centroid.
+     * @param y the output.
+     * @param offset the first component of the range.
+     * @param length the length of the range.
+     */
+    public abstract void residual(float[] x, float[] c, float[] y, int offset, int length);
+
+    /**
+     * A method accumulating the self tensor product of the given single
+     * precision vector into the given range of the output, one row after the
+     * other.
+     *
+     * @param r the vector.
+     * @param y the output.
+     * @param offset the first component of the range.
+     * @param length the length of the vector.
+     */
+    public abstract void outer(float[] r, float[] y, int offset, int length);
+
+    /**
+     * A method returning the sum of squares of the given range of a single
+     * precision vector accumulated in double precision.
+     *
+     * @param v the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     * @return the sum of squares.
+     */
+    public abstract double squares(float[] v, int from, int to);
+
+    /**
+     * A method scaling the given range of a single precision vector.
+     *
+     * @param v the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     * @param scale the scale.
+     */
+    public abstract void scale(float[] v, int from, int to, float scale);
+
+    /**
+     * A method replacing the given range of a single precision vector by the
+     * signed square roots of its components.
+     *
+     * @param v the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     */
+    public abstract void sqrt(float[] v, int from, int to);
+}
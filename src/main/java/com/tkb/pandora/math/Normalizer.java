@@ -12,28 +12,35 @@ import java.util.Arrays;
  */
 public final class Normalizer {
 
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
     /**
      * A method normalizing a given vector using the Euclidean method.
      *
      * @param vector the components of the vector.
      */
     public static void euclidean(double[] vector) {
-        // Computing vector 2-norm
-        double norm2 = 0;
-
-        for (int i = 0; i < vector.length; i++) {
-            norm2 += vector[i] * vector[i];
-        }
+        euclidean(vector, 0, vector.length);
+    }
 
-        norm2 = (double) Math.sqrt(norm2);
+    /**
+     * A method normalizing the given range of a vector using the Euclidean
+     * method, leaving the rest of the components untouched.
+     *
+     * @param vector the components of the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     */
+    public static void euclidean(double[] vector, int from, int to) {
+        // Computing vector 2-norm
+        double norm2 = Math.sqrt(KERNEL.squares(vector, from, to));
 
         // Normalizing the components of the vector
         if (norm2 == 0) {
-            Arrays.fill(vector, 1);
+            Arrays.fill(vector, from, to, 1);
         } else {
-            for (int i = 0; i < vector.length; i++) {
-                vector[i] = vector[i] / norm2;
-            }
+            KERNEL.scale(vector, from, to, 1.0 / norm2);
         }
     }
 
@@ -44,8 +51,90 @@ public final class Normalizer {
      * @param a the a parameter.
      */
     public static void power(double[] vector, double a) {
-        for (int i = 0; i < vector.length; i++) {
+        power(vector, 0, vector.length, a);
+    }
+
+    /**
+     * A method normalizing the given range of a vector using the power method,
+     * leaving the rest of the components untouched. The common a = 0.5 takes
+     * the signed square root instead of the power function.
+     *
+     * @param vector the components of the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     * @param a the a parameter.
+     */
+    public static void power(double[] vector, int from, int to, double a) {
+        if (a == 0.5) {
+            KERNEL.sqrt(vector, from, to);
+
+            return;
+        }
+
+        for (int i = from; i < to; i++) {
             vector[i] = Math.signum(vector[i]) * Math.pow(Math.abs(vector[i]), a);
         }
     }
+
+    /**
+     * A method normalizing a given single precision vector using the
+     * Euclidean method, accumulating the norm in double precision.
+     *
+     * @param vector the components of the vector.
+     */
+    public static void euclidean(float[] vector) {
+        euclidean(vector, 0, vector.length);
+    }
+
+    /**
+     * A method normalizing the given range of a single precision vector using
+     * the Euclidean method, accumulating the norm in double precision.
+     *
+     * @param vector the components of the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     */
+    public static void euclidean(float[] vector, int from, int to) {
+        // Computing vector 2-norm
+        double norm2 = Math.sqrt(KERNEL.squares(vector, from, to));
+
+        // Normalizing the components of the vector
+        if (norm2 == 0) {
+            Arrays.fill(vector, from, to, 1);
+        } else {
+            KERNEL.scale(vector, from, to, (float) (1.0 / norm2));
+        }
+    }
+
+    /**
+     * A method normalizing a given single precision vector using the power
+     * method.
+     *
+     * @param vector the components of the vector.
+     * @param a the a parameter.
+     */
+    public static void power(float[] vector, double a) {
+        power(vector, 0, vector.length, a);
+    }
+
+    /**
+     * A method normalizing the given range of a single precision vector using
+     * the power method, taking the signed square root for a = 0.5.
+     *
+     * @param vector the components of the vector.
+     * @param from the first component of the range.
+     * @param to the component after the last of the range.
+     * @param a the a parameter.
+     */
+    public static void power(float[] vector, int from, int to, double a) {
+        if (a == 0.5) {
+            KERNEL.sqrt(vector, from, to);
+
+            return;
+        }
+
+        for (int i = from; i < to; i++) {
+            vector[i] = (float) (Math.signum(vector[i]) * Math.pow(Math.abs(vector[i]), a));
+        }
+    }
 }
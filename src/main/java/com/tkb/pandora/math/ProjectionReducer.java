@@ -1,69 +1,285 @@
-package com.tkb.pandora.math;
-
-import org.ejml.data.DenseMatrix64F;
-import org.ejml.ops.CommonOps;
-
-/**
- * A component reducer given the projection principal component sub-space
- * stripped off to the most dominant components.
- *
- * This class is a modification of a class written by Peter Abeles, please see
- * <a href="https://goo.gl/sdBCiC">more</a>.
- *
- * @author Akis Papadopoulos
- */
-public class ProjectionReducer implements ComponentReducer {
-
-    // Most dominant principal component eigenvectors
-    private DenseMatrix64F B_t;
-
-    // Adjustment mean component vector
-    private DenseMatrix64F m;
-
-    // Projection space whitening applied
-    private boolean whiten;
-
-    /**
-     * A constructor creating a projection reducer given the principal component
-     * sub-space to the most dominant components and the adjustment mean vector.
-     *
-     * @param subspace the principal component sub-space.
-     * @param mean the adjustment mean vector.
-     * @param whiten true if projection whitening is applied.
-     */
-    public ProjectionReducer(double[][] subspace, double[] mean, boolean whiten) {
-        B_t = new DenseMatrix64F(subspace);
-
-        m = DenseMatrix64F.wrap(mean.length, 1, mean);
-
-        this.whiten = whiten;
-    }
-
-    /**
-     * A method reducing the components of a given vector.
-     *
-     * @param vector the vector to be reduced.
-     * @return the components of the reduced vector.
-     */
-    @Override
-    public double[] reduce(double[] vector) {
-        // Subtracting mean from the given vector
-        DenseMatrix64F v = new DenseMatrix64F(vector.length, 1, true, vector);
-
-        CommonOps.subtract(v, m, v);
-
-        // Reducing components to the most principal regarding sub-space
-        DenseMatrix64F r = new DenseMatrix64F(B_t.numRows, 1);
-
-        CommonOps.mult(B_t, v, r);
-
-        double[] reduced = r.data;
-
-        // Normalizing if whitening is applied
-        if (whiten) {
-            Normalizer.euclidean(reduced);
-        }
-
-        return reduced;
-    }
-}
+package com.tkb.pandora.math;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A component reducer given the projection principal component sub-space
+ * stripped off to the most dominant components.
+ *
+ * The mean adjustment is folded into a bias vector B_t·m computed once, so a
+ * vector is reduced as B_t·v - B_t·m leaving the given vector untouched. A
+ * batch of vectors is reduced as a single matrix-matrix product, blocked over
+ * the components so each block of the sub-space stays in cache while it is
+ * multiplied by every vector of the batch, optionally spread across threads.
+ *
+ * This class is a modification of a class written by Peter Abeles, please see
+ * <a href="https://goo.gl/sdBCiC">more</a>.
+ *
+ * @author Akis Papadopoulos
+ */
+public class ProjectionReducer implements ComponentReducer, Closeable {
+
+    // Number of sub-space rows per block
+    private static final int ROW_BLOCK = 32;
+
+    // Number of components per block
+    private static final int COLUMN_BLOCK = 256;
+
+    // Most dominant principal component eigenvectors in row-major order
+    private double[] B_t;
+
+    // Number of rows and columns of the sub-space
+    private int rows;
+    private int cols;
+
+    // Projection of the adjustment mean vector onto the sub-space
+    private double[] bias;
+
+    // Projection space whitening applied
+    private boolean whiten;
+
+    // Number of parallel threads
+    private int threads;
+
+    // Executor of the parallel batches, null if single threaded
+    private ExecutorService executor;
+
+    /**
+     * A constructor creating a projection reducer given the principal component
+     * sub-space to the most dominant components and the adjustment mean vector.
+     *
+     * @param subspace the principal component sub-space.
+     * @param mean the adjustment mean vector.
+     * @param whiten true if projection whitening is applied.
+     */
+    public ProjectionReducer(double[][] subspace, double[] mean, boolean whiten) {
+        this(subspace, mean, whiten, 1);
+    }
+
+    /**
+     * A constructor creating a projection reducer given the principal component
+     * sub-space to the most dominant components, the adjustment mean vector
+     * and the number of parallel threads reducing a batch of vectors.
+     *
+     * @param subspace the principal component sub-space.
+     * @param mean the adjustment mean vector.
+     * @param whiten true if projection whitening is applied.
+     * @param threads the number of parallel threads.
+     */
+    public ProjectionReducer(double[][] subspace, double[] mean, boolean whiten, int threads) {
+        rows = subspace.length;
+        cols = mean.length;
+
+        B_t = new double[rows * cols];
+
+        for (int i = 0; i < rows; i++) {
+            if (subspace[i].length != cols) {
+                throw new IllegalArgumentException("Sub-space of different size found: " + subspace[i].length + " <> " + cols);
+            }
+
+            System.arraycopy(subspace[i], 0, B_t, i * cols, cols);
+        }
+
+        // Folding the mean adjustment into the bias of the projection
+        bias = new double[rows];
+
+        for (int i = 0; i < rows; i++) {
+            bias[i] = dot(i, mean);
+        }
+
+        this.whiten = whiten;
+
+        this.threads = Math.max(1, threads);
+
+        if (this.threads > 1) {
+            executor = Executors.newFixedThreadPool(this.threads);
+        }
+    }
+
+    /**
+     * A method reducing the components of a given vector.
+     *
+     * @param vector the vector to be reduced.
+     * @return the components of the reduced vector.
+     */
+    @Override
+    public double[] reduce(double[] vector) {
+        if (vector.length != cols) {
+            throw new IllegalArgumentException("Vector of different size found: " + vector.length + " <> " + cols);
+        }
+
+        // Reducing components to the most principal regarding sub-space
+        double[] reduced = new double[rows];
+
+        for (int i = 0; i < rows; i++) {
+            reduced[i] = dot(i, vector) - bias[i];
+        }
+
+        // Normalizing if whitening is applied
+        if (whiten) {
+            Normalizer.euclidean(reduced);
+        }
+
+        return reduced;
+    }
+
+    /**
+     * A method reducing the components of a given batch of vectors at once,
+     * splitting the batch in chunks of vectors across the threads.
+     *
+     * @param vectors the vectors to be reduced.
+     * @return the components of the reduced vectors.
+     * @throws Exception an unknown exception.
+     */
+    @Override
+    public double[][] reduce(final double[][] vectors) throws Exception {
+        for (double[] vector : vectors) {
+            if (vector.length != cols) {
+                throw new IllegalArgumentException("Vector of different size found: " + vector.length + " <> " + cols);
+            }
+        }
+
+        final double[][] reduced = new double[vectors.length][rows];
+
+        if (executor == null || vectors.length < 2) {
+            multiply(vectors, reduced, 0, vectors.length);
+        } else {
+            int size = Math.max(1, (vectors.length + threads - 1) / threads);
+
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+
+            for (int from = 0; from < vectors.length; from += size) {
+                final int start = from;
+                final int end = Math.min(vectors.length, from + size);
+
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        multiply(vectors, reduced, start, end);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        return reduced;
+    }
+
+    /**
+     * A method shutting down the threads of the reducer.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A method multiplying the sub-space by the given range of vectors in
+     * blocks of rows and components, where four vectors at a time share each
+     * load of the sub-space, subtracting the bias at the end.
+     *
+     * @param vectors the vectors to be reduced.
+     * @param reduced the reduced vectors to accumulate into.
+     * @param from the first vector of the range.
+     * @param to the vector after the last of the range.
+     */
+    private void multiply(double[][] vectors, double[][] reduced, int from, int to) {
+        for (int i0 = 0; i0 < rows; i0 += ROW_BLOCK) {
+            int i1 = Math.min(rows, i0 + ROW_BLOCK);
+
+            for (int j0 = 0; j0 < cols; j0 += COLUMN_BLOCK) {
+                int j1 = Math.min(cols, j0 + COLUMN_BLOCK);
+
+                int n = from;
+
+                // Accumulating four vectors at a time upon the same block
+                for (; n + 3 < to; n += 4) {
+                    double[] v0 = vectors[n];
+                    double[] v1 = vectors[n + 1];
+                    double[] v2 = vectors[n + 2];
+                    double[] v3 = vectors[n + 3];
+
+                    for (int i = i0; i < i1; i++) {
+                        int b = i * cols;
+
+                        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+                        for (int j = j0; j < j1; j++) {
+                            double w = B_t[b + j];
+
+                            s0 += w * v0[j];
+                            s1 += w * v1[j];
+                            s2 += w * v2[j];
+                            s3 += w * v3[j];
+                        }
+
+                        reduced[n][i] += s0;
+                        reduced[n + 1][i] += s1;
+                        reduced[n + 2][i] += s2;
+                        reduced[n + 3][i] += s3;
+                    }
+                }
+
+                // Accumulating the remaining vectors one at a time
+                for (; n < to; n++) {
+                    double[] v = vectors[n];
+
+                    for (int i = i0; i < i1; i++) {
+                        int b = i * cols;
+
+                        double s = 0;
+
+                        for (int j = j0; j < j1; j++) {
+                            s += B_t[b + j] * v[j];
+                        }
+
+                        reduced[n][i] += s;
+                    }
+                }
+            }
+        }
+
+        for (int n = from; n < to; n++) {
+            double[] r = reduced[n];
+
+            for (int i = 0; i < rows; i++) {
+                r[i] -= bias[i];
+            }
+
+            // Normalizing if whitening is applied
+            if (whiten) {
+                Normalizer.euclidean(r);
+            }
+        }
+    }
+
+    /**
+     * A method returning the dot product of the given row of the sub-space
+     * with the given vector.
+     *
+     * @param row the row of the sub-space.
+     * @param vector the vector.
+     * @return the dot product.
+     */
+    private double dot(int row, double[] vector) {
+        int b = row * cols;
+
+        double sum = 0;
+
+        for (int j = 0; j < cols; j++) {
+            sum += B_t[b + j] * vector[j];
+        }
+
+        return sum;
+    }
+}
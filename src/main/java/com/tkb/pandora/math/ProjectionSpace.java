@@ -1,7 +1,11 @@
 package com.tkb.pandora.math;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.factory.DecompositionFactory;
+import org.ejml.interfaces.decomposition.EigenDecomposition;
 import org.ejml.interfaces.decomposition.SingularValueDecomposition;
 import org.ejml.ops.CommonOps;
 import org.ejml.ops.SingularOps;
@@ -9,7 +13,10 @@ import org.ejml.ops.SingularOps;
 /**
  * A projection space upon a vector data set using principal component analysis
  * based on singular value decomposition, where most dominant principal
- * components are ordered in descending eigenvalues order.
+ * components are ordered in descending eigenvalues order. Besides the full
+ * decomposition of the data, the space can be built upon the eigen decomposition
+ * of the scatter matrix when data items outnumber the components by far, or
+ * truncated to the most dominant components by a randomized decomposition.
  *
  * This class is a modification of a class written by Peter Abeles, please see
  * <a href="https://goo.gl/sdBCiC">more</a>.
@@ -42,30 +49,8 @@ public class ProjectionSpace {
             throw new Exception("Data size must be greater or equal to vector size: " + data.length + " <> " + data[0].length);
         }
 
-        // Loading original data
-        DenseMatrix64F A = new DenseMatrix64F(data);
-
-        // Computing the adjustment mean vector
-        double[] mean = new double[A.numCols];
-
-        for (int i = 0; i < A.numRows; i++) {
-            for (int j = 0; j < A.numCols; j++) {
-                mean[j] += A.get(i, j);
-            }
-        }
-
-        for (int j = 0; j < mean.length; j++) {
-            mean[j] /= A.getNumRows();
-        }
-
-        m = DenseMatrix64F.wrap(mean.length, 1, mean);
-
-        // Subtracting the mean from the original data
-        for (int i = 0; i < A.numRows; i++) {
-            for (int j = 0; j < A.numCols; j++) {
-                A.set(i, j, A.get(i, j) - mean[j]);
-            }
-        }
+        // Loading original data subtracting the adjustment mean vector
+        DenseMatrix64F A = center(data);
 
         // Computing SVD and saving time by not computing U
         SingularValueDecomposition<DenseMatrix64F> svd = DecompositionFactory.svd(A.numRows, A.numCols, false, true, compact);
@@ -102,6 +87,166 @@ public class ProjectionSpace {
         }
     }
 
+    /**
+     * A constructor creating a projection space truncated to the given number
+     * of the most dominant components, using a randomized range finder along
+     * with power iterations instead of the full singular value decomposition.
+     * The range of the data is sampled by a gaussian matrix of the rank plus
+     * the oversampling columns, refined by each power iteration, so that only
+     * the small matrix projected onto the range has to be decomposed.
+     *
+     * See more about randomized decomposition:<br/>
+     * <em>N. Halko, P.G. Martinsson and J.A. Tropp, Finding structure with
+     * randomness: probabilistic algorithms for constructing approximate matrix
+     * decompositions, SIAM Review, 53(2), 2011.</em>
+     *
+     * @param data the original data.
+     * @param rank the number of the most dominant components to compute.
+     * @param oversampling the number of extra samples of the range.
+     * @param iterations the number of power iterations.
+     * @param seed the seed of the gaussian samples.
+     * @param whiten true to apply whitening.
+     * @throws Exception an unknown exception.
+     */
+    public ProjectionSpace(double[][] data, int rank, int oversampling, int iterations, long seed, boolean whiten) throws Exception {
+        int size = data[0].length;
+
+        if (rank < 1 || rank > Math.min(data.length, size)) {
+            throw new Exception("Rank must be within [1, " + Math.min(data.length, size) + "]: " + rank);
+        }
+
+        // Loading original data subtracting the adjustment mean vector
+        DenseMatrix64F A = center(data);
+
+        int samples = Math.min(rank + Math.max(0, oversampling), Math.min(A.numRows, size));
+
+        // Sampling the range of the data by a gaussian matrix
+        Random random = new Random(seed);
+
+        DenseMatrix64F O = new DenseMatrix64F(size, samples);
+
+        for (int i = 0; i < O.data.length; i++) {
+            O.data[i] = random.nextGaussian();
+        }
+
+        DenseMatrix64F Y = new DenseMatrix64F(A.numRows, samples);
+
+        CommonOps.mult(A, O, Y);
+
+        orthonormalize(Y);
+
+        // Refining the range by power iterations, orthonormalizing in between
+        DenseMatrix64F Z = O;
+
+        for (int q = 0; q < iterations; q++) {
+            CommonOps.multTransA(A, Y, Z);
+
+            orthonormalize(Z);
+
+            CommonOps.mult(A, Z, Y);
+
+            orthonormalize(Y);
+        }
+
+        // Projecting the data onto the range
+        DenseMatrix64F B = new DenseMatrix64F(samples, size);
+
+        CommonOps.multTransA(Y, A, B);
+
+        // Computing the eigen decomposition of the small symmetric matrix B·B_t
+        DenseMatrix64F C = new DenseMatrix64F(samples, samples);
+
+        CommonOps.multTransB(B, B, C);
+
+        final EigenDecomposition<DenseMatrix64F> eig = DecompositionFactory.eig(samples, true, true);
+
+        if (!eig.decompose(C)) {
+            throw new RuntimeException("Eigen decomposition process failed");
+        }
+
+        Integer[] order = descending(eig, samples);
+
+        // Recovering the right singular vectors as B_t·u / s for each eigenvector u
+        V_t = new DenseMatrix64F(rank, size);
+
+        for (int i = 0; i < rank; i++) {
+            DenseMatrix64F u = eig.getEigenVector(order[i]);
+
+            double singular = Math.sqrt(Math.max(0, eig.getEigenvalue(order[i]).getReal()));
+
+            double scale = singular > 0 ? 1 / singular : 0;
+
+            // Applying whitening regarding the singular value
+            if (whiten) {
+                scale *= Math.pow(singular, -0.5);
+            }
+
+            for (int k = 0; k < samples; k++) {
+                double weight = u.get(k, 0) * scale;
+
+                for (int j = 0; j < size; j++) {
+                    V_t.data[i * size + j] += weight * B.data[k * size + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * A constructor creating a projection space given the scatter matrix
+     * accumulated upon the original data, using the eigen decomposition of the
+     * symmetric matrix instead of the singular value decomposition of the
+     * data, so the data never have to fit in memory. The eigenvectors are the
+     * same as given by the data up to their sign, where the square roots of
+     * the eigenvalues stand for the singular values while whitening.
+     *
+     * @param covariance the scatter matrix of the original data.
+     * @param whiten true to apply whitening.
+     * @param compact true to save in compact form.
+     * @throws Exception an unknown exception.
+     */
+    public ProjectionSpace(Covariance covariance, boolean whiten, boolean compact) throws Exception {
+        int size = covariance.getMean().length;
+
+        // Applicable data must have size greater or equal to the vector size
+        if (covariance.getCount() < size && whiten) {
+            throw new Exception("Data size must be greater or equal to vector size: " + covariance.getCount() + " <> " + size);
+        }
+
+        m = DenseMatrix64F.wrap(size, 1, covariance.getMean());
+
+        // Computing the eigen decomposition of the symmetric scatter matrix
+        final EigenDecomposition<DenseMatrix64F> eig = DecompositionFactory.eig(size, true, true);
+
+        if (!eig.decompose(covariance.toMatrix())) {
+            throw new RuntimeException("Eigen decomposition process failed");
+        }
+
+        // Ordering eigenvalues and vectors in desceding order
+        Integer[] order = descending(eig, size);
+
+        // Stripping off the eigenvectors to the number of data items in compact form
+        int rows = compact ? (int) Math.min(size, covariance.getCount()) : size;
+
+        V_t = new DenseMatrix64F(rows, size);
+
+        for (int i = 0; i < rows; i++) {
+            DenseMatrix64F v = eig.getEigenVector(order[i]);
+
+            // Applying whitening regarding the singular value
+            double scale = 1;
+
+            if (whiten) {
+                double singular = Math.sqrt(Math.max(0, eig.getEigenvalue(order[i]).getReal()));
+
+                scale = Math.pow(singular, -0.5);
+            }
+
+            for (int j = 0; j < size; j++) {
+                V_t.set(i, j, v.get(j, 0) * scale);
+            }
+        }
+    }
+
     /**
      * A constructor creating a projection space given the eigenvectors in
      * descending eigenvalues order and the adjustment mean vector.
@@ -163,4 +308,107 @@ public class ProjectionSpace {
     public double[] getMean() {
         return m.data;
     }
+
+    /**
+     * A method loading the given data subtracting their mean, which is kept
+     * as the adjustment mean vector.
+     *
+     * @param data the original data.
+     * @return the centered data matrix.
+     */
+    private DenseMatrix64F center(double[][] data) {
+        DenseMatrix64F A = new DenseMatrix64F(data);
+
+        // Computing the adjustment mean vector
+        double[] mean = new double[A.numCols];
+
+        for (int i = 0; i < A.numRows; i++) {
+            for (int j = 0; j < A.numCols; j++) {
+                mean[j] += A.get(i, j);
+            }
+        }
+
+        for (int j = 0; j < mean.length; j++) {
+            mean[j] /= A.getNumRows();
+        }
+
+        m = DenseMatrix64F.wrap(mean.length, 1, mean);
+
+        // Subtracting the mean from the original data
+        for (int i = 0; i < A.numRows; i++) {
+            for (int j = 0; j < A.numCols; j++) {
+                A.set(i, j, A.get(i, j) - mean[j]);
+            }
+        }
+
+        return A;
+    }
+
+    /**
+     * A method returning the indices of the eigenvalues of the given symmetric
+     * decomposition in descending eigenvalues order.
+     *
+     * @param eig the eigen decomposition.
+     * @param size the number of eigenvalues.
+     * @return the indices of the eigenvalues.
+     */
+    private static Integer[] descending(final EigenDecomposition<DenseMatrix64F> eig, int size) {
+        Integer[] order = new Integer[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(eig.getEigenvalue(b).getReal(), eig.getEigenvalue(a).getReal());
+            }
+        });
+
+        return order;
+    }
+
+    /**
+     * A method orthonormalizing the columns of the given matrix in place by
+     * the modified Gram-Schmidt process, zeroing any column found dependent
+     * upon the previous ones.
+     *
+     * @param Q the matrix.
+     */
+    private static void orthonormalize(DenseMatrix64F Q) {
+        int rows = Q.numRows;
+        int cols = Q.numCols;
+
+        double[] q = Q.data;
+
+        for (int k = 0; k < cols; k++) {
+            // Removing the projections onto the previous columns
+            for (int p = 0; p < k; p++) {
+                double dot = 0;
+
+                for (int i = 0; i < rows; i++) {
+                    dot += q[i * cols + p] * q[i * cols + k];
+                }
+
+                for (int i = 0; i < rows; i++) {
+                    q[i * cols + k] -= dot * q[i * cols + p];
+                }
+            }
+
+            double norm = 0;
+
+            for (int i = 0; i < rows; i++) {
+                norm += q[i * cols + k] * q[i * cols + k];
+            }
+
+            norm = Math.sqrt(norm);
+
+            double scale = norm > 1e-12 ? 1 / norm : 0;
+
+            for (int i = 0; i < rows; i++) {
+                q[i * cols + k] *= scale;
+            }
+        }
+    }
 }
@@ -0,0 +1,142 @@
+package com.tkb.pandora.math;
+
+import java.util.Random;
+
+/**
+ * A streaming sampling engine keeping a uniform random sample of fixed size
+ * out of a stream of unknown length. Once the reservoir is full, the number of
+ * items to skip before the next replacement is drawn directly, so the skipped
+ * items need not even be parsed and random numbers are drawn only per
+ * replacement.
+ *
+ * See more about Algorithm L:<br/>
+ * <em>K. H. Li, Reservoir-sampling algorithms of time complexity
+ * O(n(1 + log(N/n))), ACM Transactions on Mathematical Software 1994.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+public class ReservoirSampler {
+
+    // Sampled items
+    private double[][] reservoir;
+
+    // Number of items in the reservoir
+    private int count;
+
+    // Number of items seen so far, either kept or skipped
+    private long seen;
+
+    // Number of items left to skip before the next replacement
+    private long skip;
+
+    // Running weight of the algorithm
+    private double w;
+
+    // Random generator
+    private Random rand;
+
+    /**
+     * A constructor creating a sampling engine given the size of the sample and
+     * the seed number.
+     *
+     * @param size the size of the sample.
+     * @param seed the seed number.
+     */
+    public ReservoirSampler(int size, long seed) {
+        reservoir = new double[size][];
+        rand = new Random(seed);
+
+        skip = size > 0 ? 0 : Long.MAX_VALUE;
+    }
+
+    /**
+     * A method returning the number of items left to skip before the next item
+     * to be added, zero while the reservoir is filling up.
+     *
+     * @return the number of items to skip.
+     */
+    public long skip() {
+        return skip;
+    }
+
+    /**
+     * A method notifying the given number of items were skipped.
+     *
+     * @param n the number of items skipped.
+     */
+    public void skipped(long n) {
+        skip -= n;
+        seen += n;
+    }
+
+    /**
+     * A method adding the next item not skipped, either appended while the
+     * reservoir is filling up or replacing a random item thereafter.
+     *
+     * @param item the item.
+     */
+    public void add(double[] item) {
+        int size = reservoir.length;
+
+        if (count < size) {
+            reservoir[count++] = item;
+
+            if (count == size) {
+                w = Math.exp(Math.log(uniform()) / size);
+
+                skip = gap();
+            }
+        } else {
+            reservoir[rand.nextInt(size)] = item;
+
+            w *= Math.exp(Math.log(uniform()) / size);
+
+            skip = gap();
+        }
+
+        seen++;
+    }
+
+    /**
+     * A method returning the items sampled so far, fewer than the sample size
+     * if less items were seen.
+     *
+     * @return the sampled items.
+     */
+    public double[][] getSample() {
+        double[][] sample = new double[count][];
+
+        System.arraycopy(reservoir, 0, sample, 0, count);
+
+        return sample;
+    }
+
+    /**
+     * A method returning the number of items seen so far.
+     *
+     * @return the number of items.
+     */
+    public long getSeen() {
+        return seen;
+    }
+
+    /**
+     * A method drawing the number of items to skip before the next replacement.
+     *
+     * @return the number of items to skip.
+     */
+    private long gap() {
+        double gap = Math.floor(Math.log(uniform()) / Math.log(1.0 - w));
+
+        return gap < Long.MAX_VALUE ? (long) gap : Long.MAX_VALUE;
+    }
+
+    /**
+     * A method drawing a uniform number in (0, 1].
+     *
+     * @return the uniform number.
+     */
+    private double uniform() {
+        return 1.0 - rand.nextDouble();
+    }
+}
@@ -0,0 +1,153 @@
+package com.tkb.pandora.math;
+
+/**
+ * A kernel of plain loops accumulating one component at a time, kept as the
+ * reference implementation.
+ *
+ * @author Akis Papadopoulos
+ */
+final class ScalarKernel extends Kernel {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public double distance(double[] a, double[] b, double bound) {
+        double distance = 0;
+
+        for (int j = 0; j < a.length; j++) {
+            double diff = a[j] - b[j];
+
+            distance += diff * diff;
+
+            // Breaking when distance exceeds the bound
+            if (distance >= bound) {
+                break;
+            }
+        }
+
+        return distance;
+    }
+
+    @Override
+    public double dot(double[] a, int offset, double[] b, int length) {
+        double dot = 0;
+
+        for (int j = 0; j < length; j++) {
+            dot += a[offset + j] * b[j];
+        }
+
+        return dot;
+    }
+
+    @Override
+    public void residual(double[] x, double[] c, double[] y, int offset, int length) {
+        for (int j = 0; j < length; j++) {
+            y[offset + j] += x[j] - c[j];
+        }
+    }
+
+    @Override
+    public void residual(double[] x, double[] c, double[] y, int offset, int length, double weight) {
+        for (int j = 0; j < length; j++) {
+            y[offset + j] += weight * (x[j] - c[j]);
+        }
+    }
+
+    @Override
+    public void outer(double[] r, double[] y, int offset, int length) {
+        for (int i = 0, index = offset; i < length; i++) {
+            for (int j = 0; j < length; j++, index++) {
+                y[index] += r[i] * r[j];
+            }
+        }
+    }
+
+    @Override
+    public double squares(double[] v, int from, int to) {
+        double sum = 0;
+
+        for (int j = from; j < to; j++) {
+            sum += v[j] * v[j];
+        }
+
+        return sum;
+    }
+
+    @Override
+    public void scale(double[] v, int from, int to, double scale) {
+        for (int j = from; j < to; j++) {
+            v[j] *= scale;
+        }
+    }
+
+    @Override
+    public void sqrt(double[] v, int from, int to) {
+        for (int j = from; j < to; j++) {
+            v[j] = Math.signum(v[j]) * Math.sqrt(Math.abs(v[j]));
+        }
+    }
+
+    @Override
+    public float distance(float[] a, float[] b, float bound) {
+        float distance = 0;
+
+        for (int j = 0; j < a.length; j++) {
+            float diff = a[j] - b[j];
+
+            distance += diff * diff;
+
+            // Breaking when distance exceeds the bound
+            if (distance >= bound) {
+                break;
+            }
+        }
+
+        return distance;
+    }
+
+    @Override
+    public void residual(float[] x, float[] c, float[] y, int offset, int length) {
+        for (int j = 0; j < length; j++) {
+            y[offset + j] += x[j] - c[j];
+        }
+    }
+
+    @Override
+    public void outer(float[] r, float[] y, int offset, int length) {
+        for (int i = 0, index = offset; i < length; i++) {
+            for (int j = 0; j < length; j++, index++) {
+                y[index] += r[i] * r[j];
+            }
+        }
+    }
+
+    @Override
+    public double squares(float[] v, int from, int to) {
+        double sum = 0;
+
+        for (int j = from; j < to; j++) {
+            double component = v[j];
+
+            sum += component * component;
+        }
+
+        return sum;
+    }
+
+    @Override
+    public void scale(float[] v, int from, int to, float scale) {
+        for (int j = from; j < to; j++) {
+            v[j] *= scale;
+        }
+    }
+
+    @Override
+    public void sqrt(float[] v, int from, int to) {
+        for (int j = from; j < to; j++) {
+            v[j] = (float) (Math.signum(v[j]) * Math.sqrt(Math.abs(v[j])));
+        }
+    }
+}
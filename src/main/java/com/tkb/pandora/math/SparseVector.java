@@ -0,0 +1,178 @@
+package com.tkb.pandora.math;
+
+import java.util.Arrays;
+
+/**
+ * A sparse vector holding only its non zero components, as the indices in
+ * ascending order along with their single precision values, such as a bag of
+ * words vector hitting a few hundred out of a vocabulary of many thousands of
+ * words.
+ *
+ * @author Akis Papadopoulos
+ */
+public class SparseVector {
+
+    // Number of components of the dense vector
+    private int dimension;
+
+    // Indices of the non zero components in ascending order
+    private int[] indices;
+
+    // Values of the non zero components
+    private float[] values;
+
+    /**
+     * A constructor given the dimension of the dense vector along with the
+     * indices in ascending order and the values of the non zero components.
+     *
+     * @param dimension the number of components of the dense vector.
+     * @param indices the indices of the non zero components.
+     * @param values the values of the non zero components.
+     */
+    public SparseVector(int dimension, int[] indices, float[] values) {
+        if (indices.length != values.length) {
+            throw new IllegalArgumentException("Number of indices does not match the number of values: " + indices.length + " <> " + values.length);
+        }
+
+        this.dimension = dimension;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * A method returning the sparse form of the given dense vector.
+     *
+     * @param vector the dense vector.
+     * @return the sparse vector.
+     */
+    public static SparseVector of(double[] vector) {
+        int count = 0;
+
+        for (double component : vector) {
+            if (component != 0) {
+                count++;
+            }
+        }
+
+        int[] indices = new int[count];
+        float[] values = new float[count];
+
+        for (int j = 0, n = 0; j < vector.length; j++) {
+            if (vector[j] != 0) {
+                indices[n] = j;
+                values[n++] = (float) vector[j];
+            }
+        }
+
+        return new SparseVector(vector.length, indices, values);
+    }
+
+    /**
+     * A method returning the sparse form of the given single precision dense
+     * vector.
+     *
+     * @param vector the dense vector.
+     * @return the sparse vector.
+     */
+    public static SparseVector of(float[] vector) {
+        int count = 0;
+
+        for (float component : vector) {
+            if (component != 0) {
+                count++;
+            }
+        }
+
+        int[] indices = new int[count];
+        float[] values = new float[count];
+
+        for (int j = 0, n = 0; j < vector.length; j++) {
+            if (vector[j] != 0) {
+                indices[n] = j;
+                values[n++] = vector[j];
+            }
+        }
+
+        return new SparseVector(vector.length, indices, values);
+    }
+
+    /**
+     * A method returning the dense form of the vector.
+     *
+     * @return the dense vector.
+     */
+    public double[] toDense() {
+        double[] vector = new double[dimension];
+
+        for (int n = 0; n < indices.length; n++) {
+            vector[indices[n]] = values[n];
+        }
+
+        return vector;
+    }
+
+    /**
+     * A method returning the single precision dense form of the vector.
+     *
+     * @return the dense vector.
+     */
+    public float[] toDenseFloat() {
+        float[] vector = new float[dimension];
+
+        for (int n = 0; n < indices.length; n++) {
+            vector[indices[n]] = values[n];
+        }
+
+        return vector;
+    }
+
+    /**
+     * A method returning the value of the given component, searching the
+     * indices of the non zero components.
+     *
+     * @param index the index of the component.
+     * @return the value of the component.
+     */
+    public float get(int index) {
+        int n = Arrays.binarySearch(indices, index);
+
+        return n >= 0 ? values[n] : 0;
+    }
+
+    /**
+     * A method returning the number of components of the dense vector.
+     *
+     * @return the dimension.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * A method returning the number of non zero components.
+     *
+     * @return the number of non zero components.
+     */
+    public int size() {
+        return indices.length;
+    }
+
+    /**
+     * A method returning the indices of the non zero components in ascending
+     * order.
+     *
+     * @return the indices.
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    /**
+     * A method returning the values of the non zero components.
+     *
+     * @return the values.
+     */
+    public float[] getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,263 @@
+package com.tkb.pandora.math;
+
+/**
+ * A kernel unrolling the reductions over four independent accumulators, so
+ * consecutive additions no longer wait on each other, and keeping the
+ * element-wise loops free of branches so the compiler can vectorize them. The
+ * bounded distance checks its bound once per block of components instead of
+ * once per component.
+ *
+ * @author Akis Papadopoulos
+ */
+final class UnrolledKernel extends Kernel {
+
+    // Number of components between two checks of the bound
+    private static final int BLOCK = 16;
+
+    @Override
+    public String getName() {
+        return "unrolled";
+    }
+
+    @Override
+    public double distance(double[] a, double[] b, double bound) {
+        int length = a.length;
+
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        int j = 0;
+
+        for (; j + BLOCK <= length; j += BLOCK) {
+            for (int k = j; k < j + BLOCK; k += 4) {
+                double d0 = a[k] - b[k];
+                double d1 = a[k + 1] - b[k + 1];
+                double d2 = a[k + 2] - b[k + 2];
+                double d3 = a[k + 3] - b[k + 3];
+
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+                s2 += d2 * d2;
+                s3 += d3 * d3;
+            }
+
+            // Breaking when distance exceeds the bound
+            double distance = (s0 + s1) + (s2 + s3);
+
+            if (distance >= bound) {
+                return distance;
+            }
+        }
+
+        double distance = (s0 + s1) + (s2 + s3);
+
+        for (; j < length; j++) {
+            double diff = a[j] - b[j];
+
+            distance += diff * diff;
+        }
+
+        return distance;
+    }
+
+    @Override
+    public double dot(double[] a, int offset, double[] b, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        int j = 0;
+
+        for (; j + 4 <= length; j += 4) {
+            s0 += a[offset + j] * b[j];
+            s1 += a[offset + j + 1] * b[j + 1];
+            s2 += a[offset + j + 2] * b[j + 2];
+            s3 += a[offset + j + 3] * b[j + 3];
+        }
+
+        double dot = (s0 + s1) + (s2 + s3);
+
+        for (; j < length; j++) {
+            dot += a[offset + j] * b[j];
+        }
+
+        return dot;
+    }
+
+    @Override
+    public void residual(double[] x, double[] c, double[] y, int offset, int length) {
+        for (int j = 0; j < length; j++) {
+            y[offset + j] += x[j] - c[j];
+        }
+    }
+
+    @Override
+    public void residual(double[] x, double[] c, double[] y, int offset, int length, double weight) {
+        for (int j = 0; j < length; j++) {
+            y[offset + j] += weight * (x[j] - c[j]);
+        }
+    }
+
+    @Override
+    public void outer(double[] r, double[] y, int offset, int length) {
+        for (int i = 0, index = offset; i < length; i++) {
+            double ri = r[i];
+
+            int j = 0;
+
+            for (; j + 4 <= length; j += 4, index += 4) {
+                y[index] += ri * r[j];
+                y[index + 1] += ri * r[j + 1];
+                y[index + 2] += ri * r[j + 2];
+                y[index + 3] += ri * r[j + 3];
+            }
+
+            for (; j < length; j++, index++) {
+                y[index] += ri * r[j];
+            }
+        }
+    }
+
+    @Override
+    public double squares(double[] v, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        int j = from;
+
+        for (; j + 4 <= to; j += 4) {
+            s0 += v[j] * v[j];
+            s1 += v[j + 1] * v[j + 1];
+            s2 += v[j + 2] * v[j + 2];
+            s3 += v[j + 3] * v[j + 3];
+        }
+
+        double sum = (s0 + s1) + (s2 + s3);
+
+        for (; j < to; j++) {
+            sum += v[j] * v[j];
+        }
+
+        return sum;
+    }
+
+    @Override
+    public void scale(double[] v, int from, int to, double scale) {
+        for (int j = from; j < to; j++) {
+            v[j] *= scale;
+        }
+    }
+
+    @Override
+    public void sqrt(double[] v, int from, int to) {
+        for (int j = from; j < to; j++) {
+            v[j] = Math.copySign(Math.sqrt(Math.abs(v[j])), v[j]);
+        }
+    }
+
+    @Override
+    public float distance(float[] a, float[] b, float bound) {
+        int length = a.length;
+
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        int j = 0;
+
+        for (; j + BLOCK <= length; j += BLOCK) {
+            for (int k = j; k < j + BLOCK; k += 4) {
+                float d0 = a[k] - b[k];
+                float d1 = a[k + 1] - b[k + 1];
+                float d2 = a[k + 2] - b[k + 2];
+                float d3 = a[k + 3] - b[k + 3];
+
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+                s2 += d2 * d2;
+                s3 += d3 * d3;
+            }
+
+            // Breaking when distance exceeds the bound
+            float distance = (s0 + s1) + (s2 + s3);
+
+            if (distance >= bound) {
+                return distance;
+            }
+        }
+
+        float distance = (s0 + s1) + (s2 + s3);
+
+        for (; j < length; j++) {
+            float diff = a[j] - b[j];
+
+            distance += diff * diff;
+        }
+
+        return distance;
+    }
+
+    @Override
+    public void residual(float[] x, float[] c, float[] y, int offset, int length) {
+        for (int j = 0; j < length; j++) {
+            y[offset + j] += x[j] - c[j];
+        }
+    }
+
+    @Override
+    public void outer(float[] r, float[] y, int offset, int length) {
+        for (int i = 0, index = offset; i < length; i++) {
+            float ri = r[i];
+
+            int j = 0;
+
+            for (; j + 4 <= length; j += 4, index += 4) {
+                y[index] += ri * r[j];
+                y[index + 1] += ri * r[j + 1];
+                y[index + 2] += ri * r[j + 2];
+                y[index + 3] += ri * r[j + 3];
+            }
+
+            for (; j < length; j++, index++) {
+                y[index] += ri * r[j];
+            }
+        }
+    }
+
+    @Override
+    public double squares(float[] v, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        int j = from;
+
+        for (; j + 4 <= to; j += 4) {
+            double c0 = v[j];
+            double c1 = v[j + 1];
+            double c2 = v[j + 2];
+            double c3 = v[j + 3];
+
+            s0 += c0 * c0;
+            s1 += c1 * c1;
+            s2 += c2 * c2;
+            s3 += c3 * c3;
+        }
+
+        double sum = (s0 + s1) + (s2 + s3);
+
+        for (; j < to; j++) {
+            double component = v[j];
+
+            sum += component * component;
+        }
+
+        return sum;
+    }
+
+    @Override
+    public void scale(float[] v, int from, int to, float scale) {
+        for (int j = from; j < to; j++) {
+            v[j] *= scale;
+        }
+    }
+
+    @Override
+    public void sqrt(float[] v, int from, int to) {
+        for (int j = from; j < to; j++) {
+            v[j] = Math.copySign((float) Math.sqrt(Math.abs(v[j])), v[j]);
+        }
+    }
+}
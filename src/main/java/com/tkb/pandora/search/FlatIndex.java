@@ -0,0 +1,250 @@
+package com.tkb.pandora.search;
+
+import com.tkb.pandora.util.ArrayOps;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An exact search index scanning every vector of an off-heap matrix by brute
+ * force, keeping the top k candidates of each scan in a bounded heap. A single
+ * query is scanned in parallel chunks of rows merged at the end, while a batch
+ * of queries is spread across the threads, each query scanned by one thread.
+ *
+ * Candidates are ranked by a cost, ||v||² - 2q·v for the Euclidean distance,
+ * since the norm of the query is common to all rows, and -q·v for the inner
+ * product, converted back to the metric score in the results.
+ *
+ * @author Akis Papadopoulos
+ */
+public class FlatIndex implements SearchIndex {
+
+    // Matrix of the indexed vectors
+    private VectorMatrix matrix;
+
+    // Similarity metric
+    private Metric metric;
+
+    // Number of parallel threads
+    private int threads;
+
+    // Executor of the parallel scans
+    private ExecutorService executor;
+
+    /**
+     * A constructor initiating the index given the matrix of vectors, the
+     * similarity metric and the number of parallel threads.
+     *
+     * @param matrix the matrix of vectors.
+     * @param metric the similarity metric.
+     * @param threads the number of parallel threads.
+     */
+    public FlatIndex(VectorMatrix matrix, Metric metric, int threads) {
+        this.matrix = matrix;
+        this.metric = metric;
+        this.threads = Math.max(1, threads);
+
+        executor = Executors.newFixedThreadPool(this.threads);
+    }
+
+    /**
+     * A method returning the k nearest vectors to the given query, scanning
+     * the rows in parallel chunks.
+     *
+     * @param query the query vector.
+     * @param k the number of neighbors.
+     * @return the neighbors in descending similarity.
+     * @throws Exception an unknown exception.
+     */
+    @Override
+    public Neighbor[] search(double[] query, int k) throws Exception {
+        final float[] q = toFloat(query);
+        final int n = Math.min(k, matrix.getRows());
+
+        int rows = matrix.getRows();
+        int size = Math.max(1, (rows + threads - 1) / threads);
+
+        List<Future<TopK>> futures = new ArrayList<Future<TopK>>();
+
+        for (int from = 0; from < rows; from += size) {
+            final int start = from;
+            final int end = Math.min(rows, from + size);
+
+            futures.add(executor.submit(new Callable<TopK>() {
+                @Override
+                public TopK call() {
+                    return scan(q, n, start, end);
+                }
+            }));
+        }
+
+        // Merging the heaps of the chunks
+        TopK top = new TopK(n);
+
+        for (Future<TopK> future : futures) {
+            top.merge(future.get());
+        }
+
+        return results(top, q);
+    }
+
+    /**
+     * A method returning the k nearest vectors to each of the given queries,
+     * spreading the queries across the threads.
+     *
+     * @param queries the query vectors.
+     * @param k the number of neighbors.
+     * @param latencies an array to store the scan time of each query in
+     * nanoseconds, or null.
+     * @return the neighbors of each query in descending similarity.
+     * @throws Exception an unknown exception.
+     */
+    @Override
+    public Neighbor[][] search(final double[][] queries, int k, final long[] latencies) throws Exception {
+        final int n = Math.min(k, matrix.getRows());
+
+        final Neighbor[][] results = new Neighbor[queries.length][];
+
+        int size = Math.max(1, (queries.length + threads - 1) / threads);
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for (int from = 0; from < queries.length; from += size) {
+            final int start = from;
+            final int end = Math.min(queries.length, from + size);
+
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = start; i < end; i++) {
+                        long time = System.nanoTime();
+
+                        float[] q = toFloat(queries[i]);
+
+                        results[i] = results(scan(q, n, 0, matrix.getRows()), q);
+
+                        if (latencies != null) {
+                            latencies[i] = System.nanoTime() - time;
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        return results;
+    }
+
+    /**
+     * A method scanning the given range of rows keeping the k of lowest cost.
+     *
+     * @param q the query vector.
+     * @param k the number of neighbors.
+     * @param from the first row of the range.
+     * @param to the row after the last of the range.
+     * @return the heap of the candidates.
+     */
+    private TopK scan(float[] q, int k, int from, int to) {
+        TopK top = new TopK(k);
+
+        if (k == 0) {
+            return top;
+        }
+
+        float threshold = top.threshold();
+
+        if (metric == Metric.L2) {
+            for (int i = from; i < to; i++) {
+                float cost = matrix.norm(i) - 2 * matrix.dot(i, q);
+
+                if (cost < threshold) {
+                    top.offer(i, cost);
+
+                    threshold = top.threshold();
+                }
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                float cost = -matrix.dot(i, q);
+
+                if (cost < threshold) {
+                    top.offer(i, cost);
+
+                    threshold = top.threshold();
+                }
+            }
+        }
+
+        return top;
+    }
+
+    /**
+     * A method converting the candidates of the given heap into neighbors
+     * scored by the metric.
+     *
+     * @param top the heap of the candidates.
+     * @param q the query vector.
+     * @return the neighbors in descending similarity.
+     */
+    private Neighbor[] results(TopK top, float[] q) {
+        float[] costs = new float[top.size()];
+
+        int[] indices = top.drain(costs);
+
+        double norm = 0;
+
+        if (metric == Metric.L2) {
+            for (float component : q) {
+                norm += component * component;
+            }
+        }
+
+        Neighbor[] neighbors = new Neighbor[indices.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            double score = metric == Metric.L2 ? Math.max(0, norm + costs[i]) : -costs[i];
+
+            neighbors[i] = new Neighbor(indices[i], score);
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * A method converting the given query in single precision, checking its
+     * size against the matrix.
+     *
+     * @param query the query vector.
+     * @return the single precision query.
+     */
+    private float[] toFloat(double[] query) {
+        if (query.length != matrix.getCols()) {
+            throw new IllegalArgumentException("Query size does not match the indexed vectors: " + query.length + " <> " + matrix.getCols());
+        }
+
+        return ArrayOps.toFloat(query);
+    }
+
+    /**
+     * A method returning the matrix of the indexed vectors.
+     *
+     * @return the matrix.
+     */
+    public VectorMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * A method shutting down the threads of the index.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,545 @@
+package com.tkb.pandora.search;
+
+import com.tkb.pandora.math.SparseVector;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An inverted file search index of sparse vectors such as bags of words,
+ * keeping for each word the posting list of the vectors holding it along with
+ * its term frequency in each of them. A query touches only the posting lists
+ * of its own words, accumulating the score of every vector met on the way, so
+ * its cost depends on the length of those lists rather than on the number of
+ * the vectors or the size of the vocabulary.
+ *
+ * Vectors are scored by the cosine similarity of their tf-idf weighted form to
+ * the query, where each word is weighted by its inverse document frequency
+ * log(N / n), n out of the N vectors holding it. The weights are computed once
+ * all vectors are added, on the first search, so the scores are in descending
+ * similarity.
+ *
+ * Vectors are added by a single thread, while searches may run concurrently
+ * once all vectors are added.
+ *
+ * See more about the inverted file of visual words:<br/>
+ * <em>J. Sivic and A. Zisserman, Video Google: A text retrieval approach to
+ * object matching in videos, ICCV 2003.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+public class InvertedIndex implements SearchIndex {
+
+    // Initial capacity of a posting list
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Number of words
+    private int dimension;
+
+    // Slots of the vectors, term frequencies and sizes of the posting lists
+    private int[][] slots;
+    private float[][] frequencies;
+    private int[] sizes;
+
+    // Ids of the vectors by slot
+    private int[] ids;
+
+    // Number of vectors
+    private int count;
+
+    // Inverse document frequencies of the words along with the normalized tf-idf weights of the postings, null until the first search
+    private float[] idf;
+    private float[][] weights;
+
+    // Number of parallel threads
+    private int threads;
+
+    // Executor of the parallel searches
+    private ExecutorService executor;
+
+    // Score accumulator of each searching thread
+    private ThreadLocal<Accumulator> accumulators = new ThreadLocal<Accumulator>() {
+        @Override
+        protected Accumulator initialValue() {
+            return new Accumulator();
+        }
+    };
+
+    /**
+     * A constructor initiating an empty index given the number of words and
+     * the number of parallel threads.
+     *
+     * @param dimension the number of words.
+     * @param threads the number of parallel threads.
+     */
+    public InvertedIndex(int dimension, int threads) {
+        this.dimension = dimension;
+        this.threads = Math.max(1, threads);
+
+        slots = new int[dimension][];
+        frequencies = new float[dimension][];
+        sizes = new int[dimension];
+
+        ids = new int[INITIAL_CAPACITY];
+
+        executor = Executors.newFixedThreadPool(this.threads);
+    }
+
+    /**
+     * A method adding the given sparse vector under the given id, appended to
+     * the posting list of each of its words.
+     *
+     * @param id the id of the vector.
+     * @param vector the sparse vector.
+     */
+    public void add(int id, SparseVector vector) {
+        check(vector);
+
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+
+        int slot = count++;
+
+        ids[slot] = id;
+
+        int[] indices = vector.getIndices();
+        float[] values = vector.getValues();
+
+        for (int n = 0; n < indices.length; n++) {
+            int word = indices[n];
+
+            // Growing the list by doubling its capacity
+            if (slots[word] == null) {
+                slots[word] = new int[INITIAL_CAPACITY];
+                frequencies[word] = new float[INITIAL_CAPACITY];
+            } else if (sizes[word] == slots[word].length) {
+                slots[word] = Arrays.copyOf(slots[word], slots[word].length * 2);
+                frequencies[word] = Arrays.copyOf(frequencies[word], slots[word].length);
+            }
+
+            int position = sizes[word]++;
+
+            slots[word][position] = slot;
+            frequencies[word][position] = values[n];
+        }
+
+        // Invalidating the weights as the document frequencies changed
+        weights = null;
+    }
+
+    /**
+     * A method adding the given dense vector under the given id, indexing
+     * only its non zero components.
+     *
+     * @param id the id of the vector.
+     * @param vector the vector.
+     */
+    public void add(int id, double[] vector) {
+        add(id, SparseVector.of(vector));
+    }
+
+    @Override
+    public Neighbor[] search(double[] query, int k) throws Exception {
+        return search(SparseVector.of(query), k);
+    }
+
+    /**
+     * A method returning the k most similar vectors to the given sparse query,
+     * scanning the posting lists of its words in the calling thread.
+     *
+     * @param query the sparse query vector.
+     * @param k the number of neighbors.
+     * @return the neighbors in descending similarity.
+     */
+    public Neighbor[] search(SparseVector query, int k) {
+        check(query);
+
+        prepare();
+
+        return scan(query, k);
+    }
+
+    @Override
+    public Neighbor[][] search(double[][] queries, int k, long[] latencies) throws Exception {
+        SparseVector[] sparse = new SparseVector[queries.length];
+
+        for (int i = 0; i < queries.length; i++) {
+            sparse[i] = SparseVector.of(queries[i]);
+        }
+
+        return search(sparse, k, latencies);
+    }
+
+    /**
+     * A method returning the k most similar vectors to each of the given
+     * sparse queries, spreading the queries across the threads.
+     *
+     * @param queries the sparse query vectors.
+     * @param k the number of neighbors.
+     * @param latencies an array to store the search time of each query in
+     * nanoseconds, or null.
+     * @return the neighbors of each query in descending similarity.
+     * @throws Exception an unknown exception.
+     */
+    public Neighbor[][] search(final SparseVector[] queries, final int k, final long[] latencies) throws Exception {
+        for (SparseVector query : queries) {
+            check(query);
+        }
+
+        prepare();
+
+        final Neighbor[][] results = new Neighbor[queries.length][];
+
+        int size = Math.max(1, (queries.length + threads - 1) / threads);
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for (int from = 0; from < queries.length; from += size) {
+            final int start = from;
+            final int end = Math.min(queries.length, from + size);
+
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = start; i < end; i++) {
+                        long time = System.nanoTime();
+
+                        results[i] = scan(queries[i], k);
+
+                        if (latencies != null) {
+                            latencies[i] = System.nanoTime() - time;
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        return results;
+    }
+
+    /**
+     * A method accumulating the scores of the vectors in the posting lists of
+     * the words of the given query, keeping the k of the highest score.
+     *
+     * @param query the sparse query vector.
+     * @param k the number of neighbors.
+     * @return the neighbors in descending similarity.
+     */
+    private Neighbor[] scan(SparseVector query, int k) {
+        int[] indices = query.getIndices();
+        float[] values = query.getValues();
+
+        // Weighting the query by the inverse document frequencies
+        float[] q = new float[indices.length];
+
+        double norm = 0;
+
+        for (int n = 0; n < indices.length; n++) {
+            q[n] = values[n] * idf[indices[n]];
+
+            norm += q[n] * q[n];
+        }
+
+        TopK top = new TopK(k);
+
+        if (norm == 0 || k == 0) {
+            return results(top);
+        }
+
+        float scale = (float) (1.0 / Math.sqrt(norm));
+
+        Accumulator accumulator = accumulators.get();
+
+        accumulator.ensure(count);
+
+        float[] scores = accumulator.scores;
+        boolean[] hit = accumulator.hit;
+        int[] touched = accumulator.touched;
+
+        int touches = 0;
+
+        // Touching only the posting lists of the words of the query
+        for (int n = 0; n < indices.length; n++) {
+            int word = indices[n];
+
+            float weight = q[n] * scale;
+
+            if (weight == 0) {
+                continue;
+            }
+
+            int[] list = slots[word];
+            float[] postings = weights[word];
+
+            for (int i = 0; i < sizes[word]; i++) {
+                int slot = list[i];
+
+                if (!hit[slot]) {
+                    hit[slot] = true;
+                    touched[touches++] = slot;
+                }
+
+                scores[slot] += weight * postings[i];
+            }
+        }
+
+        // Ranking the touched vectors and clearing their scores for the next query
+        for (int t = 0; t < touches; t++) {
+            int slot = touched[t];
+
+            top.offer(ids[slot], -scores[slot]);
+
+            scores[slot] = 0;
+            hit[slot] = false;
+        }
+
+        return results(top);
+    }
+
+    /**
+     * A method computing the inverse document frequencies of the words and the
+     * tf-idf weights of the postings normalized by the norm of their vectors,
+     * unless computed since the last vector added.
+     */
+    private synchronized void prepare() {
+        if (weights != null) {
+            return;
+        }
+
+        float[] frequency = new float[dimension];
+
+        for (int word = 0; word < dimension; word++) {
+            frequency[word] = sizes[word] > 0 ? (float) Math.log((double) count / sizes[word]) : 0;
+        }
+
+        // Summing up the squared tf-idf weights of each vector
+        double[] norms = new double[count];
+
+        for (int word = 0; word < dimension; word++) {
+            for (int i = 0; i < sizes[word]; i++) {
+                double weight = frequencies[word][i] * frequency[word];
+
+                norms[slots[word][i]] += weight * weight;
+            }
+        }
+
+        float[][] normalized = new float[dimension][];
+
+        for (int word = 0; word < dimension; word++) {
+            if (sizes[word] == 0) {
+                continue;
+            }
+
+            normalized[word] = new float[sizes[word]];
+
+            for (int i = 0; i < sizes[word]; i++) {
+                double norm = norms[slots[word][i]];
+
+                normalized[word][i] = norm > 0 ? (float) (frequencies[word][i] * frequency[word] / Math.sqrt(norm)) : 0;
+            }
+        }
+
+        idf = frequency;
+        weights = normalized;
+    }
+
+    /**
+     * A method converting the candidates of the given heap into neighbors.
+     *
+     * @param top the heap of the candidates.
+     * @return the neighbors in descending similarity.
+     */
+    private static Neighbor[] results(TopK top) {
+        float[] costs = new float[top.size()];
+
+        int[] indices = top.drain(costs);
+
+        Neighbor[] neighbors = new Neighbor[indices.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            neighbors[i] = new Neighbor(indices[i], -costs[i]);
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * A method checking the size of the given vector against the index.
+     *
+     * @param vector the sparse vector.
+     */
+    private void check(SparseVector vector) {
+        if (vector.getDimension() != dimension) {
+            throw new IllegalArgumentException("Vector size does not match the indexed vectors: " + vector.getDimension() + " <> " + dimension);
+        }
+    }
+
+    /**
+     * A method returning the number of vectors in the index.
+     *
+     * @return the number of vectors.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * A method returning the number of postings in the index, the number of
+     * non zero components over all the vectors.
+     *
+     * @return the number of postings.
+     */
+    public long getPostings() {
+        long postings = 0;
+
+        for (int s : sizes) {
+            postings += s;
+        }
+
+        return postings;
+    }
+
+    /**
+     * A method returning the number of words.
+     *
+     * @return the number of words.
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * A method writing the ids and the posting lists in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @throws IOException an unknown exception.
+     */
+    public void save(String filepath) throws IOException {
+        DataOutputStream out = null;
+
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filepath), 1 << 16));
+
+            out.writeInt(dimension);
+            out.writeInt(count);
+
+            for (int slot = 0; slot < count; slot++) {
+                out.writeInt(ids[slot]);
+            }
+
+            for (int word = 0; word < dimension; word++) {
+                out.writeInt(sizes[word]);
+
+                for (int i = 0; i < sizes[word]; i++) {
+                    out.writeInt(slots[word][i]);
+                    out.writeFloat(frequencies[word][i]);
+                }
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * A method reading an index saved in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param threads the number of parallel threads.
+     * @return the index.
+     * @throws IOException an unknown exception.
+     */
+    public static InvertedIndex load(String filepath, int threads) throws IOException {
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(filepath), 1 << 16));
+
+            InvertedIndex index = new InvertedIndex(in.readInt(), threads);
+
+            try {
+                index.count = in.readInt();
+                index.ids = new int[Math.max(INITIAL_CAPACITY, index.count)];
+
+                for (int slot = 0; slot < index.count; slot++) {
+                    index.ids[slot] = in.readInt();
+                }
+
+                for (int word = 0; word < index.dimension; word++) {
+                    int size = in.readInt();
+
+                    if (size == 0) {
+                        continue;
+                    }
+
+                    index.sizes[word] = size;
+                    index.slots[word] = new int[size];
+                    index.frequencies[word] = new float[size];
+
+                    for (int i = 0; i < size; i++) {
+                        index.slots[word][i] = in.readInt();
+                        index.frequencies[word][i] = in.readFloat();
+                    }
+                }
+            } catch (IOException exc) {
+                index.close();
+
+                throw exc;
+            }
+
+            return index;
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * A method shutting down the threads of the index.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * The scores of the vectors accumulated by a single thread, along with the
+     * vectors touched by the current query so only those are cleared.
+     */
+    private static class Accumulator {
+
+        private float[] scores = new float[0];
+        private boolean[] hit = new boolean[0];
+        private int[] touched = new int[0];
+
+        /**
+         * A method growing the accumulator to the given number of vectors.
+         *
+         * @param count the number of vectors.
+         */
+        void ensure(int count) {
+            if (scores.length < count) {
+                scores = new float[count];
+                hit = new boolean[count];
+                touched = new int[count];
+            }
+        }
+    }
+}
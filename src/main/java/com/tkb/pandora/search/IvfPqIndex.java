@@ -0,0 +1,512 @@
+package com.tkb.pandora.search;
+
+import com.tkb.pandora.math.KMeans;
+import com.tkb.pandora.util.ArrayOps;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A compressed search index of the inverted file with asymmetric distance
+ * computation (IVFADC), where a coarse k-means quantizer splits the vectors in
+ * inverted lists and the residual of each vector to its coarse centroid is
+ * product quantized into a few bytes. A query probes only its nearest lists,
+ * scoring the codes of each list by the lookup table of its residual to the
+ * list centroid. Only the squared Euclidean distance is supported.
+ *
+ * Vectors are added by a single thread, while searches may run concurrently
+ * once all vectors are added.
+ *
+ * See more about IVFADC:<br/>
+ * <em>H. Jégou, M. Douze and C. Schmid, Product quantization for nearest
+ * neighbor search, IEEE TPAMI 2011.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+public class IvfPqIndex implements SearchIndex {
+
+    // Initial capacity of an inverted list
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Centroids of the coarse quantizer
+    private double[][] coarse;
+
+    // Squared norms of the coarse centroids
+    private double[] norms;
+
+    // Quantizer of the residuals
+    private ProductQuantizer pq;
+
+    // Ids, codes and sizes of the inverted lists
+    private int[][] ids;
+    private byte[][] codes;
+    private int[] sizes;
+
+    // Number of lists probed per query
+    private int probes;
+
+    // Number of parallel threads
+    private int threads;
+
+    // Executor of the parallel searches
+    private ExecutorService executor;
+
+    /**
+     * A constructor initiating an index given its trained quantizers, the
+     * number of lists probed per query and the number of parallel threads.
+     *
+     * @param coarse the centroids of the coarse quantizer.
+     * @param pq the quantizer of the residuals.
+     * @param probes the number of lists probed per query.
+     * @param threads the number of parallel threads.
+     */
+    public IvfPqIndex(double[][] coarse, ProductQuantizer pq, int probes, int threads) {
+        this.coarse = coarse;
+        this.pq = pq;
+        this.probes = Math.max(1, Math.min(probes, coarse.length));
+        this.threads = Math.max(1, threads);
+
+        norms = new double[coarse.length];
+
+        for (int l = 0; l < coarse.length; l++) {
+            for (double component : coarse[l]) {
+                norms[l] += component * component;
+            }
+        }
+
+        ids = new int[coarse.length][];
+        codes = new byte[coarse.length][];
+        sizes = new int[coarse.length];
+
+        executor = Executors.newFixedThreadPool(this.threads);
+    }
+
+    /**
+     * A method training the coarse quantizer and the residual quantizer upon
+     * the given sample of vectors, returning an empty index.
+     *
+     * @param sample the training vectors.
+     * @param lists the number of inverted lists.
+     * @param m the number of sub-quantizers, the size of a code in bytes.
+     * @param ks the number of centroids per sub-quantizer, up to 256.
+     * @param iterations the maximum number of k-means iterations.
+     * @param probes the number of lists probed per query.
+     * @param threads the number of parallel threads.
+     * @param seed the seed number.
+     * @return the empty index.
+     * @throws Exception an exception thrown if the sample is too small.
+     */
+    public static IvfPqIndex train(double[][] sample, int lists, int m, int ks, int iterations, int probes, int threads, long seed) throws Exception {
+        // Training the coarse quantizer
+        KMeans kmeans = new KMeans(lists, iterations, 1e-4, threads, seed);
+
+        double[][] coarse = kmeans.lloyd(sample, kmeans.seedPlusPlus(sample));
+
+        IvfPqIndex index = new IvfPqIndex(coarse, new ProductQuantizer(sample[0].length, m, ks), probes, threads);
+
+        // Training the residual quantizer upon the residuals of the sample
+        double[][] residuals = new double[sample.length][];
+
+        for (int i = 0; i < sample.length; i++) {
+            int list = index.nearest(sample[i]);
+
+            residuals[i] = index.residual(sample[i], list);
+        }
+
+        index.pq.train(residuals, iterations, threads, seed);
+
+        return index;
+    }
+
+    /**
+     * A method adding the given vector under the given id, appended to the list
+     * of its nearest coarse centroid.
+     *
+     * @param id the id of the vector.
+     * @param vector the vector.
+     */
+    public void add(int id, double[] vector) {
+        int list = nearest(vector);
+
+        int m = pq.getSubquantizers();
+
+        // Growing the list by doubling its capacity
+        if (ids[list] == null) {
+            ids[list] = new int[INITIAL_CAPACITY];
+            codes[list] = new byte[INITIAL_CAPACITY * m];
+        } else if (sizes[list] == ids[list].length) {
+            ids[list] = Arrays.copyOf(ids[list], Math.max(INITIAL_CAPACITY, ids[list].length * 2));
+            codes[list] = Arrays.copyOf(codes[list], ids[list].length * m);
+        }
+
+        int position = sizes[list]++;
+
+        ids[list][position] = id;
+
+        pq.encode(residual(vector, list), codes[list], position * m);
+    }
+
+    @Override
+    public Neighbor[] search(double[] query, final int k) throws Exception {
+        final float[] q = toFloat(query);
+
+        final int[] probed = probe(query);
+
+        int size = Math.max(1, (probed.length + threads - 1) / threads);
+
+        List<Future<TopK>> futures = new ArrayList<Future<TopK>>();
+
+        for (int from = 0; from < probed.length; from += size) {
+            final int start = from;
+            final int end = Math.min(probed.length, from + size);
+
+            futures.add(executor.submit(new Callable<TopK>() {
+                @Override
+                public TopK call() {
+                    return scan(q, probed, start, end, k);
+                }
+            }));
+        }
+
+        // Merging the heaps of the probed lists
+        TopK top = new TopK(k);
+
+        for (Future<TopK> future : futures) {
+            top.merge(future.get());
+        }
+
+        return results(top);
+    }
+
+    @Override
+    public Neighbor[][] search(final double[][] queries, final int k, final long[] latencies) throws Exception {
+        final Neighbor[][] results = new Neighbor[queries.length][];
+
+        int size = Math.max(1, (queries.length + threads - 1) / threads);
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for (int from = 0; from < queries.length; from += size) {
+            final int start = from;
+            final int end = Math.min(queries.length, from + size);
+
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = start; i < end; i++) {
+                        long time = System.nanoTime();
+
+                        int[] probed = probe(queries[i]);
+
+                        results[i] = results(scan(toFloat(queries[i]), probed, 0, probed.length, k));
+
+                        if (latencies != null) {
+                            latencies[i] = System.nanoTime() - time;
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        return results;
+    }
+
+    /**
+     * A method scanning the given range of probed lists keeping the k codes of
+     * the lowest approximate distance.
+     *
+     * @param q the query vector.
+     * @param probed the probed lists.
+     * @param from the first probed list of the range.
+     * @param to the probed list after the last of the range.
+     * @param k the number of neighbors.
+     * @return the heap of the candidates, holding ids.
+     */
+    private TopK scan(float[] q, int[] probed, int from, int to, int k) {
+        TopK top = new TopK(k);
+
+        int m = pq.getSubquantizers();
+
+        float[] residual = new float[q.length];
+        float[] table = new float[m * pq.getCentroids()];
+
+        for (int p = from; p < to; p++) {
+            int list = probed[p];
+
+            if (sizes[list] == 0) {
+                continue;
+            }
+
+            // Computing the lookup table of the query residual
+            double[] centroid = coarse[list];
+
+            for (int j = 0; j < q.length; j++) {
+                residual[j] = (float) (q[j] - centroid[j]);
+            }
+
+            pq.table(residual, table);
+
+            int[] listIds = ids[list];
+            byte[] listCodes = codes[list];
+
+            float threshold = top.threshold();
+
+            for (int i = 0, offset = 0; i < sizes[list]; i++, offset += m) {
+                float distance = pq.distance(table, listCodes, offset);
+
+                if (distance < threshold) {
+                    top.offer(listIds[i], distance);
+
+                    threshold = top.threshold();
+                }
+            }
+        }
+
+        return top;
+    }
+
+    /**
+     * A method returning the lists of the coarse centroids nearest to the
+     * given query.
+     *
+     * @param query the query vector.
+     * @return the probed lists in ascending distance.
+     */
+    private int[] probe(double[] query) {
+        TopK top = new TopK(probes);
+
+        for (int l = 0; l < coarse.length; l++) {
+            top.offer(l, (float) (norms[l] - 2 * dot(coarse[l], query)));
+        }
+
+        return top.drain(new float[top.size()]);
+    }
+
+    /**
+     * A method returning the list of the coarse centroid nearest to the given
+     * vector.
+     *
+     * @param vector the vector.
+     * @return the nearest list.
+     */
+    private int nearest(double[] vector) {
+        int list = 0;
+
+        double min = Double.MAX_VALUE;
+
+        for (int l = 0; l < coarse.length; l++) {
+            double score = norms[l] - 2 * dot(coarse[l], vector);
+
+            if (score < min) {
+                min = score;
+                list = l;
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * A method returning the residual of the given vector to the centroid of
+     * the given list.
+     *
+     * @param vector the vector.
+     * @param list the list.
+     * @return the residual vector.
+     */
+    private double[] residual(double[] vector, int list) {
+        double[] residual = new double[vector.length];
+
+        for (int j = 0; j < vector.length; j++) {
+            residual[j] = vector[j] - coarse[list][j];
+        }
+
+        return residual;
+    }
+
+    /**
+     * A method converting the candidates of the given heap into neighbors.
+     *
+     * @param top the heap of the candidates.
+     * @return the neighbors in ascending approximate distance.
+     */
+    private static Neighbor[] results(TopK top) {
+        float[] distances = new float[top.size()];
+
+        int[] indices = top.drain(distances);
+
+        Neighbor[] neighbors = new Neighbor[indices.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            neighbors[i] = new Neighbor(indices[i], distances[i]);
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * A method converting the given query in single precision, checking its
+     * size against the index.
+     *
+     * @param query the query vector.
+     * @return the single precision query.
+     */
+    private float[] toFloat(double[] query) {
+        if (query.length != pq.getWidth()) {
+            throw new IllegalArgumentException("Query size does not match the indexed vectors: " + query.length + " <> " + pq.getWidth());
+        }
+
+        return ArrayOps.toFloat(query);
+    }
+
+    /**
+     * A method returning the inner product of the given vectors.
+     *
+     * @param a the first vector.
+     * @param b the second vector.
+     * @return the inner product.
+     */
+    private static double dot(double[] a, double[] b) {
+        double dot = 0;
+
+        for (int j = 0; j < a.length; j++) {
+            dot += a[j] * b[j];
+        }
+
+        return dot;
+    }
+
+    /**
+     * A method returning the number of vectors in the index.
+     *
+     * @return the number of vectors.
+     */
+    public long size() {
+        long size = 0;
+
+        for (int s : sizes) {
+            size += s;
+        }
+
+        return size;
+    }
+
+    /**
+     * A method writing the quantizers and the inverted lists in the given
+     * file.
+     *
+     * @param filepath the absolute path to the file.
+     * @throws IOException an unknown exception.
+     */
+    public void save(String filepath) throws IOException {
+        DataOutputStream out = null;
+
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filepath), 1 << 16));
+
+            out.writeInt(coarse.length);
+            out.writeInt(coarse[0].length);
+
+            for (double[] centroid : coarse) {
+                for (double component : centroid) {
+                    out.writeDouble(component);
+                }
+            }
+
+            pq.write(out);
+
+            int m = pq.getSubquantizers();
+
+            for (int l = 0; l < coarse.length; l++) {
+                out.writeInt(sizes[l]);
+
+                for (int i = 0; i < sizes[l]; i++) {
+                    out.writeInt(ids[l][i]);
+                }
+
+                if (sizes[l] > 0) {
+                    out.write(codes[l], 0, sizes[l] * m);
+                }
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * A method reading an index saved in the given file.
+     *
+     * @param filepath the absolute path to the file.
+     * @param probes the number of lists probed per query.
+     * @param threads the number of parallel threads.
+     * @return the index.
+     * @throws IOException an unknown exception.
+     */
+    public static IvfPqIndex load(String filepath, int probes, int threads) throws IOException {
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(filepath), 1 << 16));
+
+            double[][] coarse = new double[in.readInt()][in.readInt()];
+
+            for (double[] centroid : coarse) {
+                for (int j = 0; j < centroid.length; j++) {
+                    centroid[j] = in.readDouble();
+                }
+            }
+
+            IvfPqIndex index = new IvfPqIndex(coarse, ProductQuantizer.read(in), probes, threads);
+
+            try {
+                int m = index.pq.getSubquantizers();
+
+                for (int l = 0; l < coarse.length; l++) {
+                    int size = in.readInt();
+
+                    index.sizes[l] = size;
+                    index.ids[l] = new int[size];
+                    index.codes[l] = new byte[size * m];
+
+                    for (int i = 0; i < size; i++) {
+                        index.ids[l][i] = in.readInt();
+                    }
+
+                    in.readFully(index.codes[l]);
+                }
+            } catch (IOException exc) {
+                index.close();
+
+                throw exc;
+            }
+
+            return index;
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,33 @@
+package com.tkb.pandora.search;
+
+/**
+ * The similarity metrics vectors are searched by, either the squared Euclidean
+ * distance or the inner product.
+ *
+ * @author Akis Papadopoulos
+ */
+public enum Metric {
+
+    // Squared Euclidean distance, the lower the nearer
+    L2,
+
+    // Inner product, the higher the nearer
+    INNER_PRODUCT;
+
+    /**
+     * A method returning the metric given its case insensitive name, e.g. l2,
+     * ip or inner_product.
+     *
+     * @param name the name of the metric.
+     * @return the metric.
+     */
+    public static Metric parse(String name) {
+        name = name.trim().toUpperCase();
+
+        if (name.equals("IP")) {
+            return INNER_PRODUCT;
+        }
+
+        return valueOf(name);
+    }
+}
@@ -0,0 +1,46 @@
+package com.tkb.pandora.search;
+
+/**
+ * A search result holding the row index of a vector in the searched matrix and
+ * its score given the metric, either the squared Euclidean distance or the
+ * inner product to the query.
+ *
+ * @author Akis Papadopoulos
+ */
+public class Neighbor {
+
+    // Row index of the vector
+    private int index;
+
+    // Score of the vector
+    private double score;
+
+    /**
+     * A constructor creating a search result.
+     *
+     * @param index the row index of the vector.
+     * @param score the score of the vector.
+     */
+    public Neighbor(int index, double score) {
+        this.index = index;
+        this.score = score;
+    }
+
+    /**
+     * A method returning the row index of the vector.
+     *
+     * @return the row index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * A method returning the score of the vector.
+     *
+     * @return the score.
+     */
+    public double getScore() {
+        return score;
+    }
+}
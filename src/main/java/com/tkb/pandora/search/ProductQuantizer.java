@@ -0,0 +1,279 @@
+package com.tkb.pandora.search;
+
+import com.tkb.pandora.math.KMeans;
+import com.tkb.pandora.vector.Codebook;
+import com.tkb.pandora.vector.NormIndex;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A product quantizer splitting vectors into m sub-vectors of equal width, each
+ * quantized by its own codebook of up to 256 centroids, so a vector is encoded
+ * into m bytes. The squared distance of a query to an encoded vector is
+ * approximated asymmetrically as the sum of the distances of the query
+ * sub-vectors to the encoded centroids, read from a lookup table computed once
+ * per query.
+ *
+ * See more about product quantization:<br/>
+ * <em>H. Jégou, M. Douze and C. Schmid, Product quantization for nearest
+ * neighbor search, IEEE TPAMI 2011.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+public class ProductQuantizer {
+
+    // Width of the vectors
+    private int d;
+
+    // Number of sub-quantizers
+    private int m;
+
+    // Number of centroids per sub-quantizer
+    private int ks;
+
+    // Width of the sub-vectors
+    private int dsub;
+
+    // Codebooks of the sub-quantizers
+    private Codebook[] codebooks;
+
+    // Centroids of all sub-quantizers in a contiguous block
+    private float[] centroids;
+
+    /**
+     * A constructor initiating an untrained quantizer given the width of the
+     * vectors, the number of sub-quantizers and the number of centroids per
+     * sub-quantizer.
+     *
+     * @param d the width of the vectors.
+     * @param m the number of sub-quantizers, dividing the width.
+     * @param ks the number of centroids per sub-quantizer, up to 256.
+     */
+    public ProductQuantizer(int d, int m, int ks) {
+        if (m <= 0 || d % m != 0) {
+            throw new IllegalArgumentException("Number of sub-quantizers must divide the vector size: " + d + " % " + m);
+        }
+
+        if (ks <= 0 || ks > 256) {
+            throw new IllegalArgumentException("Number of centroids per sub-quantizer must be within [1, 256]: " + ks);
+        }
+
+        this.d = d;
+        this.m = m;
+        this.ks = ks;
+
+        dsub = d / m;
+    }
+
+    /**
+     * A method training the codebook of each sub-quantizer by k-means upon the
+     * respective sub-vectors of the given data.
+     *
+     * @param data the training vectors.
+     * @param iterations the maximum number of k-means iterations.
+     * @param threads the number of parallel threads.
+     * @param seed the seed number.
+     * @throws Exception an exception thrown if the data are less than the
+     * centroids per sub-quantizer.
+     */
+    public void train(double[][] data, int iterations, int threads, long seed) throws Exception {
+        double[][][] trained = new double[m][][];
+
+        for (int s = 0; s < m; s++) {
+            // Slicing the sub-vectors of the sub-quantizer
+            double[][] slices = new double[data.length][dsub];
+
+            for (int i = 0; i < data.length; i++) {
+                System.arraycopy(data[i], s * dsub, slices[i], 0, dsub);
+            }
+
+            KMeans kmeans = new KMeans(ks, iterations, 1e-4, threads, seed + s);
+
+            trained[s] = kmeans.lloyd(slices, kmeans.seedPlusPlus(slices));
+        }
+
+        setCentroids(trained);
+    }
+
+    /**
+     * A method encoding the given vector into m bytes at the given offset of
+     * the given code array.
+     *
+     * @param vector the vector.
+     * @param code the code array.
+     * @param offset the offset in the code array.
+     */
+    public void encode(double[] vector, byte[] code, int offset) {
+        double[] slice = new double[dsub];
+
+        for (int s = 0; s < m; s++) {
+            System.arraycopy(vector, s * dsub, slice, 0, dsub);
+
+            code[offset + s] = (byte) codebooks[s].getNearestCentroidIndex(slice);
+        }
+    }
+
+    /**
+     * A method decoding the vector encoded at the given offset of the given
+     * code array.
+     *
+     * @param code the code array.
+     * @param offset the offset in the code array.
+     * @return the decoded vector.
+     */
+    public double[] decode(byte[] code, int offset) {
+        double[] vector = new double[d];
+
+        for (int s = 0; s < m; s++) {
+            int base = (s * ks + (code[offset + s] & 0xFF)) * dsub;
+
+            for (int j = 0; j < dsub; j++) {
+                vector[s * dsub + j] = centroids[base + j];
+            }
+        }
+
+        return vector;
+    }
+
+    /**
+     * A method computing the lookup table of the squared distances of each
+     * query sub-vector to each centroid of the respective sub-quantizer, laid
+     * out as m consecutive rows of ks distances.
+     *
+     * @param query the query vector.
+     * @param table the table of m times ks distances to fill.
+     */
+    public void table(float[] query, float[] table) {
+        for (int s = 0, t = 0; s < m; s++) {
+            int from = s * dsub;
+
+            for (int c = 0; c < ks; c++, t++) {
+                int base = t * dsub;
+
+                float distance = 0;
+
+                for (int j = 0; j < dsub; j++) {
+                    float diff = query[from + j] - centroids[base + j];
+
+                    distance += diff * diff;
+                }
+
+                table[t] = distance;
+            }
+        }
+    }
+
+    /**
+     * A method returning the approximate squared distance of a query to the
+     * vector encoded at the given offset given the lookup table of the query.
+     *
+     * @param table the lookup table of the query.
+     * @param code the code array.
+     * @param offset the offset in the code array.
+     * @return the approximate squared distance.
+     */
+    public float distance(float[] table, byte[] code, int offset) {
+        float distance = 0;
+
+        for (int s = 0, base = 0; s < m; s++, base += ks) {
+            distance += table[base + (code[offset + s] & 0xFF)];
+        }
+
+        return distance;
+    }
+
+    /**
+     * A method returning the width of the vectors.
+     *
+     * @return the width of the vectors.
+     */
+    public int getWidth() {
+        return d;
+    }
+
+    /**
+     * A method returning the number of sub-quantizers, which is also the size
+     * of a code in bytes.
+     *
+     * @return the number of sub-quantizers.
+     */
+    public int getSubquantizers() {
+        return m;
+    }
+
+    /**
+     * A method returning the number of centroids per sub-quantizer.
+     *
+     * @return the number of centroids.
+     */
+    public int getCentroids() {
+        return ks;
+    }
+
+    /**
+     * A method writing the trained codebooks in the given stream.
+     *
+     * @param out the output stream.
+     * @throws IOException an unknown exception.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(d);
+        out.writeInt(m);
+        out.writeInt(ks);
+
+        for (float component : centroids) {
+            out.writeFloat(component);
+        }
+    }
+
+    /**
+     * A method reading a quantizer written in the given stream.
+     *
+     * @param in the input stream.
+     * @return the quantizer.
+     * @throws IOException an unknown exception.
+     */
+    public static ProductQuantizer read(DataInputStream in) throws IOException {
+        ProductQuantizer pq = new ProductQuantizer(in.readInt(), in.readInt(), in.readInt());
+
+        double[][][] trained = new double[pq.m][pq.ks][pq.dsub];
+
+        for (int s = 0; s < pq.m; s++) {
+            for (int c = 0; c < pq.ks; c++) {
+                for (int j = 0; j < pq.dsub; j++) {
+                    trained[s][c][j] = in.readFloat();
+                }
+            }
+        }
+
+        pq.setCentroids(trained);
+
+        return pq;
+    }
+
+    /**
+     * A method setting the centroids of the sub-quantizers, building their
+     * codebooks and the contiguous block of the lookup tables. Centroids are
+     * rounded to single precision in both, so encoding agrees with the tables.
+     *
+     * @param trained the centroids per sub-quantizer.
+     */
+    private void setCentroids(double[][][] trained) {
+        codebooks = new Codebook[m];
+        centroids = new float[m * ks * dsub];
+
+        for (int s = 0; s < m; s++) {
+            for (int c = 0; c < ks; c++) {
+                for (int j = 0; j < dsub; j++) {
+                    float component = (float) trained[s][c][j];
+
+                    trained[s][c][j] = component;
+                    centroids[(s * ks + c) * dsub + j] = component;
+                }
+            }
+
+            codebooks[s] = new Codebook(trained[s], new NormIndex(trained[s]));
+        }
+    }
+}
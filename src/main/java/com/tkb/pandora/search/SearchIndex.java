@@ -0,0 +1,41 @@
+package com.tkb.pandora.search;
+
+import java.io.Closeable;
+
+/**
+ * An index answering top k nearest neighbors queries upon a set of vectors,
+ * where neighbors are identified by the row index or the id the vectors were
+ * indexed with.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface SearchIndex extends Closeable {
+
+    /**
+     * A method returning the k nearest vectors to the given query.
+     *
+     * @param query the query vector.
+     * @param k the number of neighbors.
+     * @return the neighbors in descending similarity.
+     * @throws Exception an unknown exception.
+     */
+    public Neighbor[] search(double[] query, int k) throws Exception;
+
+    /**
+     * A method returning the k nearest vectors to each of the given queries.
+     *
+     * @param queries the query vectors.
+     * @param k the number of neighbors.
+     * @param latencies an array to store the search time of each query in
+     * nanoseconds, or null.
+     * @return the neighbors of each query in descending similarity.
+     * @throws Exception an unknown exception.
+     */
+    public Neighbor[][] search(double[][] queries, int k, long[] latencies) throws Exception;
+
+    /**
+     * A method releasing the threads of the index.
+     */
+    @Override
+    public void close();
+}
@@ -0,0 +1,152 @@
+package com.tkb.pandora.search;
+
+/**
+ * A bounded binary max-heap over primitive arrays keeping the k candidates of
+ * the lowest cost seen so far, where the root is the worst candidate kept so a
+ * new candidate is rejected by a single comparison in most cases.
+ *
+ * @author Akis Papadopoulos
+ */
+class TopK {
+
+    // Row indices of the candidates
+    private int[] indices;
+
+    // Costs of the candidates
+    private float[] costs;
+
+    // Number of candidates kept
+    private int size;
+
+    /**
+     * A constructor creating an empty heap of the given capacity.
+     *
+     * @param k the number of candidates to keep.
+     */
+    TopK(int k) {
+        indices = new int[k];
+        costs = new float[k];
+    }
+
+    /**
+     * A method returning the cost a candidate must be lower than to be kept.
+     *
+     * @return the threshold cost.
+     */
+    float threshold() {
+        return size < costs.length ? Float.MAX_VALUE : costs[0];
+    }
+
+    /**
+     * A method offering a candidate, kept only if among the k lowest costs.
+     *
+     * @param index the row index of the candidate.
+     * @param cost the cost of the candidate.
+     */
+    void offer(int index, float cost) {
+        if (size < costs.length) {
+            // Sifting up the new leaf
+            int i = size++;
+
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+
+                if (costs[parent] >= cost) {
+                    break;
+                }
+
+                indices[i] = indices[parent];
+                costs[i] = costs[parent];
+
+                i = parent;
+            }
+
+            indices[i] = index;
+            costs[i] = cost;
+        } else if (size > 0 && cost < costs[0]) {
+            sink(index, cost);
+        }
+    }
+
+    /**
+     * A method offering every candidate of the given heap.
+     *
+     * @param other the other heap.
+     */
+    void merge(TopK other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.indices[i], other.costs[i]);
+        }
+    }
+
+    /**
+     * A method returning the number of candidates kept.
+     *
+     * @return the number of candidates.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * A method returning the row indices of the candidates in ascending cost,
+     * emptying the heap. Costs are written in the given array in the same
+     * order.
+     *
+     * @param sorted the array to write the costs in ascending order.
+     * @return the row indices in ascending cost.
+     */
+    int[] drain(float[] sorted) {
+        int n = size;
+
+        int[] result = new int[n];
+
+        // Popping the worst candidate to the back each time
+        for (int r = n - 1; r >= 0; r--) {
+            result[r] = indices[0];
+            sorted[r] = costs[0];
+
+            size--;
+
+            if (size > 0) {
+                sink(indices[size], costs[size]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * A method replacing the root by the given candidate and sifting it down.
+     *
+     * @param index the row index of the candidate.
+     * @param cost the cost of the candidate.
+     */
+    private void sink(int index, float cost) {
+        int i = 0;
+
+        while (true) {
+            int child = 2 * i + 1;
+
+            if (child >= size) {
+                break;
+            }
+
+            if (child + 1 < size && costs[child + 1] > costs[child]) {
+                child++;
+            }
+
+            if (costs[child] <= cost) {
+                break;
+            }
+
+            indices[i] = indices[child];
+            costs[i] = costs[child];
+
+            i = child;
+        }
+
+        indices[i] = index;
+        costs[i] = cost;
+    }
+}
@@ -0,0 +1,163 @@
+package com.tkb.pandora.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * A matrix of single precision vectors stored off the heap in contiguous
+ * row-major blocks of direct memory, so millions of vectors can be held
+ * without adding to the garbage collected heap. The squared norm of each row
+ * is kept on the heap to speed up Euclidean scans.
+ *
+ * @author Akis Papadopoulos
+ */
+public class VectorMatrix {
+
+    // Maximum size in bytes of a single block
+    private static final long MAX_BLOCK_SIZE = 1L << 30;
+
+    // Blocks of rows in direct memory
+    private FloatBuffer[] blocks;
+
+    // Number of rows per block
+    private int blockRows;
+
+    // Squared norms of the rows
+    private float[] norms;
+
+    // Number of rows and columns
+    private int rows;
+    private int cols;
+
+    /**
+     * A constructor allocating a zero filled matrix of the given shape.
+     *
+     * @param rows the number of rows.
+     * @param cols the number of columns.
+     */
+    public VectorMatrix(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+
+        blockRows = (int) Math.max(1, Math.min(rows, MAX_BLOCK_SIZE / (4L * Math.max(1, cols))));
+
+        blocks = new FloatBuffer[(rows + blockRows - 1) / blockRows];
+
+        for (int b = 0; b < blocks.length; b++) {
+            int count = Math.min(blockRows, rows - b * blockRows);
+
+            blocks[b] = ByteBuffer.allocateDirect(count * cols * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+
+        norms = new float[rows];
+    }
+
+    /**
+     * A method setting the given vector as the row at the given index.
+     *
+     * @param row the index of the row.
+     * @param vector the vector.
+     */
+    public void set(int row, double[] vector) {
+        if (vector.length != cols) {
+            throw new IllegalArgumentException("Vector size does not match the matrix columns: " + vector.length + " <> " + cols);
+        }
+
+        FloatBuffer block = blocks[row / blockRows];
+
+        int offset = (row % blockRows) * cols;
+
+        double norm = 0;
+
+        for (int j = 0; j < cols; j++) {
+            float component = (float) vector[j];
+
+            block.put(offset + j, component);
+
+            norm += component * component;
+        }
+
+        norms[row] = (float) norm;
+    }
+
+    /**
+     * A method returning the row at the given index.
+     *
+     * @param row the index of the row.
+     * @return the vector.
+     */
+    public float[] get(int row) {
+        float[] vector = new float[cols];
+
+        FloatBuffer block = blocks[row / blockRows];
+
+        int offset = (row % blockRows) * cols;
+
+        for (int j = 0; j < cols; j++) {
+            vector[j] = block.get(offset + j);
+        }
+
+        return vector;
+    }
+
+    /**
+     * A method returning the inner product of the row at the given index with
+     * the given vector.
+     *
+     * @param row the index of the row.
+     * @param vector the vector.
+     * @return the inner product.
+     */
+    public float dot(int row, float[] vector) {
+        FloatBuffer block = blocks[row / blockRows];
+
+        int offset = (row % blockRows) * cols;
+
+        // Unrolling by four independent partial sums
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        int j = 0;
+
+        for (; j + 3 < cols; j += 4) {
+            s0 += block.get(offset + j) * vector[j];
+            s1 += block.get(offset + j + 1) * vector[j + 1];
+            s2 += block.get(offset + j + 2) * vector[j + 2];
+            s3 += block.get(offset + j + 3) * vector[j + 3];
+        }
+
+        for (; j < cols; j++) {
+            s0 += block.get(offset + j) * vector[j];
+        }
+
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * A method returning the squared norm of the row at the given index.
+     *
+     * @param row the index of the row.
+     * @return the squared norm.
+     */
+    public float norm(int row) {
+        return norms[row];
+    }
+
+    /**
+     * A method returning the number of rows.
+     *
+     * @return the number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * A method returning the number of columns.
+     *
+     * @return the number of columns.
+     */
+    public int getCols() {
+        return cols;
+    }
+}
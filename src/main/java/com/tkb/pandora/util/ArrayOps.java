@@ -378,4 +378,48 @@ public final class ArrayOps {
 
         return result;
     }
+
+    /**
+     * A method down casts an array of doubles to floats.
+     *
+     * @param array an array of doubles.
+     * @return an array of floats.
+     */
+    public static float[] toFloat(final double[] array) {
+        if (array == null) {
+            return null;
+        } else if (array.length == 0) {
+            return new float[0];
+        }
+
+        final float[] result = new float[array.length];
+
+        for (int i = 0; i < array.length; i++) {
+            result[i] = (float) array[i];
+        }
+
+        return result;
+    }
+
+    /**
+     * A method down casts a 2d array of doubles to floats.
+     *
+     * @param array an array of doubles.
+     * @return an array of floats.
+     */
+    public static float[][] toFloat(final double[][] array) {
+        if (array == null) {
+            return null;
+        } else if (array.length == 0) {
+            return new float[0][];
+        }
+
+        final float[][] result = new float[array.length][];
+
+        for (int i = 0; i < array.length; i++) {
+            result[i] = toFloat(array[i]);
+        }
+
+        return result;
+    }
 }
@@ -15,4 +15,22 @@ public interface Aggregator {
      * @return a fixed size vector.
      */
     public double[] aggregate(double[][] descriptors);
+
+    /**
+     * A method aggregates local descriptors into the given caller owned
+     * vector starting at the given offset, overwriting the components in
+     * place without allocating, so a vector can be reused across images.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param vector the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    public void aggregate(double[][] descriptors, double[] vector, int offset);
+
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    public int getSize();
 }
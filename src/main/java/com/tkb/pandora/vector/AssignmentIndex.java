@@ -0,0 +1,30 @@
+package com.tkb.pandora.vector;
+
+/**
+ * An interface to implement an index over the centroids of a codebook in order
+ * to assign descriptors to their nearest centroid.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface AssignmentIndex {
+
+    /**
+     * A method returning the index of the nearest centroid to the given
+     * descriptor, which may be approximate depending on the implementation.
+     *
+     * @param descriptor the descriptor.
+     * @return the index of the nearest centroid.
+     */
+    public int assign(double[] descriptor);
+
+    /**
+     * A method assigning each of the given descriptors at once to the index
+     * of its nearest centroid, which may be approximate depending on the
+     * implementation.
+     *
+     * @param descriptors the descriptors.
+     * @param out the array to store the index of the nearest centroid of each
+     * descriptor, sized at least to the number of descriptors.
+     */
+    public void assign(double[][] descriptors, int[] out);
+}
@@ -1,6 +1,8 @@
 package com.tkb.pandora.vector;
 
 import com.tkb.pandora.math.Normalizer;
+import com.tkb.pandora.math.SparseVector;
+import java.util.Arrays;
 
 /**
  * An aggregator implementing the bags of words method to produce a fixed size
@@ -23,9 +25,26 @@ public class BowAggregator implements Aggregator {
     // Vocabulary codebooks
     private Codebook[] codebooks;
 
+    // Number of nearest words each descriptor is assigned to
+    private int neighbors = 1;
+
+    // Bandwidth of the gaussian kernel weighting the nearest words
+    private double sigma;
+
     // Normalization
     private boolean normalize = true;
 
+    // Size of the aggregated vectors
+    private int size;
+
+    // Buffers of the aggregation per thread
+    private ThreadLocal<Scratch> scratches = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch(0, neighbors > 1 ? new SoftAssignment(neighbors, sigma) : null);
+        }
+    };
+
     /**
      * A constructor initiating the vocabulary codebooks of centroid words plus
      * the normalization option. Be aware codebooks order matters.
@@ -34,9 +53,36 @@ public class BowAggregator implements Aggregator {
      * @param normalize the option to normalize.
      */
     public BowAggregator(Codebook[] codebooks, boolean normalize) {
+        this(codebooks, 1, 1.0, normalize);
+    }
+
+    /**
+     * A constructor initiating the vocabulary codebooks of centroid words, the
+     * number of the nearest words each descriptor is softly assigned to along
+     * with the bandwidth of the gaussian kernel weighting them, plus the
+     * normalization option. Be aware codebooks order matters.
+     *
+     * @param codebooks the vocabulary codebooks.
+     * @param neighbors the number of nearest words, 1 for hard assignment.
+     * @param sigma the bandwidth of the kernel, positive in soft assignment.
+     * @param normalize the option to normalize.
+     */
+    public BowAggregator(Codebook[] codebooks, int neighbors, double sigma, boolean normalize) {
         this.codebooks = codebooks;
 
+        this.neighbors = Math.max(1, neighbors);
+        this.sigma = sigma;
+
+        if (this.neighbors > 1 && !(sigma > 0)) {
+            throw new IllegalArgumentException("Bandwidth of the soft assignment must be positive: " + sigma);
+        }
+
         this.normalize = normalize;
+
+        // Calculating the final vector size regarding the number of codebooks their size and width
+        for (Codebook codebook : codebooks) {
+            size += codebook.getSize();
+        }
     }
 
     /**
@@ -48,46 +94,187 @@ public class BowAggregator implements Aggregator {
      */
     @Override
     public double[] aggregate(double[][] descriptors) {
-        // Calculating the final vector size
-        int size = 0;
+        double[] bow = new double[size];
 
-        // Regarding the number of codebooks and their codebook size
-        for (Codebook codebook : codebooks) {
-            size += codebook.getSize();
-        }
+        aggregate(descriptors, bow, 0);
 
-        double[] bow = new double[size];
+        return bow;
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into the given vector starting at the given offset, where
+     * each subvector is accumulated and normalized in place.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param bow the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    @Override
+    public void aggregate(double[][] descriptors, double[] bow, int offset) {
+        Arrays.fill(bow, offset, offset + size, 0);
 
-        int offset = 0;
+        int start = offset;
+
+        // Nearest centroid index of each descriptor along with the soft assignment, owned by the calling thread
+        Scratch scratch = scratches.get();
+
+        int[] nearest = scratch.getNearest(descriptors.length);
+
+        // Nearest centroids and weights of the current descriptor in soft assignment
+        SoftAssignment soft = scratch.soft;
 
         // Regarding each codebook
         for (Codebook codebook : codebooks) {
-            // Building the bow subvector
-            double[] subvector = new double[codebook.getSize()];
-
-            // Increasing nearest centroid's frequency for each descriptor
-            for (double[] descriptor : descriptors) {
-                int index = codebook.getNearestCentroidIndex(descriptor);
-                
-                subvector[index]++;
+            if (soft != null) {
+                // Increasing nearest centroids' frequencies by their weights for each descriptor
+                for (double[] descriptor : descriptors) {
+                    int count = soft.assign(codebook, descriptor);
+
+                    for (int i = 0; i < count; i++) {
+                        bow[start + soft.getIndex(i)] += soft.getWeight(i);
+                    }
+                }
+            } else {
+                codebook.assign(descriptors, nearest);
+
+                // Increasing nearest centroid's frequency for each descriptor
+                for (int n = 0; n < descriptors.length; n++) {
+                    bow[start + nearest[n]]++;
+                }
             }
 
-            // Normalize using Power and Euclidean l2 norms
+            int end = start + codebook.getSize();
+
+            // Normalize subvector using Power and Euclidean l2 norms
             if (normalize) {
-                Normalizer.power(subvector, 0.5);
-                Normalizer.euclidean(subvector);
+                Normalizer.power(bow, start, end, 0.5);
+                Normalizer.euclidean(bow, start, end);
             }
 
-            // Concatenate the subvector
-            System.arraycopy(subvector, 0, bow, offset, subvector.length);
-            offset += subvector.length;
+            start = end;
         }
 
         // Normalizing final vector only in case of multiple vocabularies
         if (codebooks.length > 1 && normalize) {
-            Normalizer.euclidean(bow);
+            Normalizer.euclidean(bow, offset, offset + size);
         }
+    }
 
-        return bow;
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into a sparse vector, holding only the words hit by the
+     * descriptors instead of the whole vocabularies. The vector equals the one
+     * aggregated in dense form apart from the single precision of its values.
+     *
+     * @param descriptors the list of local descriptors.
+     * @return a sparse vector.
+     */
+    public SparseVector aggregateSparse(double[][] descriptors) {
+        // Normalizing an empty vector fills it up, so falling back to the dense form
+        if (descriptors.length == 0 && normalize) {
+            return SparseVector.of(aggregate(descriptors));
+        }
+
+        // Words hit paired with the position of their weight, so sorting the pairs groups each word
+        long[] keys = new long[codebooks.length * descriptors.length * neighbors];
+        double[] weights = new double[keys.length];
+
+        int count = 0;
+        int start = 0;
+
+        // Nearest centroid index of each descriptor along with the soft assignment, owned by the calling thread
+        Scratch scratch = scratches.get();
+
+        int[] nearest = scratch.getNearest(descriptors.length);
+
+        // Nearest centroids and weights of the current descriptor in soft assignment
+        SoftAssignment soft = scratch.soft;
+
+        // Regarding each codebook
+        for (Codebook codebook : codebooks) {
+            if (soft != null) {
+                for (double[] descriptor : descriptors) {
+                    int assigned = soft.assign(codebook, descriptor);
+
+                    for (int i = 0; i < assigned; i++) {
+                        keys[count] = ((long) (start + soft.getIndex(i)) << 32) | count;
+                        weights[count++] = soft.getWeight(i);
+                    }
+                }
+            } else {
+                codebook.assign(descriptors, nearest);
+
+                for (int n = 0; n < descriptors.length; n++) {
+                    keys[count] = ((long) (start + nearest[n]) << 32) | count;
+                    weights[count++] = 1;
+                }
+            }
+
+            start += codebook.getSize();
+        }
+
+        Arrays.sort(keys, 0, count);
+
+        // Summing up the frequencies of each distinct word
+        int[] indices = new int[count];
+        double[] frequencies = new double[count];
+
+        int hits = 0;
+
+        for (int m = 0; m < count; m++) {
+            int word = (int) (keys[m] >>> 32);
+            double weight = weights[(int) keys[m]];
+
+            if (hits > 0 && indices[hits - 1] == word) {
+                frequencies[hits - 1] += weight;
+            } else {
+                indices[hits] = word;
+                frequencies[hits++] = weight;
+            }
+        }
+
+        if (normalize) {
+            int end = 0;
+
+            // Normalize subvector of each codebook using Power and Euclidean l2 norms
+            for (int c = 0, from = 0; c < codebooks.length; c++) {
+                end += codebooks[c].getSize();
+
+                int to = from;
+
+                while (to < hits && indices[to] < end) {
+                    to++;
+                }
+
+                Normalizer.power(frequencies, from, to, 0.5);
+                Normalizer.euclidean(frequencies, from, to);
+
+                from = to;
+            }
+
+            // Normalizing final vector only in case of multiple vocabularies
+            if (codebooks.length > 1) {
+                Normalizer.euclidean(frequencies, 0, hits);
+            }
+        }
+
+        float[] values = new float[hits];
+
+        for (int n = 0; n < hits; n++) {
+            values[n] = (float) frequencies[n];
+        }
+
+        return new SparseVector(size, Arrays.copyOf(indices, hits), values);
+    }
+
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    @Override
+    public int getSize() {
+        return size;
     }
 }
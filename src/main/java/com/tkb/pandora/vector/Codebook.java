@@ -1,5 +1,7 @@
 package com.tkb.pandora.vector;
 
+import com.tkb.pandora.math.Kernel;
+
 /**
  * A vocabulary codebook of centroids extracted after applying clustering on a
  * given dataset of local descriptors.
@@ -11,16 +13,35 @@ package com.tkb.pandora.vector;
  */
 public class Codebook {
 
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
     // Centroids
     private double[][] centroids;
 
+    // Nearest centroid assignment index
+    private AssignmentIndex index;
+
     /**
-     * A constructor initiating the codebook with the given set of centroids.
+     * A constructor initiating the codebook with the given set of centroids,
+     * assigning descriptors by a linear scan over the centroids.
      *
      * @param centroids the set of centroids.
      */
     public Codebook(double[][] centroids) {
+        this(centroids, new LinearIndex(centroids));
+    }
+
+    /**
+     * A constructor initiating the codebook with the given set of centroids
+     * and the index assigning descriptors to centroids.
+     *
+     * @param centroids the set of centroids.
+     * @param index the assignment index built upon the centroids.
+     */
+    public Codebook(double[][] centroids, AssignmentIndex index) {
         this.centroids = centroids;
+        this.index = index;
     }
 
     /**
@@ -73,40 +94,80 @@ public class Codebook {
         return centroids[i][j];
     }
 
+    /**
+     * A method returns the index assigning descriptors to centroids.
+     *
+     * @return the assignment index.
+     */
+    public AssignmentIndex getIndex() {
+        return index;
+    }
+
     /**
      * A method computes the index of the Euclidean nearest centroid to the
-     * given descriptor.
+     * given descriptor using the assignment index of the codebook.
      *
      * @param descriptor the descriptor.
      * @return the index of the nearest centroid.
      */
     public int getNearestCentroidIndex(double[] descriptor) {
-        int index = -1;
+        return index.assign(descriptor);
+    }
 
-        double min = Double.MAX_VALUE;
+    /**
+     * A method computes the indices of the Euclidean nearest centroids to the
+     * given descriptors at once using the assignment index of the codebook.
+     *
+     * @param descriptors the descriptors.
+     * @param out the array to store the index of the nearest centroid of each
+     * descriptor, sized at least to the number of descriptors.
+     */
+    public void assign(double[][] descriptors, int[] out) {
+        index.assign(descriptors, out);
+    }
+
+    /**
+     * A method computes the indices of the k Euclidean nearest centroids to the
+     * given descriptor in ascending distance order by a linear scan. The k
+     * nearest so far are kept in a bounded insertion list instead of sorting
+     * all the distances, where the distance to the k-th nearest so far bounds
+     * the distance computation of the rest of the centroids.
+     *
+     * @param descriptor the descriptor.
+     * @param k the number of the nearest centroids.
+     * @param indices the array to store the indices of the nearest centroids.
+     * @param distances the array to store the distances to the nearest
+     * centroids.
+     * @return the number of the nearest centroids found, up to k.
+     */
+    public int getNearestCentroidIndices(double[] descriptor, int k, int[] indices, double[] distances) {
+        int count = 0;
 
-        // Calculating the euclidean distance per centroid
         for (int i = 0; i < centroids.length; i++) {
-            double distance = 0;
+            // Breaking the distance computation when it exceeds the k-th nearest so far
+            double bound = count < k ? Double.POSITIVE_INFINITY : distances[k - 1];
 
-            for (int j = 0; j < descriptor.length; j++) {
-                distance += Math.pow(centroids[i][j] - descriptor[j], 2);
+            double distance = KERNEL.distance(descriptor, centroids[i], bound);
 
-                // Breaking inner loop when distance exceeds minimum
-                if (distance >= min) {
-                    break;
-                }
+            if (distance >= bound) {
+                continue;
             }
 
-            // Saving lowest distance and centroid index so far
-            if (distance < min) {
-                min = distance;
+            // Shifting the farther neighbors to insert the centroid in order
+            int pos = count < k ? count++ : k - 1;
 
-                index = i;
+            while (pos > 0 && distances[pos - 1] > distance) {
+                distances[pos] = distances[pos - 1];
+                indices[pos] = indices[pos - 1];
+
+                pos--;
             }
+
+            distances[pos] = distance;
+            indices[pos] = i;
         }
 
-        return index;
+        return count;
     }
 
     /**
@@ -118,12 +179,6 @@ public class Codebook {
      * @return the Euclidean distance.
      */
     public double getDistance(double[] descriptor, int index) {
-        double distance = 0;
-
-        for (int j = 0; j < descriptor.length; j++) {
-            distance += Math.pow(centroids[index][j] - descriptor[j], 2);
-        }
-
-        return distance;
+        return KERNEL.distance(descriptor, centroids[index], Double.POSITIVE_INFINITY);
     }
 }
@@ -0,0 +1,291 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Kernel;
+import com.tkb.pandora.math.Normalizer;
+import com.tkb.pandora.math.ProjectionSpace;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An aggregator implementing the compact vlat method, where the residuals of
+ * each visual word are projected onto a low rank basis learned per word before
+ * the tensor product, so a word takes r + r x r components instead of d + d x
+ * d. Optionally only the upper triangle of the symmetric r x r tensor is kept,
+ * where the off-diagonal components are scaled by sqrt(2) so inner products
+ * between the raw tensors remain the same as for the full tensor.
+ *
+ * See more about compact vlat method:<br/>
+ * <em>R. Negrel, D. Picard and P.H. Gosselin, Compact tensor based image
+ * representation for similarity search, 19th IEEE International Conference on
+ * Image Processing (ICIP), 2012.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+public class CompactVlatAggregator implements Aggregator {
+
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
+    // Scale of the off-diagonal components of the upper triangle
+    private static final double SQRT2 = Math.sqrt(2);
+
+    // Vocabulary codebooks
+    private Codebook[] codebooks;
+
+    // Bases per codebook, r rows of width d per visual word in order
+    private double[][][] bases;
+
+    // Rank of the bases
+    private int rank;
+
+    // Upper triangle of the tensor only
+    private boolean triangle;
+
+    // Normalization
+    private boolean normalize = true;
+
+    // Size of the aggregated vectors
+    private int size;
+
+    // Buffers of the aggregation per thread, the residual sized to the widest codebook
+    private ThreadLocal<Scratch> scratches;
+
+    /**
+     * A constructor initiating the vocabulary codebooks along with the bases
+     * of their visual words plus the normalization option. Be aware codebooks
+     * order matters.
+     *
+     * @param codebooks the vocabulary codebooks.
+     * @param bases the bases per codebook, each one holding in order the r
+     * rows of the basis of every visual word.
+     * @param triangle true to keep only the upper triangle of the tensor.
+     * @param normalize the option to normalize.
+     */
+    public CompactVlatAggregator(Codebook[] codebooks, double[][][] bases, boolean triangle, boolean normalize) {
+        this.codebooks = codebooks;
+        this.bases = bases;
+        this.triangle = triangle;
+
+        this.normalize = normalize;
+
+        rank = bases[0].length / codebooks[0].getSize();
+
+        // Calculating the final vector size regarding the number of codebooks their size and the rank
+        int width = 0;
+
+        for (int c = 0; c < codebooks.length; c++) {
+            if (bases[c].length != codebooks[c].getSize() * rank || bases[c][0].length != codebooks[c].getWidth()) {
+                throw new IllegalArgumentException("Basis size mismatch for codebook " + (c + 1) + ": " + bases[c].length + "x" + bases[c][0].length);
+            }
+
+            size += codebooks[c].getSize() * getWordSize();
+
+            width = Math.max(width, codebooks[c].getWidth());
+        }
+
+        // Sizing the residual of each thread to the widest codebook
+        final int max = width;
+
+        scratches = new ThreadLocal<Scratch>() {
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch(max, rank, null);
+            }
+        };
+    }
+
+    /**
+     * A method learning the bases of the visual words of the given codebook,
+     * as the most dominant principal components of the residuals of the
+     * sample descriptors assigned to each word. Words with less than two
+     * residuals fall back to the first axes of the descriptor space.
+     *
+     * @param codebook the codebook.
+     * @param sample the sample descriptors.
+     * @param rank the rank of the bases.
+     * @return the r rows of the basis of every visual word in order.
+     * @throws Exception an unknown exception.
+     */
+    public static double[][] train(Codebook codebook, double[][] sample, int rank) throws Exception {
+        int k = codebook.getSize();
+        int d = codebook.getWidth();
+
+        if (rank < 1 || rank > d) {
+            throw new IllegalArgumentException("Rank must be within [1, " + d + "]: " + rank);
+        }
+
+        // Grouping the residuals per visual word
+        List<List<double[]>> residuals = new ArrayList<List<double[]>>();
+
+        for (int w = 0; w < k; w++) {
+            residuals.add(new ArrayList<double[]>());
+        }
+
+        for (double[] descriptor : sample) {
+            int nnk = codebook.getNearestCentroidIndex(descriptor);
+
+            double[] centroid = codebook.getCentroid(nnk);
+            double[] residual = new double[d];
+
+            for (int i = 0; i < d; i++) {
+                residual[i] = descriptor[i] - centroid[i];
+            }
+
+            residuals.get(nnk).add(residual);
+        }
+
+        double[][] basis = new double[k * rank][];
+
+        for (int w = 0; w < k; w++) {
+            List<double[]> data = residuals.get(w);
+
+            double[][] word;
+
+            if (data.size() < 2) {
+                word = new double[rank][d];
+
+                for (int i = 0; i < rank; i++) {
+                    word[i][i] = 1;
+                }
+            } else {
+                word = new ProjectionSpace(data.toArray(new double[data.size()][]), false, false).getBasis(rank);
+            }
+
+            System.arraycopy(word, 0, basis, w * rank, rank);
+        }
+
+        return basis;
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into a fixed size vector.
+     *
+     * @param descriptors the list of local descriptors.
+     * @return a fixed size vector.
+     */
+    @Override
+    public double[] aggregate(double[][] descriptors) {
+        double[] vlat = new double[size];
+
+        aggregate(descriptors, vlat, 0);
+
+        return vlat;
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into the given vector starting at the given offset, where
+     * each subvector is accumulated and normalized in place.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param vlat the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    @Override
+    public void aggregate(double[][] descriptors, double[] vlat, int offset) {
+        Arrays.fill(vlat, offset, offset + size, 0);
+
+        int start = offset;
+
+        int r = rank;
+        int wordSize = getWordSize();
+
+        // Residual and projected residual of the current descriptor along with the nearest centroid index of each descriptor, owned by the calling thread
+        Scratch scratch = scratches.get();
+
+        double[] residual = scratch.residual;
+        double[] projected = scratch.projected;
+        int[] nearest = scratch.getNearest(descriptors.length);
+
+        // Regarding each codebook
+        for (int c = 0; c < codebooks.length; c++) {
+            Codebook codebook = codebooks[c];
+
+            int d = codebook.getWidth();
+
+            // Finding the nearest centroid index of all the descriptors at once
+            codebook.assign(descriptors, nearest);
+
+            for (int n = 0; n < descriptors.length; n++) {
+                double[] descriptor = descriptors[n];
+
+                int nnk = nearest[n];
+
+                double[] centroid = codebook.getCentroid(nnk);
+
+                for (int i = 0; i < d; i++) {
+                    residual[i] = descriptor[i] - centroid[i];
+                }
+
+                // Projecting the residual onto the basis of the visual word
+                for (int i = 0; i < r; i++) {
+                    projected[i] = KERNEL.dot(bases[c][nnk * r + i], 0, residual, d);
+                }
+
+                int base = start + nnk * wordSize;
+
+                // Setting the 1st term components size of r
+                for (int i = 0; i < r; i++) {
+                    vlat[base + i] += projected[i];
+                }
+
+                // Setting the 2nd term components of the tensor product, either full or upper triangle
+                int index = base + r;
+
+                for (int i = 0; i < r; i++) {
+                    double p = projected[i];
+
+                    if (triangle) {
+                        vlat[index++] += p * p;
+
+                        p *= SQRT2;
+
+                        for (int j = i + 1; j < r; j++) {
+                            vlat[index++] += p * projected[j];
+                        }
+                    } else {
+                        for (int j = 0; j < r; j++) {
+                            vlat[index++] += p * projected[j];
+                        }
+                    }
+                }
+            }
+
+            int end = start + codebook.getSize() * wordSize;
+
+            // Normalize subvector using Power and Euclidean l2 norms
+            if (normalize) {
+                Normalizer.power(vlat, start, end, 0.5);
+                Normalizer.euclidean(vlat, start, end);
+            }
+
+            start = end;
+        }
+
+        // Normalizing final vector only in case of multiple vocabularies
+        if (codebooks.length > 1 && normalize) {
+            Normalizer.euclidean(vlat, offset, offset + size);
+        }
+    }
+
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * A method returns the number of components per visual word.
+     *
+     * @return the number of components per word.
+     */
+    private int getWordSize() {
+        return rank + (triangle ? rank * (rank + 1) / 2 : rank * rank);
+    }
+}
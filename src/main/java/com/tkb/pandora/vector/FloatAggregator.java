@@ -0,0 +1,36 @@
+package com.tkb.pandora.vector;
+
+/**
+ * An interface to aggregate single precision local descriptors extracted from
+ * a media item into a fixed size single precision vector.
+ *
+ * @author Akis Papadopoulos
+ */
+public interface FloatAggregator {
+
+    /**
+     * A method aggregates local descriptors into a fixed size vector.
+     *
+     * @param descriptors the list of local descriptors.
+     * @return a fixed size vector.
+     */
+    public float[] aggregate(float[][] descriptors);
+
+    /**
+     * A method aggregates local descriptors into the given caller owned
+     * vector starting at the given offset, overwriting the components in
+     * place without allocating, so a vector can be reused across images.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param vector the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    public void aggregate(float[][] descriptors, float[] vector, int offset);
+
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    public int getSize();
+}
@@ -0,0 +1,107 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Normalizer;
+import java.util.Arrays;
+
+/**
+ * An aggregator implementing the bags of words method in single precision,
+ * producing the same normalized (power, l2) vector as the bow aggregator for
+ * single or multiple vocabularies while halving the memory and the bandwidth
+ * of the descriptors, the codebooks and the aggregated vectors.
+ *
+ * @author Akis Papadopoulos
+ */
+public class FloatBowAggregator implements FloatAggregator {
+
+    // Vocabulary codebooks
+    private FloatCodebook[] codebooks;
+
+    // Normalization
+    private boolean normalize = true;
+
+    // Size of the aggregated vectors
+    private int size;
+
+    /**
+     * A constructor initiating the vocabulary codebooks of centroid words plus
+     * the normalization option. Be aware codebooks order matters.
+     *
+     * @param codebooks the vocabulary codebooks.
+     * @param normalize the option to normalize.
+     */
+    public FloatBowAggregator(FloatCodebook[] codebooks, boolean normalize) {
+        this.codebooks = codebooks;
+
+        this.normalize = normalize;
+
+        // Calculating the final vector size regarding the number of codebooks their size and width
+        for (FloatCodebook codebook : codebooks) {
+            size += codebook.getSize();
+        }
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into a fixed size vector.
+     *
+     * @param descriptors the list of local descriptors.
+     * @return a fixed size vector.
+     */
+    @Override
+    public float[] aggregate(float[][] descriptors) {
+        float[] bow = new float[size];
+
+        aggregate(descriptors, bow, 0);
+
+        return bow;
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into the given vector starting at the given offset, where
+     * each subvector is accumulated and normalized in place.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param bow the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    @Override
+    public void aggregate(float[][] descriptors, float[] bow, int offset) {
+        Arrays.fill(bow, offset, offset + size, 0);
+
+        int start = offset;
+
+        // Regarding each codebook
+        for (FloatCodebook codebook : codebooks) {
+            // Increasing nearest centroid's frequency for each descriptor
+            for (float[] descriptor : descriptors) {
+                bow[start + codebook.getNearestCentroidIndex(descriptor)]++;
+            }
+
+            int end = start + codebook.getSize();
+
+            // Normalize subvector using Power and Euclidean l2 norms
+            if (normalize) {
+                Normalizer.power(bow, start, end, 0.5);
+                Normalizer.euclidean(bow, start, end);
+            }
+
+            start = end;
+        }
+
+        // Normalizing final vector only in case of multiple vocabularies
+        if (codebooks.length > 1 && normalize) {
+            Normalizer.euclidean(bow, offset, offset + size);
+        }
+    }
+
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,135 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Kernel;
+
+/**
+ * A vocabulary codebook of centroids held in single precision, assigning
+ * single precision descriptors by a linear scan over the centroids.
+ *
+ * @author Akis Papadopoulos
+ */
+public class FloatCodebook {
+
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
+    // Centroids
+    private float[][] centroids;
+
+    /**
+     * A constructor initiating the codebook with the given set of centroids.
+     *
+     * @param centroids the set of centroids.
+     */
+    public FloatCodebook(float[][] centroids) {
+        this.centroids = centroids;
+    }
+
+    /**
+     * A constructor initiating the codebook with the given set of double
+     * precision centroids, down cast to single precision.
+     *
+     * @param centroids the set of centroids.
+     */
+    public FloatCodebook(double[][] centroids) {
+        this.centroids = new float[centroids.length][];
+
+        for (int i = 0; i < centroids.length; i++) {
+            this.centroids[i] = new float[centroids[i].length];
+
+            for (int j = 0; j < centroids[i].length; j++) {
+                this.centroids[i][j] = (float) centroids[i][j];
+            }
+        }
+    }
+
+    /**
+     * A methods returns the size of the codebook as the number of the
+     * centroids.
+     *
+     * @return the size of the codebook.
+     */
+    public int getSize() {
+        return centroids.length;
+    }
+
+    /**
+     * A method returns the width of the codebook as the size of the centroid
+     * vectors.
+     *
+     * @return the size of the centroid vectors.
+     */
+    public int getWidth() {
+        return centroids[0].length;
+    }
+
+    /**
+     * A methods returns the set of centroids of the codebook.
+     *
+     * @return the set of centroids.
+     */
+    public float[][] getCentroids() {
+        return centroids;
+    }
+
+    /**
+     * A method returns the centroid located at the given index.
+     *
+     * @param index the index of the centroid.
+     * @return the centroid vector at the given index.
+     */
+    public float[] getCentroid(int index) {
+        return centroids[index];
+    }
+
+    /**
+     * A method returns the j-th component of the i-th centroid.
+     *
+     * @param i the index of the centroid.
+     * @param j the index of the component.
+     * @return the component of the centroid.
+     */
+    public float getComponent(int i, int j) {
+        return centroids[i][j];
+    }
+
+    /**
+     * A method computes the index of the Euclidean nearest centroid to the
+     * given descriptor, breaking the distance computation of a centroid as
+     * soon as it exceeds the minimum so far.
+     *
+     * @param descriptor the descriptor.
+     * @return the index of the nearest centroid.
+     */
+    public int getNearestCentroidIndex(float[] descriptor) {
+        int index = -1;
+
+        float min = Float.MAX_VALUE;
+
+        for (int i = 0; i < centroids.length; i++) {
+            // Breaking the distance computation when it exceeds minimum
+            float distance = KERNEL.distance(descriptor, centroids[i], min);
+
+            // Saving lowest distance and centroid index so far
+            if (distance < min) {
+                min = distance;
+
+                index = i;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * A method calculates the Euclidean distance between the given descriptor
+     * and the indexed centroid.
+     *
+     * @param descriptor the descriptor.
+     * @param index the indexed centroid.
+     * @return the Euclidean distance.
+     */
+    public float getDistance(float[] descriptor, int index) {
+        return KERNEL.distance(descriptor, centroids[index], Float.POSITIVE_INFINITY);
+    }
+}
@@ -0,0 +1,121 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Kernel;
+import com.tkb.pandora.math.Normalizer;
+import java.util.Arrays;
+
+/**
+ * An aggregator implementing the vlad method in single precision, producing
+ * the same normalized (power, l2) vector as the vlad aggregator for single or
+ * multiple vocabularies while halving the memory and the bandwidth of the
+ * descriptors, the codebooks and the aggregated vectors.
+ *
+ * @author Akis Papadopoulos
+ */
+public class FloatVladAggregator implements FloatAggregator {
+
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
+    // Vocabulary codebooks
+    private FloatCodebook[] codebooks;
+
+    // Normalization
+    private boolean normalize = true;
+
+    // Size of the aggregated vectors
+    private int size;
+
+    /**
+     * A constructor initiating the vocabulary codebooks of centroid words plus
+     * the normalization option. Be aware codebooks order matters.
+     *
+     * @param codebooks the vocabulary codebooks.
+     * @param normalize the normalization option.
+     */
+    public FloatVladAggregator(FloatCodebook[] codebooks, boolean normalize) {
+        this.codebooks = codebooks;
+
+        this.normalize = normalize;
+
+        // Calculating the final vector size regarding the number of codebooks their size and width
+        for (FloatCodebook codebook : codebooks) {
+            size += codebook.getSize() * codebook.getWidth();
+        }
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into a fixed size vector.
+     *
+     * @param descriptors the list of local descriptors.
+     * @return a fixed size vector.
+     */
+    @Override
+    public float[] aggregate(float[][] descriptors) {
+        float[] vlad = new float[size];
+
+        aggregate(descriptors, vlad, 0);
+
+        return vlad;
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into the given vector starting at the given offset, where
+     * each subvector is accumulated and normalized in place.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param vlad the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    @Override
+    public void aggregate(float[][] descriptors, float[] vlad, int offset) {
+        Arrays.fill(vlad, offset, offset + size, 0);
+
+        int start = offset;
+
+        // Regarding each codebook
+        for (FloatCodebook codebook : codebooks) {
+            int d = codebook.getWidth();
+
+            // Accumulating the residues per descriptor
+            for (float[] descriptor : descriptors) {
+                // Finding the nearest centroid index of the descriptor
+                int index = codebook.getNearestCentroidIndex(descriptor);
+
+                float[] centroid = codebook.getCentroid(index);
+
+                int base = start + index * d;
+
+                // Accumulating the residues from the nearest centroid
+                KERNEL.residual(descriptor, centroid, vlad, base, d);
+            }
+
+            int end = start + codebook.getSize() * d;
+
+            // Normalize subvector using Power and Euclidean l2 norms
+            if (normalize) {
+                Normalizer.power(vlad, start, end, 0.5);
+                Normalizer.euclidean(vlad, start, end);
+            }
+
+            start = end;
+        }
+
+        // Normalizing final vector only in case of multiple vocabularies
+        if (codebooks.length > 1 && normalize) {
+            Normalizer.euclidean(vlad, offset, offset + size);
+        }
+    }
+
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+}
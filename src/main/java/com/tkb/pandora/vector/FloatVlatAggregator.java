@@ -0,0 +1,152 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Kernel;
+import com.tkb.pandora.math.Normalizer;
+import java.util.Arrays;
+
+/**
+ * An aggregator implementing the vlat method in single precision, producing
+ * the same normalized (power, l2) vector as the vlat aggregator for single or
+ * multiple vocabularies while halving the memory and the bandwidth of the
+ * descriptors, the codebooks and the aggregated vectors.
+ *
+ * @author Akis Papadopoulos
+ */
+public class FloatVlatAggregator implements FloatAggregator {
+
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
+    // Vocabulary codebooks
+    private FloatCodebook[] codebooks;
+
+    // Normalization
+    private boolean normalize = true;
+
+    // Size of the aggregated vectors
+    private int size;
+
+    // Residual of the current descriptor per thread, sized to the widest codebook
+    private ThreadLocal<float[]> residuals;
+
+    /**
+     * A constructor initiating the vocabulary codebooks of centroid words plus
+     * the normalization option. Be aware codebooks order matters.
+     *
+     * @param codebooks the vocabulary codebooks.
+     * @param normalize the option to normalize.
+     */
+    public FloatVlatAggregator(FloatCodebook[] codebooks, boolean normalize) {
+        this.codebooks = codebooks;
+
+        this.normalize = normalize;
+
+        // Calculating the final vector size regarding the number of codebooks their size and width
+        int width = 0;
+
+        for (FloatCodebook codebook : codebooks) {
+            int k = codebook.getSize();
+            int d = codebook.getWidth();
+
+            size += (k * d) + (k * d * d);
+
+            width = Math.max(width, d);
+        }
+
+        // Sizing the residual of each thread to the widest codebook
+        final int max = width;
+
+        residuals = new ThreadLocal<float[]>() {
+            @Override
+            protected float[] initialValue() {
+                return new float[max];
+            }
+        };
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into a fixed size vector.
+     *
+     * @param descriptors the list of local descriptors.
+     * @return a fixed size vector.
+     */
+    @Override
+    public float[] aggregate(float[][] descriptors) {
+        float[] vlat = new float[size];
+
+        aggregate(descriptors, vlat, 0);
+
+        return vlat;
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into the given vector starting at the given offset, where
+     * each subvector is accumulated and normalized in place.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param vlat the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    @Override
+    public void aggregate(float[][] descriptors, float[] vlat, int offset) {
+        Arrays.fill(vlat, offset, offset + size, 0);
+
+        int start = offset;
+
+        // Regarding each codebook
+        for (FloatCodebook codebook : codebooks) {
+            int k = codebook.getSize();
+            int d = codebook.getWidth();
+
+            // Residual of the current descriptor, owned by the calling thread
+            float[] residual = residuals.get();
+
+            // Building a 2-term sized descriptor
+            for (float[] descriptor : descriptors) {
+                // Finding the nearest centroid index given the next descriptor
+                int nnk = codebook.getNearestCentroidIndex(descriptor);
+
+                float[] centroid = codebook.getCentroid(nnk);
+
+                int base = start + (nnk * d) + (nnk * d * d);
+
+                Arrays.fill(residual, 0, d, 0);
+
+                KERNEL.residual(descriptor, centroid, residual, 0, d);
+
+                // Setting the 1st term components size of 1d based on vlad method
+                KERNEL.residual(descriptor, centroid, vlat, base, d);
+
+                // Setting the 2nd term components size of dxd based on the self tensor product
+                KERNEL.outer(residual, vlat, base + d, d);
+            }
+
+            int end = start + (k * d) + (k * d * d);
+
+            // Normalize subvector using Power and Euclidean l2 norms
+            if (normalize) {
+                Normalizer.power(vlat, start, end, 0.5);
+                Normalizer.euclidean(vlat, start, end);
+            }
+
+            start = end;
+        }
+
+        // Normalizing final vector only in case of multiple vocabularies
+        if (codebooks.length > 1 && normalize) {
+            Normalizer.euclidean(vlat, offset, offset + size);
+        }
+    }
+
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,505 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Kernel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * An approximate assignment index built upon a forest of randomized kd-trees,
+ * searched together in best-bin-first order until a given number of centroids
+ * have been checked. Each tree splits on a dimension picked randomly among the
+ * ones of the highest variance, so the trees partition the space differently
+ * and complement each other. The search is exact when the number of checks is
+ * not less than the size of the codebook.
+ *
+ * See more about randomized kd-trees:
+ * <em>M. Muja and D. G. Lowe, Fast approximate nearest neighbors with automatic
+ * algorithm configuration, VISAPP 2009.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+public class KdForestIndex implements AssignmentIndex {
+
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
+    // Maximum number of centroids per leaf
+    private static final int LEAF_SIZE = 8;
+
+    // Number of the highest variance dimensions to pick a split from
+    private static final int TOP_DIMENSIONS = 5;
+
+    // Maximum number of centroids used to estimate variances per node
+    private static final int SAMPLE_SIZE = 100;
+
+    // Centroids
+    private double[][] centroids;
+
+    // Randomized trees
+    private Tree[] trees;
+
+    // Maximum number of centroids checked per search
+    private int checks;
+
+    // Search state per thread, since the index is shared across threads
+    private ThreadLocal<Search> searches;
+
+    /**
+     * A constructor building the forest given the set of centroids, the
+     * number of trees, the maximum number of centroids checked per search and
+     * the seed number of the randomized splits.
+     *
+     * @param centroids the set of centroids.
+     * @param trees the number of trees.
+     * @param checks the maximum number of centroids checked per search.
+     * @param seed the seed number.
+     */
+    public KdForestIndex(final double[][] centroids, int trees, int checks, long seed) {
+        this.centroids = centroids;
+        this.checks = Math.max(1, checks);
+
+        Random rand = new Random(seed);
+
+        this.trees = new Tree[Math.max(1, trees)];
+
+        for (int t = 0; t < this.trees.length; t++) {
+            this.trees[t] = new Tree(rand);
+        }
+
+        searches = new ThreadLocal<Search>() {
+            @Override
+            protected Search initialValue() {
+                return new Search(centroids.length);
+            }
+        };
+    }
+
+    /**
+     * A method computes the index of the approximate Euclidean nearest centroid
+     * to the given descriptor.
+     *
+     * @param descriptor the descriptor.
+     * @return the index of the nearest centroid.
+     */
+    @Override
+    public int assign(double[] descriptor) {
+        Search search = searches.get();
+
+        search.reset();
+
+        // Descending each tree first, queuing the branches not taken
+        for (int t = 0; t < trees.length; t++) {
+            descend(search, t, 0, descriptor);
+        }
+
+        // Exploring the closest queued branches across all trees
+        while (search.length > 0 && search.checked < checks) {
+            double bound = search.bounds[0];
+            int tree = search.trees[0];
+            int node = search.nodes[0];
+
+            search.pop();
+
+            if (bound < search.min) {
+                descend(search, tree, node, descriptor);
+            }
+        }
+
+        return search.index;
+    }
+
+    /**
+     * A method assigning each of the given descriptors to the index of its
+     * approximate Euclidean nearest centroid, searching the trees once per
+     * descriptor.
+     *
+     * @param descriptors the descriptors.
+     * @param out the array to store the index of the nearest centroid of each
+     * descriptor.
+     */
+    @Override
+    public void assign(double[][] descriptors, int[] out) {
+        for (int n = 0; n < descriptors.length; n++) {
+            out[n] = assign(descriptors[n]);
+        }
+    }
+
+    /**
+     * A method descending the given tree from the given node down to a leaf,
+     * checking the centroids of the leaf and queuing the branches not taken.
+     *
+     * @param search the search state.
+     * @param t the index of the tree.
+     * @param node the node to start from.
+     * @param descriptor the descriptor.
+     */
+    private void descend(Search search, int t, int node, double[] descriptor) {
+        Tree tree = trees[t];
+
+        while (tree.dims[node] >= 0) {
+            double diff = descriptor[tree.dims[node]] - tree.splits[node];
+
+            if (diff < 0) {
+                search.push(diff * diff, t, tree.rights[node]);
+                node = tree.lefts[node];
+            } else {
+                search.push(diff * diff, t, tree.lefts[node]);
+                node = tree.rights[node];
+            }
+        }
+
+        for (int i = tree.starts[node]; i < tree.ends[node]; i++) {
+            int c = tree.order[i];
+
+            // Skipping centroids already checked through another tree
+            if (search.stamps[c] == search.generation) {
+                continue;
+            }
+
+            search.stamps[c] = search.generation;
+            search.checked++;
+
+            double distance = KERNEL.distance(descriptor, centroids[c], search.min);
+
+            if (distance < search.min) {
+                search.min = distance;
+                search.index = c;
+            }
+        }
+    }
+
+    /**
+     * A randomized kd-tree stored in flat node arrays, where leaves refer to a
+     * range of the centroids order.
+     */
+    private class Tree {
+
+        // Order of the centroids, leaves refer to ranges of it
+        private int[] order;
+
+        // Split dimension per node, negative for leaves
+        private int[] dims;
+
+        // Split value per node
+        private double[] splits;
+
+        // Child nodes per node
+        private int[] lefts;
+        private int[] rights;
+
+        // Range of the centroids order per leaf
+        private int[] starts;
+        private int[] ends;
+
+        // Number of nodes
+        private int count;
+
+        /**
+         * A constructor building the tree given the random generator.
+         *
+         * @param rand the random generator.
+         */
+        private Tree(Random rand) {
+            int size = centroids.length;
+
+            order = new int[size];
+
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+
+            int capacity = 2 * size + 1;
+
+            dims = new int[capacity];
+            splits = new double[capacity];
+            lefts = new int[capacity];
+            rights = new int[capacity];
+            starts = new int[capacity];
+            ends = new int[capacity];
+
+            build(0, size, rand);
+        }
+
+        /**
+         * A method building the sub-tree over the given range of the order.
+         *
+         * @param start the start of the range, inclusive.
+         * @param end the end of the range, exclusive.
+         * @param rand the random generator.
+         * @return the root node of the sub-tree.
+         */
+        private int build(int start, int end, Random rand) {
+            int node = count++;
+
+            if (end - start <= LEAF_SIZE) {
+                dims[node] = -1;
+                starts[node] = start;
+                ends[node] = end;
+
+                return node;
+            }
+
+            // Estimating mean and variance per dimension upon a few centroids
+            int width = centroids[0].length;
+            int step = Math.max(1, (end - start) / SAMPLE_SIZE);
+
+            double[] mean = new double[width];
+            double[] variance = new double[width];
+            int n = 0;
+
+            for (int i = start; i < end; i += step) {
+                double[] centroid = centroids[order[i]];
+
+                for (int j = 0; j < width; j++) {
+                    mean[j] += centroid[j];
+                    variance[j] += centroid[j] * centroid[j];
+                }
+
+                n++;
+            }
+
+            for (int j = 0; j < width; j++) {
+                mean[j] /= n;
+                variance[j] = variance[j] / n - mean[j] * mean[j];
+            }
+
+            // Picking randomly one of the highest variance dimensions
+            int dim = pick(variance, rand);
+            double split = mean[dim];
+
+            int mid = partition(start, end, dim, split);
+
+            // Falling back to the median in case of a degenerate split
+            if (mid == start || mid == end) {
+                sort(start, end, dim);
+
+                mid = (start + end) / 2;
+                split = centroids[order[mid]][dim];
+            }
+
+            dims[node] = dim;
+            splits[node] = split;
+
+            lefts[node] = build(start, mid, rand);
+            rights[node] = build(mid, end, rand);
+
+            return node;
+        }
+
+        /**
+         * A method picking randomly one of the dimensions of the highest
+         * variance.
+         *
+         * @param variance the variance per dimension.
+         * @param rand the random generator.
+         * @return the picked dimension.
+         */
+        private int pick(double[] variance, Random rand) {
+            int top = Math.min(TOP_DIMENSIONS, variance.length);
+
+            int[] best = new int[top];
+            int found = 0;
+
+            for (int j = 0; j < variance.length; j++) {
+                int pos = found < top ? found++ : top;
+
+                // Inserting in descending variance order, dropping the last
+                while (pos > 0 && variance[best[pos - 1]] < variance[j]) {
+                    if (pos < top) {
+                        best[pos] = best[pos - 1];
+                    }
+
+                    pos--;
+                }
+
+                if (pos < top) {
+                    best[pos] = j;
+                }
+            }
+
+            return best[rand.nextInt(found)];
+        }
+
+        /**
+         * A method partitioning the given range of the order in centroids less
+         * than the split value followed by the rest.
+         *
+         * @param start the start of the range, inclusive.
+         * @param end the end of the range, exclusive.
+         * @param dim the split dimension.
+         * @param split the split value.
+         * @return the start of the second part.
+         */
+        private int partition(int start, int end, int dim, double split) {
+            int mid = start;
+
+            for (int i = start; i < end; i++) {
+                if (centroids[order[i]][dim] < split) {
+                    int swap = order[mid];
+                    order[mid] = order[i];
+                    order[i] = swap;
+
+                    mid++;
+                }
+            }
+
+            return mid;
+        }
+
+        /**
+         * A method sorting the given range of the order by the given dimension.
+         *
+         * @param start the start of the range, inclusive.
+         * @param end the end of the range, exclusive.
+         * @param dim the dimension to sort by.
+         */
+        private void sort(int start, int end, final int dim) {
+            Integer[] range = new Integer[end - start];
+
+            for (int i = start; i < end; i++) {
+                range[i - start] = order[i];
+            }
+
+            Arrays.sort(range, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(centroids[a][dim], centroids[b][dim]);
+                }
+            });
+
+            for (int i = start; i < end; i++) {
+                order[i] = range[i - start];
+            }
+        }
+    }
+
+    /**
+     * The reusable state of a search, holding a min heap of the queued
+     * branches and the stamps of the already checked centroids.
+     */
+    private static class Search {
+
+        // Heap of queued branches ordered by their lower distance bound
+        private double[] bounds = new double[64];
+        private int[] trees = new int[64];
+        private int[] nodes = new int[64];
+        private int length;
+
+        // Generation stamp per centroid marking the checked ones
+        private int[] stamps;
+        private int generation;
+
+        // Number of checked centroids
+        private int checked;
+
+        // Nearest centroid so far
+        private int index;
+        private double min;
+
+        /**
+         * A constructor initiating the state given the size of the codebook.
+         *
+         * @param size the size of the codebook.
+         */
+        private Search(int size) {
+            stamps = new int[size];
+        }
+
+        /**
+         * A method resetting the state for a new search.
+         */
+        private void reset() {
+            length = 0;
+            checked = 0;
+            index = -1;
+            min = Double.MAX_VALUE;
+
+            // Clearing stamps only when the generation wraps around
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * A method queuing a branch given its lower distance bound.
+         *
+         * @param bound the lower distance bound.
+         * @param tree the index of the tree.
+         * @param node the node of the branch.
+         */
+        private void push(double bound, int tree, int node) {
+            if (length == bounds.length) {
+                bounds = Arrays.copyOf(bounds, length * 2);
+                trees = Arrays.copyOf(trees, length * 2);
+                nodes = Arrays.copyOf(nodes, length * 2);
+            }
+
+            int i = length++;
+
+            // Sifting up
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+
+                if (bounds[parent] <= bound) {
+                    break;
+                }
+
+                bounds[i] = bounds[parent];
+                trees[i] = trees[parent];
+                nodes[i] = nodes[parent];
+
+                i = parent;
+            }
+
+            bounds[i] = bound;
+            trees[i] = tree;
+            nodes[i] = node;
+        }
+
+        /**
+         * A method removing the branch of the lowest bound.
+         */
+        private void pop() {
+            length--;
+
+            if (length == 0) {
+                return;
+            }
+
+            double bound = bounds[length];
+            int tree = trees[length];
+            int node = nodes[length];
+
+            int i = 0;
+
+            // Sifting down
+            while (true) {
+                int child = 2 * i + 1;
+
+                if (child >= length) {
+                    break;
+                }
+
+                if (child + 1 < length && bounds[child + 1] < bounds[child]) {
+                    child++;
+                }
+
+                if (bounds[child] >= bound) {
+                    break;
+                }
+
+                bounds[i] = bounds[child];
+                trees[i] = trees[child];
+                nodes[i] = nodes[child];
+
+                i = child;
+            }
+
+            bounds[i] = bound;
+            trees[i] = tree;
+            nodes[i] = node;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Kernel;
+
+/**
+ * An exact assignment index scanning linearly all the centroids, breaking the
+ * distance computation of a centroid as soon as it exceeds the minimum so far.
+ *
+ * @author Akis Papadopoulos
+ */
+public class LinearIndex implements AssignmentIndex {
+
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
+    // Centroids
+    private double[][] centroids;
+
+    /**
+     * A constructor initiating the index given the set of centroids.
+     *
+     * @param centroids the set of centroids.
+     */
+    public LinearIndex(double[][] centroids) {
+        this.centroids = centroids;
+    }
+
+    /**
+     * A method computes the index of the Euclidean nearest centroid to the
+     * given descriptor.
+     *
+     * @param descriptor the descriptor.
+     * @return the index of the nearest centroid.
+     */
+    @Override
+    public int assign(double[] descriptor) {
+        int index = -1;
+
+        double min = Double.MAX_VALUE;
+
+        // Calculating the euclidean distance per centroid
+        for (int i = 0; i < centroids.length; i++) {
+            // Breaking the distance computation when it exceeds minimum
+            double distance = KERNEL.distance(descriptor, centroids[i], min);
+
+            // Saving lowest distance and centroid index so far
+            if (distance < min) {
+                min = distance;
+
+                index = i;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * A method assigning each of the given descriptors to the index of its
+     * Euclidean nearest centroid, scanning the centroids once per descriptor
+     * where the early break of the distances already saves most of the work.
+     *
+     * @param descriptors the descriptors.
+     * @param out the array to store the index of the nearest centroid of each
+     * descriptor.
+     */
+    @Override
+    public void assign(double[][] descriptors, int[] out) {
+        for (int n = 0; n < descriptors.length; n++) {
+            out[n] = assign(descriptors[n]);
+        }
+    }
+}
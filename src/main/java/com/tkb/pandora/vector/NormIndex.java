@@ -0,0 +1,179 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Kernel;
+import java.util.Arrays;
+
+/**
+ * An exact assignment index using the precomputed squared norms of the
+ * centroids, where the nearest centroid minimizes ||c||² - 2c·x since the norm
+ * of the descriptor is common to all centroids. Centroids are kept in a single
+ * contiguous row-major block, so each assignment is a plain sequence of dot
+ * products. A batch of descriptors is assigned as a matrix multiplication of
+ * the descriptors by the centroids in tiles, where each tile of centroids is
+ * kept in cache while four descriptors at a time are scored against it.
+ *
+ * @author Akis Papadopoulos
+ */
+public class NormIndex implements AssignmentIndex {
+
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
+    // Number of descriptors per tile
+    private static final int DESCRIPTOR_BLOCK = 64;
+
+    // Number of centroids per tile
+    private static final int CENTROID_BLOCK = 64;
+
+    // Centroids in row-major order
+    private double[] matrix;
+
+    // Squared norms of the centroids
+    private double[] norms;
+
+    // Number and width of the centroids
+    private int size;
+    private int width;
+
+    // Lowest score of each descriptor of the current tile per thread
+    private ThreadLocal<double[]> mins = new ThreadLocal<double[]>() {
+        @Override
+        protected double[] initialValue() {
+            return new double[DESCRIPTOR_BLOCK];
+        }
+    };
+
+    /**
+     * A constructor initiating the index given the set of centroids.
+     *
+     * @param centroids the set of centroids.
+     */
+    public NormIndex(double[][] centroids) {
+        size = centroids.length;
+        width = centroids[0].length;
+
+        matrix = new double[size * width];
+        norms = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            double norm = 0;
+
+            for (int j = 0; j < width; j++) {
+                double component = centroids[i][j];
+
+                matrix[i * width + j] = component;
+                norm += component * component;
+            }
+
+            norms[i] = norm;
+        }
+    }
+
+    /**
+     * A method computes the index of the Euclidean nearest centroid to the
+     * given descriptor.
+     *
+     * @param descriptor the descriptor.
+     * @return the index of the nearest centroid.
+     */
+    @Override
+    public int assign(double[] descriptor) {
+        int index = -1;
+
+        double min = Double.MAX_VALUE;
+
+        for (int i = 0, offset = 0; i < size; i++, offset += width) {
+            double score = norms[i] - 2 * KERNEL.dot(matrix, offset, descriptor, width);
+
+            if (score < min) {
+                min = score;
+
+                index = i;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * A method assigning each of the given descriptors to the index of its
+     * Euclidean nearest centroid, scoring tiles of descriptors against tiles
+     * of centroids.
+     *
+     * @param descriptors the descriptors.
+     * @param out the array to store the index of the nearest centroid of each
+     * descriptor.
+     */
+    @Override
+    public void assign(double[][] descriptors, int[] out) {
+        int count = descriptors.length;
+
+        // Lowest score of each descriptor so far, owned by the calling thread
+        double[] min = mins.get();
+
+        for (int d0 = 0; d0 < count; d0 += DESCRIPTOR_BLOCK) {
+            int d1 = Math.min(count, d0 + DESCRIPTOR_BLOCK);
+
+            Arrays.fill(min, Double.MAX_VALUE);
+            Arrays.fill(out, d0, d1, -1);
+
+            for (int c0 = 0; c0 < size; c0 += CENTROID_BLOCK) {
+                int c1 = Math.min(size, c0 + CENTROID_BLOCK);
+
+                int n = d0;
+
+                // Scoring four descriptors at a time upon the same centroid
+                for (; n + 3 < d1; n += 4) {
+                    double[] x0 = descriptors[n];
+                    double[] x1 = descriptors[n + 1];
+                    double[] x2 = descriptors[n + 2];
+                    double[] x3 = descriptors[n + 3];
+
+                    for (int i = c0, offset = c0 * width; i < c1; i++, offset += width) {
+                        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+                        for (int j = 0; j < width; j++) {
+                            double c = matrix[offset + j];
+
+                            s0 += c * x0[j];
+                            s1 += c * x1[j];
+                            s2 += c * x2[j];
+                            s3 += c * x3[j];
+                        }
+
+                        update(out, min, d0, n, i, norms[i] - 2 * s0);
+                        update(out, min, d0, n + 1, i, norms[i] - 2 * s1);
+                        update(out, min, d0, n + 2, i, norms[i] - 2 * s2);
+                        update(out, min, d0, n + 3, i, norms[i] - 2 * s3);
+                    }
+                }
+
+                // Scoring the remaining descriptors one at a time
+                for (; n < d1; n++) {
+                    for (int i = c0, offset = c0 * width; i < c1; i++, offset += width) {
+                        update(out, min, d0, n, i, norms[i] - 2 * KERNEL.dot(matrix, offset, descriptors[n], width));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A method keeping the given centroid as the nearest of the given
+     * descriptor if its score is the lowest so far.
+     *
+     * @param out the nearest centroid of each descriptor.
+     * @param min the lowest score of each descriptor of the tile.
+     * @param first the first descriptor of the tile.
+     * @param n the descriptor.
+     * @param i the centroid.
+     * @param score the score of the centroid.
+     */
+    private static void update(int[] out, double[] min, int first, int n, int i, double score) {
+        if (score < min[n - first]) {
+            min[n - first] = score;
+
+            out[n] = i;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.tkb.pandora.vector;
+
+import com.tkb.pandora.math.Normalizer;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An aggregator upon multiple vocabularies computing the sub-vectors of the
+ * vocabularies of a single media item concurrently, each one by an aggregator
+ * upon a single vocabulary writing into its own slice of the output. The
+ * calling thread computes the first sub-vector itself while the rest are
+ * spread across the threads, so a media item takes about the time of a single
+ * vocabulary. The output is the same as given by an aggregator of the same
+ * method upon all the vocabularies at once.
+ *
+ * See more about multiple vocabularies:
+ * <em>Jégou, H., & Chum, O. (2012). Negative evidences and co-occurences in
+ * image retrieval: The benefit of PCA and whitening. In ECCV 2012.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+public class ParallelAggregator implements Aggregator, Closeable {
+
+    // Aggregators per vocabulary in order
+    private Aggregator[] parts;
+
+    // Normalization
+    private boolean normalize = true;
+
+    // Offset of the slice of each aggregator
+    private int[] offsets;
+
+    // Size of the aggregated vectors
+    private int size;
+
+    // Executor of the parallel sub-vectors
+    private ExecutorService executor;
+
+    /**
+     * A constructor initiating the aggregators per vocabulary, which have to
+     * apply the same method upon a single vocabulary each, along with the
+     * normalization option and the number of parallel threads. Be aware
+     * aggregators order matters.
+     *
+     * @param parts the aggregators per vocabulary.
+     * @param normalize the option to normalize.
+     * @param threads the number of parallel threads.
+     */
+    public ParallelAggregator(Aggregator[] parts, boolean normalize, int threads) {
+        this.parts = parts;
+
+        this.normalize = normalize;
+
+        // Calculating the slice of each aggregator
+        offsets = new int[parts.length];
+
+        for (int p = 0; p < parts.length; p++) {
+            offsets[p] = size;
+
+            size += parts[p].getSize();
+        }
+
+        // Sparing a thread as the calling thread computes the first sub-vector
+        executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, parts.length - 1)));
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into a fixed size vector.
+     *
+     * @param descriptors the list of local descriptors.
+     * @return a fixed size vector.
+     */
+    @Override
+    public double[] aggregate(double[][] descriptors) {
+        double[] vector = new double[size];
+
+        aggregate(descriptors, vector, 0);
+
+        return vector;
+    }
+
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into the given vector starting at the given offset, where
+     * each sub-vector is computed concurrently into its own slice.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param vector the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    @Override
+    public void aggregate(final double[][] descriptors, final double[] vector, final int offset) {
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        for (int p = 1; p < parts.length; p++) {
+            final Aggregator part = parts[p];
+            final int start = offset + offsets[p];
+
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    part.aggregate(descriptors, vector, start);
+                }
+            }));
+        }
+
+        boolean completed = false;
+
+        try {
+            parts[0].aggregate(descriptors, vector, offset);
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            completed = true;
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Aggregation interrupted", exc);
+        } catch (ExecutionException exc) {
+            throw new IllegalStateException("Aggregation of a vocabulary failed", exc.getCause());
+        } finally {
+            // Awaiting the rest of the sub-vectors on failure, so none keeps writing into a vector the caller may reuse
+            if (!completed) {
+                await(futures);
+            }
+        }
+
+        // Normalizing final vector only in case of multiple vocabularies
+        if (parts.length > 1 && normalize) {
+            Normalizer.euclidean(vector, offset, offset + size);
+        }
+    }
+
+    /**
+     * A method awaiting the given sub-vectors whatever their outcome, keeping
+     * the interrupt status of the calling thread.
+     *
+     * @param futures the sub-vectors.
+     */
+    private static void await(List<Future<?>> futures) {
+        boolean interrupted = false;
+
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+
+                    break;
+                } catch (InterruptedException exc) {
+                    interrupted = true;
+                } catch (ExecutionException exc) {
+                    break;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * A method shutting down the threads of the aggregator.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
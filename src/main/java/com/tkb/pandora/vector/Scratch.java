@@ -0,0 +1,75 @@
+package com.tkb.pandora.vector;
+
+/**
+ * The buffers of an aggregator owned by a single thread, reused from one media
+ * item to the next, where the nearest centroid indices grow on demand to the
+ * largest media item seen so far.
+ *
+ * @author Akis Papadopoulos
+ */
+class Scratch {
+
+    // Residual of the current descriptor
+    final double[] residual;
+
+    // Residual of the current descriptor projected onto the basis of its word
+    final double[] projected;
+
+    // Soft assignment of the current descriptor, null in hard assignment
+    final SoftAssignment soft;
+
+    // Nearest centroid index of each descriptor of the current media item
+    private int[] nearest = new int[0];
+
+    /**
+     * A constructor initiating the buffers given the width of the widest
+     * codebook.
+     *
+     * @param width the width of the residual.
+     */
+    Scratch(int width) {
+        this(width, null);
+    }
+
+    /**
+     * A constructor initiating the buffers given the width of the widest
+     * codebook along with the soft assignment of the thread.
+     *
+     * @param width the width of the residual.
+     * @param soft the soft assignment, null in hard assignment.
+     */
+    Scratch(int width, SoftAssignment soft) {
+        this(width, 0, soft);
+    }
+
+    /**
+     * A constructor initiating the buffers given the width of the widest
+     * codebook and the rank of the bases of the words, along with the soft
+     * assignment of the thread.
+     *
+     * @param width the width of the residual.
+     * @param rank the width of the projected residual.
+     * @param soft the soft assignment, null in hard assignment.
+     */
+    Scratch(int width, int rank, SoftAssignment soft) {
+        residual = new double[width];
+        projected = new double[rank];
+
+        this.soft = soft;
+    }
+
+    /**
+     * A method returning the nearest centroid indices holding at least the
+     * given number of descriptors, growing them if needed.
+     *
+     * @param count the number of descriptors.
+     * @return the nearest centroid indices.
+     */
+    int[] getNearest(int count) {
+        if (nearest.length < count) {
+            nearest = new int[count];
+        }
+
+        return nearest;
+    }
+}
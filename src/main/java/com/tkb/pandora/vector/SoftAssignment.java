@@ -0,0 +1,99 @@
+package com.tkb.pandora.vector;
+
+/**
+ * A soft assignment of a descriptor to its k nearest visual words of a
+ * codebook, weighting each word by a gaussian kernel of its distance to the
+ * descriptor, where the weights sum up to one. The kernel is taken relative
+ * to the nearest word, which keeps the weights finite for any bandwidth. An
+ * assignment holds the arrays of a single descriptor at a time, so it should
+ * be owned by a single thread.
+ *
+ * See more about soft assignment:<br/>
+ * <em>J. Philbin, O. Chum, M. Isard, J. Sivic and A. Zisserman, Lost in
+ * quantization: Improving particular object retrieval in large scale image
+ * databases, IEEE Conference on Computer Vision and Pattern Recognition,
+ * 2008.</em>
+ *
+ * @author Akis Papadopoulos
+ */
+class SoftAssignment {
+
+    // Number of nearest words
+    private int neighbors;
+
+    // Denominator of the gaussian kernel, 2 x sigma^2
+    private double spread;
+
+    // Nearest words of the current descriptor along with their distances and weights
+    private int[] indices;
+    private double[] distances;
+    private double[] weights;
+
+    /**
+     * A constructor initiating the assignment given the number of nearest
+     * words and the bandwidth of the gaussian kernel.
+     *
+     * @param neighbors the number of nearest words.
+     * @param sigma the bandwidth of the kernel, positive.
+     */
+    SoftAssignment(int neighbors, double sigma) {
+        if (!(sigma > 0)) {
+            throw new IllegalArgumentException("Bandwidth of the soft assignment must be positive: " + sigma);
+        }
+
+        this.neighbors = neighbors;
+
+        spread = 2 * sigma * sigma;
+
+        indices = new int[neighbors];
+        distances = new double[neighbors];
+        weights = new double[neighbors];
+    }
+
+    /**
+     * A method assigning the given descriptor to its nearest words of the
+     * given codebook.
+     *
+     * @param codebook the codebook.
+     * @param descriptor the descriptor.
+     * @return the number of the nearest words assigned.
+     */
+    int assign(Codebook codebook, double[] descriptor) {
+        int count = codebook.getNearestCentroidIndices(descriptor, neighbors, indices, distances);
+
+        double sum = 0;
+
+        // Weighting the words relative to the nearest one, distances are squared
+        for (int i = 0; i < count; i++) {
+            weights[i] = Math.exp(-(distances[i] - distances[0]) / spread);
+
+            sum += weights[i];
+        }
+
+        for (int i = 0; i < count; i++) {
+            weights[i] /= sum;
+        }
+
+        return count;
+    }
+
+    /**
+     * A method returns the index of the given nearest word.
+     *
+     * @param i the rank of the word starting from 0.
+     * @return the index of the word.
+     */
+    int getIndex(int i) {
+        return indices[i];
+    }
+
+    /**
+     * A method returns the weight of the given nearest word.
+     *
+     * @param i the rank of the word starting from 0.
+     * @return the weight of the word.
+     */
+    double getWeight(int i) {
+        return weights[i];
+    }
+}
@@ -1,6 +1,8 @@
 package com.tkb.pandora.vector;
 
+import com.tkb.pandora.math.Kernel;
 import com.tkb.pandora.math.Normalizer;
+import java.util.Arrays;
 
 /**
  * An aggregator implementing the vlad method to produce a fixed size normalized
@@ -25,12 +27,32 @@ import com.tkb.pandora.math.Normalizer;
  */
 public class VladAggregator implements Aggregator {
 
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
     // Vocabulary codebooks
     private Codebook[] codebooks;
 
+    // Number of nearest words each descriptor is assigned to
+    private int neighbors = 1;
+
+    // Bandwidth of the gaussian kernel weighting the nearest words
+    private double sigma;
+
     // Normalization
     private boolean normalize = true;
 
+    // Size of the aggregated vectors
+    private int size;
+
+    // Buffers of the aggregation per thread
+    private ThreadLocal<Scratch> scratches = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch(0, neighbors > 1 ? new SoftAssignment(neighbors, sigma) : null);
+        }
+    };
+
     /**
      * A constructor initiating the vocabulary codebooks of centroid words plus
      * the normalization option. Be aware codebooks order matters.
@@ -39,9 +61,36 @@ public class VladAggregator implements Aggregator {
      * @param normalize the normalization option.
      */
     public VladAggregator(Codebook[] codebooks, boolean normalize) {
+        this(codebooks, 1, 1.0, normalize);
+    }
+
+    /**
+     * A constructor initiating the vocabulary codebooks of centroid words, the
+     * number of the nearest words each descriptor is softly assigned to along
+     * with the bandwidth of the gaussian kernel weighting them, plus the
+     * normalization option. Be aware codebooks order matters.
+     *
+     * @param codebooks the vocabulary codebooks.
+     * @param neighbors the number of nearest words, 1 for hard assignment.
+     * @param sigma the bandwidth of the kernel, positive in soft assignment.
+     * @param normalize the normalization option.
+     */
+    public VladAggregator(Codebook[] codebooks, int neighbors, double sigma, boolean normalize) {
         this.codebooks = codebooks;
 
+        this.neighbors = Math.max(1, neighbors);
+        this.sigma = sigma;
+
+        if (this.neighbors > 1 && !(sigma > 0)) {
+            throw new IllegalArgumentException("Bandwidth of the soft assignment must be positive: " + sigma);
+        }
+
         this.normalize = normalize;
+
+        // Calculating the final vector size regarding the number of codebooks their size and width
+        for (Codebook codebook : codebooks) {
+            size += codebook.getSize() * codebook.getWidth();
+        }
     }
 
     /**
@@ -53,52 +102,94 @@ public class VladAggregator implements Aggregator {
      */
     @Override
     public double[] aggregate(double[][] descriptors) {
-        // Calculating the final vector size
-        int size = 0;
+        double[] vlad = new double[size];
 
-        // Regarding the number of codebooks their size and width
-        for (Codebook codebook : codebooks) {
-            size += codebook.getSize() * codebook.getWidth();
-        }
+        aggregate(descriptors, vlad, 0);
 
-        double[] vlad = new double[size];
+        return vlad;
+    }
 
-        int offset = 0;
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into the given vector starting at the given offset, where
+     * each subvector is accumulated and normalized in place.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param vlad the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    @Override
+    public void aggregate(double[][] descriptors, double[] vlad, int offset) {
+        Arrays.fill(vlad, offset, offset + size, 0);
+
+        int start = offset;
+
+        // Nearest centroid index of each descriptor along with the soft assignment, owned by the calling thread
+        Scratch scratch = scratches.get();
+
+        int[] nearest = scratch.getNearest(descriptors.length);
+
+        // Nearest centroids and weights of the current descriptor in soft assignment
+        SoftAssignment soft = scratch.soft;
 
         // Regarding each codebook
         for (Codebook codebook : codebooks) {
-            // Building the vlad subvector for the next codebook
-            double[] subvector = new double[codebook.getSize() * codebook.getWidth()];
+            int d = codebook.getWidth();
 
-            // Accumulating the residues per descriptor
-            for (double[] descriptor : descriptors) {
-                // Finding the nearest centroid index of the descriptor
-                int index = codebook.getNearestCentroidIndex(descriptor);
+            if (soft != null) {
+                // Accumulating the residues from the nearest centroids weighted per descriptor
+                for (double[] descriptor : descriptors) {
+                    int count = soft.assign(codebook, descriptor);
 
-                // Accumulating the residues from the nearest centroid
-                for (int i = 0; i < descriptor.length; i++) {
-                    double component = codebook.getComponent(index, i);
+                    for (int i = 0; i < count; i++) {
+                        int index = soft.getIndex(i);
 
-                    subvector[index * descriptor.length + i] += descriptor[i] - component;
+                        KERNEL.residual(descriptor, codebook.getCentroid(index), vlad, start + index * d, d, soft.getWeight(i));
+                    }
+                }
+            } else {
+                // Finding the nearest centroid index of all the descriptors at once
+                codebook.assign(descriptors, nearest);
+
+                // Accumulating the residues per descriptor
+                for (int n = 0; n < descriptors.length; n++) {
+                    double[] descriptor = descriptors[n];
+
+                    int index = nearest[n];
+
+                    double[] centroid = codebook.getCentroid(index);
+
+                    int base = start + index * d;
+
+                    // Accumulating the residues from the nearest centroid
+                    KERNEL.residual(descriptor, centroid, vlad, base, d);
                 }
             }
 
+            int end = start + codebook.getSize() * d;
+
             // Normalize subvector using Power and Euclidean l2 norms
             if (normalize) {
-                Normalizer.power(subvector, 0.5);
-                Normalizer.euclidean(subvector);
+                Normalizer.power(vlad, start, end, 0.5);
+                Normalizer.euclidean(vlad, start, end);
             }
 
-            // Concatenate the subvector
-            System.arraycopy(subvector, 0, vlad, offset, subvector.length);
-            offset += subvector.length;
+            start = end;
         }
 
         // Normalizing final vector only in case of multiple vocabularies
         if (codebooks.length > 1 && normalize) {
-            Normalizer.euclidean(vlad);
+            Normalizer.euclidean(vlad, offset, offset + size);
         }
+    }
 
-        return vlad;
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    @Override
+    public int getSize() {
+        return size;
     }
 }
@@ -1,6 +1,8 @@
 package com.tkb.pandora.vector;
 
+import com.tkb.pandora.math.Kernel;
 import com.tkb.pandora.math.Normalizer;
+import java.util.Arrays;
 
 /**
  * An aggregator implementing the vlat method to produce a fixed size normalized
@@ -22,12 +24,21 @@ import com.tkb.pandora.math.Normalizer;
  */
 public class VlatAggregator implements Aggregator {
 
+    // Kernel of the inner loops
+    private static final Kernel KERNEL = Kernel.get();
+
     // Vocabulary codebooks
     private Codebook[] codebooks;
 
     // Normalization
     private boolean normalize = true;
 
+    // Size of the aggregated vectors
+    private int size;
+
+    // Buffers of the aggregation per thread, the residual sized to the widest codebook
+    private ThreadLocal<Scratch> scratches;
+
     /**
      * A constructor initiating the vocabulary codebooks of centroid words plus
      * the normalization option. Be aware codebooks order matters.
@@ -39,6 +50,28 @@ public class VlatAggregator implements Aggregator {
         this.codebooks = codebooks;
 
         this.normalize = normalize;
+
+        // Calculating the final vector size regarding the number of codebooks their size and width
+        int width = 0;
+
+        for (Codebook codebook : codebooks) {
+            int k = codebook.getSize();
+            int d = codebook.getWidth();
+
+            size += (k * d) + (k * d * d);
+
+            width = Math.max(width, d);
+        }
+
+        // Sizing the residual of each thread to the widest codebook
+        final int max = width;
+
+        scratches = new ThreadLocal<Scratch>() {
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch(max);
+            }
+        };
     }
 
     /**
@@ -50,71 +83,87 @@ public class VlatAggregator implements Aggregator {
      */
     @Override
     public double[] aggregate(double[][] descriptors) {
-        // Calculating the final vector size
-        int size = 0;
+        double[] vlat = new double[size];
 
-        // Regarding the number of codebooks their size and width
-        for (Codebook codebook : codebooks) {
-            int k = codebook.getSize();
-            int d = codebook.getWidth();
+        aggregate(descriptors, vlat, 0);
 
-            size += (k * d) + (k * d * d);
-        }
+        return vlat;
+    }
 
-        double[] vlat = new double[size];
+    /**
+     * A method aggragates the given list of local descriptors extracted from a
+     * media item into the given vector starting at the given offset, where
+     * each subvector is accumulated and normalized in place.
+     *
+     * @param descriptors the list of local descriptors.
+     * @param vlat the vector to aggregate into.
+     * @param offset the first component of the vector to write.
+     */
+    @Override
+    public void aggregate(double[][] descriptors, double[] vlat, int offset) {
+        Arrays.fill(vlat, offset, offset + size, 0);
 
-        int offset = 0;
+        int start = offset;
+
+        // Residual of the current descriptor and nearest centroid index of each descriptor, owned by the calling thread
+        Scratch scratch = scratches.get();
+
+        double[] residual = scratch.residual;
+        int[] nearest = scratch.getNearest(descriptors.length);
 
         // Regarding each codebook
         for (Codebook codebook : codebooks) {
-            // Building the vlat subvector for the next codebook
             int k = codebook.getSize();
             int d = codebook.getWidth();
 
-            double[] subvector = new double[(k * d) + (k * d * d)];
+            // Finding the nearest centroid index of all the descriptors at once
+            codebook.assign(descriptors, nearest);
 
             // Building a 2-term sized descriptor
-            for (double[] descriptor : descriptors) {
-                // Finding the nearest centroid index given the next descriptor
-                int nnk = codebook.getNearestCentroidIndex(descriptor);
+            for (int n = 0; n < descriptors.length; n++) {
+                double[] descriptor = descriptors[n];
+
+                int nnk = nearest[n];
 
-                for (int i = 0; i < descriptor.length; i++) {
-                    // Mapping index into row vector
-                    int index = (nnk * d) + (nnk * d * d) + i;
+                double[] centroid = codebook.getCentroid(nnk);
 
-                    double component_i = codebook.getComponent(nnk, i);
+                int base = start + (nnk * d) + (nnk * d * d);
 
-                    // Setting the 1st term components size of 1d based on vlad method
-                    subvector[index] += descriptor[i] - component_i;
+                Arrays.fill(residual, 0, d, 0);
 
-                    for (int j = 0; j < descriptor.length; j++) {
-                        // Mapping index into row vector
-                        index = (nnk * d) + (nnk * d * d) + d + (i * d) + j;
+                KERNEL.residual(descriptor, centroid, residual, 0, d);
 
-                        double component_j = codebook.getComponent(nnk, j);
+                // Setting the 1st term components size of 1d based on vlad method
+                KERNEL.residual(descriptor, centroid, vlat, base, d);
 
-                        // Setting the 2nd term components size of dxd based on the self tensor product
-                        subvector[index] += (descriptor[i] - component_i) * (descriptor[j] - component_j);
-                    }
-                }
+                // Setting the 2nd term components size of dxd based on the self tensor product
+                KERNEL.outer(residual, vlat, base + d, d);
             }
 
+            int end = start + (k * d) + (k * d * d);
+
             // Normalize subvector using Power and Euclidean l2 norms
             if (normalize) {
-                Normalizer.power(subvector, 0.5);
-                Normalizer.euclidean(subvector);
+                Normalizer.power(vlat, start, end, 0.5);
+                Normalizer.euclidean(vlat, start, end);
             }
 
-            // Concatenate the subvector
-            System.arraycopy(subvector, 0, vlat, offset, subvector.length);
-            offset += subvector.length;
+            start = end;
         }
 
         // Normalizing final vector only in case of multiple vocabularies
         if (codebooks.length > 1 && normalize) {
-            Normalizer.euclidean(vlat);
+            Normalizer.euclidean(vlat, offset, offset + size);
         }
+    }
 
-        return vlat;
+    /**
+     * A method returns the size of the aggregated vectors.
+     *
+     * @return the size of the vectors.
+     */
+    @Override
+    public int getSize() {
+        return size;
     }
 }
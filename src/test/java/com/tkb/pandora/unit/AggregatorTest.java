@@ -0,0 +1,299 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.math.SparseVector;
+import static com.tkb.pandora.unit.Fixtures.centroids1;
+import static com.tkb.pandora.unit.Fixtures.codebooks;
+import static com.tkb.pandora.unit.Fixtures.uniform;
+import com.tkb.pandora.util.ArrayOps;
+import com.tkb.pandora.vector.Aggregator;
+import com.tkb.pandora.vector.BowAggregator;
+import com.tkb.pandora.vector.Codebook;
+import com.tkb.pandora.vector.CompactVlatAggregator;
+import com.tkb.pandora.vector.FloatAggregator;
+import com.tkb.pandora.vector.FloatCodebook;
+import com.tkb.pandora.vector.FloatVlatAggregator;
+import com.tkb.pandora.vector.ParallelAggregator;
+import com.tkb.pandora.vector.VladAggregator;
+import com.tkb.pandora.vector.VlatAggregator;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * A test case for the aggregation of local descriptors in place of a caller
+ * owned vector.
+ *
+ * @author Akis Papadopoulos
+ */
+public class AggregatorTest {
+
+    private static double[][] image1 = uniform(200, 8, 3L);
+
+    private static double[][] image2 = uniform(50, 8, 4L);
+
+    @Test
+    public void testBow() {
+        assertInPlace(new BowAggregator(codebooks(), true));
+    }
+
+    @Test
+    public void testVlad() {
+        assertInPlace(new VladAggregator(codebooks(), true));
+    }
+
+    @Test
+    public void testVlat() {
+        assertInPlace(new VlatAggregator(codebooks(), true));
+    }
+
+    @Test
+    public void testCompactVlat() {
+        assertInPlace(new CompactVlatAggregator(codebooks(), new double[][][]{identity(16, 8, 4), identity(8, 8, 4)}, true, true));
+    }
+
+    @Test
+    public void testCompactVlatFullRank() {
+        Codebook[] codebooks = codebooks();
+        double[][][] bases = {identity(16, 8, 8), identity(8, 8, 8)};
+
+        String msg = "Full rank identity bases should reproduce the full vlat vector";
+
+        double[] expected = new VlatAggregator(codebooks, true).aggregate(image1);
+
+        assertArrayEquals(msg, expected, new CompactVlatAggregator(codebooks, bases, false, true).aggregate(image1), 1e-12);
+
+        msg = "The upper triangle should keep the inner products of the full tensor";
+
+        CompactVlatAggregator full = new CompactVlatAggregator(codebooks, bases, false, false);
+        CompactVlatAggregator triangle = new CompactVlatAggregator(codebooks, bases, true, false);
+
+        assertEquals(msg, (16 + 8) * (8 + 8 * 9 / 2), triangle.getSize());
+        assertEquals(msg, dot(full.aggregate(image1), full.aggregate(image2)), dot(triangle.aggregate(image1), triangle.aggregate(image2)), 1e-9);
+    }
+
+    @Test
+    public void testFloatVlat() {
+        FloatAggregator aggregator = new FloatVlatAggregator(new FloatCodebook[]{new FloatCodebook(centroids1)}, true);
+
+        float[] vector = new float[aggregator.getSize() + 2];
+        Arrays.fill(vector, 7);
+
+        aggregator.aggregate(ArrayOps.toFloat(image1), vector, 0);
+        aggregator.aggregate(ArrayOps.toFloat(image2), vector, 1);
+
+        String msg = "Vector aggregated in place should match the allocated one";
+
+        assertArrayEquals(msg, aggregator.aggregate(ArrayOps.toFloat(image2)), Arrays.copyOfRange(vector, 1, aggregator.getSize() + 1), 0.0f);
+        assertEquals(msg, 7, vector[aggregator.getSize() + 1], 0.0f);
+    }
+
+    @Test
+    public void testParallel() {
+        Codebook[] codebooks = codebooks();
+
+        Aggregator[][] parts = {
+            {new BowAggregator(new Codebook[]{codebooks[0]}, true), new BowAggregator(new Codebook[]{codebooks[1]}, true)},
+            {new VladAggregator(new Codebook[]{codebooks[0]}, true), new VladAggregator(new Codebook[]{codebooks[1]}, true)},
+            {new VlatAggregator(new Codebook[]{codebooks[0]}, true), new VlatAggregator(new Codebook[]{codebooks[1]}, true)}
+        };
+
+        Aggregator[] sequential = {new BowAggregator(codebooks, true), new VladAggregator(codebooks, true), new VlatAggregator(codebooks, true)};
+
+        for (int m = 0; m < sequential.length; m++) {
+            ParallelAggregator aggregator = new ParallelAggregator(parts[m], true, 2);
+
+            try {
+                String msg = "Parallel vocabularies should match the sequential aggregation for " + sequential[m].getClass().getSimpleName();
+
+                assertArrayEquals(msg, sequential[m].aggregate(image1), aggregator.aggregate(image1), 0.0);
+
+                assertInPlace(aggregator);
+            } finally {
+                aggregator.close();
+            }
+        }
+    }
+
+    @Test
+    public void testParallelFailure() {
+        final AtomicBoolean finished = new AtomicBoolean(false);
+
+        // The first vocabulary fails at once on the calling thread while the second one is still writing
+        Aggregator failing = new Part() {
+            @Override
+            public void aggregate(double[][] descriptors, double[] vector, int offset) {
+                throw new IllegalStateException("Failing vocabulary");
+            }
+        };
+
+        Aggregator slow = new Part() {
+            @Override
+            public void aggregate(double[][] descriptors, double[] vector, int offset) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException exc) {
+                    Thread.currentThread().interrupt();
+                }
+
+                vector[offset] = 1;
+
+                finished.set(true);
+            }
+        };
+
+        ParallelAggregator aggregator = new ParallelAggregator(new Aggregator[]{failing, slow}, false, 2);
+
+        try {
+            aggregator.aggregate(image1, new double[2], 0);
+
+            fail("Failure of a vocabulary should reach the caller");
+        } catch (IllegalStateException exc) {
+            String msg = "Failure should reach the caller only once every vocabulary stopped writing";
+
+            assertTrue(msg, finished.get());
+        } finally {
+            aggregator.close();
+        }
+    }
+
+    @Test
+    public void testSoftAssignment() {
+        Codebook[] codebooks = codebooks();
+
+        String msg = "Soft assignment with a narrow kernel should reproduce the hard assignment";
+
+        assertArrayEquals(msg, new BowAggregator(codebooks, true).aggregate(image1), new BowAggregator(codebooks, 3, 1e-6, true).aggregate(image1), 1e-9);
+        assertArrayEquals(msg, new VladAggregator(codebooks, true).aggregate(image1), new VladAggregator(codebooks, 3, 1e-6, true).aggregate(image1), 1e-9);
+
+        msg = "Soft assigned frequencies should sum up to the number of descriptors per vocabulary";
+
+        double[] bow = new BowAggregator(codebooks, 3, 0.5, false).aggregate(image1);
+
+        double sum = 0;
+
+        for (double frequency : bow) {
+            sum += frequency;
+        }
+
+        assertEquals(msg, 2 * image1.length, sum, 1e-9);
+
+        msg = "Soft assignment should spread a descriptor over its nearest words";
+
+        int words = 0;
+
+        for (double frequency : new BowAggregator(codebooks, 3, 0.5, false).aggregate(new double[][]{image1[0]})) {
+            if (frequency > 0) {
+                words++;
+            }
+        }
+
+        assertEquals(msg, 3 * codebooks.length, words);
+
+        assertInPlace(new VladAggregator(codebooks, 3, 0.5, true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSoftAssignmentSigma() {
+        new BowAggregator(codebooks(), 3, 0, true);
+    }
+
+    @Test
+    public void testSparse() {
+        Codebook[] codebooks = codebooks();
+
+        BowAggregator[] aggregators = {
+            new BowAggregator(codebooks, true),
+            new BowAggregator(codebooks, false),
+            new BowAggregator(new Codebook[]{codebooks[0]}, true),
+            new BowAggregator(codebooks, 3, 0.5, true)
+        };
+
+        String msg = "Sparse bow should match the dense bow";
+
+        for (BowAggregator aggregator : aggregators) {
+            for (double[][] image : new double[][][]{image1, image2, {image2[0]}}) {
+                SparseVector bow = aggregator.aggregateSparse(image);
+
+                assertEquals(msg, aggregator.getSize(), bow.getDimension());
+                assertArrayEquals(msg, aggregator.aggregate(image), bow.toDense(), 1e-6);
+
+                for (int n = 1; n < bow.size(); n++) {
+                    assertEquals("Sparse indices should be in ascending order", true, bow.getIndices()[n - 1] < bow.getIndices()[n]);
+                }
+            }
+        }
+
+        msg = "Sparse bow should hold only the words hit";
+
+        assertEquals(msg, codebooks.length, aggregators[0].aggregateSparse(new double[][]{image1[0]}).size());
+    }
+
+    private static void assertInPlace(Aggregator aggregator) {
+        double[] expected = aggregator.aggregate(image2);
+
+        String msg = "Size should match the allocated vector";
+
+        assertEquals(msg, expected.length, aggregator.getSize());
+
+        // Reusing a vector holding garbage and a previous image around the written range
+        double[] vector = new double[expected.length + 2];
+        Arrays.fill(vector, 7);
+
+        aggregator.aggregate(image1, vector, 0);
+        aggregator.aggregate(image2, vector, 1);
+
+        msg = "Vector aggregated in place should match the allocated one";
+
+        assertArrayEquals(msg, expected, Arrays.copyOfRange(vector, 1, expected.length + 1), 0.0);
+
+        msg = "Components out of the written range should be untouched";
+
+        assertEquals(msg, 7, vector[expected.length + 1], 0.0);
+    }
+
+    private static double[][] identity(int k, int d, int rank) {
+        double[][] basis = new double[k * rank][d];
+
+        for (int w = 0; w < k; w++) {
+            for (int i = 0; i < rank; i++) {
+                basis[w * rank + i][i] = 1;
+            }
+        }
+
+        return basis;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double dot = 0;
+
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+
+        return dot;
+    }
+
+    /**
+     * An aggregator of a single component per media item.
+     */
+    private abstract static class Part implements Aggregator {
+
+        @Override
+        public double[] aggregate(double[][] descriptors) {
+            double[] vector = new double[1];
+
+            aggregate(descriptors, vector, 0);
+
+            return vector;
+        }
+
+        @Override
+        public int getSize() {
+            return 1;
+        }
+    }
+}
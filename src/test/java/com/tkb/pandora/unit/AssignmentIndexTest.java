@@ -0,0 +1,126 @@
+package com.tkb.pandora.unit;
+
+import static com.tkb.pandora.unit.Fixtures.uniform;
+import com.tkb.pandora.vector.AssignmentIndex;
+import com.tkb.pandora.vector.Codebook;
+import com.tkb.pandora.vector.KdForestIndex;
+import com.tkb.pandora.vector.LinearIndex;
+import com.tkb.pandora.vector.NormIndex;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * A test case for the assignment index implementations.
+ *
+ * @author Akis Papadopoulos
+ */
+public class AssignmentIndexTest {
+
+    private static double[][] centroids = uniform(500, 16, 1L);
+
+    private static double[][] descriptors = uniform(300, 16, 2L);
+
+    @Test
+    public void testNormIndex() {
+        assertExact(new NormIndex(centroids));
+    }
+
+    @Test
+    public void testExhaustiveKdForestIndex() {
+        assertExact(new KdForestIndex(centroids, 4, centroids.length, 1L));
+    }
+
+    @Test
+    public void testApproximateKdForestIndex() {
+        Codebook codebook = new Codebook(centroids, new KdForestIndex(centroids, 4, 64, 1L));
+        LinearIndex baseline = new LinearIndex(centroids);
+
+        int matches = 0;
+
+        for (double[] descriptor : descriptors) {
+            if (codebook.getNearestCentroidIndex(descriptor) == baseline.assign(descriptor)) {
+                matches++;
+            }
+        }
+
+        String msg = "Approximate assignment should mostly agree with the linear scan";
+
+        assertTrue(msg, matches >= descriptors.length * 0.5);
+    }
+
+    @Test
+    public void testBatch() {
+        // Crossing the tiles of descriptors with remainders
+        double[][] batch = Arrays.copyOf(descriptors, 299);
+
+        AssignmentIndex[] indices = {new LinearIndex(centroids), new NormIndex(centroids), new KdForestIndex(centroids, 4, 64, 1L)};
+
+        for (AssignmentIndex index : indices) {
+            Codebook codebook = new Codebook(centroids, index);
+
+            int[] nearest = new int[batch.length];
+
+            codebook.assign(batch, nearest);
+
+            String msg = "Batch assignment should find a centroid as near as the single one for " + index.getClass().getSimpleName();
+
+            for (int n = 0; n < batch.length; n++) {
+                double expected = codebook.getDistance(batch[n], codebook.getNearestCentroidIndex(batch[n]));
+                double actual = codebook.getDistance(batch[n], nearest[n]);
+
+                assertEquals(msg, expected, actual, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testNearestCentroids() {
+        Codebook codebook = new Codebook(centroids);
+
+        int[] indices = new int[5];
+        double[] distances = new double[5];
+
+        String msg = "Top k centroids should match the k first of all the centroids sorted by distance";
+
+        for (double[] descriptor : descriptors) {
+            int count = codebook.getNearestCentroidIndices(descriptor, 5, indices, distances);
+
+            assertEquals(msg, 5, count);
+
+            double[] all = new double[centroids.length];
+
+            for (int i = 0; i < centroids.length; i++) {
+                all[i] = codebook.getDistance(descriptor, i);
+            }
+
+            Arrays.sort(all);
+
+            for (int i = 0; i < count; i++) {
+                assertEquals(msg, all[i], distances[i], 1e-9);
+                assertEquals(msg, distances[i], codebook.getDistance(descriptor, indices[i]), 1e-9);
+            }
+        }
+
+        msg = "Top k centroids should be bounded by the size of the codebook";
+
+        Codebook small = new Codebook(Arrays.copyOf(centroids, 3));
+
+        assertEquals(msg, 3, small.getNearestCentroidIndices(descriptors[0], 5, indices, distances));
+    }
+
+    private static void assertExact(AssignmentIndex index) {
+        Codebook codebook = new Codebook(centroids, index);
+        LinearIndex baseline = new LinearIndex(centroids);
+
+        String msg = "Exact assignment should find a centroid as near as the linear scan";
+
+        for (double[] descriptor : descriptors) {
+            double expected = codebook.getDistance(descriptor, baseline.assign(descriptor));
+            double actual = codebook.getDistance(descriptor, codebook.getNearestCentroidIndex(descriptor));
+
+            assertEquals(msg, expected, actual, 1e-9);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.io.BatchLoader;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A test case for the BatchLoader class against an embedded database.
+ *
+ * @author Akis Papadopoulos
+ */
+public class BatchLoaderTest {
+
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:index");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE images (id VARCHAR(64) PRIMARY KEY, descriptor ARRAY, bucket INT)");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void testLoad() throws SQLException {
+        BatchLoader loader = new BatchLoader(connection, 4, 8);
+
+        for (int i = 0; i < 25; i++) {
+            loader.load(i + "-image", new double[]{i, i + 0.5}, i);
+        }
+
+        String msg = "Only whole transaction chunks should be committed before flushing";
+
+        assertEquals(msg, 24, loader.getLoaded());
+
+        loader.flush();
+        loader.close();
+
+        msg = "All rows should be committed after flushing";
+
+        assertEquals(msg, 25, loader.getLoaded());
+        assertEquals(msg, 25, count());
+
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT descriptor, bucket FROM images WHERE id = '7-image'")) {
+            assertTrue(rs.next());
+
+            Array array = rs.getArray(1);
+            Object[] components = (Object[]) array.getArray();
+
+            assertEquals(7.0, ((Number) components[0]).doubleValue(), 0.0);
+            assertEquals(7.5, ((Number) components[1]).doubleValue(), 0.0);
+            assertEquals(7, rs.getInt(2));
+        }
+    }
+
+    @Test
+    public void testFailedChunk() throws SQLException {
+        BatchLoader loader = new BatchLoader(connection, 2, 2);
+
+        loader.load("1-a", new double[]{1}, 1);
+        loader.load("1-b", new double[]{2}, 1);
+
+        loader.load("1-c", new double[]{3}, 1);
+
+        String msg = "A duplicate key should discard the failing chunk";
+
+        try {
+            loader.load("1-a", new double[]{4}, 1);
+        } catch (SQLException exc) {
+            // Expected failure of the second chunk
+        }
+
+        loader.load("1-d", new double[]{5}, 1);
+        loader.flush();
+        loader.close();
+
+        assertEquals(msg, 2, loader.getFailed());
+        assertEquals(msg, 3, loader.getLoaded());
+        assertEquals(msg, 3, count());
+    }
+
+    private int count() throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM images")) {
+            rs.next();
+
+            return rs.getInt(1);
+        }
+    }
+}
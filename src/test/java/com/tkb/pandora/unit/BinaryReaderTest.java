@@ -0,0 +1,276 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.io.BinaryReader;
+import com.tkb.pandora.io.BinaryWriter;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.RowIterator;
+import com.tkb.pandora.io.RowWriter;
+import com.tkb.pandora.io.SparseReader;
+import com.tkb.pandora.io.SparseWriter;
+import com.tkb.pandora.io.Writer;
+import com.tkb.pandora.math.SparseVector;
+import com.tkb.pandora.util.ArrayOps;
+import java.io.File;
+import java.io.IOException;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the BinaryReader, BinaryWriter, SparseReader and
+ * SparseWriter classes.
+ *
+ * @author Akis Papadopoulos
+ */
+public class BinaryReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static double[][] a1 = {{0.1, 2.5, -3.0}, {4.0, 5.75, 6.125}, {-7.5, 8.0, 9.25}};
+
+    private static double[][] a2 = {{1.0, 2.0, 3.0}};
+
+    @Test
+    public void testDoubleRoundTrip() throws IOException {
+        String filepath = new File(folder.getRoot(), "a.bin").getPath();
+
+        BinaryWriter.write(a1, filepath, false, false);
+
+        double[][] m = BinaryReader.read(filepath);
+
+        String msg = "Double precision matrix should be read back unchanged";
+
+        assertTrue(msg, ArrayOps.equal(a1, m));
+
+        msg = "Reading a single row should return the indexed row";
+
+        assertTrue(msg, ArrayOps.equal(a1[1], BinaryReader.read(filepath, 2)));
+
+        msg = "Reading a row out of range should return null";
+
+        assertNull(msg, BinaryReader.read(filepath, 4));
+    }
+
+    @Test
+    public void testFloatRoundTrip() throws IOException {
+        String filepath = new File(folder.getRoot(), "b.bin").getPath();
+
+        BinaryWriter.write(a1, filepath, false, true);
+
+        double[][] m = BinaryReader.read(filepath);
+
+        assertEquals(a1.length, m.length);
+
+        for (int i = 0; i < a1.length; i++) {
+            for (int j = 0; j < a1[i].length; j++) {
+                assertEquals((double) (float) a1[i][j], m[i][j], 0.0);
+            }
+        }
+
+        String msg = "Single precision payload should take half the space";
+
+        assertEquals(msg, 24 + 4 * 9, new File(filepath).length());
+    }
+
+    @Test
+    public void testSinglePrecisionRoundTrip() throws IOException {
+        String filepath = new File(folder.getRoot(), "f.bin").getPath();
+
+        float[][] f1 = ArrayOps.toFloat(a1);
+
+        BinaryWriter.write(f1, filepath, false, true);
+
+        float[][] m = BinaryReader.readFloat(filepath);
+
+        String msg = "Single precision matrix should be read back unchanged";
+
+        assertEquals(msg, f1.length, m.length);
+
+        for (int i = 0; i < f1.length; i++) {
+            assertArrayEquals(msg, f1[i], m[i], 0.0f);
+        }
+
+        msg = "Reading a single row should return the indexed row";
+
+        assertArrayEquals(msg, f1[2], BinaryReader.readFloat(filepath, 3), 0.0f);
+
+        msg = "Single precision payload read as doubles should be up cast";
+
+        assertEquals(msg, (double) f1[1][1], BinaryReader.read(filepath)[1][1], 0.0);
+    }
+
+    @Test
+    public void testAppend() throws IOException {
+        String filepath = new File(folder.getRoot(), "c.bin").getPath();
+
+        BinaryWriter.write(new double[0][], filepath, false, false);
+        BinaryWriter.write(a1, filepath, true, false);
+        BinaryWriter.write(a2[0], filepath, true, false);
+
+        double[][] m = BinaryReader.read(filepath);
+
+        String msg = "Appended rows should follow the already written rows";
+
+        assertEquals(msg, 4, m.length);
+        assertTrue(msg, ArrayOps.equal(a1, ArrayOps.copy(m, 0, 2)));
+        assertTrue(msg, ArrayOps.equal(a2[0], m[3]));
+    }
+
+    @Test
+    public void testRowIterator() throws IOException {
+        String csvpath = new File(folder.getRoot(), "r.csv").getPath();
+        String f64path = new File(folder.getRoot(), "r64.bin").getPath();
+        String f32path = new File(folder.getRoot(), "r32.bin").getPath();
+        String sparsepath = new File(folder.getRoot(), "rs.bin").getPath();
+
+        String bulkcsvpath = new File(folder.getRoot(), "b.csv").getPath();
+        String bulkf64path = new File(folder.getRoot(), "b64.bin").getPath();
+        String bulkf32path = new File(folder.getRoot(), "b32.bin").getPath();
+        String bulksparsepath = new File(folder.getRoot(), "bs.bin").getPath();
+
+        Writer.write(a1, bulkcsvpath, false);
+        BinaryWriter.write(a1, bulkf64path, false, false);
+        BinaryWriter.write(a1, bulkf32path, false, true);
+        SparseWriter.write(a1, bulksparsepath, false);
+
+        FileFormat[] formats = {FileFormat.CSV, FileFormat.FLOAT64, FileFormat.FLOAT32, FileFormat.SPARSE};
+        String[] paths = {csvpath, f64path, f32path, sparsepath};
+        String[] bulkpaths = {bulkcsvpath, bulkf64path, bulkf32path, bulksparsepath};
+
+        for (int f = 0; f < formats.length; f++) {
+            // Reading back the rows of the file written in bulk
+            RowIterator rows = formats[f].iterate(bulkpaths[f]);
+
+            try {
+                for (int i = 0; i < a1.length; i++) {
+                    String msg = "Iterating " + formats[f] + " written in bulk should return every row in order";
+
+                    assertTrue(msg, rows.hasNext());
+                    assertArrayEquals(msg, a1[i], rows.next(), 1e-6);
+                }
+
+                String msg = "Iterating " + formats[f] + " written in bulk should end after the last row";
+
+                assertFalse(msg, rows.hasNext());
+            } finally {
+                rows.close();
+            }
+
+            // Writing the first row then appending the rest
+            RowWriter writer = formats[f].open(paths[f], false);
+
+            writer.write(a1[0]);
+            writer.close();
+
+            writer = formats[f].open(paths[f], true);
+
+            for (int i = 1; i < a1.length; i++) {
+                writer.write(a1[i]);
+            }
+
+            writer.close();
+
+            assertEquals("Writer should count the rows written", a1.length - 1, writer.getCount());
+
+            rows = formats[f].iterate(paths[f]);
+
+            try {
+                for (int i = 0; i < a1.length; i++) {
+                    String msg = "Iterating " + formats[f] + " should return every row in order";
+
+                    assertTrue(msg, rows.hasNext());
+                    assertArrayEquals(msg, a1[i], rows.next(), 1e-6);
+                }
+
+                String msg = "Iterating " + formats[f] + " should end after the last row";
+
+                assertFalse(msg, rows.hasNext());
+            } finally {
+                rows.close();
+            }
+
+            rows = formats[f].iterate(paths[f]);
+
+            try {
+                String msg = "Skipping " + formats[f] + " should skip rows up to the end";
+
+                assertEquals(msg, 1, rows.skip(1));
+                assertArrayEquals(msg, a1[1], rows.next(), 1e-6);
+                assertEquals(msg, 1, rows.skip(5));
+                assertFalse(msg, rows.hasNext());
+            } finally {
+                rows.close();
+            }
+
+            rows = formats[f].iterate(paths[f]);
+
+            try {
+                String msg = "Skipping " + formats[f] + " after a read should move within the rows";
+
+                assertArrayEquals(msg, a1[0], rows.next(), 1e-6);
+                assertEquals(msg, 1, rows.skip(1));
+                assertArrayEquals(msg, a1[2], rows.next(), 1e-6);
+                assertEquals(msg, 0, rows.skip(1));
+            } finally {
+                rows.close();
+            }
+        }
+    }
+
+    @Test
+    public void testSparseRoundTrip() throws IOException {
+        String filepath = new File(folder.getRoot(), "s.bin").getPath();
+
+        double[][] matrix = {{0, 1.5, 0, 0, -2.0}, {0, 0, 0, 0, 0}, {3.0, 0, 0, 0.25, 0}};
+
+        SparseWriter.write(matrix, filepath, false);
+
+        String msg = "Sparse matrix should be read back unchanged";
+
+        assertTrue(msg, ArrayOps.equal(matrix, SparseReader.read(filepath)));
+
+        msg = "Sparse rows should hold only the non zero components";
+
+        SparseVector[] rows = SparseReader.readSparse(filepath);
+
+        assertEquals(msg, 3, rows.length);
+        assertEquals(msg, 2, rows[0].size());
+        assertEquals(msg, 0, rows[1].size());
+        assertArrayEquals(msg, new int[]{0, 3}, rows[2].getIndices());
+        assertEquals(msg, 5, rows[2].getDimension());
+
+        msg = "Reading a single row should return the indexed row";
+
+        assertTrue(msg, ArrayOps.equal(matrix[2], SparseReader.read(filepath, 3)));
+
+        msg = "Reading a row out of range should return null";
+
+        assertNull(msg, SparseReader.read(filepath, 4));
+
+        msg = "Truncating at a row boundary should drop the rows after it";
+
+        long size = new File(filepath).length();
+
+        SparseWriter.write(new SparseVector(5, new int[]{4}, new float[]{1}), filepath, true);
+
+        assertEquals(msg, 4, SparseReader.readSparse(filepath).length);
+
+        FileFormat.SPARSE.truncate(filepath, size);
+
+        assertTrue(msg, ArrayOps.equal(matrix, FileFormat.SPARSE.read(filepath)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testAppendMismatch() throws IOException {
+        String filepath = new File(folder.getRoot(), "d.bin").getPath();
+
+        BinaryWriter.write(a1, filepath, false, false);
+        BinaryWriter.write(new double[]{1.0, 2.0}, filepath, true, false);
+    }
+}
@@ -0,0 +1,143 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.exec.Builder;
+import static com.tkb.pandora.unit.Fixtures.codebooks;
+import static com.tkb.pandora.unit.Fixtures.floatCodebooks;
+import static com.tkb.pandora.unit.Fixtures.uniform;
+import com.tkb.pandora.io.DescriptorSource;
+import com.tkb.pandora.io.DescriptorStore;
+import com.tkb.pandora.io.DescriptorStoreWriter;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.io.VectorReader;
+import com.tkb.pandora.vector.Aggregator;
+import com.tkb.pandora.vector.FloatAggregator;
+import com.tkb.pandora.vector.FloatVladAggregator;
+import com.tkb.pandora.vector.VladAggregator;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the parallel building of the Builder class against the
+ * building by a single worker.
+ *
+ * @author Akis Papadopoulos
+ */
+public class BuilderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Logger logger = Logger.getLogger(BuilderTest.class);
+
+    @Test
+    public void testParallel() throws Exception {
+        Aggregator aggregator = new VladAggregator(codebooks(), true);
+
+        assertParallel(aggregator, null, FileFormat.FLOAT64);
+    }
+
+    @Test
+    public void testParallelSingle() throws Exception {
+        FloatAggregator floatAggregator = new FloatVladAggregator(floatCodebooks(), true);
+
+        assertParallel(null, floatAggregator, FileFormat.FLOAT32);
+    }
+
+    /**
+     * A method asserting the vectors built by a few workers match the vectors
+     * built by a single worker, image by image.
+     *
+     * @param aggregator the aggregator, null in single precision.
+     * @param floatAggregator the single precision aggregator, null in double
+     * precision.
+     * @param format the vectors file format.
+     * @throws Exception an unknown exception.
+     */
+    private void assertParallel(Aggregator aggregator, FloatAggregator floatAggregator, FileFormat format) throws Exception {
+        String inpath = new File(folder.getRoot(), "descriptors").getPath();
+
+        // Writing images of varying number of descriptors
+        DescriptorStoreWriter writer = new DescriptorStoreWriter(inpath, false, 4096);
+
+        try {
+            for (int i = 0; i < 32; i++) {
+                writer.write("image" + i, uniform(1 + (i * 7) % 40, 8, i));
+            }
+        } finally {
+            writer.close();
+        }
+
+        DescriptorSource source = new DescriptorStore(inpath, true);
+
+        try {
+            Map<String, double[]> expected = build(aggregator, floatAggregator, source, format, "sequential", 1);
+            Map<String, double[]> actual = build(aggregator, floatAggregator, source, format, "parallel", 4);
+
+            String msg = "Every image should be built once";
+
+            assertEquals(msg, source.size(), expected.size());
+            assertEquals(msg, source.size(), actual.size());
+
+            msg = "Vectors should match the single worker under the same id";
+
+            for (Map.Entry<String, double[]> entry : expected.entrySet()) {
+                assertTrue(msg, actual.containsKey(entry.getKey()));
+                assertArrayEquals(msg, entry.getValue(), actual.get(entry.getKey()), 0.0);
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * A method building the vectors of the given source by the given number of
+     * workers, reading them back by id.
+     *
+     * @param aggregator the aggregator, null in single precision.
+     * @param floatAggregator the single precision aggregator, null in double
+     * precision.
+     * @param source the local descriptors.
+     * @param format the vectors file format.
+     * @param name the name of the output directory.
+     * @param workers the number of workers.
+     * @return the vectors by id.
+     * @throws Exception an unknown exception.
+     */
+    private Map<String, double[]> build(Aggregator aggregator, FloatAggregator floatAggregator, DescriptorSource source, FileFormat format, String name, int workers) throws Exception {
+        String outpath = new File(folder.getRoot(), name).getPath();
+
+        Journal journal = new Journal(new File(folder.getRoot(), name + ".journal").getPath(), "abc");
+
+        try {
+            Builder.build(aggregator, floatAggregator, "vlad", source, outpath, format, StorageLayout.STORE, workers, journal, logger);
+        } finally {
+            journal.close();
+        }
+
+        Map<String, double[]> vectors = new HashMap<String, double[]>();
+
+        VectorReader reader = StorageLayout.STORE.reader(outpath, "vlad", format, true);
+
+        try {
+            while (reader.next()) {
+                String msg = "No image should be built twice";
+
+                assertTrue(msg, vectors.put(reader.getId(), reader.getVector().clone()) == null);
+            }
+        } finally {
+            reader.close();
+        }
+
+        return vectors;
+    }
+}
@@ -0,0 +1,101 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.math.Covariance;
+import static com.tkb.pandora.unit.Fixtures.gaussian;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * A test case for the Covariance class.
+ *
+ * @author Akis Papadopoulos
+ */
+public class CovarianceTest {
+
+    private static double[][] vectors = gaussian(150, 7, 1L, 5);
+
+    @Test
+    public void testScatter() throws Exception {
+        double[] mean = mean(vectors);
+
+        double[][] expected = scatter(vectors, mean, vectors.length);
+
+        for (int threads : new int[]{1, 3, 16}) {
+            Covariance covariance = new Covariance(mean, threads);
+
+            try {
+                for (double[] vector : vectors) {
+                    covariance.add(vector);
+                }
+
+                String msg = "Streamed scatter matrix should match the direct one with " + threads + " threads";
+
+                assertEquals(msg, vectors.length, covariance.getCount());
+                assertMatrix(msg, expected, covariance.getScatter());
+            } finally {
+                covariance.close();
+            }
+        }
+    }
+
+    @Test
+    public void testPartial() throws Exception {
+        double[] mean = mean(vectors);
+
+        Covariance covariance = new Covariance(mean, 2);
+
+        try {
+            for (int i = 0; i < 70; i++) {
+                covariance.add(vectors[i]);
+            }
+
+            String msg = "Scatter matrix should cover the vectors added so far";
+
+            assertMatrix(msg, scatter(vectors, mean, 70), covariance.getScatter());
+
+            for (int i = 70; i < vectors.length; i++) {
+                covariance.add(vectors[i]);
+            }
+
+            assertMatrix(msg, scatter(vectors, mean, vectors.length), covariance.getScatter());
+        } finally {
+            covariance.close();
+        }
+    }
+
+    private static void assertMatrix(String msg, double[][] expected, double[][] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected.length; j++) {
+                assertEquals(msg, expected[i][j], actual[i][j], 1e-9);
+            }
+        }
+    }
+
+    private static double[][] scatter(double[][] vectors, double[] mean, int count) {
+        int d = mean.length;
+
+        double[][] scatter = new double[d][d];
+
+        for (int n = 0; n < count; n++) {
+            for (int i = 0; i < d; i++) {
+                for (int j = 0; j < d; j++) {
+                    scatter[i][j] += (vectors[n][i] - mean[i]) * (vectors[n][j] - mean[j]);
+                }
+            }
+        }
+
+        return scatter;
+    }
+
+    private static double[] mean(double[][] vectors) {
+        double[] mean = new double[vectors[0].length];
+
+        for (double[] vector : vectors) {
+            for (int j = 0; j < mean.length; j++) {
+                mean[j] += vector[j] / vectors.length;
+            }
+        }
+
+        return mean;
+    }
+}
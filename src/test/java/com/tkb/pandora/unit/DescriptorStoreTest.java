@@ -0,0 +1,203 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.io.DescriptorSource;
+import com.tkb.pandora.io.DescriptorStore;
+import com.tkb.pandora.io.DescriptorStoreWriter;
+import com.tkb.pandora.io.DescriptorWriter;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.RowIterator;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.util.ArrayOps;
+import java.io.File;
+import java.io.IOException;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the DescriptorStore and DescriptorStoreWriter classes.
+ *
+ * @author Akis Papadopoulos
+ */
+public class DescriptorStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static double[][] a1 = {{0.1, 2.5, -3.0}, {4.0, 5.75, 6.125}, {-7.5, 8.0, 9.25}};
+
+    private static double[][] a2 = {{1.0, 2.0, 3.0}};
+
+    private static double[][] a3 = {{-1.0, -2.0, -3.0}, {0.5, 0.25, 0.125}};
+
+    @Test
+    public void testShards() throws IOException {
+        String dirpath = new File(folder.getRoot(), "store").getPath();
+
+        // Closing a shard after every image of a few rows
+        DescriptorStoreWriter writer = new DescriptorStoreWriter(dirpath, false, 64);
+
+        try {
+            writer.write("a", a1);
+            writer.write("b", a2);
+            writer.write("c", a3);
+        } finally {
+            writer.close();
+        }
+
+        String msg = "Images should be spread across shards";
+
+        assertEquals(msg, 3, new File(dirpath).list().length);
+
+        DescriptorStore store = new DescriptorStore(dirpath, true);
+
+        try {
+            msg = "Images should be numbered across the shards in order";
+
+            assertEquals(msg, 3, store.size());
+            assertEquals(msg, 6, store.getRows());
+            assertEquals(msg, 3, store.getCols());
+            assertEquals(msg, "b", store.getId(1));
+            assertEquals(msg, 2, store.getCount(2));
+
+            msg = "Descriptors should be read back unchanged by image or id";
+
+            assertTrue(msg, ArrayOps.equal(a3, store.read(2)));
+            assertTrue(msg, ArrayOps.equal(a1, store.read("a")));
+            assertNull(msg, store.read("d"));
+
+            msg = "Scanning an image should stop at its own rows";
+
+            RowIterator rows = store.iterate(0);
+
+            try {
+                assertEquals(msg, 2, rows.skip(2));
+                assertArrayEquals(msg, a1[2], rows.next(), 0.0);
+                assertFalse(msg, rows.hasNext());
+            } finally {
+                rows.close();
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testSinglePrecision() throws IOException {
+        String dirpath = new File(folder.getRoot(), "single").getPath();
+
+        DescriptorWriter writer = StorageLayout.STORE.descriptorWriter(dirpath, "desc", FileFormat.FLOAT32, 1 << 20);
+
+        try {
+            writer.write("a", new float[][]{{0.5f, -1.25f}, {2.0f, 4.0f}});
+            writer.write("b", new float[][]{{3.0f, 0.75f}});
+        } finally {
+            writer.close();
+        }
+
+        DescriptorSource source = StorageLayout.STORE.descriptorSource(dirpath, "desc", FileFormat.FLOAT32, true);
+
+        try {
+            String msg = "Images of a single shard should share the same file";
+
+            assertEquals(msg, 1, new File(dirpath).list().length);
+            assertEquals(msg, 2, source.size());
+
+            msg = "Single precision descriptors should be read back unchanged";
+
+            assertArrayEquals(msg, new float[]{2.0f, 4.0f}, source.readFloat(0)[1], 0.0f);
+            assertArrayEquals(msg, new double[]{3.0, 0.75}, source.read(1)[0], 0.0);
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void testFilesLayout() throws IOException {
+        String dirpath = folder.getRoot().getPath();
+
+        DescriptorWriter writer = StorageLayout.FILES.descriptorWriter(dirpath, "desc", FileFormat.FLOAT64, 0);
+
+        try {
+            writer.write("img-1", a1);
+        } finally {
+            writer.close();
+        }
+
+        DescriptorSource source = StorageLayout.FILES.descriptorSource(dirpath, "desc", FileFormat.FLOAT64, false);
+
+        try {
+            String msg = "Descriptor files should be named after their ids";
+
+            assertTrue(msg, new File(dirpath, "img-1.desc").exists());
+            assertEquals(msg, "img-1", source.getId(0));
+            assertTrue(msg, ArrayOps.equal(a1, source.read(0)));
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void testIncompleteShard() throws IOException {
+        String dirpath = new File(folder.getRoot(), "incomplete").getPath();
+
+        DescriptorStoreWriter complete = new DescriptorStoreWriter(dirpath, false, 1 << 20);
+        complete.write("a", a1);
+        complete.close();
+
+        // Leaving a shard open as an interrupted writer would
+        DescriptorStoreWriter open = new DescriptorStoreWriter(dirpath, false, 1 << 20);
+        open.write("b", a2);
+
+        DescriptorStore store = new DescriptorStore(dirpath, true);
+
+        try {
+            String msg = "Incomplete shards should be ignored and reported";
+
+            assertEquals(msg, 1, store.size());
+            assertEquals(msg, 1, store.getIncomplete().size());
+        } finally {
+            store.close();
+
+            open.close();
+        }
+    }
+
+    @Test
+    public void testRaggedDescriptors() throws IOException {
+        String dirpath = new File(folder.getRoot(), "ragged").getPath();
+
+        DescriptorStoreWriter writer = new DescriptorStoreWriter(dirpath, false, 1 << 20);
+
+        try {
+            writer.write("a", a1);
+
+            try {
+                writer.write("b", new double[][]{{1.0, 2.0, 3.0}, {1.0}});
+
+                fail("Descriptors of different size should be rejected");
+            } catch (IOException exc) {
+                // Expected
+            }
+        } finally {
+            writer.close();
+        }
+
+        DescriptorStore store = new DescriptorStore(dirpath, true);
+
+        try {
+            String msg = "A rejected image should leave the shard consistent";
+
+            assertEquals(msg, 1, store.size());
+            assertEquals(msg, 3, store.getRows());
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.exec.Extractor;
+import com.tkb.pandora.image.FeatureDetector;
+import com.tkb.pandora.io.DescriptorSource;
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
+import com.tkb.pandora.io.StorageLayout;
+import static com.tkb.pandora.unit.Fixtures.images;
+import com.tkb.pandora.util.ArrayOps;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the parallel extraction of the Extractor class against the
+ * extraction by a single worker.
+ *
+ * @author Akis Papadopoulos
+ */
+public class ExtractorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Logger logger = Logger.getLogger(ExtractorTest.class);
+
+    @Test
+    public void testParallelFiles() throws Exception {
+        assertParallel(StorageLayout.FILES);
+    }
+
+    @Test
+    public void testParallelStore() throws Exception {
+        assertParallel(StorageLayout.STORE);
+    }
+
+    /**
+     * A method asserting the descriptions extracted by a few workers match
+     * the descriptions extracted by a single worker, image by image.
+     *
+     * @param layout the descriptions storage layout.
+     * @throws Exception an unknown exception.
+     */
+    private void assertParallel(StorageLayout layout) throws Exception {
+        File dirin = folder.newFolder("images");
+
+        String[] filenames = images(dirin, 24);
+
+        String sequential = extract(layout, "sequential", 1, dirin, filenames);
+        String parallel = extract(layout, "parallel", 4, dirin, filenames);
+
+        DescriptorSource expected = layout.descriptorSource(sequential, "desc", FileFormat.CSV, true);
+        DescriptorSource actual = layout.descriptorSource(parallel, "desc", FileFormat.CSV, true);
+
+        try {
+            String msg = "Every image should be extracted once";
+
+            assertEquals(msg, filenames.length, expected.size());
+            assertEquals(msg, filenames.length, actual.size());
+
+            Map<String, Integer> images = new HashMap<String, Integer>();
+
+            for (int i = 0; i < actual.size(); i++) {
+                images.put(actual.getId(i), i);
+            }
+
+            assertEquals(msg, filenames.length, images.size());
+
+            msg = "Descriptors should match the single worker under the same id and in the same order";
+
+            for (int i = 0; i < expected.size(); i++) {
+                Integer image = images.get(expected.getId(i));
+
+                assertTrue(msg, image != null);
+                assertTrue(msg, ArrayOps.equal(expected.read(i), actual.read(image)));
+            }
+        } finally {
+            expected.close();
+            actual.close();
+        }
+    }
+
+    /**
+     * A method extracting the descriptions of the given images by the given
+     * number of workers.
+     *
+     * @param layout the descriptions storage layout.
+     * @param name the name of the output directory.
+     * @param workers the number of workers.
+     * @param dirin the images directory.
+     * @param filenames the image file names.
+     * @return the path to the descriptions.
+     * @throws Exception an unknown exception.
+     */
+    private String extract(StorageLayout layout, String name, int workers, File dirin, String[] filenames) throws Exception {
+        File dirout = folder.newFolder(name);
+
+        FeatureDetector[] detectors = new FeatureDetector[workers];
+
+        for (int w = 0; w < workers; w++) {
+            detectors[w] = new Fixtures.RowDetector();
+        }
+
+        Journal journal = new Journal(new File(folder.getRoot(), name + ".journal").getPath(), "abc");
+
+        try {
+            Extractor.extract(detectors, false, dirin, filenames, layout, dirout.getPath(), FileFormat.CSV, 1024, journal, logger);
+        } finally {
+            journal.close();
+        }
+
+        return dirout.getPath();
+    }
+}
@@ -0,0 +1,145 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.image.Description;
+import com.tkb.pandora.image.FeatureDetector;
+import com.tkb.pandora.vector.Codebook;
+import com.tkb.pandora.vector.FloatCodebook;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * The fixtures shared by the test cases, such as the seeded random matrices,
+ * the two vocabularies of the aggregator tests and the images of the stage
+ * tests.
+ *
+ * @author Akis Papadopoulos
+ */
+final class Fixtures {
+
+    // Centroids of the first vocabulary
+    static final double[][] centroids1 = uniform(16, 8, 1L);
+
+    // Centroids of the second vocabulary
+    static final double[][] centroids2 = uniform(8, 8, 2L);
+
+    /**
+     * A method returning the codebooks of the two vocabularies.
+     *
+     * @return the codebooks.
+     */
+    static Codebook[] codebooks() {
+        return new Codebook[]{new Codebook(centroids1), new Codebook(centroids2)};
+    }
+
+    /**
+     * A method returning the single precision codebooks of the two
+     * vocabularies.
+     *
+     * @return the codebooks.
+     */
+    static FloatCodebook[] floatCodebooks() {
+        return new FloatCodebook[]{new FloatCodebook(centroids1), new FloatCodebook(centroids2)};
+    }
+
+    /**
+     * A method returning a matrix of uniform random components in [0, 1),
+     * rounded to single precision so the single precision code sees exactly
+     * the same values.
+     *
+     * @param rows the number of rows.
+     * @param cols the number of columns.
+     * @param seed the seed number.
+     * @return the matrix.
+     */
+    static double[][] uniform(int rows, int cols, long seed) {
+        Random rand = new Random(seed);
+
+        double[][] matrix = new double[rows][cols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = (float) rand.nextDouble();
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * A method returning a matrix of gaussian random components of unit
+     * variance around the given mean.
+     *
+     * @param rows the number of rows.
+     * @param cols the number of columns.
+     * @param seed the seed number.
+     * @param mean the mean of the components.
+     * @return the matrix.
+     */
+    static double[][] gaussian(int rows, int cols, long seed, double mean) {
+        Random rand = new Random(seed);
+
+        double[][] matrix = new double[rows][cols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = rand.nextGaussian() + mean;
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * A method writing the given number of random images of varying height
+     * in the given directory.
+     *
+     * @param dirin the images directory.
+     * @param count the number of images.
+     * @return the image file names.
+     * @throws IOException an unknown exception.
+     */
+    static String[] images(File dirin, int count) throws IOException {
+        Random rand = new Random(5L);
+
+        String[] filenames = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(4, 1 + rand.nextInt(8), BufferedImage.TYPE_INT_RGB);
+
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, rand.nextInt(0x1000000));
+                }
+            }
+
+            filenames[i] = "image" + i + ".png";
+
+            ImageIO.write(image, "png", new File(dirin, filenames[i]));
+        }
+
+        return filenames;
+    }
+
+    /**
+     * A detector describing each row of an image by its pixels, so the order
+     * of the descriptors is that of the rows.
+     */
+    static class RowDetector implements FeatureDetector {
+
+        @Override
+        public Description extract(BufferedImage image) throws Exception {
+            double[][] descriptors = new double[image.getHeight()][image.getWidth()];
+
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    descriptors[y][x] = image.getRGB(x, y) & 0xFFFFFF;
+                }
+            }
+
+            return new Description(descriptors);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.search.FlatIndex;
+import com.tkb.pandora.search.Metric;
+import com.tkb.pandora.search.Neighbor;
+import com.tkb.pandora.search.VectorMatrix;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A test case for the FlatIndex class.
+ *
+ * @author Akis Papadopoulos
+ */
+public class FlatIndexTest {
+
+    private double[][] vectors;
+
+    private double[][] queries;
+
+    private VectorMatrix matrix;
+
+    private FlatIndex index;
+
+    @Before
+    public void setUp() {
+        Random rand = new Random(5);
+
+        vectors = new double[1000][16];
+        queries = new double[20][16];
+
+        for (double[] vector : vectors) {
+            for (int j = 0; j < vector.length; j++) {
+                vector[j] = rand.nextGaussian();
+            }
+        }
+
+        for (double[] query : queries) {
+            for (int j = 0; j < query.length; j++) {
+                query[j] = rand.nextGaussian();
+            }
+        }
+
+        matrix = new VectorMatrix(vectors.length, 16);
+
+        for (int i = 0; i < vectors.length; i++) {
+            matrix.set(i, vectors[i]);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testEuclidean() throws Exception {
+        index = new FlatIndex(matrix, Metric.L2, 3);
+
+        Neighbor[][] batch = index.search(queries, 10, new long[queries.length]);
+
+        for (int q = 0; q < queries.length; q++) {
+            final double[] query = queries[q];
+
+            Integer[] expected = exact(new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(distance(vectors[a], query), distance(vectors[b], query));
+                }
+            });
+
+            Neighbor[] single = index.search(query, 10);
+
+            for (int i = 0; i < 10; i++) {
+                String msg = "Euclidean search should return the exact neighbors in ascending distance";
+
+                assertEquals(msg, (int) expected[i], single[i].getIndex());
+                assertEquals(msg, (int) expected[i], batch[q][i].getIndex());
+                assertEquals(msg, distance(vectors[expected[i]], query), single[i].getScore(), 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void testInnerProduct() throws Exception {
+        index = new FlatIndex(matrix, Metric.INNER_PRODUCT, 2);
+
+        for (final double[] query : queries) {
+            Integer[] expected = exact(new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(dot(vectors[b], query), dot(vectors[a], query));
+                }
+            });
+
+            Neighbor[] single = index.search(query, 5);
+
+            for (int i = 0; i < 5; i++) {
+                String msg = "Inner product search should return the exact neighbors in descending product";
+
+                assertEquals(msg, (int) expected[i], single[i].getIndex());
+                assertEquals(msg, dot(vectors[expected[i]], query), single[i].getScore(), 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeK() throws Exception {
+        index = new FlatIndex(matrix, Metric.L2, 4);
+
+        String msg = "Search should return no more neighbors than the indexed vectors";
+
+        assertEquals(msg, vectors.length, index.search(queries[0], 5000).length);
+    }
+
+    private Integer[] exact(Comparator<Integer> comparator) {
+        Integer[] order = new Integer[vectors.length];
+
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, comparator);
+
+        return order;
+    }
+
+    private static double distance(double[] a, double[] b) {
+        double sum = 0;
+
+        for (int j = 0; j < a.length; j++) {
+            sum += (a[j] - b[j]) * (a[j] - b[j]);
+        }
+
+        return sum;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+
+        for (int j = 0; j < a.length; j++) {
+            sum += a[j] * b[j];
+        }
+
+        return sum;
+    }
+}
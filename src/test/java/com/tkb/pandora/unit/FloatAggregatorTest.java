@@ -0,0 +1,55 @@
+package com.tkb.pandora.unit;
+
+import static com.tkb.pandora.unit.Fixtures.codebooks;
+import static com.tkb.pandora.unit.Fixtures.floatCodebooks;
+import static com.tkb.pandora.unit.Fixtures.uniform;
+import com.tkb.pandora.util.ArrayOps;
+import com.tkb.pandora.vector.Aggregator;
+import com.tkb.pandora.vector.BowAggregator;
+import com.tkb.pandora.vector.FloatAggregator;
+import com.tkb.pandora.vector.FloatBowAggregator;
+import com.tkb.pandora.vector.FloatVladAggregator;
+import com.tkb.pandora.vector.FloatVlatAggregator;
+import com.tkb.pandora.vector.VladAggregator;
+import com.tkb.pandora.vector.VlatAggregator;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * A test case for the single precision aggregators against their double
+ * precision counterparts.
+ *
+ * @author Akis Papadopoulos
+ */
+public class FloatAggregatorTest {
+
+    private static double[][] descriptors = uniform(200, 8, 3L);
+
+    @Test
+    public void testBow() {
+        assertClose(new BowAggregator(codebooks(), true), new FloatBowAggregator(floatCodebooks(), true));
+    }
+
+    @Test
+    public void testVlad() {
+        assertClose(new VladAggregator(codebooks(), true), new FloatVladAggregator(floatCodebooks(), true));
+    }
+
+    @Test
+    public void testVlat() {
+        assertClose(new VlatAggregator(codebooks(), true), new FloatVlatAggregator(floatCodebooks(), true));
+    }
+
+    private static void assertClose(Aggregator aggregator, FloatAggregator floatAggregator) {
+        double[] expected = aggregator.aggregate(descriptors);
+        float[] actual = floatAggregator.aggregate(ArrayOps.toFloat(descriptors));
+
+        String msg = "Single precision vector should match the double precision one";
+
+        assertEquals(msg, expected.length, actual.length);
+
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(msg, expected[i], actual[i], 1e-4);
+        }
+    }
+}
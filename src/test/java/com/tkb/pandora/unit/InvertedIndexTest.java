@@ -0,0 +1,208 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.math.SparseVector;
+import com.tkb.pandora.search.InvertedIndex;
+import com.tkb.pandora.search.Neighbor;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the InvertedIndex class.
+ *
+ * @author Akis Papadopoulos
+ */
+public class InvertedIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private double[][] vectors;
+
+    @Before
+    public void setUp() {
+        Random rand = new Random(5);
+
+        // Drawing a few frequent words out of a large vocabulary per vector, words of low id more often
+        vectors = new double[300][2000];
+
+        for (double[] vector : vectors) {
+            for (int n = 0; n < 40; n++) {
+                int word = (int) (2000 * Math.pow(rand.nextDouble(), 3));
+
+                vector[word] += 1;
+            }
+        }
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        InvertedIndex index = build();
+
+        try {
+            String msg = "Index should hold every added vector";
+
+            assertEquals(msg, vectors.length, index.size());
+
+            msg = "Index should hold a posting per non zero component";
+
+            long postings = 0;
+
+            for (double[] vector : vectors) {
+                postings += SparseVector.of(vector).size();
+            }
+
+            assertEquals(msg, postings, index.getPostings());
+
+            msg = "Index should rank the vectors as the exact tf-idf cosine similarity";
+
+            double[] idf = idf();
+
+            for (int q = 0; q < 20; q++) {
+                Neighbor[] neighbors = index.search(vectors[q], 10);
+
+                double[] expected = exact(vectors[q], idf);
+
+                assertEquals(msg, 10, neighbors.length);
+                assertEquals(msg, q, neighbors[0].getIndex());
+
+                for (int i = 0; i < neighbors.length; i++) {
+                    assertEquals(msg, expected[i], neighbors[i].getScore(), 1e-4);
+                    assertEquals(msg, cosine(vectors[q], vectors[neighbors[i].getIndex()], idf), neighbors[i].getScore(), 1e-4);
+                }
+            }
+
+            msg = "Batch search should match the single search";
+
+            double[][] queries = Arrays.copyOf(vectors, 8);
+
+            long[] latencies = new long[queries.length];
+
+            Neighbor[][] results = index.search(queries, 5, latencies);
+
+            for (int q = 0; q < queries.length; q++) {
+                Neighbor[] expected = index.search(queries[q], 5);
+
+                for (int i = 0; i < 5; i++) {
+                    assertEquals(msg, expected[i].getIndex(), results[q][i].getIndex());
+                    assertEquals(msg, expected[i].getScore(), results[q][i].getScore(), 1e-6);
+                }
+
+                assertTrue("Latency should be measured", latencies[q] > 0);
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void testSaveLoad() throws Exception {
+        InvertedIndex index = build();
+
+        try {
+            String filepath = new File(folder.getRoot(), "index.inv").getPath();
+
+            index.save(filepath);
+
+            InvertedIndex loaded = InvertedIndex.load(filepath, 2);
+
+            try {
+                String msg = "Loaded index should answer queries as the saved one";
+
+                assertEquals(msg, index.size(), loaded.size());
+
+                for (int q = 0; q < 5; q++) {
+                    Neighbor[] expected = index.search(vectors[q], 5);
+                    Neighbor[] actual = loaded.search(vectors[q], 5);
+
+                    for (int i = 0; i < 5; i++) {
+                        assertEquals(msg, expected[i].getIndex(), actual[i].getIndex());
+                        assertEquals(msg, expected[i].getScore(), actual[i].getScore(), 1e-6);
+                    }
+                }
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDimensionMismatch() throws Exception {
+        InvertedIndex index = build();
+
+        try {
+            index.search(new double[10], 5);
+        } finally {
+            index.close();
+        }
+    }
+
+    private InvertedIndex build() {
+        InvertedIndex index = new InvertedIndex(vectors[0].length, 2);
+
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, SparseVector.of(vectors[i]));
+        }
+
+        return index;
+    }
+
+    private double[] idf() {
+        double[] idf = new double[vectors[0].length];
+
+        for (int j = 0; j < idf.length; j++) {
+            int frequency = 0;
+
+            for (double[] vector : vectors) {
+                if (vector[j] != 0) {
+                    frequency++;
+                }
+            }
+
+            idf[j] = frequency > 0 ? Math.log((double) vectors.length / frequency) : 0;
+        }
+
+        return idf;
+    }
+
+    private double[] exact(double[] query, double[] idf) {
+        double[] scores = new double[vectors.length];
+
+        for (int i = 0; i < vectors.length; i++) {
+            scores[i] = cosine(query, vectors[i], idf);
+        }
+
+        Arrays.sort(scores);
+
+        double[] descending = new double[scores.length];
+
+        for (int i = 0; i < scores.length; i++) {
+            descending[i] = scores[scores.length - 1 - i];
+        }
+
+        return descending;
+    }
+
+    private static double cosine(double[] a, double[] b, double[] idf) {
+        double dot = 0, na = 0, nb = 0;
+
+        for (int j = 0; j < a.length; j++) {
+            double x = a[j] * idf[j];
+            double y = b[j] * idf[j];
+
+            dot += x * y;
+            na += x * x;
+            nb += y * y;
+        }
+
+        return na > 0 && nb > 0 ? dot / Math.sqrt(na * nb) : 0;
+    }
+}
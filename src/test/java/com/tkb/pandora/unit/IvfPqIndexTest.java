@@ -0,0 +1,168 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.search.IvfPqIndex;
+import com.tkb.pandora.search.Neighbor;
+import com.tkb.pandora.search.ProductQuantizer;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the IvfPqIndex and ProductQuantizer classes.
+ *
+ * @author Akis Papadopoulos
+ */
+public class IvfPqIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private double[][] vectors;
+
+    @Before
+    public void setUp() {
+        Random rand = new Random(9);
+
+        // Scattering vectors around a few random centers
+        double[][] centers = new double[20][16];
+
+        for (double[] center : centers) {
+            for (int j = 0; j < center.length; j++) {
+                center[j] = rand.nextGaussian() * 4;
+            }
+        }
+
+        vectors = new double[2000][16];
+
+        for (int i = 0; i < vectors.length; i++) {
+            for (int j = 0; j < 16; j++) {
+                vectors[i][j] = centers[i % centers.length][j] + rand.nextGaussian();
+            }
+        }
+    }
+
+    @Test
+    public void testQuantizer() throws Exception {
+        ProductQuantizer pq = new ProductQuantizer(16, 4, 64);
+
+        pq.train(vectors, 10, 2, 1L);
+
+        byte[] code = new byte[4];
+
+        double error = 0;
+        double spread = 0;
+
+        for (double[] vector : vectors) {
+            pq.encode(vector, code, 0);
+
+            double[] decoded = pq.decode(code, 0);
+
+            for (int j = 0; j < 16; j++) {
+                error += (decoded[j] - vector[j]) * (decoded[j] - vector[j]);
+                spread += vector[j] * vector[j];
+            }
+        }
+
+        String msg = "Quantization error should be a small fraction of the spread of the vectors";
+
+        assertTrue(msg, error < 0.2 * spread);
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        IvfPqIndex index = IvfPqIndex.train(vectors, 16, 8, 64, 10, 4, 2, 1L);
+
+        try {
+            for (int i = 0; i < vectors.length; i++) {
+                index.add(i, vectors[i]);
+            }
+
+            String msg = "Index should hold every added vector";
+
+            assertEquals(msg, vectors.length, index.size());
+
+            // Measuring the recall of the exact nearest neighbors
+            int hits = 0;
+
+            for (int q = 0; q < 50; q++) {
+                Set<Integer> found = new HashSet<Integer>();
+
+                for (Neighbor neighbor : index.search(vectors[q], 10)) {
+                    found.add(neighbor.getIndex());
+                }
+
+                for (int id : exact(vectors[q], 10)) {
+                    if (found.contains(id)) {
+                        hits++;
+                    }
+                }
+            }
+
+            msg = "Index should recall most of the exact nearest neighbors: " + hits;
+
+            assertTrue(msg, hits > 0.5 * 500);
+
+            // Saving and loading back the index
+            String filepath = new File(folder.getRoot(), "index.ivfpq").getPath();
+
+            index.save(filepath);
+
+            IvfPqIndex loaded = IvfPqIndex.load(filepath, 4, 2);
+
+            try {
+                Neighbor[][] expected = index.search(new double[][]{vectors[0], vectors[1]}, 5, null);
+                Neighbor[][] actual = loaded.search(new double[][]{vectors[0], vectors[1]}, 5, null);
+
+                msg = "Loaded index should answer queries as the saved one";
+
+                for (int q = 0; q < 2; q++) {
+                    for (int i = 0; i < 5; i++) {
+                        assertEquals(msg, expected[q][i].getIndex(), actual[q][i].getIndex());
+                        assertEquals(msg, expected[q][i].getScore(), actual[q][i].getScore(), 1e-6);
+                    }
+                }
+            } finally {
+                loaded.close();
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    private int[] exact(double[] query, int k) {
+        Integer[] order = new Integer[vectors.length];
+        final double[] distances = new double[vectors.length];
+
+        for (int i = 0; i < vectors.length; i++) {
+            order[i] = i;
+
+            for (int j = 0; j < query.length; j++) {
+                distances[i] += (vectors[i][j] - query[j]) * (vectors[i][j] - query[j]);
+            }
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(distances[a], distances[b]);
+            }
+        });
+
+        int[] ids = new int[k];
+
+        for (int i = 0; i < k; i++) {
+            ids[i] = order[i];
+        }
+
+        return ids;
+    }
+}
@@ -0,0 +1,152 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.Journal;
+import com.tkb.pandora.io.RowWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the Journal class.
+ *
+ * @author Akis Papadopoulos
+ */
+public class JournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testResume() throws IOException {
+        String filepath = new File(folder.getRoot(), "run.journal").getPath();
+
+        Journal journal = new Journal(filepath, "abc");
+
+        try {
+            journal.commit("a");
+            journal.commit(Arrays.asList("b", "c"));
+        } finally {
+            journal.close();
+        }
+
+        // Appending a partially written line as left by a crash
+        FileOutputStream out = new FileOutputStream(filepath, true);
+
+        try {
+            out.write("d".getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+
+        journal = new Journal(filepath, "abc");
+
+        try {
+            String msg = "Committed ids should be loaded back, dropping the partial line";
+
+            assertEquals(msg, 3, journal.size());
+            assertTrue(msg, journal.contains("c"));
+            assertFalse(msg, journal.contains("d"));
+            assertEquals(msg, -1, journal.getOffset());
+
+            msg = "Retaining should keep only the ids found in the output";
+
+            journal.retain(new HashSet<String>(Arrays.asList("a", "c")));
+            journal.commit("e");
+        } finally {
+            journal.close();
+        }
+
+        journal = new Journal(filepath, "abc");
+
+        try {
+            String msg = "Retained ids should survive reopening";
+
+            assertEquals(msg, 3, journal.size());
+            assertFalse(msg, journal.contains("b"));
+            assertTrue(msg, journal.contains("e"));
+        } finally {
+            journal.close();
+        }
+
+        try {
+            new Journal(filepath, "xyz");
+
+            fail("A journal written under a different configuration should be refused");
+        } catch (IOException exc) {
+        }
+    }
+
+    @Test
+    public void testOffset() throws IOException {
+        String filepath = new File(folder.getRoot(), "sample.bin").getPath();
+
+        Journal journal = new Journal(filepath + ".journal", "abc");
+
+        RowWriter writer = FileFormat.FLOAT64.open(filepath, false);
+
+        try {
+            writer.write(new double[]{1.0, 2.0});
+            writer.flush();
+
+            journal.commit("a", new File(filepath).length());
+
+            // Rows written past the last checkpoint
+            writer.write(new double[]{3.0, 4.0});
+            writer.flush();
+        } finally {
+            writer.close();
+
+            journal.close();
+        }
+
+        journal = new Journal(filepath + ".journal", "abc");
+
+        try {
+            String msg = "The output should be truncated to the size at the last checkpoint";
+
+            assertEquals(msg, 1, journal.size());
+
+            FileFormat.FLOAT64.truncate(filepath, journal.getOffset());
+
+            double[][] rows = FileFormat.FLOAT64.read(filepath);
+
+            assertEquals(msg, 1, rows.length);
+            assertArrayEquals(msg, new double[]{1.0, 2.0}, rows[0], 0.0);
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testHash() {
+        Properties props = new Properties();
+        props.setProperty("input.path", "/data");
+        props.setProperty("method.k", "64");
+        props.setProperty("unrelated", "1");
+
+        String hash = Journal.hash(props, "input\\.path", "method\\..*");
+
+        props.setProperty("unrelated", "2");
+
+        String msg = "Only the matched properties should affect the hash";
+
+        assertEquals(msg, hash, Journal.hash(props, "input\\.path", "method\\..*"));
+
+        props.setProperty("method.k", "128");
+
+        assertFalse(msg, hash.equals(Journal.hash(props, "input\\.path", "method\\..*")));
+    }
+}
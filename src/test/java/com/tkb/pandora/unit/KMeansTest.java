@@ -0,0 +1,138 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.math.KMeans;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A test case for the KMeans class.
+ *
+ * @author Akis Papadopoulos
+ */
+public class KMeansTest {
+
+    private static double[][] centers = {{0.0, 0.0}, {10.0, 10.0}, {-10.0, 10.0}, {10.0, -10.0}};
+
+    private double[][] data;
+
+    @Before
+    public void setUp() {
+        Random rand = new Random(7);
+
+        data = new double[400][];
+
+        for (int i = 0; i < data.length; i++) {
+            double[] center = centers[i % centers.length];
+
+            data[i] = new double[]{center[0] + rand.nextGaussian() * 0.5, center[1] + rand.nextGaussian() * 0.5};
+        }
+    }
+
+    @Test
+    public void testLloyd() throws Exception {
+        String[] seedings = {"random", "kmeans++", "kmeans||"};
+
+        for (String seeding : seedings) {
+            KMeans kmeans = new KMeans(4, 50, 1e-6, 3, 1);
+
+            double[][] seeds;
+
+            if (seeding.equals("random")) {
+                seeds = kmeans.seedRandom(data);
+            } else if (seeding.equals("kmeans++")) {
+                seeds = kmeans.seedPlusPlus(data);
+            } else {
+                seeds = kmeans.seedParallel(data, 5, 2.0);
+            }
+
+            String msg = "Seeding by " + seeding + " should return k centroids";
+
+            assertEquals(msg, 4, seeds.length);
+
+            double[][] centroids = kmeans.lloyd(data, seeds);
+
+            if (!seeding.equals("random")) {
+                msg = "Lloyd iterations seeded by " + seeding + " should recover the cluster centers";
+
+                assertRecovered(msg, centroids);
+
+                msg = "Inertia should be the within cluster spread";
+
+                assertTrue(msg, kmeans.getInertia() > 0 && kmeans.getInertia() < data.length);
+            }
+        }
+    }
+
+    @Test
+    public void testMiniBatch() throws Exception {
+        KMeans kmeans = new KMeans(4, 200, 0, 2, 1);
+
+        double[][] seeds = kmeans.seedPlusPlus(data);
+
+        // Streaming the data in endless epochs
+        Iterator<double[]> stream = new Iterator<double[]>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public double[] next() {
+                return data[i++ % data.length];
+            }
+        };
+
+        double[][] centroids = kmeans.miniBatch(stream, 64, seeds);
+
+        String msg = "Mini-batch iterations should recover the cluster centers";
+
+        assertRecovered(msg, centroids);
+    }
+
+    @Test
+    public void testPasses() throws Exception {
+        int k = 16;
+        int rounds = 5;
+
+        KMeans kmeans = new KMeans(k, 50, 1e-6, 3, 1);
+
+        kmeans.seedPlusPlus(data);
+
+        String msg = "Seeding by kmeans++ should pass over the data once per centroid";
+
+        assertEquals(msg, k, kmeans.getPasses());
+
+        kmeans.seedParallel(data, rounds, 2.0);
+
+        msg = "Seeding by kmeans|| should pass over the data once per round, plus the passes over the candidates";
+
+        assertTrue(msg, kmeans.getPasses() <= 1 + rounds + 1 + k);
+    }
+
+    @Test(expected = Exception.class)
+    public void testTooFewData() throws Exception {
+        new KMeans(8, 10, 0, 1, 1).seedPlusPlus(Arrays.copyOf(data, 4));
+    }
+
+    private static void assertRecovered(String msg, double[][] centroids) {
+        for (double[] center : centers) {
+            double min = Double.MAX_VALUE;
+
+            for (double[] centroid : centroids) {
+                double dx = centroid[0] - center[0];
+                double dy = centroid[1] - center[1];
+
+                min = Math.min(min, dx * dx + dy * dy);
+            }
+
+            assertTrue(msg, min < 0.25);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.math.Kernel;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * A test case for the Kernel class.
+ *
+ * @author Akis Papadopoulos
+ */
+public class KernelTest {
+
+    private static Kernel scalar = Kernel.of("scalar");
+
+    private static Kernel unrolled = Kernel.of("unrolled");
+
+    // Lengths crossing the unrolled blocks with remainders
+    private static int[] lengths = {1, 3, 4, 15, 16, 17, 64, 129};
+
+    @Test
+    public void testReductions() {
+        Random rand = new Random(1L);
+
+        for (int length : lengths) {
+            double[] a = random(rand, length);
+            double[] b = random(rand, length);
+
+            String msg = "Unrolled kernel should match the scalar one for length " + length;
+
+            assertEquals(msg, scalar.distance(a, b, Double.POSITIVE_INFINITY), unrolled.distance(a, b, Double.POSITIVE_INFINITY), 1e-9);
+            assertEquals(msg, scalar.dot(a, 0, b, length), unrolled.dot(a, 0, b, length), 1e-9);
+            assertEquals(msg, scalar.squares(a, 0, length), unrolled.squares(a, 0, length), 1e-9);
+
+            float[] fa = toFloat(a);
+            float[] fb = toFloat(b);
+
+            assertEquals(msg, scalar.distance(fa, fb, Float.POSITIVE_INFINITY), unrolled.distance(fa, fb, Float.POSITIVE_INFINITY), 1e-3);
+            assertEquals(msg, scalar.squares(fa, 0, length), unrolled.squares(fa, 0, length), 1e-9);
+        }
+    }
+
+    @Test
+    public void testBound() {
+        Random rand = new Random(2L);
+
+        double[] a = random(rand, 200);
+        double[] b = random(rand, 200);
+
+        double full = unrolled.distance(a, b, Double.POSITIVE_INFINITY);
+
+        String msg = "Bounded distance should exceed the bound once it stops early";
+
+        assertTrue(msg, unrolled.distance(a, b, full / 4) >= full / 4);
+        assertTrue(msg, scalar.distance(a, b, full / 4) >= full / 4);
+
+        msg = "Bounded distance should be complete under a greater bound";
+
+        assertEquals(msg, full, unrolled.distance(a, b, full * 2), 0);
+    }
+
+    @Test
+    public void testElementWise() {
+        Random rand = new Random(3L);
+
+        for (int length : lengths) {
+            double[] x = random(rand, length);
+            double[] c = random(rand, length);
+
+            double[] expected = random(rand, length + 5);
+            double[] actual = expected.clone();
+
+            scalar.residual(x, c, expected, 5, length);
+            unrolled.residual(x, c, actual, 5, length);
+
+            String msg = "Unrolled residuals should match the scalar ones for length " + length;
+
+            assertArrayEquals(msg, expected, actual, 0);
+
+            double[] square = new double[length * length];
+            double[] unrolledSquare = new double[length * length];
+
+            scalar.outer(x, square, 0, length);
+            unrolled.outer(x, unrolledSquare, 0, length);
+
+            msg = "Unrolled tensor products should match the scalar ones for length " + length;
+
+            assertArrayEquals(msg, square, unrolledSquare, 0);
+            assertEquals(msg, x[length - 1] * x[0], square[(length - 1) * length], 0);
+
+            scalar.sqrt(expected, 2, length);
+            unrolled.sqrt(actual, 2, length);
+
+            msg = "Unrolled signed square roots should match the scalar ones for length " + length;
+
+            assertArrayEquals(msg, expected, actual, 0);
+
+            float[] fexpected = toFloat(expected);
+            float[] factual = toFloat(expected);
+
+            scalar.sqrt(fexpected, 0, length);
+            unrolled.sqrt(factual, 0, length);
+
+            assertArrayEquals(msg, fexpected, factual, 0);
+        }
+    }
+
+    private static double[] random(Random rand, int length) {
+        double[] vector = new double[length];
+
+        for (int j = 0; j < length; j++) {
+            vector[j] = rand.nextGaussian();
+        }
+
+        return vector;
+    }
+
+    private static float[] toFloat(double[] vector) {
+        float[] result = new float[vector.length];
+
+        for (int j = 0; j < vector.length; j++) {
+            result[j] = (float) vector[j];
+        }
+
+        return result;
+    }
+}
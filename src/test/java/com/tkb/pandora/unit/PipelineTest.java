@@ -0,0 +1,245 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.exec.Pipeline;
+import com.tkb.pandora.image.Description;
+import com.tkb.pandora.image.FeatureDetector;
+import com.tkb.pandora.io.Journal;
+import com.tkb.pandora.io.VectorWriter;
+import com.tkb.pandora.math.SparseVector;
+import static com.tkb.pandora.unit.Fixtures.images;
+import com.tkb.pandora.vector.Aggregator;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import javax.imageio.ImageIO;
+import org.apache.log4j.Logger;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the stages of the Pipeline class run by more than one worker
+ * each, connected by queues of a small capacity.
+ *
+ * @author Akis Papadopoulos
+ */
+public class PipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Logger logger = Logger.getLogger(PipelineTest.class);
+
+    @Test(timeout = 60000)
+    public void testItems() throws Exception {
+        File dirin = folder.newFolder("images");
+
+        String[] filenames = images(dirin, 30);
+
+        Writer writer = run(dirin, filenames, detectors(3, false), new SumAggregator(false), 3);
+
+        String msg = "Every image should be written exactly once";
+
+        assertEquals(msg, filenames.length, writer.counts.size());
+
+        Fixtures.RowDetector detector = new Fixtures.RowDetector();
+
+        for (String filename : filenames) {
+            String id = filename.substring(0, filename.lastIndexOf("."));
+
+            assertEquals(msg, Integer.valueOf(1), writer.counts.get(id));
+
+            msg = "Every image should be written along with its own vector";
+
+            double[][] descriptors = detector.extract(ImageIO.read(new File(dirin, filename))).getDescriptors();
+
+            assertArrayEquals(msg, new SumAggregator(false).aggregate(descriptors), writer.vectors.get(id), 0.0);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testExtractFailure() throws Exception {
+        File dirin = folder.newFolder("images");
+
+        String[] filenames = images(dirin, 30);
+
+        // Killing one extract worker on its first image, the sibling carries on
+        Writer writer = run(dirin, filenames, detectors(2, true), new SumAggregator(false), 2);
+
+        String msg = "Every image but the failed one should be written exactly once";
+
+        assertEquals(msg, filenames.length - 1, writer.counts.size());
+
+        for (Integer count : writer.counts.values()) {
+            assertEquals(msg, Integer.valueOf(1), count);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testAggregateFailure() throws Exception {
+        File dirin = folder.newFolder("images");
+
+        String[] filenames = images(dirin, 30);
+
+        // Killing every aggregate worker, leaving the extract workers blocked on a full queue
+        Writer writer = run(dirin, filenames, detectors(2, false), new SumAggregator(true), 2);
+
+        String msg = "The pipeline should terminate without writing any image";
+
+        assertEquals(msg, 0, writer.counts.size());
+    }
+
+    /**
+     * A method running the given images through the pipeline by queues of
+     * capacity 2.
+     *
+     * @param dirin the images directory.
+     * @param filenames the image file names.
+     * @param detectors the detectors, one per extract worker.
+     * @param aggregator the shared aggregator.
+     * @param aggregators the number of aggregate workers.
+     * @return the writer of the vectors.
+     * @throws Exception an unknown exception.
+     */
+    private Writer run(File dirin, String[] filenames, FeatureDetector[] detectors, Aggregator aggregator, int aggregators) throws Exception {
+        Writer writer = new Writer();
+
+        Journal journal = new Journal(new File(folder.getRoot(), "pipeline.journal").getPath(), "abc");
+
+        try {
+            Pipeline.run(detectors, dirin, filenames, aggregator, aggregators, null, writer, journal, 2, logger);
+        } finally {
+            writer.close();
+
+            journal.close();
+        }
+
+        return writer;
+    }
+
+    /**
+     * A method returning the given number of detectors, where the first one
+     * fails on its first image if asked to.
+     *
+     * @param count the number of detectors.
+     * @param failing true to fail the first detector.
+     * @return the detectors.
+     */
+    private static FeatureDetector[] detectors(int count, boolean failing) {
+        FeatureDetector[] detectors = new FeatureDetector[count];
+
+        if (!failing) {
+            for (int i = 0; i < count; i++) {
+                detectors[i] = new Fixtures.RowDetector();
+            }
+
+            return detectors;
+        }
+
+        // Holding the other detectors back until the first one has failed on an image of its own
+        final CountDownLatch failed = new CountDownLatch(1);
+
+        detectors[0] = new FeatureDetector() {
+
+            @Override
+            public Description extract(BufferedImage image) throws Exception {
+                failed.countDown();
+
+                // Failing beyond the per image error handling, as an out of memory would
+                throw new Error("Failing extract worker");
+            }
+        };
+
+        for (int i = 1; i < count; i++) {
+            detectors[i] = new Fixtures.RowDetector() {
+
+                @Override
+                public Description extract(BufferedImage image) throws Exception {
+                    failed.await();
+
+                    return super.extract(image);
+                }
+            };
+        }
+
+        return detectors;
+    }
+
+    /**
+     * An aggregator summing up the descriptors of an image, failing on every
+     * image if asked to.
+     */
+    private static class SumAggregator implements Aggregator {
+
+        // Failing beyond the per image error handling
+        private boolean failing;
+
+        public SumAggregator(boolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public double[] aggregate(double[][] descriptors) {
+            double[] vector = new double[getSize()];
+
+            aggregate(descriptors, vector, 0);
+
+            return vector;
+        }
+
+        @Override
+        public void aggregate(double[][] descriptors, double[] vector, int offset) {
+            if (failing) {
+                throw new Error("Failing aggregate worker");
+            }
+
+            for (int i = 0; i < descriptors.length; i++) {
+                for (int j = 0; j < descriptors[i].length; j++) {
+                    vector[offset + j] += descriptors[i][j];
+                }
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return 4;
+        }
+    }
+
+    /**
+     * A writer keeping the vectors in memory, counting the writes per id.
+     */
+    private static class Writer implements VectorWriter {
+
+        private Map<String, Integer> counts = new HashMap<String, Integer>();
+
+        private Map<String, double[]> vectors = new HashMap<String, double[]>();
+
+        @Override
+        public void write(String id, double[] vector) {
+            Integer count = counts.get(id);
+
+            counts.put(id, count == null ? 1 : count + 1);
+
+            vectors.put(id, vector.clone());
+        }
+
+        @Override
+        public void write(String id, float[] vector) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(String id, SparseVector vector) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
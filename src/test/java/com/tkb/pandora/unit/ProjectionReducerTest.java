@@ -0,0 +1,76 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.math.ProjectionReducer;
+import static com.tkb.pandora.unit.Fixtures.gaussian;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * A test case for the ProjectionReducer class.
+ *
+ * @author Akis Papadopoulos
+ */
+public class ProjectionReducerTest {
+
+    // Sizes crossing the blocks of rows and components with remainders
+    private static double[][] subspace = gaussian(37, 301, 1L, 0);
+
+    private static double[] mean = gaussian(1, 301, 2L, 0)[0];
+
+    private static double[][] vectors = gaussian(23, 301, 3L, 0);
+
+    @Test
+    public void testReduce() {
+        ProjectionReducer reducer = new ProjectionReducer(subspace, mean, false);
+
+        try {
+            double[] vector = vectors[0].clone();
+
+            double[] reduced = reducer.reduce(vector);
+
+            String msg = "Reduced vector should match the projection of the centered vector";
+
+            assertArrayEquals(msg, project(vectors[0]), reduced, 1e-9);
+
+            msg = "Reducing should leave the given vector untouched";
+
+            assertArrayEquals(msg, vectors[0], vector, 0);
+        } finally {
+            reducer.close();
+        }
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        for (int threads : new int[]{1, 4}) {
+            ProjectionReducer reducer = new ProjectionReducer(subspace, mean, true, threads);
+
+            try {
+                double[][] reduced = reducer.reduce(vectors);
+
+                String msg = "Batch reduction should match the single reduction with " + threads + " threads";
+
+                assertEquals(msg, vectors.length, reduced.length);
+
+                for (int n = 0; n < vectors.length; n++) {
+                    assertArrayEquals(msg, reducer.reduce(vectors[n]), reduced[n], 1e-9);
+                }
+            } finally {
+                reducer.close();
+            }
+        }
+    }
+
+    private static double[] project(double[] vector) {
+        double[] reduced = new double[subspace.length];
+
+        for (int i = 0; i < subspace.length; i++) {
+            for (int j = 0; j < vector.length; j++) {
+                reduced[i] += subspace[i][j] * (vector[j] - mean[j]);
+            }
+        }
+
+        return reduced;
+    }
+}
@@ -0,0 +1,103 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.math.Covariance;
+import com.tkb.pandora.math.ProjectionSpace;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * A test case for the ProjectionSpace class.
+ *
+ * @author Akis Papadopoulos
+ */
+public class ProjectionSpaceTest {
+
+    // Data of a decaying spectrum, so the dominant components are well separated
+    private static double[][] data = spectrum(300, 20, 1L);
+
+    @Test
+    public void testRandomized() throws Exception {
+        ProjectionSpace expected = covariance(data);
+
+        ProjectionSpace randomized = new ProjectionSpace(data, 4, 6, 4, 7L, false);
+
+        String msg = "Randomized space should be truncated to the rank";
+
+        assertEquals(msg, 4, randomized.getSpace().length);
+
+        msg = "Randomized mean should match the data mean";
+
+        for (int j = 0; j < data[0].length; j++) {
+            assertEquals(msg, expected.getMean()[j], randomized.getMean()[j], 1e-9);
+        }
+
+        msg = "Randomized components should match the dominant eigenvectors up to their sign";
+
+        double[][] a = expected.getBasis(4);
+        double[][] b = randomized.getBasis(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(msg, 1.0, Math.abs(dot(a[i], b[i])), 1e-6);
+        }
+    }
+
+    @Test
+    public void testOrthonormal() throws Exception {
+        double[][] basis = new ProjectionSpace(data, 6, 0, 3, 3L, false).getBasis(6);
+
+        String msg = "Randomized components should be orthonormal";
+
+        for (int i = 0; i < basis.length; i++) {
+            for (int k = 0; k < basis.length; k++) {
+                assertEquals(msg, i == k ? 1.0 : 0.0, dot(basis[i], basis[k]), 1e-6);
+            }
+        }
+    }
+
+    private static ProjectionSpace covariance(double[][] data) throws Exception {
+        double[] mean = new double[data[0].length];
+
+        for (double[] vector : data) {
+            for (int j = 0; j < mean.length; j++) {
+                mean[j] += vector[j] / data.length;
+            }
+        }
+
+        Covariance covariance = new Covariance(mean, 2);
+
+        try {
+            for (double[] vector : data) {
+                covariance.add(vector);
+            }
+
+            return new ProjectionSpace(covariance, false, false);
+        } finally {
+            covariance.close();
+        }
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+
+        for (int j = 0; j < a.length; j++) {
+            sum += a[j] * b[j];
+        }
+
+        return sum;
+    }
+
+    private static double[][] spectrum(int rows, int cols, long seed) {
+        Random rand = new Random(seed);
+
+        double[][] matrix = new double[rows][cols];
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = rand.nextGaussian() * 20 / (j + 1) + 3;
+            }
+        }
+
+        return matrix;
+    }
+}
@@ -0,0 +1,97 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.math.BernoulliSampler;
+import com.tkb.pandora.math.ReservoirSampler;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * A test case for the ReservoirSampler and BernoulliSampler classes.
+ *
+ * @author Akis Papadopoulos
+ */
+public class ReservoirSamplerTest {
+
+    @Test
+    public void testReservoir() {
+        int n = 10000;
+        int size = 100;
+
+        int[] hits = new int[10];
+
+        for (long seed = 1; seed <= 200; seed++) {
+            ReservoirSampler sampler = new ReservoirSampler(size, seed);
+
+            // Streaming the items, skipping as requested
+            for (int i = 0; i < n; i++) {
+                long skip = sampler.skip();
+
+                if (skip > 0) {
+                    long skipped = Math.min(skip, n - i);
+
+                    sampler.skipped(skipped);
+
+                    i += skipped - 1;
+                } else {
+                    sampler.add(new double[]{i});
+                }
+            }
+
+            double[][] sample = sampler.getSample();
+
+            String msg = "Reservoir should hold exactly the sample size";
+
+            assertEquals(msg, size, sample.length);
+
+            msg = "Reservoir should have seen every item";
+
+            assertEquals(msg, n, sampler.getSeen());
+
+            for (double[] item : sample) {
+                hits[(int) item[0] * hits.length / n]++;
+            }
+        }
+
+        // Expecting 2000 hits per decile of the stream
+        for (int hit : hits) {
+            String msg = "Reservoir should sample uniformly across the stream: " + hit;
+
+            assertTrue(msg, Math.abs(hit - 2000) < 250);
+        }
+    }
+
+    @Test
+    public void testShortStream() {
+        ReservoirSampler sampler = new ReservoirSampler(10, 1L);
+
+        for (int i = 0; i < 4; i++) {
+            sampler.add(new double[]{i});
+        }
+
+        String msg = "Reservoir should hold every item of a stream shorter than the sample size";
+
+        assertEquals(msg, 4, sampler.getSample().length);
+        assertEquals(msg, 0, sampler.skip());
+    }
+
+    @Test
+    public void testBernoulli() {
+        BernoulliSampler sampler = new BernoulliSampler(0.1, 3L);
+
+        long n = 1000000;
+        long picked = 0;
+
+        for (long i = sampler.skip(); i < n; i += sampler.skip() + 1) {
+            picked++;
+        }
+
+        String msg = "Bernoulli sampling should pick about the given ratio of items: " + picked;
+
+        assertTrue(msg, Math.abs(picked - 100000) < 1500);
+
+        msg = "Bernoulli sampling with ratio equal to '1.0' should skip nothing";
+
+        assertEquals(msg, 0, new BernoulliSampler(1.0, 3L).skip());
+    }
+}
@@ -0,0 +1,215 @@
+package com.tkb.pandora.unit;
+
+import com.tkb.pandora.io.FileFormat;
+import com.tkb.pandora.io.RowIterator;
+import com.tkb.pandora.io.StorageLayout;
+import com.tkb.pandora.io.VectorReader;
+import com.tkb.pandora.io.VectorStore;
+import com.tkb.pandora.io.VectorStoreWriter;
+import com.tkb.pandora.io.VectorWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A test case for the VectorStore and VectorStoreWriter classes.
+ *
+ * @author Akis Papadopoulos
+ */
+public class VectorStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static double[][] a1 = {{0.1, 2.5, -3.0}, {4.0, 5.75, 6.125}, {-7.5, 8.0, 9.25}};
+
+    private static double[][] a2 = {{1.0, 2.0, 3.0}, {-1.0, -2.0, -3.0}};
+
+    @Test
+    public void testSegments() throws IOException {
+        String dirpath = new File(folder.getRoot(), "store").getPath();
+
+        write(dirpath, "a", a1, false);
+        write(dirpath, "b", a2, false);
+
+        VectorStore store = new VectorStore(dirpath, true);
+
+        try {
+            String msg = "Rows of all segments should be numbered in order";
+
+            assertEquals(msg, 5, store.size());
+            assertEquals(msg, 3, store.getCols());
+            assertEquals(msg, "a2", store.getId(2));
+            assertEquals(msg, "b0", store.getId(3));
+
+            msg = "Rows should be read back unchanged at random";
+
+            assertArrayEquals(msg, a2[1], store.read(4), 0.0);
+            assertArrayEquals(msg, a1[0], store.read(0), 0.0);
+
+            msg = "Ids should be looked up to their rows";
+
+            assertEquals(msg, 1, store.getRow("a1"));
+            assertEquals(msg, 4, store.getRow("b1"));
+            assertEquals(msg, -1, store.getRow("c0"));
+
+            msg = "Scanning should chain the segments, skipping across them";
+
+            RowIterator rows = store.iterate();
+
+            try {
+                assertArrayEquals(msg, a1[0], rows.next(), 0.0);
+                assertEquals(msg, 3, rows.skip(3));
+                assertArrayEquals(msg, a2[1], rows.next(), 0.0);
+                assertFalse(msg, rows.hasNext());
+            } finally {
+                rows.close();
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testSinglePrecision() throws IOException {
+        String dirpath = new File(folder.getRoot(), "single").getPath();
+
+        VectorWriter writer = StorageLayout.STORE.writer(dirpath, "vlad", FileFormat.FLOAT32);
+
+        try {
+            writer.write("x", new float[]{0.5f, -1.25f});
+            writer.write("y", new double[]{0.1, 3.0});
+        } finally {
+            writer.close();
+        }
+
+        VectorReader reader = StorageLayout.STORE.reader(dirpath, "vlad", FileFormat.FLOAT32, true);
+
+        try {
+            String msg = "Single precision rows should be read back with their ids";
+
+            assertEquals(msg, 2, reader.size());
+
+            assertTrue(msg, reader.next());
+            assertEquals(msg, "x", reader.getId());
+            assertArrayEquals(msg, new double[]{0.5, -1.25}, reader.getVector(), 0.0);
+
+            assertTrue(msg, reader.next());
+            assertEquals(msg, "y", reader.getId());
+            assertArrayEquals(msg, new double[]{(float) 0.1, 3.0}, reader.getVector(), 0.0);
+
+            assertFalse(msg, reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testFilesLayout() throws IOException {
+        String dirpath = folder.getRoot().getPath();
+
+        VectorWriter writer = StorageLayout.FILES.writer(dirpath, "vlad", FileFormat.CSV);
+
+        try {
+            writer.write("img-1", a1[0]);
+        } finally {
+            writer.close();
+        }
+
+        VectorReader reader = StorageLayout.FILES.reader(dirpath, "vlad", FileFormat.CSV, false);
+
+        try {
+            String msg = "Vector files should be named after their ids";
+
+            assertTrue(msg, new File(dirpath, "img-1.vlad").exists());
+
+            assertTrue(msg, reader.next());
+            assertEquals(msg, "img-1", reader.getId());
+            assertArrayEquals(msg, a1[0], reader.getVector(), 0.0);
+            assertFalse(msg, reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testIncompleteSegment() throws IOException {
+        String dirpath = new File(folder.getRoot(), "incomplete").getPath();
+
+        write(dirpath, "a", a1, false);
+
+        // Leaving a segment open as an interrupted writer would
+        VectorStoreWriter writer = new VectorStoreWriter(dirpath, false);
+        writer.write("b0", a2[0]);
+
+        VectorStore store = new VectorStore(dirpath, true);
+
+        try {
+            String msg = "Incomplete segments should be ignored and reported";
+
+            assertEquals(msg, 3, store.size());
+            assertEquals(msg, 1, store.getIncomplete().size());
+        } finally {
+            store.close();
+
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testChecksum() throws IOException {
+        String dirpath = new File(folder.getRoot(), "corrupted").getPath();
+
+        File file = write(dirpath, "a", a1, false);
+
+        // Flipping a byte of the matrix
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try {
+            raf.seek(60);
+
+            int b = raf.read();
+
+            raf.seek(60);
+            raf.write(b ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        new VectorStore(dirpath, false).close();
+
+        try {
+            new VectorStore(dirpath, true).close();
+
+            fail("Corrupted segments should fail the verification");
+        } catch (IOException exc) {
+            assertTrue(exc.getMessage().startsWith("Checksum mismatch"));
+        }
+    }
+
+    /**
+     * A method writing the given rows in a new segment under ids made of the
+     * given prefix and the row number.
+     */
+    private static File write(String dirpath, String prefix, double[][] rows, boolean single) throws IOException {
+        VectorStoreWriter writer = new VectorStoreWriter(dirpath, single);
+
+        try {
+            for (int i = 0; i < rows.length; i++) {
+                writer.write(prefix + i, rows[i]);
+            }
+        } finally {
+            writer.close();
+        }
+
+        return writer.getFile();
+    }
+}